@@ -0,0 +1,198 @@
+/*
+ * Demoiselle Framework
+ *
+ * License: GNU Lesser General Public License (LGPL), version 3 or later.
+ * See the lgpl.txt file in the root directory or <https://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.demoiselle.jee.crud;
+
+import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
+
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import javax.inject.Inject;
+import javax.validation.Valid;
+import javax.ws.rs.Consumes;
+import javax.ws.rs.DELETE;
+import javax.ws.rs.GET;
+import javax.ws.rs.POST;
+import javax.ws.rs.PUT;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
+import javax.ws.rs.core.Response.Status;
+
+import org.demoiselle.jee.crud.async.AsyncRequestContext;
+import org.demoiselle.jee.crud.async.AsyncTransaction;
+import org.demoiselle.jee.crud.async.CrudExecutor;
+import org.demoiselle.jee.crud.batch.BatchResult;
+import org.demoiselle.jee.crud.cache.EntityTags;
+import org.demoiselle.jee.rest.exception.DemoiselleRestException;
+
+import io.swagger.annotations.ApiOperation;
+import io.swagger.jaxrs.PATCH;
+
+/**
+ * Asynchronous version of {@link AbstractREST}, with the same CRUD operations.
+ *
+ * The requests are suspended and the calls to {@link AbstractBusiness} are executed on the bounded
+ * {@link CrudExecutor}, each one on its own transaction, so a slow query doesn't hold a thread of the
+ * container. The features of {@link CrudFilter} (pagination, fields, sort, filters) work the same way.
+ *
+ * Like {@link AbstractREST} the subclasses must override the list method using the {@link Search} annotation:
+ *
+ * <pre>
+ * &#64;GET
+ * &#64;Search(fields = {"id", "name"})
+ * public void find(&#64;Suspended AsyncResponse asyncResponse) {
+ *     execute(asyncResponse, bc::find);
+ * }
+ * </pre>
+ *
+ * @author SERPRO
+ */
+@Produces(APPLICATION_JSON)
+@Consumes(APPLICATION_JSON)
+public abstract class AbstractAsyncREST<T, I> {
+
+    @Inject
+    protected AbstractBusiness<T, I> bc;
+
+    @Inject
+    private CrudMessage crudMessage;
+
+    @Inject
+    private DemoiselleRequestContext drc;
+
+    @Inject
+    private CrudExecutor executor;
+
+    @Inject
+    private AsyncTransaction transaction;
+
+    @POST
+    @ApiOperation(value = "persist entity")
+    public void persist(@Valid T entity, @Suspended AsyncResponse asyncResponse) {
+        execute(asyncResponse, () -> bc.persist(entity));
+    }
+
+    @PUT
+    @ApiOperation(value = "full update entity")
+    public void mergeFull(@Valid T entity, @Suspended AsyncResponse asyncResponse) {
+        execute(asyncResponse, () -> bc.mergeFull(entity));
+    }
+
+    @PATCH
+    @Path("{id}")
+    @ApiOperation(value = "partial update entity")
+    public void mergeHalf(@PathParam("id") final I id, T entity, @Suspended AsyncResponse asyncResponse) {
+        execute(asyncResponse, () -> bc.mergeHalf(id, entity));
+    }
+
+    @DELETE
+    @Path("{id}")
+    @ApiOperation(value = "remove entity")
+    public void remove(@PathParam("id") final I id, @Suspended AsyncResponse asyncResponse) {
+        execute(asyncResponse, () -> {
+            bc.remove(id);
+            return null;
+        });
+    }
+
+    @POST
+    @Path("batch")
+    @ApiOperation(value = "persist entities in batch")
+    public void persistBatch(List<T> entities, @Suspended AsyncResponse asyncResponse) {
+        /*
+         * Same reason of AbstractREST.persistBatch(): the developer overrides this method with the security 
+         * of the resource and calls executeEach() or, when persist() isn't customized, bc.persistBatch().
+         */
+        throw new DemoiselleRestException(crudMessage.methodBatchNotImplemented("persistBatch"), Status.NOT_IMPLEMENTED.getStatusCode());
+    }
+
+    @PUT
+    @Path("batch")
+    @ApiOperation(value = "full update entities in batch")
+    public void mergeFullBatch(List<T> entities, @Suspended AsyncResponse asyncResponse) {
+        // Same reason of persistBatch()
+        throw new DemoiselleRestException(crudMessage.methodBatchNotImplemented("mergeFullBatch"), Status.NOT_IMPLEMENTED.getStatusCode());
+    }
+
+    @DELETE
+    @Path("batch")
+    @ApiOperation(value = "remove entities in batch")
+    public void removeBatch(List<I> ids, @Suspended AsyncResponse asyncResponse) {
+        // Same reason of persistBatch()
+        throw new DemoiselleRestException(crudMessage.methodBatchNotImplemented("removeBatch"), Status.NOT_IMPLEMENTED.getStatusCode());
+    }
+
+    @GET
+    @Path("{id}")
+    @ApiOperation(value = "find by ID")
+    public void find(@PathParam("id") final I id, @Suspended AsyncResponse asyncResponse) {
+        execute(asyncResponse, () -> {
+            /*
+             * Conditional GET answered by the version of the entity, see CrudFilter. The tag is null when the
+             * business or the DAO overrides find(id), so its access checks are never skipped.
+             */
+            DemoiselleRequestContext context = AsyncRequestContext.resolve(drc);
+            if (context.getIfNoneMatch() != null) {
+                String entityTag = bc.findEntityTag(id);
+                if (EntityTags.matches(context.getIfNoneMatch(), entityTag)) {
+                    context.setEntityTag(entityTag);
+                    return null;
+                }
+            }
+
+            return bc.find(id);
+        });
+    }
+
+    @GET
+    public void find(@Suspended AsyncResponse asyncResponse) {
+        /*
+         * For security reasons we opted to throw the exception below so that the developer who is
+         * extending this class overrides its own find() method using the @Search annotation,
+         * like on AbstractREST.
+         */
+        throw new DemoiselleRestException(crudMessage.methodFindNotImplemented(), Status.NOT_IMPLEMENTED.getStatusCode());
+    }
+
+    /**
+     * Apply the operation to each item on {@link CrudExecutor}, on a single transaction, and resume the response 
+     * with the {@link BatchResult}. Used by the overrides of the batch methods, with the same operation of the 
+     * override of the single item method, so the customizations apply to every item:
+     *
+     * <pre>
+     * &#64;POST
+     * &#64;Path("batch")
+     * &#64;RequiredRole("admin")
+     * public void persistBatch(List&lt;User&gt; entities, &#64;Suspended AsyncResponse asyncResponse) {
+     *     executeEach(asyncResponse, entities, Status.CREATED, entity -&gt; bc.persist(entity).getId());
+     * }
+     * </pre>
+     *
+     * @param asyncResponse Suspended response
+     * @param items Items of the request
+     * @param successStatus Status of the items processed
+     * @param operation Operation applied to each item, returns the id of the item
+     */
+    protected <X> void executeEach(AsyncResponse asyncResponse, List<X> items, Status successStatus, Function<X, Object> operation) {
+        execute(asyncResponse, () -> BatchResult.of(items, successStatus.getStatusCode(), operation));
+    }
+
+    /**
+     * Execute the task on {@link CrudExecutor}, on a transaction, and resume the response with its result.
+     *
+     * @param asyncResponse Suspended response
+     * @param task Task that returns the entity of the response
+     */
+    protected void execute(AsyncResponse asyncResponse, Supplier<?> task) {
+        executor.execute(asyncResponse, () -> transaction.execute(task));
+    }
+
+}
@@ -6,10 +6,14 @@
  */
 package org.demoiselle.jee.crud;
 
+import java.util.List;
+
 import javax.inject.Inject;
 
 import org.demoiselle.jee.core.api.crud.Crud;
 import org.demoiselle.jee.core.api.crud.Result;
+import org.demoiselle.jee.crud.batch.BatchResult;
+import org.demoiselle.jee.crud.batch.UpdateResult;
 
 public abstract class AbstractBusiness<T, I> implements Crud<T, I> {
 
@@ -36,11 +40,47 @@ public abstract class AbstractBusiness<T, I> implements Crud<T, I> {
         dao.remove(id);
     }
 
+    public BatchResult persistBatch(List<T> entities) {
+        return dao.persistBatch(entities);
+    }
+
+    public BatchResult mergeFullBatch(List<T> entities) {
+        return dao.mergeFullBatch(entities);
+    }
+
+    public BatchResult removeBatch(List<I> ids) {
+        return dao.removeBatch(ids);
+    }
+
+    public UpdateResult updateByFilter(T entity) {
+        return dao.updateByFilter(entity);
+    }
+
     @Override
     public Result find() {
         return dao.find();
     }
 
+    public List<T> findChunk(int chunkSize) {
+        return dao.findChunk(chunkSize);
+    }
+
+    /**
+     * Return the 'ETag' of the entity, see {@link AbstractDAO#findEntityTag(Object)}.
+     * 
+     * The tag is null when this business overrides {@link #find(Object)}, so the access checks it may do
+     * run before the conditional GET is answered.
+     * 
+     * @param id Id of the entity
+     * @return The tag or null
+     */
+    public String findEntityTag(I id) {
+        if (AbstractDAO.overridesFindById(getClass(), AbstractBusiness.class)) {
+            return null;
+        }
+        return dao.findEntityTag(id);
+    }
+
     @Override
     public T find(I id) {
         return dao.find(id);
@@ -6,40 +6,105 @@
  */
 package org.demoiselle.jee.crud;
 
+import java.io.Serializable;
 import java.lang.reflect.Field;
+import java.lang.reflect.Method;
 import java.lang.reflect.ParameterizedType;
+import java.sql.SQLTimeoutException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.stream.Collectors;
 
 import javax.ejb.TransactionAttribute;
 import javax.ejb.TransactionAttributeType;
+import javax.enterprise.context.ContextNotActiveException;
+import javax.enterprise.event.Event;
 import javax.inject.Inject;
-import javax.persistence.Column;
+import javax.persistence.Cache;
 import javax.persistence.EntityManager;
-import javax.persistence.ManyToOne;
+import javax.persistence.EntityManagerFactory;
 import javax.persistence.Query;
+import javax.persistence.QueryTimeoutException;
+import javax.persistence.TemporalType;
+import javax.persistence.Tuple;
 import javax.persistence.TypedQuery;
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.CriteriaUpdate;
+import javax.persistence.criteria.Expression;
 import javax.persistence.criteria.From;
 import javax.persistence.criteria.Join;
 import javax.persistence.criteria.Order;
+import javax.persistence.criteria.Path;
 import javax.persistence.criteria.Predicate;
 import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Selection;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
 import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.Response.Status;
 
 import org.demoiselle.jee.core.api.crud.Crud;
 import org.demoiselle.jee.core.api.crud.Result;
+import org.demoiselle.jee.crud.aggregate.Aggregation;
+import org.demoiselle.jee.crud.async.AsyncRequestContext;
+import org.demoiselle.jee.crud.async.CrudExecutor;
+import org.demoiselle.jee.crud.batch.BatchItemResult;
+import org.demoiselle.jee.crud.batch.BatchResult;
+import org.demoiselle.jee.crud.batch.UpdateResult;
+import org.demoiselle.jee.crud.cache.Cached;
+import org.demoiselle.jee.crud.cache.CachedCopy;
+import org.demoiselle.jee.crud.cache.CachedPage;
+import org.demoiselle.jee.crud.cache.CrudCache;
+import org.demoiselle.jee.crud.cache.EntityTags;
+import org.demoiselle.jee.crud.changes.CrudTombstone;
+import org.demoiselle.jee.crud.changes.SinceToken;
+import org.demoiselle.jee.crud.coalesce.CoalesceScope;
+import org.demoiselle.jee.crud.coalesce.Coalesced;
+import org.demoiselle.jee.crud.coalesce.QueryCoalescer;
+import org.demoiselle.jee.crud.commit.AfterCommit;
 import org.demoiselle.jee.crud.exception.DemoiselleCrudException;
+import org.demoiselle.jee.crud.filter.FilterOperator;
+import org.demoiselle.jee.crud.guard.QueryGuardMetrics;
+import org.demoiselle.jee.crud.guard.QueryGuardViolation;
+import org.demoiselle.jee.crud.index.SearchIndex;
+import org.demoiselle.jee.crud.index.SearchIndexRegistry;
+import org.demoiselle.jee.crud.index.TrigramIndex;
+import org.demoiselle.jee.crud.metadata.EntityMetadata;
+import org.demoiselle.jee.crud.metadata.EntityMetadataRegistry;
+import org.demoiselle.jee.crud.pagination.CountCache;
+import org.demoiselle.jee.crud.pagination.CountStrategy;
+import org.demoiselle.jee.crud.pagination.KeysetCursor;
 import org.demoiselle.jee.crud.pagination.PaginationHelperConfig;
+import org.demoiselle.jee.crud.pagination.PaginationType;
 import org.demoiselle.jee.crud.pagination.ResultSet;
+import org.demoiselle.jee.crud.query.PartialUpdate;
+import org.demoiselle.jee.crud.query.Projection;
+import org.demoiselle.jee.crud.query.QueryPlan;
+import org.demoiselle.jee.crud.query.QueryPlanBuilder;
+import org.demoiselle.jee.crud.query.QueryPlanCache;
+import org.demoiselle.jee.crud.query.QueryShape;
 import org.demoiselle.jee.crud.sort.CrudSort;
+import org.demoiselle.jee.crud.sort.SortModel;
+import org.demoiselle.jee.crud.stream.ChunkTransaction;
+import org.demoiselle.jee.crud.stream.StreamingResult;
 
 @TransactionAttribute(TransactionAttributeType.MANDATORY)
 public abstract class AbstractDAO<T, I> implements Crud<T, I> {
@@ -50,146 +115,1630 @@ public abstract class AbstractDAO<T, I> implements Crud<T, I> {
     @Inject
     private DemoiselleRequestContext drc;
 
+    @Inject
+    private DemoiselleCrudConfig crudConfig;
+
+    @Inject
+    private QueryPlanCache queryPlanCache;
+
+    @Inject
+    private CountCache countCache;
+
+    @Inject
+    private Validator validator;
+
+    @Inject
+    private CrudCache crudCache;
+
+    @Inject
+    private QueryGuardMetrics queryGuardMetrics;
+
+    @Inject
+    private QueryCoalescer queryCoalescer;
+
+    @Inject
+    private Event<AfterCommit> afterCommit;
+
+    @Inject
+    private ChunkTransaction chunkTransaction;
+
+    private static final List<String> QUERY_HOOKS = Arrays.asList("configureCriteriaQuery", "configureOrder", "buildPredicates", "buildLikePredicate");
+
+    private static final Map<Class<?>, Boolean> QUERY_HOOKS_OVERRIDDEN = new ConcurrentHashMap<>();
+
+    /**
+     * Hooks that receive the {@link CriteriaQuery}, which an UPDATE doesn't have.
+     */
+    private static final List<String> PREDICATE_HOOKS = Arrays.asList("buildPredicates", "buildLikePredicate");
+
+    private static final Map<Class<?>, Boolean> UPDATE_PREDICATES_MISSING = new ConcurrentHashMap<>();
+
+    private static final Map<Class<?>, Boolean> FIND_BY_ID_OVERRIDDEN = new ConcurrentHashMap<>();
+
+    private static final Set<Class<?>> SHARING_WARNED = ConcurrentHashMap.newKeySet();
+
+    private static final int DEFAULT_STREAM_CHUNK_SIZE = 500;
+
+    private static final int DEFAULT_BATCH_SIZE = 50;
+
+    private static final int DEFAULT_SEARCH_INDEX_MAX_IDS = 1000;
+
+    private static final int DEFAULT_SEARCH_INDEX_TIME_TO_LIVE = 600;
+
+    private static final long SEARCH_INDEX_CLOCK_SKEW = TimeUnit.MINUTES.toMillis(1);
+
+    private static final int DEFAULT_CHANGE_FEED_PAGE_SIZE = 1000;
+
+    private static final int DEFAULT_CHANGE_FEED_SAFETY_WINDOW = 5;
+
+    private static final int DEFAULT_UPDATE_BY_FILTER_MAX_ROWS = 1000;
+
+    private static final int DEFAULT_READ_REPLICA_MAX_LAG = 5;
+
+    /**
+     * Time of the last write of each entity on this node, the reads of the entity stay on the primary 
+     * during {@link DemoiselleCrudConfig#getReadReplicaMaxLag()} after it.
+     * 
+     * The times are kept on the memory of each node: behind a load balancer a request routed to another 
+     * node doesn't see the writes of this one and may read the replica before it catches up. Applications 
+     * that need to read their writes across nodes should route the requests of a client to the same node 
+     * (sticky sessions) or read the primary.
+     */
+    private static final Map<Class<?>, Long> LAST_WRITES = new ConcurrentHashMap<>();
+
+    /**
+     * Fetch size hints of the known providers, the unknown hints are ignored by the providers.
+     */
+    private static final List<String> FETCH_SIZE_HINTS = Arrays.asList("org.hibernate.fetchSize", "eclipselink.jdbc.fetch-size");
+
+    private static final String QUERY_TIMEOUT_HINT = "javax.persistence.query.timeout";
+
     private final Class<T> entityClass;
 
-    protected abstract EntityManager getEntityManager();
+    private String deleteStatement;
+
+    private String versionStatement;
+
+    protected abstract EntityManager getEntityManager();
+
+    /**
+     * Entity manager of a read replica of the database, used by {@link #find()}, {@link #find(Object)} 
+     * and {@link #count()}. The default is the entity manager of {@link #getEntityManager()}, DAOs override 
+     * it to return the entity manager of a persistence unit of the replica.
+     * 
+     * The writes always use the primary. After a write the reads of the same request stay on the primary, 
+     * so the request reads its own writes, and the reads of the entity by other requests of this node also 
+     * stay on the primary during {@link DemoiselleCrudConfig#getReadReplicaMaxLag()}. The times of the writes 
+     * are kept on the memory of each node, so behind a load balancer the other nodes may read the replica 
+     * before it catches up with a write, unless the requests of a client are routed to the same node. The 
+     * change feed and the 'ETag' of the writes always read the primary.
+     * 
+     * The queries of the reads, including the cached {@link QueryPlan}s, are built with the entity manager 
+     * of the replica.
+     * 
+     * The entities read from the replica are managed by its entity manager, changes on them should be 
+     * written by {@link #mergeFull(Object)}.
+     * 
+     * Ex.
+     * 
+     * <pre>
+     * &#64;PersistenceContext(unitName = "replica")
+     * private EntityManager replica;
+     * 
+     * &#64;Override
+     * protected EntityManager getReadEntityManager() {
+     *     return replica;
+     * }
+     * </pre>
+     * 
+     * @return Entity manager of the replica
+     */
+    protected EntityManager getReadEntityManager() {
+        return getEntityManager();
+    }
+
+    private Logger logger = Logger.getLogger(this.getClass().getName());
+
+    @SuppressWarnings("unchecked")
+    public AbstractDAO() {
+        this.entityClass = (Class<T>) ((ParameterizedType) getClass().getGenericSuperclass())
+                .getActualTypeArguments()[0];
+    }
+
+    @Override
+    public T persist(T entity) {
+        markWrite();
+        try {
+            getEntityManager().persist(entity);
+            updateSearchIndex(getId(entity), entity, false);
+            invalidateCaches();
+            return entity;
+        } catch (Exception e) {
+            throw new DemoiselleCrudException("Não foi possível salvar", e);
+        }
+    }
+
+    @Override
+    public T mergeHalf(I id, T entity) {
+        markWrite();
+        try {
+            final Query query = PartialUpdate.of(entityClass).createQuery(getEntityManager(), id, entity);
+            if (query != null) {
+                query.executeUpdate();
+                updateSearchIndex(toIdType(id), entity, true);
+                invalidateCaches();
+            }
+            
+            return entity;
+        } catch (final Exception e) {
+            throw new DemoiselleCrudException("Não foi possível salvar", e);
+        }
+    }
+
+    /**
+     * Partial update of all rows that match the filters of the request, executed as a single UPDATE
+     * statement with the predicates of {@link #buildUpdatePredicates(CriteriaBuilder, CriteriaUpdate, Root)}.
+     * 
+     * The non-null updatable fields of the entity are changed, like {@link #mergeHalf(Object, Object)}. The 
+     * {@link javax.persistence.Version} field is incremented and the {@link LastModified} field, when it is a 
+     * timestamp, is set to the actual time, so the clients of the change feed see the updated rows.
+     * 
+     * A DAO that overrides {@link #buildPredicates(CriteriaBuilder, CriteriaQuery, Root)} or 
+     * {@link #buildLikePredicate(CriteriaBuilder, CriteriaQuery, From, String, String)} should also override 
+     * {@link #buildUpdatePredicates(CriteriaBuilder, CriteriaUpdate, Root)}, otherwise the update is answered 
+     * with '501 Not Implemented'.
+     * 
+     * The request should have at least one filter, only of the first level of the entity, and match up to 
+     * {@link DemoiselleCrudConfig#getUpdateByFilterMaxRows()} rows. The rows are counted before the update and 
+     * the update is rejected, rolling back the transaction, if it changed more rows than the limit.
+     * 
+     * The statement doesn't pass by the persistence context, the entities already loaded are not refreshed.
+     * 
+     * @param entity Entity with the new values
+     * @return Number of rows updated
+     */
+    public UpdateResult updateByFilter(T entity) {
+        TreeNodeField<String, Set<String>> filters = requestContext().getFilters();
+        if (filters == null || filters.getChildren().isEmpty()) {
+            throw new DemoiselleCrudException("Não foi possível atualizar, informe ao menos um filtro", Status.BAD_REQUEST.getStatusCode());
+        }
+        if (filters.getChildren().stream().anyMatch(child -> !child.getChildren().isEmpty())) {
+            throw new DemoiselleCrudException("Não foi possível atualizar, são aceitos somente filtros de campos do primeiro nível", 
+                    Status.BAD_REQUEST.getStatusCode());
+        }
+
+        if (isUpdatePredicatesMissing(getClass())) {
+            throw new DemoiselleCrudException("Não foi possível atualizar, " + getClass().getSimpleName() + " personaliza os predicados "
+                    + "da consulta e deve implementar buildUpdatePredicates", Status.NOT_IMPLEMENTED.getStatusCode());
+        }
+
+        Map<String, Object> values = PartialUpdate.of(entityClass).getValues(entity);
+        if (values.isEmpty()) {
+            return new UpdateResult(0);
+        }
+
+        int maxRows = getUpdateByFilterMaxRows();
+        markWrite();
+        try {
+            Long matched = count(getEntityManager(), null);
+            if (matched > maxRows) {
+                throw new DemoiselleCrudException("Não foi possível atualizar, o filtro seleciona " + matched 
+                        + " registros e o máximo permitido é " + maxRows, Status.BAD_REQUEST.getStatusCode());
+            }
+
+            int updated = getEntityManager().createQuery(buildUpdateByFilter(values)).executeUpdate();
+            if (updated > maxRows) {
+                // Rows inserted between the count and the update, the exception rolls back the transaction
+                throw new DemoiselleCrudException("Não foi possível atualizar, o filtro selecionou " + updated 
+                        + " registros e o máximo permitido é " + maxRows, Status.BAD_REQUEST.getStatusCode());
+            }
+
+            if (updated > 0) {
+                evictFromSecondLevelCache();
+                if (getEntityMetadata().getSearchIndexedFields().stream().anyMatch(field -> values.containsKey(field.getName()))) {
+                    SearchIndex index = SearchIndexRegistry.get(entityClass);
+                    if (index != null) {
+                        executeAfterCommit(index::invalidate);
+                    }
+                }
+                invalidateCaches();
+            }
+
+            return new UpdateResult(updated);
+        } catch (DemoiselleCrudException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new DemoiselleCrudException("Não foi possível atualizar", e);
+        }
+    }
+
+    private CriteriaUpdate<T> buildUpdateByFilter(Map<String, Object> values) {
+        CriteriaBuilder criteriaBuilder = getEntityManager().getCriteriaBuilder();
+        CriteriaUpdate<T> criteriaUpdate = criteriaBuilder.createCriteriaUpdate(entityClass);
+        Root<T> root = criteriaUpdate.from(entityClass);
+
+        values.forEach(criteriaUpdate::set);
+
+        EntityMetadata metadata = getEntityMetadata();
+        Date now = new Date();
+        String version = metadata.getVersionAttribute();
+        if (version != null && !values.containsKey(version)) {
+            Class<?> type = metadata.getFieldType(version);
+            if (EntityMetadata.isTemporal(type)) {
+                criteriaUpdate.set(version, EntityMetadata.toTemporalValue(type, now));
+            } else {
+                Path<Number> path = root.get(version);
+                criteriaUpdate.set(path, criteriaBuilder.sum(path, (Number) 1));
+            }
+        }
+
+        String lastModified = metadata.getLastModifiedAttribute();
+        if (lastModified != null && !lastModified.equals(version) && !values.containsKey(lastModified) 
+                && EntityMetadata.isTemporal(metadata.getFieldType(lastModified))) {
+            criteriaUpdate.set(lastModified, EntityMetadata.toTemporalValue(metadata.getFieldType(lastModified), now));
+        }
+
+        return criteriaUpdate.where(buildUpdatePredicates(criteriaBuilder, criteriaUpdate, root));
+    }
+
+    private int getUpdateByFilterMaxRows() {
+        Integer maxRows = crudConfig == null ? null : crudConfig.getUpdateByFilterMaxRows();
+        return maxRows == null || maxRows < 1 ? DEFAULT_UPDATE_BY_FILTER_MAX_ROWS : maxRows;
+    }
+
+    @Override
+    public T mergeFull(T entity) {
+        markWrite();
+        try {
+            T merged = getEntityManager().merge(entity);
+            updateSearchIndex(getId(merged), merged, false);
+            invalidateCaches();
+            return merged;
+        } catch (Exception e) {
+            throw new DemoiselleCrudException("Não foi possível salvar", e);
+        }
+    }
+
+    @Override
+    public void remove(I id) {
+        boolean removed;
+        try {
+            removed = removeById(id);
+        } catch (Exception e) {
+            throw new DemoiselleCrudException("Não foi possível excluir", e);
+        }
+
+        if (!removed) {
+            throw new DemoiselleCrudException("Não foi possível excluir, registro não encontrado", Status.NOT_FOUND.getStatusCode());
+        }
+    }
+
+    /**
+     * Remove the entity of the id.
+     * 
+     * DAOs annotated with {@link DirectDelete} issue a single bulk DELETE instead of loading the entity, 
+     * unless the entity isn't {@link EntityMetadata#isBulkDeletable()}.
+     * 
+     * @param id Id of the entity
+     * @return false when the entity doesn't exist
+     */
+    private boolean removeById(Object id) {
+        markWrite();
+        if (isDirectDeleteEnabled() && getEntityMetadata().isBulkDeletable()) {
+            int affected = getEntityManager().createQuery(getDeleteStatement()).setParameter(1, id).executeUpdate();
+            if (affected > 0) {
+                evictFromSecondLevelCache(id);
+                removeFromSearchIndex(id);
+                recordTombstone(id);
+                invalidateCaches();
+            }
+            return affected > 0;
+        }
+
+        T entity = getEntityManager().find(entityClass, id);
+        if (entity == null) {
+            return false;
+        }
+
+        getEntityManager().remove(entity);
+        removeFromSearchIndex(id);
+        recordTombstone(id);
+        invalidateCaches();
+        return true;
+    }
+
+    /**
+     * Record the removal for the change feed, in the same transaction of the removal, when the 
+     * entity has a {@link LastModified} field.
+     */
+    private void recordTombstone(Object id) {
+        if (getEntityMetadata().getLastModifiedAttribute() != null) {
+            getEntityManager().persist(new CrudTombstone(entityClass.getName(), String.valueOf(id), new Date()));
+        }
+    }
+
+    private boolean isDirectDeleteEnabled() {
+        return getClass().isAnnotationPresent(DirectDelete.class);
+    }
+
+    private String getDeleteStatement() {
+        if (deleteStatement == null) {
+            deleteStatement = "DELETE FROM " + entityClass.getCanonicalName() 
+                    + " WHERE " + CrudUtilHelper.getMethodAnnotatedWithID(entityClass) + " = ?1";
+        }
+        return deleteStatement;
+    }
+
+    /**
+     * The bulk DELETE bypasses the second level cache of the provider.
+     */
+    private void evictFromSecondLevelCache(Object id) {
+        EntityManagerFactory entityManagerFactory = getEntityManager().getEntityManagerFactory();
+        Cache cache = entityManagerFactory == null ? null : entityManagerFactory.getCache();
+        if (cache != null) {
+            cache.evict(entityClass, id);
+        }
+    }
+
+    private void evictFromSecondLevelCache() {
+        EntityManagerFactory entityManagerFactory = getEntityManager().getEntityManagerFactory();
+        Cache cache = entityManagerFactory == null ? null : entityManagerFactory.getCache();
+        if (cache != null) {
+            cache.evict(entityClass);
+        }
+    }
+
+    /**
+     * Persist all entities in a single transaction.
+     * 
+     * The persistence context is flushed and cleared every {@link DemoiselleCrudConfig#getBatchSize()} entities, 
+     * so the inserts can be grouped by the JDBC batching of the provider ('hibernate.jdbc.batch_size' or 
+     * 'eclipselink.jdbc.batch-writing' on persistence.xml) and the memory doesn't grow with the batch.
+     * 
+     * Invalid entities are reported with the 400 status and don't abort the batch, failures of the 
+     * database still abort the whole batch.
+     * 
+     * @param entities Entities to be persisted
+     * @return Status of each entity
+     */
+    public BatchResult persistBatch(List<T> entities) {
+        return executeBatch(entities, "Não foi possível salvar", (index, entity) -> {
+            String violations = validate(entity);
+            if (violations != null) {
+                return new BatchItemResult(index, Status.BAD_REQUEST.getStatusCode(), null, violations);
+            }
+
+            getEntityManager().persist(entity);
+            updateSearchIndex(getId(entity), entity, false);
+            return new BatchItemResult(index, Status.CREATED.getStatusCode(), getId(entity), null);
+        });
+    }
+
+    /**
+     * Merge all entities in a single transaction, see {@link #persistBatch(List)}.
+     * 
+     * @param entities Entities to be merged
+     * @return Status of each entity
+     */
+    public BatchResult mergeFullBatch(List<T> entities) {
+        return executeBatch(entities, "Não foi possível salvar", (index, entity) -> {
+            String violations = validate(entity);
+            if (violations != null) {
+                return new BatchItemResult(index, Status.BAD_REQUEST.getStatusCode(), getId(entity), violations);
+            }
+
+            T merged = getEntityManager().merge(entity);
+            updateSearchIndex(getId(merged), merged, false);
+            return new BatchItemResult(index, Status.OK.getStatusCode(), getId(merged), null);
+        });
+    }
+
+    /**
+     * Remove all entities in a single transaction, see {@link #persistBatch(List)}.
+     * 
+     * Ids that don't exist are reported with the 404 status.
+     * 
+     * @param ids Ids of the entities to be removed
+     * @return Status of each id
+     */
+    public BatchResult removeBatch(List<I> ids) {
+        return executeBatch(ids, "Não foi possível excluir", (index, id) -> {
+            if (id == null || !removeById(toIdType(id))) {
+                return new BatchItemResult(index, Status.NOT_FOUND.getStatusCode(), id, null);
+            }
+
+            return new BatchItemResult(index, Status.NO_CONTENT.getStatusCode(), id, null);
+        });
+    }
+
+    /**
+     * Apply the operation to each item, flushing and clearing the persistence context 
+     * every {@link DemoiselleCrudConfig#getBatchSize()} changed items.
+     */
+    private <X> BatchResult executeBatch(List<X> items, String errorMessage, BiFunction<Integer, X, BatchItemResult> operation) {
+        markWrite();
+        BatchResult result = new BatchResult();
+        if (items == null || items.isEmpty()) {
+            return result;
+        }
+
+        int batchSize = getBatchSize();
+        int pending = 0;
+
+        try {
+            for (int index = 0; index < items.size(); index++) {
+                BatchItemResult item = operation.apply(index, items.get(index));
+                result.add(item);
+
+                if (item.isSuccess() && ++pending == batchSize) {
+                    getEntityManager().flush();
+                    getEntityManager().clear();
+                    pending = 0;
+                }
+            }
+
+            if (pending > 0) {
+                getEntityManager().flush();
+                getEntityManager().clear();
+            }
+        } catch (Exception e) {
+            throw new DemoiselleCrudException(errorMessage, e);
+        } finally {
+            if (result.getSucceeded() > 0) {
+                invalidateCaches();
+            }
+        }
+
+        return result;
+    }
+
+    private int getBatchSize() {
+        Integer batchSize = crudConfig == null ? null : crudConfig.getBatchSize();
+        return batchSize == null || batchSize < 1 ? DEFAULT_BATCH_SIZE : batchSize;
+    }
+
+    /**
+     * Validate the entity with the Bean Validation.
+     * 
+     * @return The violations or null when the entity is valid
+     */
+    private String validate(T entity) {
+        if (entity == null) {
+            return "null";
+        }
+        if (validator == null) {
+            return null;
+        }
+
+        Set<ConstraintViolation<T>> violations = validator.validate(entity);
+        if (violations.isEmpty()) {
+            return null;
+        }
+
+        return violations.stream()
+                .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                .sorted()
+                .collect(Collectors.joining(", "));
+    }
+
+    private Object getId(T entity) {
+        Field idField = getEntityMetadata().getField(getEntityMetadata().getIdAttribute());
+        if (entity == null || idField == null) {
+            return null;
+        }
+
+        try {
+            idField.setAccessible(true);
+            return idField.get(entity);
+        } catch (IllegalAccessException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Convert the id to the type of the id field, the ids of a JSON body may be deserialized 
+     * with other numeric type.
+     */
+    private Object toIdType(Object id) {
+        Field idField = getEntityMetadata().getField(getEntityMetadata().getIdAttribute());
+        if (idField == null || idField.getType().isInstance(id)) {
+            return id;
+        }
+
+        return CrudUtilHelper.convertToFieldType(idField.getType(), id.toString());
+    }
+
+    @Override
+    public T find(I id) {
+        try {
+            EntityManager entityManager = readEntityManager();
+            Cached cached = getCached();
+            if (cached != null && id != null && isShareable(false, null)) {
+                CachedCopy copy = crudCache.get(entityClass, CrudCache.ENTITY_REGION, String.valueOf(id), cached, 
+                        () -> CachedCopy.of(entityManager.find(entityClass, id)));
+                return copy == null ? null : entityClass.cast(copy.restore());
+            }
+
+            return entityManager.find(entityClass, id);
+        } catch (Exception e) {
+            throw new DemoiselleCrudException("Não foi possível consultar", e);
+        }
+
+    }
+
+    /**
+     * Return the 'ETag' of the entity by a query that selects only its {@link javax.persistence.Version}, or
+     * its {@link LastModified} field when it has no version, without loading the entity.
+     * 
+     * The tag isn't secret, so it isn't returned when this DAO overrides {@link #find(Object)}, that may check 
+     * the access to the entity, and the conditional GET is answered only after the entity is found.
+     * 
+     * @param id Id of the entity
+     * @return The tag or null when the entity doesn't exist or can't be tagged, see {@link EntityTags}
+     */
+    public String findEntityTag(I id) {
+        String versionAttribute = EntityTags.getTagAttribute(getEntityMetadata());
+        if (id == null || versionAttribute == null || overridesFindById(getClass(), AbstractDAO.class)) {
+            return null;
+        }
+
+        try {
+            if (versionStatement == null) {
+                versionStatement = "SELECT e." + versionAttribute + " FROM " + entityClass.getCanonicalName() 
+                        + " e WHERE e." + getEntityMetadata().getIdAttribute() + " = ?1";
+            }
+
+            List<?> versions = getEntityManager().createQuery(versionStatement).setParameter(1, id).getResultList();
+            return versions.isEmpty() ? null : EntityTags.ofVersion(id, versions.get(0));
+        } catch (Exception e) {
+            throw new DemoiselleCrudException("Não foi possível consultar", e);
+        }
+    }
+
+    @Override
+    public Result find() {
+
+        try {
+
+            Result result = new ResultSet();
+
+            if (requestContext().getAggregation() != null) {
+                result.setContent(aggregate(readEntityManager(), requestContext().getAggregation()));
+                requestContext().setEntityClass(entityClass);
+
+                return result;
+            }
+
+            if (requestContext().getSince() != null) {
+                result.setContent(findChanges(requestContext().getSince()));
+                requestContext().setEntityClass(entityClass);
+
+                return result;
+            }
+
+            EntityManager entityManager = readEntityManager();
+
+            if (requestContext().getStreamFormat() != null) {
+                requestContext().setEntityClass(entityClass);
+
+                return new StreamingResult(converter -> new ChunkIterator(entityManager, converter));
+            }
+
+            if (isKeysetPagination()) {
+                List<SortModel> keysetSorts = getKeysetSorts();
+                result.setContent(findKeysetPage(createKeysetQuery(entityManager, keysetSorts, getCursorValues(keysetSorts))));
+                requestContext().setEntityClass(entityClass);
+
+                return result;
+            }
+
+            Projection projection = isQueryPlanEnabled() ? getProjection(entityManager) : null;
+            QueryShape shape = isQueryPlanEnabled() ? buildQueryShape(null, null, projection) : null;
+            Cached cached = getCached();
+            Coalesced coalesced = getCoalesced();
+
+            if ((cached != null || coalesced != null) && isShareable(true, projection)) {
+                String key = buildCacheKey(projection);
+                Supplier<CachedPage> loader = () -> new CachedPage(findPage(entityManager, projection, shape).getContent(), requestContext());
+                Supplier<CachedPage> sharedLoader = coalesced == null ? loader : () -> queryCoalescer.execute(buildScopedKey(coalesced.scope(), key), loader);
+                CachedPage page = cached == null ? sharedLoader.get() 
+                        : crudCache.get(entityClass, CrudCache.LIST_REGION, buildScopedKey(CoalesceScope.PRINCIPAL, key), cached, sharedLoader);
+                result.setContent(page.restore(requestContext()));
+                requestContext().setEntityClass(entityClass);
+
+                return result;
+            }
+
+            return findPage(entityManager, projection, shape);
+
+        } catch (DemoiselleCrudException e) {
+            throw e;
+        } catch (Exception e) {
+            logger.severe(e.getMessage());
+            throw toQueryException(e);
+        }
+    }
+
+    /**
+     * Read a chunk of the rows of the request, ordered by the keyset and after the cursor of
+     * {@link DemoiselleRequestContext#getCursor()}, used by the export jobs.
+     *
+     * The cursor of the next chunk is filled on {@link DemoiselleRequestContext#setNextCursor(KeysetCursor)},
+     * null after the last chunk. Each chunk should be read on its own transaction, and converted to what is 
+     * written before it ends, so a job that reads millions of rows keeps only one chunk on memory and the 
+     * conversion doesn't touch detached entities.
+     *
+     * @param chunkSize Max number of rows of the chunk
+     * @return The rows of the chunk
+     */
+    public List<T> findChunk(int chunkSize) {
+        try {
+            EntityManager entityManager = readEntityManager();
+            List<SortModel> keysetSorts = getKeysetSorts();
+            TypedQuery<T> query = createKeysetQuery(entityManager, keysetSorts, getCursorValues(keysetSorts));
+            query.setMaxResults(chunkSize + 1);
+            FETCH_SIZE_HINTS.forEach(hint -> query.setHint(hint, chunkSize + 1));
+
+            List<T> chunk = query.getResultList();
+            requestContext().setNextCursor(null);
+
+            if (chunk.size() > chunkSize) {
+                chunk = new ArrayList<>(chunk.subList(0, chunkSize));
+                requestContext().setNextCursor(buildNextCursor(chunk.get(chunkSize - 1)));
+            }
+
+            return chunk;
+        } catch (Exception e) {
+            logger.severe(e.getMessage());
+            throw new DemoiselleCrudException("Não foi possível consultar", e);
+        }
+    }
+
+    /**
+     * Read the changes after the token of the 'since' parameter: the rows with the same filters of 
+     * {@link #find()} ordered by the {@link LastModified} field and by the id, after the last row of the 
+     * token, followed by the tombstones of the ids removed after the last tombstone of the token.
+     *
+     * Rows and tombstones newer than {@link DemoiselleCrudConfig#getChangeFeedSafetyWindow()} are left to the 
+     * next request, so a transaction that commits after a later one isn't skipped. The token of the next 
+     * request is filled on {@link DemoiselleRequestContext#setNextSince(SinceToken)} and 
+     * {@link DemoiselleRequestContext#setNextPageAvailable(Boolean)} tells if there are more changes.
+     *
+     * @param since Token of the request
+     * @return The changed rows and the tombstones
+     */
+    private List<Object> findChanges(SinceToken since) {
+        EntityMetadata metadata = getEntityMetadata();
+        String lastModified = metadata.getLastModifiedAttribute();
+        List<SortModel> rowsSorts = SinceToken.rowsSorts(metadata);
+        int pageSize = getChangeFeedPageSize();
+        Date until = new Date(System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(getChangeFeedSafetyWindow()));
+
+        CriteriaBuilder criteriaBuilder = getEntityManager().getCriteriaBuilder();
+        CriteriaQuery<T> criteriaQuery = criteriaBuilder.createQuery(entityClass);
+        configureCriteriaQuery(criteriaBuilder, criteriaQuery);
+
+        @SuppressWarnings("unchecked")
+        Root<T> root = (Root<T>) criteriaQuery.getRoots().iterator().next();
+        Predicate bound = buildChangeFeedBound(criteriaBuilder, root, lastModified, until);
+        Predicate restriction = criteriaQuery.getRestriction();
+        criteriaQuery.where(restriction == null ? bound : criteriaBuilder.and(restriction, bound));
+        applyKeyset(criteriaBuilder, criteriaQuery, rowsSorts, since.getRowsValues(metadata));
+
+        List<T> rows = withQueryTimeout(getEntityManager().createQuery(criteriaQuery)).setMaxResults(pageSize + 1).getResultList();
+        boolean more = rows.size() > pageSize;
+        if (more) {
+            rows = new ArrayList<>(rows.subList(0, pageSize));
+        }
+
+        List<Object> content = new ArrayList<>(rows);
+        KeysetCursor rowsCursor = rows.isEmpty() ? since.getRowsCursor() : KeysetCursor.of(rowsSorts, getKeysetValues(rows.get(rows.size() - 1), rowsSorts));
+        KeysetCursor tombstonesCursor = since.getTombstonesCursor();
+
+        if (since.isInitial()) {
+            // A client without rows doesn't need the removals before its first request
+            List<CrudTombstone> last = createTombstoneQuery(null, until, true).setMaxResults(1).getResultList();
+            tombstonesCursor = last.isEmpty() ? null : buildTombstoneCursor(last.get(0));
+        }
+        else {
+            List<CrudTombstone> tombstones = createTombstoneQuery(since.getTombstonesValues(), until, false).setMaxResults(pageSize + 1).getResultList();
+            if (tombstones.size() > pageSize) {
+                tombstones = tombstones.subList(0, pageSize);
+                more = true;
+            }
+
+            String idAttribute = metadata.getIdAttribute();
+            for (CrudTombstone tombstone : tombstones) {
+                Map<String, Object> removed = new LinkedHashMap<>();
+                removed.put(idAttribute, toIdType(tombstone.getEntityId()));
+                removed.put(CrudTombstone.REMOVED_ATTRIBUTE, Boolean.TRUE);
+                content.add(removed);
+            }
+
+            if (!tombstones.isEmpty()) {
+                tombstonesCursor = buildTombstoneCursor(tombstones.get(tombstones.size() - 1));
+            }
+        }
+
+        requestContext().setNextSince(SinceToken.of(rowsCursor, tombstonesCursor));
+        requestContext().setNextPageAvailable(more);
+
+        return content;
+    }
+
+    /**
+     * Rows with the {@link LastModified} field filled and, when it is a timestamp, older than the safety window.
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private Predicate buildChangeFeedBound(CriteriaBuilder criteriaBuilder, Root<T> root, String lastModified, Date until) {
+        Class<?> type = getEntityMetadata().getFieldType(lastModified);
+        if (!EntityMetadata.isTemporal(type)) {
+            return criteriaBuilder.isNotNull(root.get(lastModified));
+        }
+
+        return criteriaBuilder.lessThanOrEqualTo(root.get(lastModified), (Comparable) EntityMetadata.toTemporalValue(type, until));
+    }
+
+    /**
+     * Tombstones of the entity older than the safety window, after the values of the cursor or the newest first.
+     */
+    private TypedQuery<CrudTombstone> createTombstoneQuery(List<Object> cursorValues, Date until, boolean newestFirst) {
+        StringBuilder jpql = new StringBuilder("SELECT t FROM ").append(CrudTombstone.class.getSimpleName())
+                .append(" t WHERE t.entityName = :entityName AND t.removedAt <= :until");
+        if (cursorValues != null) {
+            jpql.append(" AND (t.removedAt > :removedAt OR (t.removedAt = :removedAt AND t.id > :id))");
+        }
+        jpql.append(newestFirst ? " ORDER BY t.removedAt DESC, t.id DESC" : " ORDER BY t.removedAt, t.id");
+
+        TypedQuery<CrudTombstone> query = withQueryTimeout(getEntityManager().createQuery(jpql.toString(), CrudTombstone.class))
+                .setParameter("entityName", entityClass.getName())
+                .setParameter("until", until, TemporalType.TIMESTAMP);
+        if (cursorValues != null) {
+            query.setParameter("removedAt", (Date) cursorValues.get(0), TemporalType.TIMESTAMP).setParameter("id", cursorValues.get(1));
+        }
+        return query;
+    }
+
+    private static KeysetCursor buildTombstoneCursor(CrudTombstone tombstone) {
+        return KeysetCursor.of(SinceToken.tombstonesSorts(), Arrays.asList(tombstone.getRemovedAt(), tombstone.getId()));
+    }
+
+    private int getChangeFeedPageSize() {
+        Integer pageSize = crudConfig == null ? null : crudConfig.getChangeFeedPageSize();
+        return pageSize == null || pageSize < 1 ? DEFAULT_CHANGE_FEED_PAGE_SIZE : pageSize;
+    }
+
+    private int getChangeFeedSafetyWindow() {
+        Integer safetyWindow = crudConfig == null ? null : crudConfig.getChangeFeedSafetyWindow();
+        return safetyWindow == null || safetyWindow < 0 ? DEFAULT_CHANGE_FEED_SAFETY_WINDOW : safetyWindow;
+    }
+
+    /**
+     * Compute the aggregation of the request on the database, with the same filters used by {@link #find()}.
+     *
+     * The facets are counted by one query per field, because JPA has neither GROUPING SETS nor UNION.
+     *
+     * @param aggregation Aggregation of the request
+     * @return One map per group or per value of each facet
+     */
+    private List<Map<String, Object>> aggregate(EntityManager entityManager, Aggregation aggregation) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+
+        if (aggregation.isFacets()) {
+            List<Map<String, Object>> rows = new ArrayList<>();
+
+            for (String facet : aggregation.getFacets()) {
+                CriteriaQuery<Tuple> criteriaQuery = criteriaBuilder.createTupleQuery();
+                Root<T> root = criteriaQuery.from(entityClass);
+                Expression<Long> count = criteriaBuilder.count(root);
+
+                criteriaQuery.multiselect(root.get(facet), count).groupBy(root.get(facet)).orderBy(criteriaBuilder.desc(count));
+                if (requestContext().getFilters() != null) {
+                    criteriaQuery.where(buildPredicates(criteriaBuilder, criteriaQuery, root));
+                }
+
+                for (Tuple tuple : withQueryTimeout(entityManager.createQuery(criteriaQuery)).getResultList()) {
+                    Map<String, Object> row = new LinkedHashMap<>();
+                    row.put(Aggregation.FACET, facet);
+                    row.put(Aggregation.VALUE, tuple.get(0));
+                    row.put(Aggregation.COUNT, tuple.get(1));
+                    rows.add(row);
+                }
+            }
+
+            return rows;
+        }
+
+        CriteriaQuery<Tuple> criteriaQuery = criteriaBuilder.createTupleQuery();
+        Root<T> root = criteriaQuery.from(entityClass);
+        List<Selection<?>> selections = new ArrayList<>();
+        List<Expression<?>> groupBy = new ArrayList<>();
+        List<Order> orders = new ArrayList<>();
+
+        for (String field : aggregation.getGroupBy()) {
+            selections.add(root.get(field));
+            groupBy.add(root.get(field));
+            orders.add(criteriaBuilder.asc(root.get(field)));
+        }
+        if (aggregation.isCount()) {
+            selections.add(criteriaBuilder.count(root));
+        }
+        for (String field : aggregation.getSums()) {
+            selections.add(criteriaBuilder.sum(root.<Number>get(field)));
+        }
+        for (String field : aggregation.getMins()) {
+            selections.add(criteriaBuilder.least(root.<Comparable<Object>>get(field)));
+        }
+        for (String field : aggregation.getMaxs()) {
+            selections.add(criteriaBuilder.greatest(root.<Comparable<Object>>get(field)));
+        }
+
+        criteriaQuery.multiselect(selections).groupBy(groupBy).orderBy(orders);
+        if (requestContext().getFilters() != null) {
+            criteriaQuery.where(buildPredicates(criteriaBuilder, criteriaQuery, root));
+        }
+
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (Tuple tuple : withQueryTimeout(entityManager.createQuery(criteriaQuery)).getResultList()) {
+            int index = 0;
+            Map<String, Object> row = new LinkedHashMap<>();
+            for (String field : aggregation.getGroupBy()) {
+                row.put(field, tuple.get(index++));
+            }
+            if (aggregation.isCount()) {
+                row.put(Aggregation.COUNT, tuple.get(index++));
+            }
+            index = putAggregates(row, Aggregation.SUM, aggregation.getSums(), tuple, index);
+            index = putAggregates(row, Aggregation.MIN, aggregation.getMins(), tuple, index);
+            putAggregates(row, Aggregation.MAX, aggregation.getMaxs(), tuple, index);
+            rows.add(row);
+        }
+
+        return rows;
+    }
+
+    /**
+     * Put the values of an aggregate function on the row, like {"sum": {"price": 10.0}}.
+     *
+     * @return Index of the next value of the tuple
+     */
+    private static int putAggregates(Map<String, Object> row, String function, List<String> fields, Tuple tuple, int index) {
+        if (fields.isEmpty()) {
+            return index;
+        }
+
+        Map<String, Object> values = new LinkedHashMap<>();
+        for (String field : fields) {
+            values.put(field, tuple.get(index++));
+        }
+        row.put(function, values);
+
+        return index;
+    }
+
+    /**
+     * Find the page of the request, paginated by offset.
+     * 
+     * @param projection Projection of the requested fields or null
+     * @param shape Shape of the request or null when the query plans are disabled
+     */
+    private Result findPage(EntityManager entityManager, Projection projection, QueryShape shape) {
+        try {
+
+            Result result = new ResultSet();
+
+            TypedQuery<?> query = projection == null ? createFindQuery(entityManager, shape) : createProjectionQuery(entityManager, shape, projection);
+            List<?> content;
+
+            Integer maxRows = requestContext().getMaxRows();
+            if (!requestContext().isPaginationEnabled() && maxRows != null) {
+                query.setMaxResults(maxRows + 1);
+            }
+
+            if (requestContext().isPaginationEnabled()) {
+                Integer firstResult = requestContext().getOffset() == null ? 0 : requestContext().getOffset();
+                Integer maxResults = getMaxResult();
+                CountStrategy countStrategy = requestContext().getCountStrategy() == null ? CountStrategy.EXACT : requestContext().getCountStrategy();
+
+                if (CountStrategy.NONE.equals(countStrategy) || CountStrategy.WINDOW.equals(countStrategy)) {
+                    content = findLookAheadPage(entityManager, query, shape, firstResult, maxResults, countStrategy);
+                    result.setContent(projection == null ? content : toMaps(projection, content));
+                    requestContext().setEntityClass(entityClass);
+
+                    return result;
+                }
+
+                Long count = CountStrategy.CACHED.equals(countStrategy) ? countCached(entityManager, shape) : count(entityManager, shape);
+
+                if (firstResult < count) {
+                    query.setFirstResult(firstResult);
+                    query.setMaxResults(maxResults);
+                }
+
+                requestContext().setCount(count);
+            }
+
+            content = query.getResultList();
+            if (!requestContext().isPaginationEnabled() && maxRows != null && content.size() > maxRows) {
+                if (queryGuardMetrics != null) {
+                    queryGuardMetrics.record(QueryGuardViolation.MAX_ROWS, entityClass.getSimpleName(), String.valueOf(content.size()));
+                }
+                throw new DemoiselleCrudException("Não foi possível consultar, a consulta seleciona mais de " + maxRows 
+                        + " registros, use a paginação ou um filtro mais restrito", Status.BAD_REQUEST.getStatusCode());
+            }
+
+            result.setContent(projection == null ? content : toMaps(projection, content));
+            if (result.getContent() != null && !result.getContent().isEmpty()
+                    && requestContext().isPaginationEnabled()
+                    && result.getContent().size() <= requestContext().getCount() && requestContext().getCount() < getMaxResult()) {
+                requestContext().setLimit(requestContext().getCount().intValue());
+            }
+
+            requestContext().setEntityClass(entityClass);
+
+            return result;
+
+        } catch (DemoiselleCrudException e) {
+            throw e;
+        } catch (Exception e) {
+            logger.severe(e.getMessage());
+            throw toQueryException(e);
+        }
+    }
+
+    /**
+     * Exception of a failed query, answered with 503 when the query exceeded the timeout of 
+     * {@link DemoiselleRequestContext#getQueryTimeout()}.
+     */
+    private DemoiselleCrudException toQueryException(Exception e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof QueryTimeoutException || cause instanceof SQLTimeoutException) {
+                if (queryGuardMetrics != null) {
+                    queryGuardMetrics.record(QueryGuardViolation.TIMEOUT, entityClass.getSimpleName(), String.valueOf(requestContext().getQueryTimeout()));
+                }
+                return new DemoiselleCrudException("Não foi possível consultar, a consulta excedeu o tempo limite", Status.SERVICE_UNAVAILABLE.getStatusCode());
+            }
+        }
+
+        return new DemoiselleCrudException("Não foi possível consultar", e);
+    }
+
+    /**
+     * Apply the timeout of {@link DemoiselleRequestContext#getQueryTimeout()} to the query, ignored by the 
+     * providers and databases that don't support it.
+     */
+    private <X> TypedQuery<X> withQueryTimeout(TypedQuery<X> query) {
+        Integer queryTimeout = requestContext() == null ? null : requestContext().getQueryTimeout();
+        if (queryTimeout != null) {
+            query.setHint(QUERY_TIMEOUT_HINT, queryTimeout);
+        }
+        return query;
+    }
+
+    /**
+     * Key of the result of {@link #find()} on the {@link CrudCache}, built from the filters, sorts,
+     * fields and range of the request.
+     */
+    private String buildCacheKey(Projection projection) {
+        QueryShape shape = buildQueryShape(null, null, projection);
+        return shape.getKey() + "|v:" + shape.getValues()
+                + "|p:" + requestContext().isPaginationEnabled() + ":" + requestContext().getOffset() + ":" + requestContext().getLimit() + ":" + requestContext().getCountStrategy();
+    }
+
+    /**
+     * The {@link Cached} of the actual request, null when the request isn't cached, there isn't a request
+     * or the request already wrote, since it would cache the data not yet committed.
+     */
+    private Cached getCached() {
+        if (crudCache == null || requestContext() == null) {
+            return null;
+        }
+
+        try {
+            return isWritten() ? null : requestContext().getCached();
+        } catch (ContextNotActiveException e) {
+            return null;
+        }
+    }
+
+    /**
+     * The {@link Coalesced} of the actual request, null when the request isn't coalesced, there isn't a request
+     * or the request already wrote, so it reads its own writes.
+     */
+    private Coalesced getCoalesced() {
+        if (queryCoalescer == null || requestContext() == null) {
+            return null;
+        }
+
+        try {
+            return isWritten() ? null : requestContext().getCoalesced();
+        } catch (ContextNotActiveException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Key of the query of {@link #find()} on the {@link QueryCoalescer} and on the {@link CrudCache}: the DAO, 
+     * the tenant, the user when the scope is {@link CoalesceScope#PRINCIPAL} and the key of 
+     * {@link #buildCacheKey(Projection)}. The cache is always scoped by the user.
+     */
+    private String buildScopedKey(CoalesceScope scope, String key) {
+        String principal = CoalesceScope.PRINCIPAL.equals(scope) ? toKeyPart(requestContext().getPrincipal()) : "*";
+        return getClass().getName() + "|t:" + toKeyPart(requestContext().getTenant()) + "|u:" + principal + "|" + key;
+    }
+
+    /**
+     * Value of the key prefixed by its length, so a tenant or user can't forge the key of other.
+     */
+    private static String toKeyPart(String value) {
+        return value == null ? "-" : value.length() + ":" + value;
+    }
+
+    /**
+     * Create the query used by {@link #find()}.
+     * 
+     * When a shape is informed the query comes from a cached {@link QueryPlan}, otherwise the criteria 
+     * is built by {@link #configureCriteriaQuery(CriteriaBuilder, CriteriaQuery)}.
+     */
+    private TypedQuery<T> createFindQuery(EntityManager entityManager, QueryShape shape) {
+        if (shape != null) {
+            return withQueryTimeout(getQueryPlan(entityManager, shape).createDataQuery(entityManager, shape.getValues()));
+        }
+
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<T> criteriaQuery = criteriaBuilder.createQuery(entityClass);
+
+        configureCriteriaQuery(criteriaBuilder, criteriaQuery);
+
+        return withQueryTimeout(entityManager.createQuery(criteriaQuery));
+    }
+
+    /**
+     * Create the query of the rows after the cursor, ordered by the keyset.
+     * 
+     * @param entityManager Entity manager of the query
+     * @param keysetSorts Sorts used by the keyset
+     * @param cursorValues Values of the cursor or null for the first rows
+     */
+    private TypedQuery<T> createKeysetQuery(EntityManager entityManager, List<SortModel> keysetSorts, List<Object> cursorValues) {
+        if (isQueryPlanEnabled()) {
+            QueryShape shape = buildQueryShape(keysetSorts, cursorValues, null);
+            return withQueryTimeout(getQueryPlan(entityManager, shape).createDataQuery(entityManager, shape.getValues()));
+        }
+
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<T> criteriaQuery = criteriaBuilder.createQuery(entityClass);
+
+        configureCriteriaQuery(criteriaBuilder, criteriaQuery);
+        applyKeyset(criteriaBuilder, criteriaQuery, keysetSorts, cursorValues);
+
+        return withQueryTimeout(entityManager.createQuery(criteriaQuery));
+    }
+
+    /**
+     * Projection of the requested fields, used only when it is enabled on {@link DemoiselleCrudConfig}.
+     */
+    private Projection getProjection(EntityManager entityManager) {
+        if (crudConfig == null || !Boolean.TRUE.equals(crudConfig.getProjectionEnabled())
+                || requestContext().getFields() == null || requestContext().getFields().getChildren().isEmpty()) {
+            return null;
+        }
+
+        return Projection.of(entityManager.getMetamodel(), entityClass, requestContext().getFields());
+    }
+
+    private TypedQuery<Tuple> createProjectionQuery(EntityManager entityManager, QueryShape shape, Projection projection) {
+        QueryPlan<Tuple> plan = queryPlanCache.get(getPersistenceUnit(entityManager), shape.getKey(), 
+                () -> newQueryPlanBuilder(entityManager).build(shape, projection, requestContext().getSorts()));
+        return withQueryTimeout(plan.createDataQuery(entityManager, shape.getValues()));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Map<String, Object>> toMaps(Projection projection, List<?> tuples) {
+        return projection.toMaps((List<Tuple>) tuples);
+    }
+
+    /**
+     * Execute the page query fetching one extra row to know if there is a next page, used by 
+     * {@link CountStrategy#NONE} and {@link CountStrategy#WINDOW}. When the page is the last one 
+     * the total is derived from the page, otherwise it is counted only by {@link CountStrategy#WINDOW}.
+     */
+    private <X> List<X> findLookAheadPage(EntityManager entityManager, TypedQuery<X> query, QueryShape shape, Integer firstResult, Integer maxResults, CountStrategy countStrategy) {
+        query.setFirstResult(firstResult);
+        query.setMaxResults(maxResults + 1);
+
+        List<X> content = query.getResultList();
+        boolean nextPageAvailable = content.size() > maxResults;
+
+        if (nextPageAvailable) {
+            content = new ArrayList<>(content.subList(0, maxResults));
+        }
+
+        requestContext().setNextPageAvailable(nextPageAvailable);
+
+        if (!nextPageAvailable && (!content.isEmpty() || firstResult == 0)) {
+            requestContext().setCount(Long.valueOf(firstResult + content.size()));
+        } else {
+            requestContext().setCount(CountStrategy.WINDOW.equals(countStrategy) ? count(entityManager, shape) : null);
+        }
+
+        return content;
+    }
+
+    /**
+     * Count using the {@link CountCache}, the key includes the values of the filters. A request that 
+     * already wrote counts the uncommitted rows of its transaction, so it doesn't use the cache.
+     */
+    private Long countCached(EntityManager entityManager, QueryShape shape) {
+        if (countCache == null || isWritten()) {
+            return count(entityManager, shape);
+        }
 
-    private Logger logger = Logger.getLogger(this.getClass().getName());
+        String key = shape != null ? shape.getKey() + shape.getValues() : getClass().getName() + ":" + requestContext().getFilters();
+        return countCache.get(entityClass, key, () -> count(entityManager, shape));
+    }
 
-    @SuppressWarnings("unchecked")
-    public AbstractDAO() {
-        this.entityClass = (Class<T>) ((ParameterizedType) getClass().getGenericSuperclass())
-                .getActualTypeArguments()[0];
+    /**
+     * Discard the information cached about the entity, called after every write.
+     */
+    private void invalidateCaches() {
+        if (countCache != null) {
+            executeAfterCommit(() -> countCache.invalidate(entityClass));
+        }
+        if (crudCache != null) {
+            executeAfterCommit(() -> crudCache.invalidate(entityClass));
+        }
     }
 
-    @Override
-    public T persist(T entity) {
-        try {
-            getEntityManager().persist(entity);
-            return entity;
-        } catch (Exception e) {
-            throw new DemoiselleCrudException("Não foi possível salvar", e);
+    private boolean isKeysetPagination() {
+        return requestContext().isPaginationEnabled() && PaginationType.KEYSET.equals(requestContext().getPaginationType());
+    }
+
+    /**
+     * Sorts used by the keyset pagination: the requested sorts and the id as tie-breaker.
+     */
+    private List<SortModel> getKeysetSorts() {
+        return KeysetCursor.keysetSorts(getEntityMetadata(), requestContext().getSorts());
+    }
+
+    /**
+     * Values of the 'cursor' parameter or null on the first page.
+     */
+    private List<Object> getCursorValues(List<SortModel> keysetSorts) {
+        return requestContext().getCursor() == null ? null : requestContext().getCursor().getValues(getEntityMetadata(), keysetSorts);
+    }
+
+    /**
+     * Execute the keyset paginated query fetching one extra row to know if there is a next page,
+     * in that case the cursor of the next page is filled on {@link DemoiselleRequestContext#setNextCursor(KeysetCursor)}.
+     */
+    private List<T> findKeysetPage(TypedQuery<T> query) {
+        Integer maxResults = getMaxResult();
+        query.setMaxResults(maxResults + 1);
+
+        List<T> content = query.getResultList();
+        requestContext().setNextCursor(null);
+
+        if (content.size() > maxResults) {
+            content = new ArrayList<>(content.subList(0, maxResults));
+            requestContext().setNextCursor(buildNextCursor(content.get(maxResults - 1)));
         }
+
+        return content;
     }
 
-    @Override
-    public T mergeHalf(I id, T entity) {
-        try {
-            final StringBuilder sb = new StringBuilder();
-            final Map<String, Object> params = new ConcurrentHashMap<>();
-            sb.append("UPDATE ");
-            sb.append(entityClass.getCanonicalName());
-            sb.append(" SET ");
-            for (final Field field : getAllFields(entityClass)) {
-                if (!field.isAnnotationPresent(ManyToOne.class)) {
-                    final Column column = field.getAnnotation(Column.class);
-                    if (column == null || !column.updatable()) {
-                        continue;
-                    }
-                }
+    private KeysetCursor buildNextCursor(T last) {
+        List<SortModel> keysetSorts = getKeysetSorts();
+        return KeysetCursor.of(keysetSorts, getKeysetValues(last, keysetSorts));
+    }
+
+    /**
+     * Values of the keyset fields of the row.
+     */
+    private List<Object> getKeysetValues(T row, List<SortModel> keysetSorts) {
+        List<Object> values = new ArrayList<>(keysetSorts.size());
+
+        keysetSorts.stream().forEachOrdered(sortModel -> {
+            Field field = getEntityMetadata().getFieldIgnoreCase(sortModel.getField());
+            try {
                 field.setAccessible(true);
-                final String name = field.getName();
-                final Object value = field.get(entity);
-                if (value != null) {
-                    if (!params.isEmpty()) {
-                        sb.append(", ");
-                    }
-                    sb.append(name).append(" = :").append(name);
-                    params.putIfAbsent(name, value);
-                }
+                values.add(field.get(row));
+            } catch (IllegalAccessException e) {
+                throw new DemoiselleCrudException("Não foi possível ler o campo " + sortModel.getField(), e);
+            }
+        });
+
+        return values;
+    }
+
+    /**
+     * Add the seek predicate and the keyset order on a criteria built by {@link #configureCriteriaQuery(CriteriaBuilder, CriteriaQuery)}.
+     */
+    private void applyKeyset(CriteriaBuilder criteriaBuilder, CriteriaQuery<T> criteriaQuery, List<SortModel> keysetSorts, List<Object> cursorValues) {
+        @SuppressWarnings("unchecked")
+        Root<T> root = (Root<T>) criteriaQuery.getRoots().iterator().next();
+
+        if (cursorValues != null) {
+            List<Expression<?>> values = new ArrayList<>(cursorValues.size());
+            cursorValues.stream().forEachOrdered(value -> values.add(value == null ? null : criteriaBuilder.literal(value)));
+
+            Predicate seek = buildSeekPredicate(criteriaBuilder, root, keysetSorts, values);
+            Predicate restriction = criteriaQuery.getRestriction();
+            criteriaQuery.where(restriction == null ? seek : criteriaBuilder.and(restriction, seek));
+        }
+
+        criteriaQuery.orderBy(buildKeysetOrders(criteriaBuilder, root, keysetSorts));
+    }
+
+    /**
+     * Build the predicate that selects the rows after the cursor:
+     * (s1 &gt; v1) OR (s1 = v1 AND s2 &gt; v2) OR ... using '&lt;' for the descending sorts.
+     * 
+     * The null values of the nullable fields are placed by {@link #buildKeysetOrders(CriteriaBuilder, Root, List)}
+     * after the others on ascending sorts and before them on descending sorts, whatever the database does, 
+     * so a null value of the cursor (a null expression on the values) is compared with 'IS NULL' and 'IS NOT NULL'.
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private Predicate buildSeekPredicate(CriteriaBuilder criteriaBuilder, Root<T> root, List<SortModel> keysetSorts, List<Expression<?>> values) {
+        List<Predicate> alternatives = new ArrayList<>(keysetSorts.size());
+
+        for (int i = 0; i < keysetSorts.size(); i++) {
+            List<Predicate> conditions = new ArrayList<>(i + 1);
+
+            for (int j = 0; j < i; j++) {
+                Path<?> previous = root.get(keysetSorts.get(j).getField());
+                conditions.add(values.get(j) == null ? criteriaBuilder.isNull(previous) : criteriaBuilder.equal(previous, values.get(j)));
             }
-            if (!params.isEmpty()) {
-                final String idName = CrudUtilHelper.getMethodAnnotatedWithID(entityClass);
-                sb.append(" WHERE ").append(idName).append(" = :").append(idName);
-                params.putIfAbsent(idName, id);
-                final Query query = getEntityManager().createQuery(sb.toString());
-                for (final Map.Entry<String, Object> entry : params.entrySet()) {
-                    query.setParameter(entry.getKey(), entry.getValue());
+
+            Expression path = root.get(keysetSorts.get(i).getField());
+            Expression value = values.get(i);
+            boolean ascending = CrudSort.ASC.equals(keysetSorts.get(i).getType());
+
+            if (value == null) {
+                if (ascending) {
+                    // Nothing comes after the null values
+                    continue;
                 }
-                query.executeUpdate();
+                conditions.add(criteriaBuilder.isNotNull(path));
+            } else if (ascending) {
+                Predicate greater = criteriaBuilder.greaterThan(path, value);
+                conditions.add(getEntityMetadata().isNullable(keysetSorts.get(i).getField()) 
+                        ? criteriaBuilder.or(greater, criteriaBuilder.isNull(path)) : greater);
+            } else {
+                conditions.add(criteriaBuilder.lessThan(path, value));
             }
-            
-            return entity;
-        } catch (final Exception e) {
-            throw new DemoiselleCrudException("Não foi possível salvar", e);
+
+            alternatives.add(criteriaBuilder.and(conditions.toArray(new Predicate[]{})));
         }
+
+        return alternatives.isEmpty() ? criteriaBuilder.disjunction() : criteriaBuilder.or(alternatives.toArray(new Predicate[]{}));
     }
 
-    @Override
-    public T mergeFull(T entity) {
-        try {
-            return getEntityManager().merge(entity);
-        } catch (Exception e) {
-            throw new DemoiselleCrudException("Não foi possível salvar", e);
-        }
+    /**
+     * Order of the keyset, where a nullable field is preceded by the expression 
+     * 'CASE WHEN field IS NULL THEN 1 ELSE 0 END' on the same direction, see 
+     * {@link #buildSeekPredicate(CriteriaBuilder, Root, List, List)}.
+     */
+    private List<Order> buildKeysetOrders(CriteriaBuilder criteriaBuilder, Root<T> root, List<SortModel> sorts) {
+        List<Order> orders = new ArrayList<>(sorts.size());
+
+        sorts.stream().forEachOrdered(sortModel -> {
+            Path<?> path = root.get(sortModel.getField());
+            boolean ascending = CrudSort.ASC.equals(sortModel.getType());
+
+            if (getEntityMetadata().isNullable(sortModel.getField())) {
+                Expression<Integer> nullsRank = criteriaBuilder.<Integer>selectCase().when(criteriaBuilder.isNull(path), 1).otherwise(0);
+                orders.add(ascending ? criteriaBuilder.asc(nullsRank) : criteriaBuilder.desc(nullsRank));
+            }
+            orders.add(ascending ? criteriaBuilder.asc(path) : criteriaBuilder.desc(path));
+        });
+
+        return orders;
     }
 
-    @Override
-    public void remove(I id) {
-        try {
-            getEntityManager().remove(getEntityManager().find(entityClass, id));
-        } catch (Exception e) {
-            throw new DemoiselleCrudException("Não foi possível excluir", e);
+    /**
+     * The query plans are used only when they are enabled on {@link DemoiselleCrudConfig} and the 
+     * subclass doesn't customize how the criteria is built.
+     */
+    private boolean isQueryPlanEnabled() {
+        return queryPlanCache != null
+                && crudConfig != null
+                && Boolean.TRUE.equals(crudConfig.getQueryPlanCacheEnabled())
+                && !overridesQueryHooks(getClass());
+    }
+
+    /**
+     * Check if the results of the DAO can be shared by the requests of {@link Cached} and {@link Coalesced}, 
+     * warning once per DAO when they can't: the lists of a DAO that customizes how the criteria is built, 
+     * since the key of the cache can't describe the customization, and the entities that aren't 
+     * {@link Serializable}, since each request receives its own copy (see {@link CachedCopy}).
+     * 
+     * @param list If the result is a list of {@link #find()}, otherwise an entity of {@link #find(Object)}
+     * @param projection Projection of the list or null, the maps of a projection are always serializable
+     */
+    private boolean isShareable(boolean list, Projection projection) {
+        String reason = null;
+        if (list && overridesQueryHooks(getClass())) {
+            reason = "the DAO overrides " + QUERY_HOOKS;
+        }
+        else if (projection == null && !Serializable.class.isAssignableFrom(entityClass)) {
+            reason = "the entity " + entityClass.getName() + " isn't Serializable";
+        }
+
+        if (reason != null && SHARING_WARNED.add(getClass())) {
+            logger.warning("@Cached and @Coalesced ignored on " + getClass().getName() + ", " + reason);
         }
+        return reason == null;
     }
 
-    @Override
-    public T find(I id) {
-        try {
-            return getEntityManager().find(entityClass, id);
-        } catch (Exception e) {
-            throw new DemoiselleCrudException("Não foi possível consultar", e);
+    private static boolean overridesQueryHooks(Class<?> daoClass) {
+        return QUERY_HOOKS_OVERRIDDEN.computeIfAbsent(daoClass, type -> overrides(type, QUERY_HOOKS));
+    }
+
+    /**
+     * The predicates of the queries are customized but not the ones of {@link #updateByFilter(Object)}.
+     */
+    private static boolean isUpdatePredicatesMissing(Class<?> daoClass) {
+        return UPDATE_PREDICATES_MISSING.computeIfAbsent(daoClass, 
+                type -> overrides(type, PREDICATE_HOOKS) && !overrides(type, Collections.singletonList("buildUpdatePredicates")));
+    }
+
+    /**
+     * The find by id of the DAO or business is customized, so the access checks it may do would be skipped by
+     * {@link #findEntityTag(Object)}.
+     * 
+     * @param type Class of the DAO or business
+     * @param base {@link AbstractDAO} or {@link AbstractBusiness}
+     */
+    static boolean overridesFindById(Class<?> type, Class<?> base) {
+        return FIND_BY_ID_OVERRIDDEN.computeIfAbsent(type, 
+                actual -> overrides(actual, base, method -> "find".equals(method.getName()) && method.getParameterCount() == 1));
+    }
+
+    private static boolean overrides(Class<?> type, List<String> hooks) {
+        return overrides(type, AbstractDAO.class, method -> hooks.contains(method.getName()));
+    }
+
+    private static boolean overrides(Class<?> type, Class<?> base, Function<Method, Boolean> matcher) {
+        for (Class<?> actual = type; actual != null && !base.equals(actual); actual = actual.getSuperclass()) {
+            // Proxies and subclasses generated by CDI/JPA providers
+            if (actual.getName().contains("$$")) {
+                continue;
+            }
+            for (Method method : actual.getDeclaredMethods()) {
+                if (!method.isSynthetic() && matcher.apply(method)) {
+                    return true;
+                }
+            }
         }
+        return false;
+    }
 
+    /**
+     * Return the plan of the shape, built for the persistence unit of the entity manager that executes it.
+     */
+    private QueryPlan<T> getQueryPlan(EntityManager entityManager, QueryShape shape) {
+        return queryPlanCache.get(getPersistenceUnit(entityManager), shape.getKey(), 
+                () -> newQueryPlanBuilder(entityManager).build(entityClass, shape, requestContext().getSorts()));
     }
 
-    @Override
-    public Result find() {
+    private QueryPlanBuilder newQueryPlanBuilder(EntityManager entityManager) {
+        return new QueryPlanBuilder(entityManager.getMetamodel().entity(entityClass).getName(), getEntityMetadata());
+    }
 
-        try {
+    private static Object getPersistenceUnit(EntityManager entityManager) {
+        EntityManagerFactory entityManagerFactory = entityManager.getEntityManagerFactory();
+        return entityManagerFactory == null ? entityManager : entityManagerFactory;
+    }
 
-            Result result = new ResultSet();
+    /**
+     * Build the normalized shape of the actual request with the values of the filters already
+     * converted to the types used on the query.
+     * 
+     * @param keysetSorts Sorts of the keyset or null when the shape isn't paginated by keyset
+     * @param cursorValues Values of the keyset cursor or null
+     * @param projection Projection of the requested fields or null
+     */
+    private QueryShape buildQueryShape(List<SortModel> keysetSorts, List<Object> cursorValues, Projection projection) {
+        QueryShape.Builder builder = new QueryShape.Builder(getClass().getName() + ":" + entityClass.getName());
 
-            CriteriaBuilder criteriaBuilder = getEntityManager().getCriteriaBuilder();
-            CriteriaQuery<T> criteriaQuery = criteriaBuilder.createQuery(entityClass);
+        if (requestContext().getFilters() != null) {
+            requestContext().getFilters().getChildren().stream().forEach(child -> {
+                if (child.getChildren().isEmpty()) {
+                    builder.group(null);
+                    child.getValue().stream().forEach(value -> addFilterTerm(builder, child, value, null));
+                }
+                else {
+                    builder.group(child.getKey());
+                    child.getChildren().stream().forEach(child2ndLevel -> {
+                        child2ndLevel.getValue().stream().forEach(value -> addFilterTerm(builder, child2ndLevel, value, child));
+                    });
+                }
+            });
+        }
 
-            configureCriteriaQuery(criteriaBuilder, criteriaQuery);
+        List<SortModel> sorts = keysetSorts != null ? keysetSorts : requestContext().getSorts();
+        sorts.stream().forEachOrdered(sortModel -> builder.sort(sortModel.getField(), sortModel.getType()));
 
-            TypedQuery<T> query = getEntityManager().createQuery(criteriaQuery);
+        if (projection != null) {
+            builder.with("fields", projection.getSignature());
+        }
 
-            if (drc.isPaginationEnabled()) {
-                Integer firstResult = drc.getOffset() == null ? 0 : drc.getOffset();
-                Integer maxResults = getMaxResult();
-                Long count = count();
+        if (keysetSorts != null) {
+            builder.keyset(keysetSorts, cursorValues);
+        }
 
-                if (firstResult < count) {
-                    query.setFirstResult(firstResult);
-                    query.setMaxResults(maxResults);
+        return builder.build();
+    }
+
+    private void addFilterTerm(QueryShape.Builder builder, TreeNodeField<String, Set<String>> child, String value, TreeNodeField<String, Set<String>> parent) {
+        FilterOperator operator = resolveFilterOperator(child, value, parent);
+        Object termValue = null;
+
+        switch (operator) {
+            case LIKE:
+                Object modifiedSince = parent == null ? findIndexModifiedSince() : null;
+                List<Object> ids = parent == null ? findIndexedIds(child.getKey(), value) : null;
+                if (ids != null && (!ids.isEmpty() || modifiedSince != null)) {
+                    builder.compoundTerm(child.getKey(), FilterOperator.INDEXED, ids.isEmpty() ? null : ids, toLikePattern(value), modifiedSince);
+                    return;
+                }
+                if (ids != null) {
+                    operator = FilterOperator.NONE;
                 }
+                else {
+                    termValue = toLikePattern(value);
+                }
+                break;
+            case ENUM:
+                termValue = convertEnumToInt(child.getKey(), value, parent);
+                break;
+            case UUID:
+                termValue = UUID.fromString(value);
+                break;
+            case EQUAL:
+                termValue = convertToFieldType(child.getKey(), value, parent);
+                break;
+            default:
+                break;
+        }
+
+        builder.term(child.getKey(), operator, termValue);
+    }
+
+    /**
+     * Same rules used by {@link #buildPredicates(CriteriaBuilder, CriteriaQuery, Root)} to choose the predicate of a value.
+     */
+    private FilterOperator resolveFilterOperator(TreeNodeField<String, Set<String>> child, String value, TreeNodeField<String, Set<String>> parent) {
+        if ("null".equals(value) || value == null) {
+            return FilterOperator.NULL;
+        } else if (child.getValue().isEmpty()) {
+            return FilterOperator.EMPTY;
+        } else if (isLikeFilter(value)) {
+            return FilterOperator.LIKE;
+        } else if ("isTrue".equalsIgnoreCase(value) || "true".equalsIgnoreCase(value)) {
+            return FilterOperator.TRUE;
+        } else if ("isFalse".equalsIgnoreCase(value) || "false".equalsIgnoreCase(value)) {
+            return FilterOperator.FALSE;
+        } else if (isEnumFilter(child.getKey(), value, parent)) {
+            return FilterOperator.ENUM;
+        } else if (isUUIDFilter(child.getKey(), value, parent)) {
+            return FilterOperator.UUID;
+        }
+        return FilterOperator.EQUAL;
+    }
+
+    /**
+     * Narrow a LIKE predicate with the candidates of the {@link SearchIndex} ('id IN (...)') or the rows modified
+     * since the index was built, that the index may miss when written by other nodes. The LIKE is kept, so 
+     * the candidates that no longer match are left out by the database.
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private Predicate buildIndexedPredicate(CriteriaBuilder criteriaBuilder, From<?, ?> from, Predicate candidates, Expression<Comparable> modifiedSince, Predicate like) {
+        List<Predicate> alternatives = new ArrayList<>();
+        if (candidates != null) {
+            alternatives.add(candidates);
+        }
+        if (modifiedSince != null) {
+            alternatives.add(criteriaBuilder.greaterThanOrEqualTo((Expression) from.get(getEntityMetadata().getLastModifiedAttribute()), modifiedSince));
+        }
+
+        Predicate narrowed = alternatives.size() == 1 ? alternatives.get(0) : criteriaBuilder.or(alternatives.toArray(new Predicate[0]));
+        return criteriaBuilder.and(narrowed, like);
+    }
+
+    /**
+     * Read all rows of the request in chunks of {@link DemoiselleCrudConfig#getStreamChunkSize()} rows.
+     * 
+     * Each chunk seeks after the last row of the previous one (see {@link #createKeysetQuery(EntityManager, List, List)}), 
+     * so the cost of a chunk doesn't grow with the position. The rows are read while the response is written, 
+     * after the transaction of the request ended, so each chunk is read and converted on its own transaction 
+     * ({@link ChunkTransaction}) and its rows detached, to keep the memory flat. The stream stops after the 
+     * {@link DemoiselleRequestContext#getMaxRows()} rows of the guardrails.
+     */
+    private final class ChunkIterator implements Iterator<Object> {
 
-                drc.setCount(count);
+        private final EntityManager entityManager;
+        private final Function<Object, Object> converter;
+        private final List<SortModel> keysetSorts = getKeysetSorts();
+        private final int chunkSize = crudConfig == null ? DEFAULT_STREAM_CHUNK_SIZE : crudConfig.getStreamChunkSize();
+        private List<Object> chunk = Collections.emptyList();
+        private List<Object> cursorValues;
+        private final Integer maxRows = requestContext().getMaxRows();
+        private int position;
+        private int read;
+        private boolean lastChunk;
+
+        ChunkIterator(EntityManager entityManager, Function<Object, Object> converter) {
+            this.entityManager = entityManager;
+            this.converter = converter;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (position < chunk.size()) {
+                return true;
+            }
+            if (lastChunk) {
+                return false;
             }
 
-            result.setContent(query.getResultList());
-            if (result.getContent() != null && !result.getContent().isEmpty()
-                    && drc.isPaginationEnabled()
-                    && result.getContent().size() <= drc.getCount() && drc.getCount() < getMaxResult()) {
-                drc.setLimit(drc.getCount().intValue());
+            fetch();
+            return position < chunk.size();
+        }
+
+        @Override
+        public Object next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return chunk.get(position++);
+        }
+
+        private void fetch() {
+            int size = maxRows == null ? chunkSize : Math.min(chunkSize, maxRows - read);
+            if (size <= 0) {
+                chunk = Collections.emptyList();
+                lastChunk = true;
+                return;
             }
 
-            drc.setEntityClass(entityClass);
+            chunk = chunkTransaction == null ? read(size) : chunkTransaction.execute(() -> read(size));
+            position = 0;
+            read += chunk.size();
+            lastChunk = chunk.size() < size;
+        }
 
-            return result;
+        private List<Object> read(int size) {
+            TypedQuery<T> query = createKeysetQuery(entityManager, keysetSorts, cursorValues);
+            query.setMaxResults(size);
+            FETCH_SIZE_HINTS.forEach(hint -> query.setHint(hint, size));
 
-        } catch (Exception e) {
-            logger.severe(e.getMessage());
-            throw new DemoiselleCrudException("Não foi possível consultar", e);
+            List<T> rows = query.getResultList();
+            if (!rows.isEmpty()) {
+                cursorValues = getKeysetValues(rows.get(rows.size() - 1), keysetSorts);
+            }
+
+            List<Object> converted = rows.stream().map(converter).collect(Collectors.toList());
+            rows.forEach(row -> entityManager.detach(row));
+            return converted;
         }
+
+    }
+
+    /**
+     * Builds the predicate of a wildcard filter.
+     */
+    @FunctionalInterface
+    private interface LikePredicateBuilder {
+
+        Predicate build(From<?, ?> from, String key, String value);
+
     }
 
     protected void configureCriteriaQuery(CriteriaBuilder criteriaBuilder, CriteriaQuery<T> criteriaQuery) {
         Root<T> from = criteriaQuery.from(entityClass);
-        if (drc.getFilters() != null) {
+        if (requestContext().getFilters() != null) {
             criteriaQuery.select(from).where(buildPredicates(criteriaBuilder, criteriaQuery, from));
         }
 
@@ -198,10 +1747,10 @@ public abstract class AbstractDAO<T, I> implements Crud<T, I> {
 
     protected void configureOrder(CriteriaBuilder criteriaBuilder, CriteriaQuery<T> criteriaQuery, Root<T> root) {
 
-        if (!drc.getSorts().isEmpty()) {
+        if (!requestContext().getSorts().isEmpty()) {
             List<Order> orders = new ArrayList<>();
 
-            drc.getSorts().stream().forEachOrdered(sortModel -> {
+            requestContext().getSorts().stream().forEachOrdered(sortModel -> {
 
                 if (sortModel.getType().equals(CrudSort.ASC)) {
                     orders.add(criteriaBuilder.asc(root.get(sortModel.getField())));
@@ -216,10 +1765,32 @@ public abstract class AbstractDAO<T, I> implements Crud<T, I> {
     }
 
     protected Predicate[] buildPredicates(CriteriaBuilder criteriaBuilder, CriteriaQuery<?> criteriaQuery, Root<T> root) {
+        return buildFilterPredicates(criteriaBuilder, root, 
+                (from, key, value) -> buildLikePredicate(criteriaBuilder, criteriaQuery, from, key, value));
+    }
+
+    /**
+     * Build the predicates of {@link #updateByFilter(Object)}, by default the same predicates of the queries.
+     * 
+     * DAOs that override {@link #buildPredicates(CriteriaBuilder, CriteriaQuery, Root)} or 
+     * {@link #buildLikePredicate(CriteriaBuilder, CriteriaQuery, From, String, String)} should override this 
+     * method too, creating the subqueries on the criteria update.
+     * 
+     * @param criteriaBuilder Criteria builder
+     * @param criteriaUpdate Update statement, that creates the subqueries
+     * @param root Root of the update
+     * @return The predicates
+     */
+    protected Predicate[] buildUpdatePredicates(CriteriaBuilder criteriaBuilder, CriteriaUpdate<T> criteriaUpdate, Root<T> root) {
+        return buildFilterPredicates(criteriaBuilder, root, 
+                (from, key, value) -> buildIndexedLikePredicate(criteriaBuilder, from, key, value));
+    }
+
+    private Predicate[] buildFilterPredicates(CriteriaBuilder criteriaBuilder, Root<T> root, LikePredicateBuilder likePredicateBuilder) {
         List<Predicate> predicates = new LinkedList<>();
 
-        if (drc.getFilters() != null) {
-            drc.getFilters().getChildren().stream().forEach(child -> {
+        if (requestContext().getFilters() != null) {
+            requestContext().getFilters().getChildren().stream().forEach(child -> {
 
                 List<Predicate> predicatesToBuild = new LinkedList<>();
 
@@ -232,7 +1803,7 @@ public abstract class AbstractDAO<T, I> implements Crud<T, I> {
                 if (child.getChildren().isEmpty()) {
                     
                     child.getValue().stream().forEach(value -> {
-                        fillPredicates(predicatesToBuild, root, criteriaBuilder, criteriaQuery, child, value, null);
+                        fillPredicates(predicatesToBuild, root, criteriaBuilder, likePredicateBuilder, child, value, null);
                     });
                     
                 }
@@ -248,7 +1819,7 @@ public abstract class AbstractDAO<T, I> implements Crud<T, I> {
                     child.getChildren().stream().forEach( child2ndLevel -> {
 
                         child2ndLevel.getValue().stream().forEach(value -> {
-                            fillPredicates(predicatesToBuild, join, criteriaBuilder, criteriaQuery, child2ndLevel, value, child);
+                            fillPredicates(predicatesToBuild, join, criteriaBuilder, likePredicateBuilder, child2ndLevel, value, child);
                         });
                     });
                 } 
@@ -260,14 +1831,14 @@ public abstract class AbstractDAO<T, I> implements Crud<T, I> {
         return predicates.toArray(new Predicate[]{});
     }
     
-    private void fillPredicates(List<Predicate> predicates, From<?, ?>  from, CriteriaBuilder criteriaBuilder, CriteriaQuery<?> criteriaQuery, TreeNodeField<String, Set<String>> child, String value, TreeNodeField<String, Set<String>> parent) {
+    private void fillPredicates(List<Predicate> predicates, From<?, ?>  from, CriteriaBuilder criteriaBuilder, LikePredicateBuilder likePredicateBuilder, TreeNodeField<String, Set<String>> child, String value, TreeNodeField<String, Set<String>> parent) {
         
         if ("null".equals(value) || value == null) {
             predicates.add(criteriaBuilder.isNull(from.get(child.getKey())));
         } else if (child.getValue().isEmpty()) {
             predicates.add(criteriaBuilder.isEmpty(from.get(child.getKey())));
         } else if (isLikeFilter(value)) {
-            predicates.add(buildLikePredicate(criteriaBuilder, criteriaQuery, from, child.getKey(), value));
+            predicates.add(likePredicateBuilder.build(from, child.getKey(), value));
         } else if ("isTrue".equalsIgnoreCase(value) || "true".equalsIgnoreCase(value)) {
             predicates.add(criteriaBuilder.isTrue(from.get(child.getKey())));
         } else if ("isFalse".equalsIgnoreCase(value) || "false".equalsIgnoreCase(value)) {
@@ -277,134 +1848,202 @@ public abstract class AbstractDAO<T, I> implements Crud<T, I> {
         } else if (isUUIDFilter(child.getKey(), value, parent)) {
             predicates.add(criteriaBuilder.equal(from.get(child.getKey()), UUID.fromString(value)));
         } else {
-            predicates.add(criteriaBuilder.equal(from.get(child.getKey()), value));
+            predicates.add(criteriaBuilder.equal(from.get(child.getKey()), convertToFieldType(child.getKey(), value, parent)));
         }
     }
+
+    /**
+     * Convert the value of an equality filter to the type of the field, the same way on the criteria 
+     * and on the {@link QueryPlan}s.
+     */
+    private Object convertToFieldType(String key, String value, TreeNodeField<String, Set<String>> parent) {
+        EntityMetadata metadata = getFilterMetadata(parent);
+        return CrudUtilHelper.convertToFieldType(metadata == null ? null : metadata.getFieldType(key), value);
+    }
     
     protected Boolean isEnumFilter(String key, String value, TreeNodeField<String, Set<String>> tnf) {
-		for (Field field : getAllFields(entityClass)) {
-		    
-		    if(tnf != null){
-		        
-		        if(field.getName().equalsIgnoreCase(tnf.getKey())){
-		            try{
-    		            Class<?> c = Class.forName(field.getType().getName());
-    		            for(Field field2ndLevel : getAllFields(c)) {
-    		                if (key.equalsIgnoreCase(field2ndLevel.getName())) {
-    		                    return field2ndLevel.getType().isEnum();
-    		                }
-    		            }
-		            }
-		            catch (IllegalArgumentException | ClassNotFoundException | SecurityException e) {
-		                throw new DemoiselleCrudException("Não foi possível verificar se campo é do tipo 'ENUM'", e);
-		            }
-		        }
-		    }
-		    else if (key.equalsIgnoreCase(field.getName())) {
-				return field.getType().isEnum();
-		    }
-		}
-
-		return Boolean.FALSE;
-	}
-    
+        EntityMetadata metadata = getFilterMetadata(tnf);
+        return metadata != null && metadata.isEnumField(key);
+    }
+
     protected Boolean isUUIDFilter(String key, String value, TreeNodeField<String, Set<String>> tnf) {
-        for (Field field: getAllFields(entityClass)) {
-            
-            if(tnf != null){
-                
-                if(field.getName().equalsIgnoreCase(tnf.getKey())){
-                    try{
-                        Class<?> c = Class.forName(field.getType().getName());
-                        for(Field field2ndLevel : getAllFields(c)) {
-                            if (key.equalsIgnoreCase(field2ndLevel.getName())) {
-                                return field2ndLevel.getType().isAssignableFrom(UUID.class);
-                            }
-                        }
-                    }
-                    catch (IllegalArgumentException | ClassNotFoundException | SecurityException e) {
-                        throw new DemoiselleCrudException("Não foi possível verificar se campo é do tipo 'UUID'", e);
-                    }
-                }
-            }
-            else if (key.equalsIgnoreCase(field.getName())) {
-                return field.getType().isAssignableFrom(UUID.class);
-            }
-        }
-        
-        return Boolean.FALSE;
+        EntityMetadata metadata = getFilterMetadata(tnf);
+        return metadata != null && metadata.isUUIDField(key);
     }
 
-	protected Integer convertEnumToInt(String key, String value, TreeNodeField<String, Set<String>> tnf) {
-		for (Field field : getAllFields(entityClass)) {
-		    
-		    if(tnf != null){
-                
-                if(field.getName().equalsIgnoreCase(tnf.getKey())){
-                    try {
-                        Class<?> c = Class.forName(field.getType().getName());
-                        
-                        for(Field field2ndLevel : getAllFields(c)) {
-                            if (key.equalsIgnoreCase(field2ndLevel.getName()) && field2ndLevel.getType().isEnum()) {
-                                Integer enumResult = getEnumOrdinal(field2ndLevel, value);
-                                if(enumResult != null) {
-                                    return enumResult;
-                                }                            
-                            }
-                        }
-                    }
-                    catch (IllegalArgumentException | ClassNotFoundException | SecurityException e) {
-                        throw new DemoiselleCrudException("Não foi possível realizar a conversão de Enum para Integer", e);
-                    }
+    protected Integer convertEnumToInt(String key, String value, TreeNodeField<String, Set<String>> tnf) {
+        if (tnf != null) {
+            EntityMetadata metadata = getFilterMetadata(tnf);
+            if (metadata != null && metadata.isEnumField(key)) {
+                Integer enumResult = metadata.getEnumOrdinal(metadata.getFieldIgnoreCase(key).getName(), value);
+                if (enumResult != null) {
+                    return enumResult;
                 }
             }
-            else{   
-                
-				if (key.equals(field.getName())) {
-					if (field.getType().isEnum()) {
-						Integer enumResult = getEnumOrdinal(field, value);
-						if(enumResult != null) {
-						    return enumResult;
-						}
-					} 
-					else {
-					    throw new DemoiselleCrudException("Não foi possível verificar se campo é do tipo 'ENUM'");	
-					}
-				} 
-            }
-		}
-		
-		// If doesnt find any constant throws
-		throw new DemoiselleCrudException("Não foi possível encontrar o valor [%s] nas constantes".replace("%s", value));
-		
-	}
-	
-	private Integer getEnumOrdinal(Field field, String value) {
-	    
-	    try {
-    	    Class<?> c = Class.forName(field.getType().getName());
-            for (Object obj : c.getEnumConstants()) {
-                if (value.equalsIgnoreCase(obj.toString())){
-                    return ((Enum<?>)obj).ordinal();        
+        }
+        else {
+            Field field = getEntityMetadata().getField(key);
+            if (field != null) {
+                if (!field.getType().isEnum()) {
+                    throw new DemoiselleCrudException("Não foi possível verificar se campo é do tipo 'ENUM'");
+                }
+                Integer enumResult = getEntityMetadata().getEnumOrdinal(key, value);
+                if (enumResult != null) {
+                    return enumResult;
                 }
             }
-	    } catch (IllegalArgumentException | ClassNotFoundException | SecurityException e) {
-            throw new DemoiselleCrudException("Não foi possível realizar a conversão de Enum para Integer", e);
         }
-	    
-	    return null;
-	}
-	
-	private List<Field> getAllFields(Class<?> clazz){
-	    List<Field> fields = new ArrayList<>();
-	    return CrudUtilHelper.getAllFields(fields, clazz);
-	}
+
+        // If doesnt find any constant throws
+        throw new DemoiselleCrudException("Não foi possível encontrar o valor [%s] nas constantes".replace("%s", value));
+    }
+
+    /**
+     * Return the metadata of the class that holds the filtered field: the entity itself for
+     * a first level filter or the type of the association for a second level filter.
+     */
+    private EntityMetadata getFilterMetadata(TreeNodeField<String, Set<String>> tnf) {
+        if (tnf == null) {
+            return getEntityMetadata();
+        }
+        Class<?> associationType = getEntityMetadata().getFieldType(tnf.getKey());
+        return associationType == null ? null : EntityMetadataRegistry.get(associationType);
+    }
+
+    protected EntityMetadata getEntityMetadata() {
+        return EntityMetadataRegistry.get(entityClass);
+    }
 
     protected Boolean isLikeFilter(String value) {
         return value.startsWith("*") || value.endsWith("*");
     }
 
     protected Predicate buildLikePredicate(CriteriaBuilder criteriaBuilder, CriteriaQuery<?> criteriaQuery, From<?, ?> root, String key, String value) {
+        return buildIndexedLikePredicate(criteriaBuilder, root, key, value);
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private Predicate buildIndexedLikePredicate(CriteriaBuilder criteriaBuilder, From<?, ?> root, String key, String value) {
+        Predicate like = criteriaBuilder.like(criteriaBuilder.lower(root.get(key)), toLikePattern(value));
+        boolean indexed = root instanceof Root && entityClass.equals(root.getJavaType());
+        Object modifiedSince = indexed ? findIndexModifiedSince() : null;
+        List<Object> ids = indexed ? findIndexedIds(key, value) : null;
+        if (ids == null) {
+            return like;
+        }
+        if (ids.isEmpty() && modifiedSince == null) {
+            return criteriaBuilder.disjunction();
+        }
+
+        return buildIndexedPredicate(criteriaBuilder, root, ids.isEmpty() ? null : root.get(getEntityMetadata().getIdAttribute()).in(ids),
+                modifiedSince == null ? null : (Expression) criteriaBuilder.literal(modifiedSince), like);
+    }
+
+    /**
+     * Ids of the rows that match the wildcard filter of a {@link SearchIndexed} field, read from the 
+     * {@link SearchIndex} of the entity.
+     * 
+     * @return The ids or null when the filter should be answered by the database
+     */
+    private List<Object> findIndexedIds(String key, String value) {
+        SearchIndex index = getSearchIndex();
+        TrigramIndex fieldIndex = index == null ? null : index.getIndex(key);
+        if (fieldIndex == null) {
+            return null;
+        }
+
+        Integer maxIds = crudConfig == null ? null : crudConfig.getSearchIndexMaxIds();
+        return fieldIndex.search(value, maxIds == null ? DEFAULT_SEARCH_INDEX_MAX_IDS : maxIds);
+    }
+
+    /**
+     * Time, converted to the type of the {@link LastModified} field, since the {@link SearchIndex} of the entity 
+     * may miss the writes of other nodes: when its rows started to be read, minus {@link #SEARCH_INDEX_CLOCK_SKEW} 
+     * for the clocks of the nodes. Read before the ids, so a rebuild in between only widens the rows checked.
+     * 
+     * @return The time or null when the entity doesn't have a {@link LastModified} field or the index isn't built
+     */
+    private Object findIndexModifiedSince() {
+        String lastModified = getEntityMetadata().getLastModifiedAttribute();
+        SearchIndex index = lastModified == null ? null : getSearchIndex();
+        if (index == null) {
+            return null;
+        }
+
+        Date since = new Date(index.getBuiltAt() - SEARCH_INDEX_CLOCK_SKEW);
+        return EntityMetadata.toTemporalValue(getEntityMetadata().getFieldType(lastModified), since);
+    }
+
+    /**
+     * Return the {@link SearchIndex} of the entity, building it when it wasn't built or is expired.
+     * 
+     * Only one request builds the index, the others are answered by the database until it is built.
+     * 
+     * @return The index or null when the entity doesn't have {@link SearchIndexed} fields or it isn't built
+     */
+    private SearchIndex getSearchIndex() {
+        SearchIndex index = SearchIndexRegistry.get(entityClass);
+        if (index == null || getEntityMetadata().getIdAttribute() == null) {
+            return null;
+        }
+
+        Integer timeToLive = crudConfig == null ? null : crudConfig.getSearchIndexTimeToLive();
+        long timeToLiveMillis = TimeUnit.SECONDS.toMillis(timeToLive == null ? DEFAULT_SEARCH_INDEX_TIME_TO_LIVE : timeToLive);
+
+        if (index.isExpired(timeToLiveMillis) && index.startBuild()) {
+            try {
+                StringBuilder statement = new StringBuilder("SELECT e.").append(getEntityMetadata().getIdAttribute());
+                index.getFieldNames().forEach(name -> statement.append(", e.").append(name));
+                statement.append(" FROM ").append(entityClass.getCanonicalName()).append(" e");
+
+                index.load(getEntityManager().createQuery(statement.toString(), Object[].class).getResultList());
+            } catch (RuntimeException e) {
+                index.cancelBuild();
+                logger.log(Level.WARNING, "Não foi possível construir o índice de busca de " + entityClass.getName(), e);
+            }
+        }
+
+        return index.isBuilt() ? index : null;
+    }
+
+    /**
+     * Keep the {@link SearchIndex} of the entity with the values written, after the commit, so a write
+     * rolled back isn't seen by the index.
+     * 
+     * @param partial true when only the fields not null are written
+     */
+    private void updateSearchIndex(Object id, T entity, boolean partial) {
+        SearchIndex index = SearchIndexRegistry.get(entityClass);
+        if (index == null || id == null || entity == null) {
+            return;
+        }
+
+        Map<String, String> values = new LinkedHashMap<>();
+        for (Field field : getEntityMetadata().getSearchIndexedFields()) {
+            Object value;
+            try {
+                field.setAccessible(true);
+                value = field.get(entity);
+            } catch (IllegalAccessException e) {
+                continue;
+            }
+
+            if (value != null || !partial) {
+                values.put(field.getName(), (String) value);
+            }
+        }
+
+        executeAfterCommit(() -> index.put(id, values));
+    }
+
+    private void removeFromSearchIndex(Object id) {
+        SearchIndex index = SearchIndexRegistry.get(entityClass);
+        if (index != null && id != null) {
+            executeAfterCommit(() -> index.remove(id));
+        }
+    }
+
+    private static String toLikePattern(String value) {
         String pattern = value.trim();
         //
         if (pattern.startsWith("*")) {
@@ -414,28 +2053,100 @@ public abstract class AbstractDAO<T, I> implements Crud<T, I> {
             pattern = pattern.substring(0, pattern.length() - 1) + "%";
         }
         //
-        return criteriaBuilder.like(criteriaBuilder.lower(root.get(key)), pattern.toLowerCase());
+        return pattern.toLowerCase();
     }
 
     protected Integer getMaxResult() {
-        if (drc.getLimit() == null || drc.getOffset() == null) {
+        if (requestContext().getLimit() == null || requestContext().getOffset() == null) {
             return paginationConfig.getDefaultPagination();
         }
 
-        return (drc.getLimit() - drc.getOffset()) + 1;
+        return (requestContext().getLimit() - requestContext().getOffset()) + 1;
     }
 
     public Long count() {
-        CriteriaBuilder criteriaBuilder = getEntityManager().getCriteriaBuilder();
+        return count(readEntityManager(), isQueryPlanEnabled() ? buildQueryShape(null, null, null) : null);
+    }
+
+    private Long count(EntityManager entityManager, QueryShape shape) {
+        if (shape != null) {
+            return withQueryTimeout(getQueryPlan(entityManager, shape).createCountQuery(entityManager, shape.getValues())).getSingleResult();
+        }
+
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
         CriteriaQuery<Long> countCriteria = criteriaBuilder.createQuery(Long.class);
         Root<T> entityRoot = countCriteria.from(entityClass);
         countCriteria.select(criteriaBuilder.count(entityRoot));
 
-        if (drc.getFilters() != null) {
+        if (requestContext().getFilters() != null) {
             countCriteria.where(buildPredicates(criteriaBuilder, countCriteria, entityRoot));
         }
 
-        return getEntityManager().createQuery(countCriteria).getSingleResult();
+        return withQueryTimeout(entityManager.createQuery(countCriteria)).getSingleResult();
+    }
+
+    /**
+     * Entity manager of the reads: the one of {@link #getReadEntityManager()}, unless this request 
+     * already wrote or the entity was written on this node less than 
+     * {@link DemoiselleCrudConfig#getReadReplicaMaxLag()} seconds ago.
+     */
+    private EntityManager readEntityManager() {
+        EntityManager primary = getEntityManager();
+        EntityManager replica = getReadEntityManager();
+        if (replica == null || replica == primary || isWritten()) {
+            return primary;
+        }
+
+        Long lastWrite = LAST_WRITES.get(entityClass);
+        if (lastWrite != null && System.currentTimeMillis() - lastWrite < TimeUnit.SECONDS.toMillis(getReadReplicaMaxLag())) {
+            return primary;
+        }
+
+        return replica;
+    }
+
+    /**
+     * Keep the next reads of the request and of the entity on the primary, called before every write.
+     */
+    private void markWrite() {
+        if (requestContext() != null) {
+            try {
+                requestContext().setWritten(Boolean.TRUE);
+            } catch (ContextNotActiveException e) {
+                // writes without a request, like the export jobs, don't have stickiness
+            }
+        }
+        if (getReadReplicaMaxLag() > 0) {
+            LAST_WRITES.put(entityClass, System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * Execute the task after the commit of the actual transaction, see {@link AfterCommit}.
+     */
+    private void executeAfterCommit(Runnable task) {
+        if (afterCommit == null) {
+            task.run();
+        } else {
+            afterCommit.fire(new AfterCommit(task));
+        }
+    }
+
+    private boolean isWritten() {
+        if (requestContext() == null) {
+            return false;
+        }
+
+        try {
+            return Boolean.TRUE.equals(requestContext().isWritten());
+        } catch (ContextNotActiveException e) {
+            return false;
+        }
+    }
+
+    private int getReadReplicaMaxLag() {
+        Integer maxLag = crudConfig == null ? null : crudConfig.getReadReplicaMaxLag();
+        return maxLag == null || maxLag < 0 ? DEFAULT_READ_REPLICA_MAX_LAG : maxLag;
     }
 
     protected Predicate[] extractPredicates(MultivaluedMap<String, String> queryParameters,
@@ -448,7 +2159,15 @@ public abstract class AbstractDAO<T, I> implements Crud<T, I> {
     }
 
     public DemoiselleRequestContext getDrc() {
-        return drc;
+        return requestContext();
+    }
+
+    /**
+     * Context of the actual request, the copy bound to the thread when the request of an
+     * {@link AbstractAsyncREST} is executed by {@link CrudExecutor}.
+     */
+    private DemoiselleRequestContext requestContext() {
+        return AsyncRequestContext.resolve(drc);
     }
 
     public Class<T> getEntityClass() {
@@ -8,21 +8,47 @@ package org.demoiselle.jee.crud;
 
 import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
 
+import java.io.File;
+import java.lang.reflect.Field;
+import java.util.List;
+import java.util.Map;
+
 import javax.inject.Inject;
 import javax.transaction.Transactional;
 import javax.validation.Valid;
+import javax.ws.rs.BadRequestException;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.DELETE;
 import javax.ws.rs.GET;
+import javax.ws.rs.NotFoundException;
 import javax.ws.rs.POST;
 import javax.ws.rs.PUT;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.container.ResourceInfo;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.core.SecurityContext;
+import javax.ws.rs.core.UriInfo;
+import javax.ws.rs.ext.Providers;
 
 import org.demoiselle.jee.core.api.crud.Crud;
 import org.demoiselle.jee.core.api.crud.Result;
+import org.demoiselle.jee.crud.batch.BatchResult;
+import org.demoiselle.jee.crud.batch.UpdateResult;
+import org.demoiselle.jee.crud.cache.EntityTags;
+import org.demoiselle.jee.crud.export.ExportJob;
+import org.demoiselle.jee.crud.export.ExportManager;
+import org.demoiselle.jee.crud.export.ExportStatus;
+import org.demoiselle.jee.crud.filter.FilterHelper;
+import org.demoiselle.jee.crud.metadata.EntityMetadata;
+import org.demoiselle.jee.crud.metadata.EntityMetadataRegistry;
+import org.demoiselle.jee.crud.metadata.SearchMetadataRegistry;
+import org.demoiselle.jee.crud.query.PartialUpdate;
+import org.demoiselle.jee.crud.stream.StreamFormat;
 import org.demoiselle.jee.rest.exception.DemoiselleRestException;
 
 import io.swagger.annotations.ApiOperation;
@@ -38,12 +64,40 @@ import io.swagger.jaxrs.PATCH;
 @Consumes(APPLICATION_JSON)
 public abstract class AbstractREST<T, I> implements Crud<T, I> {
 
+    protected static final String EXPORT_MEDIA_TYPE = "application/gzip";
+
+    private static final String ANONYMOUS = "anonymous";
+
     @Inject
     protected AbstractBusiness<T, I> bc;
 
     @Inject
     private CrudMessage crudMessage;
 
+    @Inject
+    private DemoiselleCrudConfig crudConfig;
+
+    @Inject
+    private DemoiselleRequestContext drc;
+
+    @Inject
+    private ExportManager exportManager;
+
+    @Inject
+    private FilterHelper filterHelper;
+
+    @Context
+    private UriInfo uriInfo;
+
+    @Context
+    private ResourceInfo resourceInfo;
+
+    @Context
+    private SecurityContext securityContext;
+
+    @Context
+    private Providers providers;
+
     @POST
     @Transactional
     @ApiOperation(value = "persist entity")
@@ -78,12 +132,113 @@ public abstract class AbstractREST<T, I> implements Crud<T, I> {
         bc.remove(id);
     }
 
+    @POST
+    @Path("batch")
+    @Transactional
+    @ApiOperation(value = "persist entities in batch")
+    public BatchResult persistBatch(List<T> entities) {
+        /*
+         * Same reason of find(): the batch would bypass the overrides and the security of persist(), so 
+         * the developer overrides this method with the security of the resource and calls persistEach() 
+         * or, when persist() isn't customized, bc.persistBatch().
+         */
+        throw new DemoiselleRestException(crudMessage.methodBatchNotImplemented("persistBatch"), Status.NOT_IMPLEMENTED.getStatusCode());
+    }
+
+    @PUT
+    @Path("batch")
+    @Transactional
+    @ApiOperation(value = "full update entities in batch")
+    public BatchResult mergeFullBatch(List<T> entities) {
+        // Same reason of persistBatch(), see mergeFullEach()
+        throw new DemoiselleRestException(crudMessage.methodBatchNotImplemented("mergeFullBatch"), Status.NOT_IMPLEMENTED.getStatusCode());
+    }
+
+    @DELETE
+    @Path("batch")
+    @Transactional
+    @ApiOperation(value = "remove entities in batch")
+    public BatchResult removeBatch(List<I> ids) {
+        // Same reason of persistBatch(), see removeEach()
+        throw new DemoiselleRestException(crudMessage.methodBatchNotImplemented("removeBatch"), Status.NOT_IMPLEMENTED.getStatusCode());
+    }
+
+    /**
+     * Persist each entity by {@link #persist(Object)} of this resource, so its overrides apply to every item.
+     * Used by the overrides of {@link #persistBatch(List)}:
+     * 
+     * <pre>
+     * &#64;POST
+     * &#64;Path("batch")
+     * &#64;Transactional
+     * &#64;RequiredRole("admin")
+     * public BatchResult persistBatch(List&lt;User&gt; entities) {
+     *     return persistEach(entities);
+     * }
+     * </pre>
+     * 
+     * The items run on the transaction of the batch, see {@link BatchResult#of(List, int, java.util.function.Function)}. 
+     * When {@link #persist(Object)} isn't customized, {@link AbstractBusiness#persistBatch(List)} also groups the inserts.
+     * 
+     * @param entities Entities to be persisted
+     * @return Status of each entity
+     */
+    protected BatchResult persistEach(List<T> entities) {
+        return BatchResult.of(entities, Status.CREATED.getStatusCode(), entity -> getId(persist(entity)));
+    }
+
+    /**
+     * Merge each entity by {@link #mergeFull(Object)} of this resource, see {@link #persistEach(List)}.
+     * 
+     * @param entities Entities to be merged
+     * @return Status of each entity
+     */
+    protected BatchResult mergeFullEach(List<T> entities) {
+        return BatchResult.of(entities, Status.OK.getStatusCode(), entity -> getId(mergeFull(entity)));
+    }
+
+    /**
+     * Remove each entity by {@link #remove(Object)} of this resource, see {@link #persistEach(List)}.
+     * 
+     * @param ids Ids of the entities to be removed
+     * @return Status of each id
+     */
+    protected BatchResult removeEach(List<I> ids) {
+        return BatchResult.of(ids, Status.NO_CONTENT.getStatusCode(), id -> {
+            remove(id);
+            return id;
+        });
+    }
+
+    @PATCH
+    @Transactional
+    @ApiOperation(value = "partial update entities by filter")
+    public UpdateResult mergeHalfByFilter(T entity) {
+        /*
+         * Same reason of find(): the developer overrides this method using the @Search annotation 
+         * to define the fields that can be filtered and updated, and calls updateByFilter().
+         */
+        throw new DemoiselleRestException(crudMessage.methodMergeHalfByFilterNotImplemented(), Status.NOT_IMPLEMENTED.getStatusCode());
+    }
+
     @GET
     @Path("{id}")
     @Transactional
     @ApiOperation(value = "find by ID")
     @Override
     public T find(@PathParam("id") final I id) {
+        /*
+         * Conditional GET answered by the version of the entity, see CrudFilter. The tag is null when the
+         * business or the DAO overrides find(id), so its access checks are never skipped.
+         */
+        if (drc.getIfNoneMatch() != null) {
+            String entityTag = bc.findEntityTag(id);
+            if (EntityTags.matches(drc.getIfNoneMatch(), entityTag)) {
+                drc.setEntityTag(entityTag);
+                return null;
+            }
+        }
+
         return bc.find(id);
     }
 
@@ -100,4 +255,213 @@ public abstract class AbstractREST<T, I> implements Crud<T, I> {
          */
         throw new DemoiselleRestException(crudMessage.methodFindNotImplemented(), Status.NOT_IMPLEMENTED.getStatusCode());
     }
+
+    @POST
+    @Path("export")
+    @ApiOperation(value = "export entities in background")
+    public Response export() {
+        /*
+         * Same reason of find(): the developer overrides this method using the @Search annotation 
+         * to define the exported fields, and calls startExport().
+         */
+        throw new DemoiselleRestException(crudMessage.methodExportNotImplemented("export"), Status.NOT_IMPLEMENTED.getStatusCode());
+    }
+
+    @GET
+    @Path("export/{job}")
+    @ApiOperation(value = "status of export")
+    public ExportJob findExport(@PathParam("job") final String job) {
+        /*
+         * Same reason of export(): the developer overrides this method with the security of the 
+         * resource and calls getExport().
+         */
+        throw new DemoiselleRestException(crudMessage.methodExportNotImplemented("findExport"), Status.NOT_IMPLEMENTED.getStatusCode());
+    }
+
+    @GET
+    @Path("export/{job}/file")
+    @Produces(EXPORT_MEDIA_TYPE)
+    @ApiOperation(value = "download exported file")
+    public Response downloadExport(@PathParam("job") final String job) {
+        // Same reason of findExport(), the override calls getExportFile()
+        throw new DemoiselleRestException(crudMessage.methodExportNotImplemented("downloadExport"), Status.NOT_IMPLEMENTED.getStatusCode());
+    }
+
+    @POST
+    @Path("export/{job}/resume")
+    @ApiOperation(value = "resume stopped export")
+    public ExportJob resumeExport(@PathParam("job") final String job) {
+        // Same reason of findExport(), the override calls continueExport()
+        throw new DemoiselleRestException(crudMessage.methodExportNotImplemented("resumeExport"), Status.NOT_IMPLEMENTED.getStatusCode());
+    }
+
+    /**
+     * Start an export of the entities with the filters, sorts and fields of the query string, 
+     * like a find(), to a file written in background by {@link ExportManager}.
+     * 
+     * <pre>
+     * &#64;POST
+     * &#64;Path("export")
+     * &#64;Search(fields = {"id", "name"})
+     * public Response export() {
+     *     return startExport(StreamFormat.NDJSON);
+     * }
+     * </pre>
+     * 
+     * The job is followed by {@link #findExport(String)}, {@link #downloadExport(String)} and 
+     * {@link #resumeExport(String)}, also overridden by the resources that export, see {@link #getExport(String)}.
+     * 
+     * @param format Format of the rows on the file
+     * @return '202 Accepted' with the job and its location
+     */
+    protected Response startExport(StreamFormat format) {
+        ExportJob job;
+        try {
+            job = exportManager.start(bc, resourceInfo, uriInfo.getQueryParameters(), format, getExportOwner(), providers);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException(e.getMessage());
+        }
+        return Response.accepted(job).location(uriInfo.getAbsolutePathBuilder().path(job.getId()).build()).build();
+    }
+
+    /**
+     * Update the non-null fields of the entity on all rows that match the filters of the query string, 
+     * with a single UPDATE statement, see {@link AbstractDAO#updateByFilter(Object)}.
+     * 
+     * The filters and the updated fields should be on {@link Search#fields()} of the method.
+     * 
+     * <pre>
+     * &#64;PATCH
+     * &#64;Transactional
+     * &#64;Search(fields = {"status", "country"})
+     * public UpdateResult mergeHalfByFilter(Customer entity) {
+     *     return updateByFilter(entity);
+     * }
+     * </pre>
+     * 
+     * PATCH {@literal http://localhost:8080/api/customers?status=PENDING&country=BR} with '{"status": "ACTIVE"}'
+     * 
+     * @param entity Entity with the new values
+     * @return Number of rows updated
+     */
+    protected UpdateResult updateByFilter(T entity) {
+        try {
+            filterHelper.execute(resourceInfo, uriInfo);
+
+            List<String> searchFields = SearchMetadataRegistry.get(resourceInfo).getFieldNames();
+            Map<String, Object> values = PartialUpdate.of(SearchMetadataRegistry.get(resourceInfo).getTargetClass()).getValues(entity);
+            for (String field : values.keySet()) {
+                if (!searchFields.isEmpty() && searchFields.stream().noneMatch(searchField -> searchField.equals(field) || searchField.startsWith(field + "("))) {
+                    throw new IllegalArgumentException(crudMessage.fieldRequestDoesNotExistsOnSearchField(field));
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException(e.getMessage());
+        }
+        return bc.updateByFilter(entity);
+    }
+
+    /**
+     * User that owns the exports, the only one that can see and download them. The requests without 
+     * an authenticated user are refused, unless 'demoiselle.crud.exportAnonymousEnabled' is true.
+     * 
+     * @return Name of the authenticated user or 'anonymous'
+     */
+    protected String getExportOwner() {
+        if (securityContext != null && securityContext.getUserPrincipal() != null) {
+            return securityContext.getUserPrincipal().getName();
+        }
+
+        if (crudConfig == null || !Boolean.TRUE.equals(crudConfig.getExportAnonymousEnabled())) {
+            throw new DemoiselleRestException(crudMessage.exportAnonymousNotAllowed(), Status.UNAUTHORIZED.getStatusCode());
+        }
+        return ANONYMOUS;
+    }
+
+    /**
+     * Return the export job of the user that owns it, started by {@link #startExport(StreamFormat)} 
+     * of this resource.
+     * 
+     * <pre>
+     * &#64;GET
+     * &#64;Path("export/{job}")
+     * public ExportJob findExport(&#64;PathParam("job") final String job) {
+     *     return getExport(job);
+     * }
+     * </pre>
+     * 
+     * @param job Id of the job
+     * @return The job
+     */
+    protected ExportJob getExport(String job) {
+        ExportJob exportJob = exportManager.get(job, getExportOwner(), resourceInfo.getResourceClass());
+        if (exportJob == null) {
+            throw new NotFoundException();
+        }
+        return exportJob;
+    }
+
+    /**
+     * Return the file of a completed export job, see {@link #getExport(String)}.
+     * 
+     * <pre>
+     * &#64;GET
+     * &#64;Path("export/{job}/file")
+     * &#64;Produces(EXPORT_MEDIA_TYPE)
+     * public Response downloadExport(&#64;PathParam("job") final String job) {
+     *     return getExportFile(job);
+     * }
+     * </pre>
+     * 
+     * @param job Id of the job
+     * @return The file as an attachment or '409 Conflict' when the job isn't completed
+     */
+    protected Response getExportFile(String job) {
+        ExportJob exportJob = getExport(job);
+        if (exportJob.getStatus() != ExportStatus.COMPLETED) {
+            throw new DemoiselleRestException(crudMessage.exportNotCompleted(), Status.CONFLICT.getStatusCode());
+        }
+
+        File file = exportManager.getFile(exportJob);
+        return Response.ok(file, EXPORT_MEDIA_TYPE)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + file.getName() + "\"").build();
+    }
+
+    /**
+     * Continue a stopped export job from its last chunk, see {@link #getExport(String)}.
+     * 
+     * <pre>
+     * &#64;POST
+     * &#64;Path("export/{job}/resume")
+     * public ExportJob resumeExport(&#64;PathParam("job") final String job) {
+     *     return continueExport(job);
+     * }
+     * </pre>
+     * 
+     * @param job Id of the job
+     * @return The resumed job
+     */
+    protected ExportJob continueExport(String job) {
+        ExportJob exportJob = exportManager.resume(job, getExportOwner(), resourceInfo.getResourceClass(), bc, providers);
+        if (exportJob == null) {
+            throw new NotFoundException();
+        }
+        return exportJob;
+    }
+
+    private static Object getId(Object entity) {
+        EntityMetadata metadata = entity == null ? null : EntityMetadataRegistry.get(entity.getClass());
+        Field idField = metadata == null ? null : metadata.getField(metadata.getIdAttribute());
+        if (idField == null) {
+            return null;
+        }
+
+        try {
+            idField.setAccessible(true);
+            return idField.get(entity);
+        } catch (IllegalAccessException e) {
+            return null;
+        }
+    }
+
 }
@@ -7,21 +7,16 @@
 package org.demoiselle.jee.crud;
 
 import java.io.IOException;
-import java.lang.reflect.Field;
-import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.LinkedHashMap;
-import java.util.LinkedList;
+import java.lang.reflect.Method;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.logging.Level;
-import java.util.logging.Logger;
-import java.util.stream.Collectors;
+import java.util.function.Function;
 
 import javax.inject.Inject;
 import javax.ws.rs.BadRequestException;
 import javax.ws.rs.GET;
+import javax.ws.rs.container.AsyncResponse;
 import javax.ws.rs.container.ContainerRequestContext;
 import javax.ws.rs.container.ContainerRequestFilter;
 import javax.ws.rs.container.ContainerResponseContext;
@@ -29,15 +24,36 @@ import javax.ws.rs.container.ContainerResponseFilter;
 import javax.ws.rs.container.ResourceInfo;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.core.SecurityContext;
 import javax.ws.rs.core.UriInfo;
 import javax.ws.rs.ext.Provider;
+import javax.ws.rs.ext.Providers;
 
 import org.demoiselle.jee.core.api.crud.Result;
+import org.demoiselle.jee.crud.aggregate.AggregationHelper;
+import org.demoiselle.jee.crud.async.AsyncRequestContext;
+import org.demoiselle.jee.crud.async.CrudExecutor;
+import org.demoiselle.jee.crud.cache.Cached;
+import org.demoiselle.jee.crud.cache.EntityTags;
+import org.demoiselle.jee.crud.changes.ChangeFeedHelper;
+import org.demoiselle.jee.crud.coalesce.Coalesced;
 import org.demoiselle.jee.crud.field.FieldHelper;
 import org.demoiselle.jee.crud.filter.FilterHelper;
+import org.demoiselle.jee.crud.guard.QueryGuardHelper;
+import org.demoiselle.jee.crud.metadata.SearchMetadataRegistry;
 import org.demoiselle.jee.crud.pagination.PaginationHelper;
+import org.demoiselle.jee.crud.pagination.PaginationHelperConfig;
+import org.demoiselle.jee.crud.pagination.PaginationHelperMessage;
+import org.demoiselle.jee.crud.request.RequestSpec;
+import org.demoiselle.jee.crud.request.RequestSpecCache;
 import org.demoiselle.jee.crud.sort.SortHelper;
+import org.demoiselle.jee.crud.stream.ProjectedContent;
+import org.demoiselle.jee.crud.stream.ProjectedJsonWriter;
+import org.demoiselle.jee.crud.stream.ResultStreamingOutput;
+import org.demoiselle.jee.crud.stream.StreamFormat;
+import org.demoiselle.jee.crud.stream.StreamingResult;
 
 /**
  * Class responsible for managing the Request and Response used on CRUD feature.
@@ -46,11 +62,18 @@ import org.demoiselle.jee.crud.sort.SortHelper;
  *  - The target class of request is a subclass of {@link AbstractREST} and 
  *  - The target method of request is annotated with {@link GET} annotation
  *  
- *  The request will be treated and parsed for:
+ *  The query string is read once to a {@link RequestSpec}, kept by {@link RequestSpecCache}, and then treated for:
  *  - {@link PaginationHelper} to extract information about 'pagination' like a 'range' parameter;
  *  - {@link FieldHelper} to extract information about 'field' like a 'fields=field1,field2,...' parameter;
  *  - {@link FilterHelper} to extract information about the fields of entity that will be filter on the database.
  *  - {@link SortHelper} to extract information about the 'sort' link a 'sort' and 'desc' parameters;
+ *  - {@link PaginationHelper} again to extract the 'cursor' parameter, that depends on the sort;
+ *  - {@link AggregationHelper} to extract the 'groupBy', 'count', 'sum', 'min', 'max' and 'facets' parameters;
+ *  - {@link ChangeFeedHelper} to extract the 'since' parameter of the change feed;
+ *  - {@link QueryGuardHelper} to check the filters, sorts and range against the guardrails of the method;
+ *  
+ *  Results of requests that accept 'application/x-ndjson' or of methods annotated with 
+ *  {@link Search#streaming()} are written row by row, see {@link StreamFormat}.
  *  
  * The response will be treat if:
  *  - The type of return is a {@link Result} type.
@@ -68,6 +91,9 @@ public class CrudFilter implements ContainerResponseFilter, ContainerRequestFilt
     @Context
     private UriInfo uriInfo;
 
+    @Context
+    private Providers providers;
+
     @Inject
     private DemoiselleRequestContext drc;
 
@@ -82,9 +108,28 @@ public class CrudFilter implements ContainerResponseFilter, ContainerRequestFilt
 
     @Inject
     private FieldHelper fieldHelper;
-    
-    private static final Logger logger = Logger.getLogger(CrudFilter.class.getName());
 
+    @Inject
+    private AggregationHelper aggregationHelper;
+
+    @Inject
+    private ChangeFeedHelper changeFeedHelper;
+
+    @Inject
+    private QueryGuardHelper queryGuardHelper;
+
+    @Inject
+    private RequestSpecCache requestSpecCache;
+
+    @Inject
+    private PaginationHelperConfig paginationConfig;
+
+    @Inject
+    private PaginationHelperMessage paginationMessage;
+
+    @Inject
+    private DemoiselleCrudConfig crudConfig;
+    
     public CrudFilter() {}
 
     public CrudFilter(ResourceInfo resourceInfo, UriInfo uriInfo, DemoiselleRequestContext drc, PaginationHelper paginationHelper, SortHelper sortHelper, FilterHelper filterHelper, FieldHelper fieldHelper) {
@@ -101,10 +146,32 @@ public class CrudFilter implements ContainerResponseFilter, ContainerRequestFilt
     public void filter(ContainerRequestContext requestContext) throws IOException {
         if (isRequestForCrud()) {
             try {
+                requestContext().setStreamFormat(getStreamFormat(requestContext));
+                requestContext().setCached(getCached());
+                requestContext().setCoalesced(getCoalesced());
+                if (requestContext().getCached() != null || requestContext().getCoalesced() != null) {
+                    SecurityContext securityContext = requestContext.getSecurityContext();
+                    requestContext().setPrincipal(securityContext == null || securityContext.getUserPrincipal() == null 
+                            ? null : securityContext.getUserPrincipal().getName());
+                    requestContext().setTenant(crudConfig == null || crudConfig.getTenantHeader() == null 
+                            ? null : requestContext.getHeaderString(crudConfig.getTenantHeader()));
+                }
+                requestContext().setIfNoneMatch(requestContext.getHeaderString(HttpHeaders.IF_NONE_MATCH));
+                requestContext().setRequestSpec(getRequestSpec());
                 paginationHelper.execute(resourceInfo, uriInfo);
                 sortHelper.execute(resourceInfo, uriInfo);
+                paginationHelper.executeCursor();
                 filterHelper.execute(resourceInfo, uriInfo);
                 fieldHelper.execute(resourceInfo, uriInfo);
+                if (aggregationHelper != null) {
+                    aggregationHelper.execute(resourceInfo, uriInfo);
+                }
+                if (changeFeedHelper != null) {
+                    changeFeedHelper.execute(resourceInfo, uriInfo);
+                }
+                if (queryGuardHelper != null) {
+                    queryGuardHelper.execute(resourceInfo, uriInfo);
+                }
             } 
             catch (IllegalArgumentException e) {
                 throw new BadRequestException(e.getMessage());
@@ -115,35 +182,170 @@ public class CrudFilter implements ContainerResponseFilter, ContainerRequestFilt
     @Override
     public void filter(ContainerRequestContext req, ContainerResponseContext response) throws IOException {
 
-        if (response.getEntity() instanceof Result) {
+        Object entity = response.getEntity();
+
+        if (entity instanceof StreamingResult && requestContext().getStreamFormat() != null) {
+
+            buildHeaders(response);
+
+            StreamFormat format = requestContext().getStreamFormat();
+            FieldTree fields = getFields();
+            Class<?> targetClass = SearchMetadataRegistry.get(resourceInfo).getTargetClass();
+            StreamingResult streamingResult = (StreamingResult) entity;
+            // Converted while each chunk is read, on its transaction
+            streamingResult.setConverter((object) -> fields == null ? object : buildContentObject(object, fields, targetClass));
+
+            response.setEntity(new ResultStreamingOutput(streamingResult.getRows(), format, providers, Function.identity()));
+            response.getHeaders().putSingle(HttpHeaders.CONTENT_TYPE, format.getMediaType());
+            response.setStatus(Status.OK.getStatusCode());
+        }
+        else if (entity instanceof Result) {
 
             buildHeaders(response);
             
-            response.setEntity(buildContentBody(response));
+            List<?> content = buildContentBody(response);
+            List<?> rows = content instanceof ProjectedContent ? ((ProjectedContent) content).getRows() : content;
+
+            if (isNotModified(response, EntityTags.ofPage(rows, requestContext()))) {
+                return;
+            }
+
+            response.setEntity(content);
 
-            if (!paginationHelper.isPartialContentResponse()) {
+            if (!paginationHelper().isPartialContentResponse()) {
                 response.setStatus(Status.OK.getStatusCode());
             } 
             else {
                 response.setStatus(Status.PARTIAL_CONTENT.getStatusCode());
             }
         } 
+        else if ("GET".equals(req.getMethod()) && isRequestForCrud() && isFindById() && (entity != null || requestContext().getEntityTag() != null)) {
+
+            // 'find(id)' or a 'find(id)' already answered by the version of the entity
+            String entityTag = requestContext().getEntityTag() != null ? requestContext().getEntityTag() : EntityTags.of(entity);
+            isNotModified(response, entityTag);
+        }
         else {
-            if (Status.BAD_REQUEST.getStatusCode() == response.getStatus() && drc.getEntityClass() == null) {
-                paginationHelper.buildAcceptRangeWithResponse(response);
+            if (Status.BAD_REQUEST.getStatusCode() == response.getStatus() && requestContext().getEntityClass() == null) {
+                paginationHelper().buildAcceptRangeWithResponse(response);
             }
         }
 
     }
 
+    /**
+     * Context of the actual request, the copy bound to the thread when the response of an
+     * {@link AbstractAsyncREST} is resumed by {@link CrudExecutor}.
+     */
+    private DemoiselleRequestContext requestContext() {
+        return AsyncRequestContext.resolve(drc);
+    }
+
+    private PaginationHelper paginationHelper() {
+        AsyncRequestContext async = AsyncRequestContext.current();
+        if (async == null) {
+            return paginationHelper;
+        }
+        return new PaginationHelper(resourceInfo, uriInfo, paginationConfig, async.getRequestContext(), paginationMessage);
+    }
+
+    /**
+     * Add the 'ETag' header and answer the request with '304 Not Modified' when the
+     * client already has the response.
+     * 
+     * @return true if the response was replaced by a '304 Not Modified'
+     */
+    private boolean isNotModified(ContainerResponseContext response, String entityTag) {
+        if (entityTag == null) {
+            return false;
+        }
+
+        response.getHeaders().putSingle(HttpHeaders.ETAG, entityTag);
+
+        if (EntityTags.matches(requestContext().getIfNoneMatch(), entityTag)) {
+            response.setEntity(null);
+            response.setStatus(Status.NOT_MODIFIED.getStatusCode());
+            return true;
+        }
+
+        return false;
+    }
+
     /**
      * Build all HTTP Headers.
      * 
      */
     private void buildHeaders(ContainerResponseContext response) {
-        String exposeHeaders = ReservedHTTPHeaders.HTTP_HEADER_ACCEPT_RANGE.getKey() + ", " + ReservedHTTPHeaders.HTTP_HEADER_CONTENT_RANGE.getKey() + ", " + HttpHeaders.LINK;
+        String exposeHeaders = ReservedHTTPHeaders.HTTP_HEADER_ACCEPT_RANGE.getKey() + ", " + ReservedHTTPHeaders.HTTP_HEADER_CONTENT_RANGE.getKey() + ", " + HttpHeaders.LINK + ", " + HttpHeaders.ETAG
+                + ", " + ReservedHTTPHeaders.HTTP_HEADER_SINCE_TOKEN.getKey();
         response.getHeaders().putSingle(ReservedHTTPHeaders.HTTP_HEADER_ACCESS_CONTROL_EXPOSE_HEADERS.getKey(), exposeHeaders);
-        paginationHelper.buildHeaders(resourceInfo, uriInfo).forEach((k, v) -> response.getHeaders().putSingle(k, v));
+        paginationHelper().buildHeaders(resourceInfo, uriInfo).forEach((k, v) -> response.getHeaders().putSingle(k, v));
+    }
+
+    /**
+     * Check if the result of the actual request should be streamed.
+     * 
+     * Requests accepting {@link StreamFormat#NDJSON} are always streamed, otherwise the 
+     * result is streamed as a {@link StreamFormat#JSON_ARRAY} when {@link Search#streaming()} is enabled.
+     * 
+     * @return The format of the stream or null
+     */
+    private StreamFormat getStreamFormat(ContainerRequestContext requestContext) {
+        List<MediaType> acceptableMediaTypes = requestContext == null ? null : requestContext.getAcceptableMediaTypes();
+
+        if (acceptableMediaTypes != null && acceptableMediaTypes.stream().anyMatch(StreamFormat.NDJSON::isCompatible)) {
+            return StreamFormat.NDJSON;
+        }
+
+        Search search = SearchMetadataRegistry.get(resourceInfo).getSearch();
+        if (search != null && search.streaming()) {
+            return StreamFormat.JSON_ARRAY;
+        }
+
+        return null;
+    }
+
+    /**
+     * Read the query string of the actual request, reusing the spec of a previous request with 
+     * the same query string and resource method.
+     * 
+     * @return The spec of the request
+     */
+    private RequestSpec getRequestSpec() {
+        if (requestSpecCache == null) {
+            return RequestSpec.parse(uriInfo.getQueryParameters());
+        }
+        return requestSpecCache.get(resourceInfo, uriInfo);
+    }
+
+    /**
+     * Get the {@link Cached} of the method or of the resource class.
+     * 
+     * @return The annotation or null when the results shouldn't be cached
+     */
+    private Cached getCached() {
+        Cached cached = resourceInfo.getResourceMethod().getAnnotation(Cached.class);
+        return cached != null ? cached : resourceInfo.getResourceClass().getAnnotation(Cached.class);
+    }
+
+    /**
+     * Get the {@link Coalesced} of the method or of the resource class.
+     * 
+     * @return The annotation or null when the identical requests shouldn't share the queries
+     */
+    private Coalesced getCoalesced() {
+        Coalesced coalesced = resourceInfo.getResourceMethod().getAnnotation(Coalesced.class);
+        return coalesced != null ? coalesced : resourceInfo.getResourceClass().getAnnotation(Coalesced.class);
+    }
+
+    /**
+     * The 'find(id)' of {@link AbstractREST} or {@link AbstractAsyncREST}, or its overrides. The other 'GET' 
+     * methods of the resource, like the custom ones or the file of an export, are not tagged.
+     */
+    private boolean isFindById() {
+        Method method = resourceInfo.getResourceMethod();
+        return "find".equals(method.getName()) && method.getParameterCount() > 0 
+                && !AsyncResponse.class.equals(method.getParameterTypes()[0]);
     }
 
     /**
@@ -152,7 +354,8 @@ public class CrudFilter implements ContainerResponseFilter, ContainerRequestFilt
      * @return is a request for crud or not
      */
     private Boolean isRequestForCrud() {
-        if (AbstractREST.class.isAssignableFrom(resourceInfo.getResourceClass())
+        if ((AbstractREST.class.isAssignableFrom(resourceInfo.getResourceClass())
+                || AbstractAsyncREST.class.isAssignableFrom(resourceInfo.getResourceClass()))
                 && resourceInfo.getResourceMethod().isAnnotationPresent(GET.class)) {
             return Boolean.TRUE;
         }
@@ -164,118 +367,43 @@ public class CrudFilter implements ContainerResponseFilter, ContainerRequestFilt
      * Build the result used on 'Body' HTTP Response.
      * 
      * If the request used the {@link FieldHelper} feature or used the {@link Search} annotation the 
-     * result from database will be parsed to a Map to filter theses fields.
+     * result from database will be wrapped by a {@link ProjectedContent} to filter theses fields, that 
+     * is written directly to the response by {@link ProjectedJsonWriter}. The rows of an aggregation
+     * are already maps and are returned as they are.
      * 
      * @param response
      * @return result
      */
-    private Object buildContentBody(ContainerResponseContext response) {
+    private List<?> buildContentBody(ContainerResponseContext response) {
 
-        @SuppressWarnings("unchecked")
-        List<Object> content = (List<Object>) ((Result) response.getEntity()).getContent();
+        List<?> content = ((Result) response.getEntity()).getContent();
         
-        TreeNodeField<String, Set<String>> fields = getFields();
+        FieldTree fields = getFields();
         
-        if(fields != null){
-            content = new LinkedList<>();
-            Class<?> targetClass = CrudUtilHelper.getTargetClass(resourceInfo.getResourceClass());
-            Iterator<?> it = ((Result) response.getEntity()).getContent().iterator();
-            
-            while(it.hasNext()){
-                Object object = it.next();
-                Map<String, Object> keyValue = new LinkedHashMap<>();
-                
-                fields.getChildren().stream().forEach((leaf) -> {
-                    
-                    // 1st level
-                    if(leaf.getChildren().isEmpty()){
-                        Set<String> searchFields = fields.getChildren()
-                                .stream()
-                                .filter( (child) -> child.getChildren().isEmpty())
-                                .map( (child) -> child.getKey())
-                                .collect(Collectors.toSet());
-                                
-                        CrudUtilHelper.getAllFields(new ArrayList<Field>(), object.getClass())
-                                .stream()
-                                .filter( (f) -> searchFields.contains(f.getName()))
-                                .forEach( (field) -> {
-                                    try{
-                                        keyValue.put(field.getName(), getValueFromObjectField(targetClass, field, object));
-                                    } 
-                                    catch (IllegalArgumentException | IllegalAccessException | NoSuchFieldException | SecurityException e) {
-                                        logger.log(Level.SEVERE, e.getMessage(), e);
-                                    }
-                                });
-                        
-                    }
-                    else{
-                        //2nd level
-                        Map<String, Object> keyValueSecond = new LinkedHashMap<>();
-                        
-                        leaf.getChildren().stream().forEach( (child) -> {
-                            
-                            try{
-                                Field field = CrudUtilHelper.getField(targetClass, leaf.getKey()); 
-                                Class<?> fieldClazz = field.getType();
-                                
-                                
-                                Field secondField = fieldClazz.getDeclaredField(child.getKey());
-                                  
-                                boolean acessible = field.isAccessible();
-                                boolean acessibleSecond = secondField.isAccessible();
-                                  
-                                field.setAccessible(true);  
-                                secondField.setAccessible(true);
-                                Object secondObject = (Object) field.get(object);
-                                if (secondObject != null) {
-                                    keyValueSecond.put(secondField.getName(), secondField.get(secondObject));
-                                }
-                                  
-                                secondField.setAccessible(acessibleSecond);
-                                field.setAccessible(acessible);
-                            }
-                            catch (IllegalArgumentException | IllegalAccessException | NoSuchFieldException | SecurityException e) {
-                                logger.log(Level.SEVERE, e.getMessage(), e);
-                            }
-                            
-                        });
-                        
-                        keyValue.put(leaf.getKey(), keyValueSecond);
-                    }
-                    
-                });
-                
-                content.add(keyValue);
-            }
-
+        if(fields != null && requestContext().getAggregation() == null){
+            Class<?> targetClass = SearchMetadataRegistry.get(resourceInfo).getTargetClass();
+            return new ProjectedContent(content, fields, targetClass);
         }
         return content;
         
     }
     
     /**
-     * Invoke the field to get the value from the object
+     * Select the fields of a single object of the result.
      * 
+     * @param object Object from database
+     * @param fields Fields to be selected
      * @param targetClass Class that represent the object
-     * @param field Field that will be invoked
-     * @param object The actual object that has the value
-     * 
-     * @return Value from field 
-     * 
-     * @throws NoSuchFieldException
-     * @throws SecurityException
-     * @throws IllegalArgumentException
-     * @throws IllegalAccessException
+     * @return Map with the fields or the object itself when already projected
      */
-    private Object getValueFromObjectField(Class<?> targetClass, Field field, Object object) throws NoSuchFieldException, SecurityException, IllegalArgumentException, IllegalAccessException{
-        Object result = null;
-        Field actualField = CrudUtilHelper.getField(targetClass, field.getName());
-        boolean acessible = actualField.isAccessible();
-        actualField.setAccessible(true);
-        result = actualField.get(object);
-        actualField.setAccessible(acessible);
-        
-        return result;
+    private Object buildContentObject(Object object, FieldTree fields, Class<?> targetClass) {
+
+        // Already projected by AbstractDAO
+        if (object instanceof Map) {
+            return object;
+        }
+
+        return ResponseProjection.of(object.getClass(), targetClass, fields).apply(object);
     }
 
     /**
@@ -283,13 +411,13 @@ public class CrudFilter implements ContainerResponseFilter, ContainerRequestFilt
      * 
      * @return
      */
-    private TreeNodeField<String, Set<String>> getFields() {
+    private FieldTree getFields() {
         
-        if(drc.getFields() != null){
-            return drc.getFields();
+        if(requestContext().getFields() != null){
+            return FieldTree.of(requestContext().getFields());
         }
         
-        return CrudUtilHelper.extractFieldsFromSearchAnnotation(resourceInfo);
+        return SearchMetadataRegistry.get(resourceInfo).getFieldTree();
 
     }
 
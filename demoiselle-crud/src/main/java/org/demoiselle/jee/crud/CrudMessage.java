@@ -20,6 +20,21 @@ public interface CrudMessage {
     
     @MessageTemplate("{method-find-not-implemented}")
     String methodFindNotImplemented();
+
+    @MessageTemplate("{method-export-not-implemented}")
+    String methodExportNotImplemented(String method);
+
+    @MessageTemplate("{method-merge-half-by-filter-not-implemented}")
+    String methodMergeHalfByFilterNotImplemented();
+
+    @MessageTemplate("{method-batch-not-implemented}")
+    String methodBatchNotImplemented(String method);
+
+    @MessageTemplate("{export-not-completed}")
+    String exportNotCompleted();
+
+    @MessageTemplate("{export-anonymous-not-allowed}")
+    String exportAnonymousNotAllowed();
     
     @MessageTemplate("{field-request-does-not-exists-on-search-field}")
     String fieldRequestDoesNotExistsOnSearchField(String field);
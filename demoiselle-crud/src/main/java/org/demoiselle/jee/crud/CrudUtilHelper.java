@@ -8,17 +8,21 @@ package org.demoiselle.jee.crud;
 
 import java.lang.reflect.Field;
 import java.lang.reflect.ParameterizedType;
-import java.util.ArrayList;
+import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
-import javax.persistence.Id;
 
 import javax.ws.rs.container.ResourceInfo;
 
+import org.demoiselle.jee.crud.metadata.EntityMetadataRegistry;
+import org.demoiselle.jee.crud.metadata.SearchMetadata;
+import org.demoiselle.jee.crud.metadata.SearchMetadataRegistry;
+
 /**
  * Class used to support CRUD feature.
  *
@@ -26,8 +30,10 @@ import javax.ws.rs.container.ResourceInfo;
  */
 public class CrudUtilHelper {
 
+    private static final Pattern SUB_FIELD_PATTERN = Pattern.compile("\\([^)]*\\)*");
+
     /**
-     * Given a Class that extends {@link AbstractREST} this method will return
+     * Given a Class that extends {@link AbstractREST} (or {@link AbstractAsyncREST}) this method will return
      * the target Class used on {@literal AbstractREST<TargetClass, I>}
      *
      * @param targetClass Target class
@@ -35,7 +41,7 @@ public class CrudUtilHelper {
      * @return Class used on {@literal AbstractREST<TargetClass, I>}
      */
     public static Class<?> getTargetClass(Class<?> targetClass) {
-        if (AbstractREST.class.isAssignableFrom(targetClass)) {
+        if (AbstractREST.class.isAssignableFrom(targetClass) || AbstractAsyncREST.class.isAssignableFrom(targetClass)) {
             Class<?> type = (Class<?>) ((ParameterizedType) targetClass.getGenericSuperclass()).getActualTypeArguments()[0];
             return type;
         }
@@ -52,17 +58,7 @@ public class CrudUtilHelper {
      * 'targetClass'
      */
     public static void checkIfExistField(Class<?> targetClass, String field) {
-        if (targetClass != null) {
-            do {
-                List<Field> fields = new ArrayList<>();
-                getAllFields(fields, targetClass);
-                for (Field f : fields) {
-                    if (f.getName().equalsIgnoreCase(field)) {
-                        return;
-                    }
-                }
-                targetClass = targetClass.getSuperclass();
-            } while (targetClass != null);
+        if (targetClass != null && !EntityMetadataRegistry.get(targetClass).containsFieldIgnoreCase(field)) {
             throw new IllegalArgumentException();
         }
     }
@@ -88,12 +84,14 @@ public class CrudUtilHelper {
     }
     
     /**
-     * @param targetClass
-     * @param name
-     * @return
+     * Find the field with the exactly name on 'targetClass' or on its super classes.
+     * 
+     * @param targetClass The class
+     * @param name Field name
+     * @return The field or null
      */
     public static Field getField(Class<?> targetClass, String name) {
-        return getAllFields(new ArrayList<Field>(), targetClass).stream().filter( it -> it.getName().equals(name)).findAny().orElse(null);
+        return EntityMetadataRegistry.get(targetClass).getField(name);
     }
 
 
@@ -184,31 +182,14 @@ public class CrudUtilHelper {
      * 
      * Extract fields from {@link Search} annotation to fill the {@link TreeNodeField} object
      * 
+     * The tree is built once per resource method by {@link SearchMetadataRegistry} and shared by all 
+     * requests, so it shouldn't be changed.
+     * 
      * @param resourceInfo ResourceInfo
      * @return TreeNodeField filled with fields
      */
     public static TreeNodeField<String, Set<String>> extractFieldsFromSearchAnnotation(ResourceInfo resourceInfo) {
-        List<String> fieldsFromAnnotation = new ArrayList<>();
-        
-        if (resourceInfo.getResourceMethod().isAnnotationPresent(Search.class)) {
-            String fieldsAnnotation[] = resourceInfo.getResourceMethod().getAnnotation(Search.class).fields();
-
-            if (fieldsAnnotation != null && !fieldsAnnotation[0].equals("*")) {
-
-                fieldsFromAnnotation.addAll(Arrays.asList(fieldsAnnotation));
-                if (!fieldsFromAnnotation.isEmpty()) {
-                    final TreeNodeField<String, Set<String>> searchFieldsTnf = new TreeNodeField<>(CrudUtilHelper.getTargetClass(resourceInfo.getResourceClass()).getName(), null);
-                    // Transform fields from annotation into TreeNodeField                
-                    fieldsFromAnnotation.stream().forEach(searchField -> {
-                        fillLeafTreeNodeField(searchFieldsTnf, searchField, null);
-                    });
-                    
-                    return searchFieldsTnf;
-                }
-            }
-        }
-        
-        return null;
+        return SearchMetadataRegistry.get(resourceInfo).getFields();
     }
 
     /**
@@ -264,20 +245,24 @@ public class CrudUtilHelper {
     public static void validateFields(TreeNodeField<String, Set<String>> tnf, ResourceInfo resourceInfo, CrudMessage crudMessage) {
 
         // Get fields from @Search.fields attribute
-        final TreeNodeField<String, Set<String>> searchFieldsTnf = extractFieldsFromSearchAnnotation(resourceInfo);
+        final SearchMetadata searchMetadata = SearchMetadataRegistry.get(resourceInfo);
+        final FieldTree searchFields = searchMetadata.getFieldTree();
+        final Class<?> targetClass = searchMetadata.getTargetClass();
 
         //Validate fields
         tnf.getChildren().stream().forEach(leaf -> {
 
-            if (searchFieldsTnf != null && !searchFieldsTnf.getChildren().isEmpty()) {
+            if (searchFields != null && !searchFields.isLeaf()) {
 
                 try {
                     // 1st level
-                    if (!searchFieldsTnf.containsKey(leaf.getKey())) {
+                    if (!searchFields.containsKey(leaf.getKey())) {
                         throw new IllegalArgumentException(crudMessage.fieldRequestDoesNotExistsOnSearchField(leaf.getKey()));
                     }
 
                     if (!leaf.getChildren().isEmpty()) {
+                        FieldTree searchField = searchFields.getChild(leaf.getKey());
+
                         leaf.getChildren().stream().forEach(leafItem -> {
 
                             /*
@@ -285,14 +270,8 @@ public class CrudUtilHelper {
                              * the request is valid because the @Search.fields specified the root type (field2)
                              *
                              */
-                            if (!searchFieldsTnf.getChildByKey(leafItem.getParent().getKey()).getChildren().isEmpty()) {
-
-                                searchFieldsTnf.getChildByKey(leafItem.getParent().getKey()).getChildren().stream().forEach(sfTnf -> {
-                                    if (!sfTnf.getParent().containsKey(leafItem.getKey())) {
-                                        throw new IllegalArgumentException(crudMessage.fieldRequestDoesNotExistsOnSearchField(leafItem.getParent().getKey() + "(" + leafItem.getKey() + ")"));
-                                    }
-                                });
-
+                            if (!searchField.isLeaf() && !searchField.containsKey(leafItem.getKey())) {
+                                throw new IllegalArgumentException(crudMessage.fieldRequestDoesNotExistsOnSearchField(leaf.getKey() + "(" + leafItem.getKey() + ")"));
                             }
                         });
                     }
@@ -303,15 +282,11 @@ public class CrudUtilHelper {
                 }
             }
 
-            Class<?> targetClass = getTargetClass(resourceInfo.getResourceClass());
-
             if (!leaf.getChildren().isEmpty()) {
                 Field fieldMaster;
 
-                try {
-                    fieldMaster = targetClass.getDeclaredField(leaf.getKey());
-                } 
-                catch (SecurityException | NoSuchFieldException e) {
+                fieldMaster = getField(targetClass, leaf.getKey());
+                if (fieldMaster == null) {
                     throw new IllegalArgumentException(crudMessage.fieldRequestDoesNotExistsOnObject(leaf.getKey(), targetClass.getName()));
                 }
 
@@ -328,10 +303,10 @@ public class CrudUtilHelper {
             } 
             else {
                 try {
-                    CrudUtilHelper.checkIfExistField(getTargetClass(resourceInfo.getResourceClass()), leaf.getKey());
+                    CrudUtilHelper.checkIfExistField(targetClass, leaf.getKey());
                 } 
                 catch (IllegalArgumentException e) {
-                    throw new IllegalArgumentException(crudMessage.fieldRequestDoesNotExistsOnObject(leaf.getKey(), getTargetClass(resourceInfo.getResourceClass()).getName()));
+                    throw new IllegalArgumentException(crudMessage.fieldRequestDoesNotExistsOnObject(leaf.getKey(), targetClass.getName()));
                 }
             }
         });
@@ -339,23 +314,59 @@ public class CrudUtilHelper {
     }
 
     private static Boolean hasSubField(String field) {
-        Pattern patternLevels = Pattern.compile("\\([^)]*\\)*");
-        Matcher matcher = patternLevels.matcher(field);
+        Matcher matcher = SUB_FIELD_PATTERN.matcher(field);
 
         return matcher.find();
     }
 
-    public static String getMethodAnnotatedWithID(Class<?> targetClass) {    	
-    	String name = null;
-    	for (Field field :  getAllFields(new ArrayList<Field>(), targetClass)) {
-            if (field.isAnnotationPresent(Id.class)) {
-            	name = field.getName();
-            	break;
-            }
-    	}       
-        return name;
+    /**
+     * Return the name of the field annotated with {@link javax.persistence.Id} on 'targetClass'.
+     * 
+     * @param targetClass The class
+     * @return Field name or null
+     */
+    public static String getMethodAnnotatedWithID(Class<?> targetClass) {
+        return EntityMetadataRegistry.get(targetClass).getIdAttribute();
+    }
+
+    /**
+     * Convert the value to the numeric type of the field, like the JPA provider does with literals.
+     *
+     * @param fieldType Type of the field
+     * @param value Value from the request
+     * @return The value converted or the value itself when the field isn't numeric
+     *
+     * @throws NumberFormatException When the value isn't a valid number
+     */
+    public static Object convertToFieldType(Class<?> fieldType, String value) {
+        if (fieldType == null) {
+            return value;
+        }
+        if (Long.class.equals(fieldType) || long.class.equals(fieldType)) {
+            return Long.valueOf(value);
+        }
+        if (Integer.class.equals(fieldType) || int.class.equals(fieldType)) {
+            return Integer.valueOf(value);
+        }
+        if (Short.class.equals(fieldType) || short.class.equals(fieldType)) {
+            return Short.valueOf(value);
+        }
+        if (Byte.class.equals(fieldType) || byte.class.equals(fieldType)) {
+            return Byte.valueOf(value);
+        }
+        if (Double.class.equals(fieldType) || double.class.equals(fieldType)) {
+            return Double.valueOf(value);
+        }
+        if (Float.class.equals(fieldType) || float.class.equals(fieldType)) {
+            return Float.valueOf(value);
+        }
+        if (BigDecimal.class.equals(fieldType)) {
+            return new BigDecimal(value);
+        }
+        if (BigInteger.class.equals(fieldType)) {
+            return new BigInteger(value);
+        }
+        return value;
     }
 
-    
-    
 }
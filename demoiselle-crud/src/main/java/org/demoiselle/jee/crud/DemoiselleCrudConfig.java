@@ -0,0 +1,333 @@
+/*
+ * Demoiselle Framework
+ *
+ * License: GNU Lesser General Public License (LGPL), version 3 or later.
+ * See the lgpl.txt file in the root directory or <https://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.demoiselle.jee.crud;
+
+import org.demoiselle.jee.configuration.annotation.Configuration;
+import org.demoiselle.jee.crud.async.AsyncRejectionPolicy;
+import org.demoiselle.jee.crud.async.CrudThreadFactory;
+import org.demoiselle.jee.crud.cache.Cached;
+
+/**
+ * Configurations of CRUD module.
+ * 
+ * @author SERPRO
+ */
+@Configuration(prefix = "demoiselle.crud")
+public class DemoiselleCrudConfig {
+
+    private Boolean queryPlanCacheEnabled = Boolean.FALSE;
+    private Integer queryPlanCacheSize = new Integer(256);
+    private Boolean projectionEnabled = Boolean.FALSE;
+    private Integer streamChunkSize = new Integer(500);
+    private Integer batchSize = new Integer(50);
+    private Boolean cacheEnabled = Boolean.TRUE;
+    private Integer cacheMaxEntries = new Integer(1000);
+    private Integer requestSpecCacheSize = new Integer(1000);
+    private Integer asyncPoolSize = new Integer(10);
+    private Integer asyncQueueSize = new Integer(100);
+    private AsyncRejectionPolicy asyncRejectionPolicy = AsyncRejectionPolicy.ABORT;
+    private String managedThreadFactory = CrudThreadFactory.DEFAULT_MANAGED_THREAD_FACTORY;
+    private Integer searchIndexMaxIds = new Integer(1000);
+    private Integer searchIndexTimeToLive = new Integer(600);
+    private String exportDirectory = System.getProperty("java.io.tmpdir") + "/demoiselle-crud-export";
+    private Integer exportPoolSize = new Integer(2);
+    private Integer exportChunkSize = new Integer(1000);
+    private Integer exportMaxJobsPerUser = new Integer(2);
+    private Integer exportRetention = new Integer(86400);
+    private Boolean exportAnonymousEnabled = Boolean.FALSE;
+    private Integer changeFeedPageSize = new Integer(1000);
+    private Integer changeFeedSafetyWindow = new Integer(5);
+    private Integer updateByFilterMaxRows = new Integer(1000);
+    private Integer readReplicaMaxLag = new Integer(5);
+    private Integer queryTimeout = new Integer(0);
+    private Integer maxRows = new Integer(0);
+    private Boolean indexedFiltersOnly = Boolean.FALSE;
+    private String tenantHeader = "X-Tenant-Id";
+
+    /**
+     * Return true if the queries built by {@link AbstractDAO#find()} should be cached by the shape of the request.
+     * 
+     * Disabled by default: the cached plans are rendered as JPQL instead of criteria queries, so enable it after 
+     * checking the queries of the application on its persistence provider.
+     * 
+     * @return true or false
+     */
+    public Boolean getQueryPlanCacheEnabled() {
+        return queryPlanCacheEnabled;
+    }
+
+    /**
+     * Return the max number of query plans kept on the cache.
+     * 
+     * @return max number of plans
+     */
+    public Integer getQueryPlanCacheSize() {
+        return queryPlanCacheSize;
+    }
+
+    /**
+     * Return true if the fields requested by 'fields=...' or by {@link Search#fields()} should be selected
+     * directly by {@link AbstractDAO#find()}, that returns maps instead of entities in that case.
+     * 
+     * Disabled by default because the subclasses of {@link AbstractBusiness} and {@link AbstractREST} 
+     * may expect entities on the result.
+     * 
+     * @return true or false
+     */
+    public Boolean getProjectionEnabled() {
+        return projectionEnabled;
+    }
+
+    /**
+     * Return the number of rows read from the database at a time when the result is streamed.
+     * 
+     * @return number of rows
+     */
+    public Integer getStreamChunkSize() {
+        return streamChunkSize;
+    }
+
+    /**
+     * Return the number of entities written by the batch operations of {@link AbstractDAO} before 
+     * the persistence context is flushed and cleared. Should match the JDBC batch size of the provider.
+     * 
+     * @return number of entities
+     */
+    public Integer getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Return true if the resources annotated with {@link Cached} should be cached, what also 
+     * depends on a JSR-107 provider on the classpath.
+     * 
+     * @return true or false
+     */
+    public Boolean getCacheEnabled() {
+        return cacheEnabled;
+    }
+
+    /**
+     * Return the max number of entries of each cache when {@link Cached#maxEntries()} isn't defined.
+     * 
+     * @return max number of entries
+     */
+    public Integer getCacheMaxEntries() {
+        return cacheMaxEntries;
+    }
+
+    /**
+     * Return the max number of query strings kept already parsed by {@link org.demoiselle.jee.crud.request.RequestSpecCache}.
+     * 
+     * @return max number of query strings
+     */
+    public Integer getRequestSpecCacheSize() {
+        return requestSpecCacheSize;
+    }
+
+    /**
+     * Return the number of threads of {@link org.demoiselle.jee.crud.async.CrudExecutor} that execute the
+     * requests of {@link AbstractAsyncREST}.
+     * 
+     * @return number of threads
+     */
+    public Integer getAsyncPoolSize() {
+        return asyncPoolSize;
+    }
+
+    /**
+     * Return the number of requests of {@link AbstractAsyncREST} that wait for a thread, when all of them are busy.
+     * 
+     * @return size of the queue
+     */
+    public Integer getAsyncQueueSize() {
+        return asyncQueueSize;
+    }
+
+    /**
+     * Return what is done with the requests of {@link AbstractAsyncREST} when the queue is full, see {@link AsyncRejectionPolicy}.
+     * 
+     * @return rejection policy
+     */
+    public AsyncRejectionPolicy getAsyncRejectionPolicy() {
+        return asyncRejectionPolicy;
+    }
+
+    /**
+     * Return the JNDI name of the ManagedThreadFactory of the container that creates the threads of the 
+     * requests of {@link AbstractAsyncREST} and of the exports, see {@link CrudThreadFactory}.
+     * 
+     * @return JNDI name
+     */
+    public String getManagedThreadFactory() {
+        return managedThreadFactory;
+    }
+
+    /**
+     * Return the max number of ids sent to the database by a filter answered by the {@link org.demoiselle.jee.crud.index.SearchIndex}, 
+     * filters that match more rows are answered by the database with 'LIKE'.
+     * 
+     * @return max number of ids
+     */
+    public Integer getSearchIndexMaxIds() {
+        return searchIndexMaxIds;
+    }
+
+    /**
+     * Return the time, in seconds, after which the {@link org.demoiselle.jee.crud.index.SearchIndex} of an entity is 
+     * built again, to see the changes not made by {@link AbstractDAO}.
+     * 
+     * @return time to live in seconds
+     */
+    public Integer getSearchIndexTimeToLive() {
+        return searchIndexTimeToLive;
+    }
+
+    /**
+     * Return the directory where the files and the state of the export jobs are kept, 
+     * see {@link org.demoiselle.jee.crud.export.ExportManager}.
+     * 
+     * @return path of the directory
+     */
+    public String getExportDirectory() {
+        return exportDirectory;
+    }
+
+    /**
+     * Return the number of threads executing export jobs, apart from the threads that serve the requests.
+     * 
+     * @return number of threads
+     */
+    public Integer getExportPoolSize() {
+        return exportPoolSize;
+    }
+
+    /**
+     * Return the number of rows read from the database by each transaction of an export job.
+     * 
+     * @return number of rows
+     */
+    public Integer getExportChunkSize() {
+        return exportChunkSize;
+    }
+
+    /**
+     * Return the max number of export jobs of a same user queued or running at the same time.
+     * 
+     * @return max number of jobs
+     */
+    public Integer getExportMaxJobsPerUser() {
+        return exportMaxJobsPerUser;
+    }
+
+    /**
+     * Return the time, in seconds, the finished export jobs and their files are kept after the last change.
+     * 
+     * @return time in seconds
+     */
+    public Integer getExportRetention() {
+        return exportRetention;
+    }
+
+    /**
+     * Return true if the requests without an authenticated user can start exports. All of them share the 
+     * same owner, so any anonymous request can see and download the exports of the others.
+     * 
+     * @return true or false
+     */
+    public Boolean getExportAnonymousEnabled() {
+        return exportAnonymousEnabled;
+    }
+
+    /**
+     * Return the max number of rows, and of tombstones, returned by each request of the change feed ('since' parameter).
+     * 
+     * @return number of rows
+     */
+    public Integer getChangeFeedPageSize() {
+        return changeFeedPageSize;
+    }
+
+    /**
+     * Return the seconds before the actual time that aren't returned yet by the change feed, what should be greater
+     * than the longest transaction that writes the entity: a row written by a transaction that commits after a later 
+     * one would be skipped by the clients that already read the later one.
+     * 
+     * @return number of seconds
+     */
+    public Integer getChangeFeedSafetyWindow() {
+        return changeFeedSafetyWindow;
+    }
+
+    /**
+     * Return the max number of rows changed by an update by filter ('PATCH' on the collection), the 
+     * requests that match more rows are rejected.
+     * 
+     * @return number of rows
+     */
+    public Integer getUpdateByFilterMaxRows() {
+        return updateByFilterMaxRows;
+    }
+
+    /**
+     * Return the seconds after a write of an entity, on this node, while the reads of the entity stay on the 
+     * primary database instead of the read replica of {@link AbstractDAO#getReadEntityManager()}. Should be 
+     * greater than the replication lag plus the longest transaction that writes the entity, 0 disables it.
+     * 
+     * Only the writes of the same node are known, behind a load balancer the requests of a client should be 
+     * routed to the same node (sticky sessions) to read their own writes.
+     * 
+     * @return number of seconds
+     */
+    public Integer getReadReplicaMaxLag() {
+        return readReplicaMaxLag;
+    }
+
+    /**
+     * Return the timeout of each query of {@link AbstractDAO#find()} in milliseconds, used when 
+     * {@link Search#queryTimeout()} isn't informed, 0 disables it. The queries that exceed it are 
+     * answered with 503.
+     * 
+     * @return number of milliseconds
+     */
+    public Integer getQueryTimeout() {
+        return queryTimeout;
+    }
+
+    /**
+     * Return the max number of rows read by a request, used when {@link Search#maxRows()} isn't informed, 
+     * 0 disables it. The pages that end after it and the requests without pagination that match more rows 
+     * are rejected with 400, the streams stop on it.
+     * 
+     * @return number of rows
+     */
+    public Integer getMaxRows() {
+        return maxRows;
+    }
+
+    /**
+     * Return true if the filters and sorts of the methods without {@link Search#indexed()} should accept 
+     * only the fields indexed by the mapping of the entity, see 
+     * {@link org.demoiselle.jee.crud.metadata.EntityMetadata#getIndexedAttributes()}.
+     * 
+     * @return true or false
+     */
+    public Boolean getIndexedFiltersOnly() {
+        return indexedFiltersOnly;
+    }
+
+    /**
+     * Return the HTTP header with the tenant of the request, the requests of different tenants never share
+     * the result of a query coalesced by {@link org.demoiselle.jee.crud.coalesce.Coalesced}.
+     * 
+     * @return name of the header
+     */
+    public String getTenantHeader() {
+        return tenantHeader;
+    }
+
+}
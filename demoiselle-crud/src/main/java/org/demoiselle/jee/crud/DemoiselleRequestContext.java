@@ -9,7 +9,16 @@ package org.demoiselle.jee.crud;
 import java.util.List;
 import java.util.Set;
 
+import org.demoiselle.jee.crud.aggregate.Aggregation;
+import org.demoiselle.jee.crud.changes.SinceToken;
+import org.demoiselle.jee.crud.cache.Cached;
+import org.demoiselle.jee.crud.coalesce.Coalesced;
+import org.demoiselle.jee.crud.pagination.CountStrategy;
+import org.demoiselle.jee.crud.pagination.KeysetCursor;
+import org.demoiselle.jee.crud.pagination.PaginationType;
+import org.demoiselle.jee.crud.request.RequestSpec;
 import org.demoiselle.jee.crud.sort.SortModel;
+import org.demoiselle.jee.crud.stream.StreamFormat;
 
 /**
  * Class used to make a Context of the Request and Response of CRUD feature.
@@ -41,5 +50,62 @@ public interface DemoiselleRequestContext {
     
     Boolean isPaginationEnabled();
     void setPaginationEnabled(Boolean isPaginationEnabled);
+
+    PaginationType getPaginationType();
+    void setPaginationType(PaginationType paginationType);
+
+    KeysetCursor getCursor();
+    void setCursor(KeysetCursor cursor);
+
+    KeysetCursor getNextCursor();
+    void setNextCursor(KeysetCursor nextCursor);
+
+    CountStrategy getCountStrategy();
+    void setCountStrategy(CountStrategy countStrategy);
+
+    Boolean getNextPageAvailable();
+    void setNextPageAvailable(Boolean nextPageAvailable);
+
+    StreamFormat getStreamFormat();
+    void setStreamFormat(StreamFormat streamFormat);
+
+    Cached getCached();
+    void setCached(Cached cached);
+
+    String getIfNoneMatch();
+    void setIfNoneMatch(String ifNoneMatch);
+
+    String getEntityTag();
+    void setEntityTag(String entityTag);
+
+    RequestSpec getRequestSpec();
+    void setRequestSpec(RequestSpec requestSpec);
+
+    Aggregation getAggregation();
+    void setAggregation(Aggregation aggregation);
+
+    SinceToken getSince();
+    void setSince(SinceToken since);
+
+    SinceToken getNextSince();
+    void setNextSince(SinceToken nextSince);
+
+    Boolean isWritten();
+    void setWritten(Boolean written);
+
+    Integer getQueryTimeout();
+    void setQueryTimeout(Integer queryTimeout);
+
+    Integer getMaxRows();
+    void setMaxRows(Integer maxRows);
+
+    Coalesced getCoalesced();
+    void setCoalesced(Coalesced coalesced);
+
+    String getPrincipal();
+    void setPrincipal(String principal);
+
+    String getTenant();
+    void setTenant(String tenant);
     
 }
@@ -12,7 +12,16 @@ import java.util.Set;
 
 import javax.enterprise.context.RequestScoped;
 
+import org.demoiselle.jee.crud.aggregate.Aggregation;
+import org.demoiselle.jee.crud.changes.SinceToken;
+import org.demoiselle.jee.crud.cache.Cached;
+import org.demoiselle.jee.crud.coalesce.Coalesced;
+import org.demoiselle.jee.crud.pagination.CountStrategy;
+import org.demoiselle.jee.crud.pagination.KeysetCursor;
+import org.demoiselle.jee.crud.pagination.PaginationType;
+import org.demoiselle.jee.crud.request.RequestSpec;
 import org.demoiselle.jee.crud.sort.SortModel;
+import org.demoiselle.jee.crud.stream.StreamFormat;
 
 /**
  * Implementation from {@link DemoiselleRequestContext}
@@ -30,6 +39,63 @@ public class DemoiselleRequestContextImpl implements DemoiselleRequestContext {
     private List<SortModel> sorts = new LinkedList<>();
     private TreeNodeField<String, Set<String>> fields = null;
     private Boolean isPaginationEnabled = Boolean.TRUE;
+    private PaginationType paginationType = PaginationType.OFFSET;
+    private KeysetCursor cursor = null;
+    private KeysetCursor nextCursor = null;
+    private CountStrategy countStrategy = CountStrategy.EXACT;
+    private Boolean nextPageAvailable = null;
+    private StreamFormat streamFormat = null;
+    private Cached cached = null;
+    private String ifNoneMatch = null;
+    private String entityTag = null;
+    private RequestSpec requestSpec = null;
+    private Aggregation aggregation = null;
+    private SinceToken since = null;
+    private SinceToken nextSince = null;
+    private Boolean written = Boolean.FALSE;
+    private Integer queryTimeout = null;
+    private Integer maxRows = null;
+    private Coalesced coalesced = null;
+    private String principal = null;
+    private String tenant = null;
+
+    public DemoiselleRequestContextImpl() {
+    }
+
+    /**
+     * Copy of the context, used to carry it to the threads of {@link org.demoiselle.jee.crud.async.CrudExecutor}.
+     * 
+     * @param source Context of the request
+     */
+    public DemoiselleRequestContextImpl(DemoiselleRequestContext source) {
+        this.offset = source.getOffset();
+        this.limit = source.getLimit();
+        this.count = source.getCount();
+        this.entityClass = source.getEntityClass();
+        this.filters = source.getFilters();
+        this.sorts = source.getSorts() == null ? new LinkedList<>() : new LinkedList<>(source.getSorts());
+        this.fields = source.getFields();
+        this.isPaginationEnabled = source.isPaginationEnabled();
+        this.paginationType = source.getPaginationType();
+        this.cursor = source.getCursor();
+        this.nextCursor = source.getNextCursor();
+        this.countStrategy = source.getCountStrategy();
+        this.nextPageAvailable = source.getNextPageAvailable();
+        this.streamFormat = source.getStreamFormat();
+        this.cached = source.getCached();
+        this.ifNoneMatch = source.getIfNoneMatch();
+        this.entityTag = source.getEntityTag();
+        this.requestSpec = source.getRequestSpec();
+        this.aggregation = source.getAggregation();
+        this.since = source.getSince();
+        this.nextSince = source.getNextSince();
+        this.written = source.isWritten();
+        this.queryTimeout = source.getQueryTimeout();
+        this.maxRows = source.getMaxRows();
+        this.coalesced = source.getCoalesced();
+        this.principal = source.getPrincipal();
+        this.tenant = source.getTenant();
+    }
 
     @Override
     public Integer getLimit() {
@@ -111,9 +177,199 @@ public class DemoiselleRequestContextImpl implements DemoiselleRequestContext {
         this.isPaginationEnabled = isPaginationEnabled;
     }
 
+    @Override
+    public PaginationType getPaginationType() {
+        return this.paginationType;
+    }
+
+    @Override
+    public void setPaginationType(PaginationType paginationType) {
+        this.paginationType = paginationType;
+    }
+
+    @Override
+    public KeysetCursor getCursor() {
+        return this.cursor;
+    }
+
+    @Override
+    public void setCursor(KeysetCursor cursor) {
+        this.cursor = cursor;
+    }
+
+    @Override
+    public KeysetCursor getNextCursor() {
+        return this.nextCursor;
+    }
+
+    @Override
+    public void setNextCursor(KeysetCursor nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
+    @Override
+    public CountStrategy getCountStrategy() {
+        return this.countStrategy;
+    }
+
+    @Override
+    public void setCountStrategy(CountStrategy countStrategy) {
+        this.countStrategy = countStrategy;
+    }
+
+    @Override
+    public Boolean getNextPageAvailable() {
+        return this.nextPageAvailable;
+    }
+
+    @Override
+    public void setNextPageAvailable(Boolean nextPageAvailable) {
+        this.nextPageAvailable = nextPageAvailable;
+    }
+
+    @Override
+    public StreamFormat getStreamFormat() {
+        return this.streamFormat;
+    }
+
+    @Override
+    public void setStreamFormat(StreamFormat streamFormat) {
+        this.streamFormat = streamFormat;
+    }
+
+    @Override
+    public Cached getCached() {
+        return this.cached;
+    }
+
+    @Override
+    public void setCached(Cached cached) {
+        this.cached = cached;
+    }
+
+    @Override
+    public String getIfNoneMatch() {
+        return this.ifNoneMatch;
+    }
+
+    @Override
+    public void setIfNoneMatch(String ifNoneMatch) {
+        this.ifNoneMatch = ifNoneMatch;
+    }
+
+    @Override
+    public String getEntityTag() {
+        return this.entityTag;
+    }
+
+    @Override
+    public void setEntityTag(String entityTag) {
+        this.entityTag = entityTag;
+    }
+
+    @Override
+    public RequestSpec getRequestSpec() {
+        return this.requestSpec;
+    }
+
+    @Override
+    public void setRequestSpec(RequestSpec requestSpec) {
+        this.requestSpec = requestSpec;
+    }
+
+    @Override
+    public Aggregation getAggregation() {
+        return aggregation;
+    }
+
+    @Override
+    public void setAggregation(Aggregation aggregation) {
+        this.aggregation = aggregation;
+    }
+
+    @Override
+    public SinceToken getSince() {
+        return since;
+    }
+
+    @Override
+    public void setSince(SinceToken since) {
+        this.since = since;
+    }
+
+    @Override
+    public SinceToken getNextSince() {
+        return nextSince;
+    }
+
+    @Override
+    public void setNextSince(SinceToken nextSince) {
+        this.nextSince = nextSince;
+    }
+
+    @Override
+    public Boolean isWritten() {
+        return written;
+    }
+
+    @Override
+    public void setWritten(Boolean written) {
+        this.written = written;
+    }
+
+    @Override
+    public Integer getQueryTimeout() {
+        return queryTimeout;
+    }
+
+    @Override
+    public void setQueryTimeout(Integer queryTimeout) {
+        this.queryTimeout = queryTimeout;
+    }
+
+    @Override
+    public Integer getMaxRows() {
+        return maxRows;
+    }
+
+    @Override
+    public void setMaxRows(Integer maxRows) {
+        this.maxRows = maxRows;
+    }
+
+    @Override
+    public Coalesced getCoalesced() {
+        return coalesced;
+    }
+
+    @Override
+    public void setCoalesced(Coalesced coalesced) {
+        this.coalesced = coalesced;
+    }
+
+    @Override
+    public String getPrincipal() {
+        return principal;
+    }
+
+    @Override
+    public void setPrincipal(String principal) {
+        this.principal = principal;
+    }
+
+    @Override
+    public String getTenant() {
+        return tenant;
+    }
+
+    @Override
+    public void setTenant(String tenant) {
+        this.tenant = tenant;
+    }
+
     @Override
     public String toString() {
-        return "DemoiselleRequestContextImpl [offset=" + offset + ", limit=" + limit + ", count=" + count + ", paginationEnabled=" + isPaginationEnabled + "]";
+        return "DemoiselleRequestContextImpl [offset=" + offset + ", limit=" + limit + ", count=" + count + ", paginationEnabled=" + isPaginationEnabled + ", paginationType=" + paginationType + "]";
     }
 
 }
@@ -0,0 +1,42 @@
+/*
+ * Demoiselle Framework
+ *
+ * License: GNU Lesser General Public License (LGPL), version 3 or later.
+ * See the lgpl.txt file in the root directory or <https://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.demoiselle.jee.crud;
+
+import static java.lang.annotation.ElementType.TYPE;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import org.demoiselle.jee.crud.metadata.EntityMetadata;
+
+/**
+ * Annotation to be used on subclasses of {@link AbstractDAO} that want to remove the entities 
+ * with a single 'DELETE ... WHERE id = ?' statement instead of loading the entity before removing it.
+ * 
+ * The entity is still loaded when the remove has side effects that the statement would skip, 
+ * see {@link EntityMetadata#isBulkDeletable()}.
+ * 
+ * Ex.
+ * 
+ * <pre>
+ * &#64;DirectDelete
+ * public class MyDAO extends AbstractDAO&lt;MyEntity, Long&gt; {
+ *    ...
+ * }
+ * </pre>
+ * 
+ * @author SERPRO
+ */
+@Documented
+@Inherited
+@Retention(RetentionPolicy.RUNTIME)
+@Target(TYPE)
+public @interface DirectDelete {
+}
@@ -0,0 +1,168 @@
+/*
+ * Demoiselle Framework
+ *
+ * License: GNU Lesser General Public License (LGPL), version 3 or later.
+ * See the lgpl.txt file in the root directory or <https://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.demoiselle.jee.crud;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Immutable tree of fields, like the one built from 'fields=field1,field2(subField1,subField2)'.
+ *
+ * The children are indexed by key, so {@link #getChild(String)} and {@link #containsKey(String)} don't
+ * walk the children. The keys are interned and the hash is computed once from the whole structure,
+ * so two trees with the same keys, values and children in the same order are equal and can be used
+ * as the key of a cache.
+ *
+ * {@link TreeNodeField} is still used on the public API, {@link #of(TreeNodeField)} and
+ * {@link #toTreeNodeField()} convert between them.
+ *
+ * @author SERPRO
+ */
+public final class FieldTree {
+
+    private final String key;
+    private final Set<String> values;
+    private final Map<String, FieldTree> children;
+    private final List<FieldTree> childList;
+    private final Set<String> leafKeys;
+    private final int hash;
+
+    private FieldTree(String key, Set<String> values, List<FieldTree> childList) {
+        this.key = key == null ? null : key.intern();
+        this.values = values == null ? Collections.emptySet() : Collections.unmodifiableSet(new LinkedHashSet<>(values));
+        this.childList = Collections.unmodifiableList(childList);
+
+        Map<String, FieldTree> index = new LinkedHashMap<>();
+        Set<String> leaves = new LinkedHashSet<>();
+        for (FieldTree child : childList) {
+            index.putIfAbsent(child.key, child);
+            if (child.isLeaf()) {
+                leaves.add(child.key);
+            }
+        }
+        this.children = Collections.unmodifiableMap(index);
+        this.leafKeys = Collections.unmodifiableSet(leaves);
+        this.hash = Objects.hash(this.key, this.values, this.childList);
+    }
+
+    /**
+     * Create a tree from a {@link TreeNodeField}, with any depth.
+     *
+     * @param tnf TreeNodeField
+     * @return The tree or null when 'tnf' is null
+     */
+    public static FieldTree of(TreeNodeField<String, Set<String>> tnf) {
+        if (tnf == null) {
+            return null;
+        }
+        List<FieldTree> childList = new ArrayList<>(tnf.getChildren().size());
+        for (TreeNodeField<String, Set<String>> child : tnf.getChildren()) {
+            childList.add(of(child));
+        }
+        return new FieldTree(tnf.getKey(), tnf.getValue(), childList);
+    }
+
+    /**
+     * Create a tree from the fields of a request or of {@link Search#fields()}.
+     *
+     * @param key Key of the root, usually the name of the target class
+     * @param fields Fields like [field1, field2(subField1,subField2)]
+     * @return The tree
+     */
+    public static FieldTree of(String key, List<String> fields) {
+        TreeNodeField<String, Set<String>> tnf = new TreeNodeField<>(key, null);
+        fields.forEach(field -> CrudUtilHelper.fillLeafTreeNodeField(tnf, field, null));
+        return of(tnf);
+    }
+
+    /**
+     * Build a mutable copy, with new nodes, to be used where a {@link TreeNodeField} is expected.
+     *
+     * @return The copy
+     */
+    public TreeNodeField<String, Set<String>> toTreeNodeField() {
+        TreeNodeField<String, Set<String>> tnf = new TreeNodeField<>(key, values.isEmpty() ? null : new LinkedHashSet<>(values));
+        copyChildren(this, tnf);
+        return tnf;
+    }
+
+    private static void copyChildren(FieldTree from, TreeNodeField<String, Set<String>> to) {
+        for (FieldTree child : from.childList) {
+            copyChildren(child, to.addChild(child.key, child.values.isEmpty() ? null : new LinkedHashSet<>(child.values)));
+        }
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * @return Values of the node, empty when it doesn't have values
+     */
+    public Set<String> getValues() {
+        return values;
+    }
+
+    public List<FieldTree> getChildren() {
+        return childList;
+    }
+
+    /**
+     * @param key Key of the child
+     * @return The first child with the key or null
+     */
+    public FieldTree getChild(String key) {
+        return children.get(key);
+    }
+
+    public boolean containsKey(String key) {
+        return children.containsKey(key);
+    }
+
+    public boolean isLeaf() {
+        return childList.isEmpty();
+    }
+
+    /**
+     * @return Keys of the children that don't have children
+     */
+    public Set<String> getLeafKeys() {
+        return leafKeys;
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof FieldTree)) {
+            return false;
+        }
+        FieldTree other = (FieldTree) obj;
+        return hash == other.hash
+                && Objects.equals(key, other.key)
+                && values.equals(other.values)
+                && childList.equals(other.childList);
+    }
+
+    @Override
+    public String toString() {
+        return "FieldTree [key=" + key + ", values=" + values + ", children=" + childList + "]";
+    }
+
+}
@@ -0,0 +1,51 @@
+/*
+ * Demoiselle Framework
+ *
+ * License: GNU Lesser General Public License (LGPL), version 3 or later.
+ * See the lgpl.txt file in the root directory or <https://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.demoiselle.jee.crud;
+
+import static java.lang.annotation.ElementType.FIELD;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import org.demoiselle.jee.crud.changes.ChangeFeedHelper;
+
+/**
+ * Annotation to be used on the field of an entity changed by every insert and update, that enables the
+ * change feed of the entity: 'GET ?since=&lt;token&gt;' returns only the rows changed after the token
+ * and the ids removed after it, see {@link ChangeFeedHelper}.
+ *
+ * The field should be a {@link java.util.Date}, {@link java.util.Calendar}, {@link java.time.Instant} or
+ * {@link java.time.LocalDateTime} filled by the application (or by a trigger) on each write, or a number
+ * taken from a database sequence on each write. A timestamp {@link javax.persistence.Version} may be annotated too.
+ *
+ * The change feed is opt-in: only entities with this annotation record a
+ * {@link org.demoiselle.jee.crud.changes.CrudTombstone} on remove, so the application must add that entity to
+ * its persistence unit.
+ *
+ * The field should be indexed together with the id.
+ *
+ * Ex.
+ *
+ * <pre>
+ * &#64;Entity
+ * public class Customer {
+ *    ...
+ *    &#64;LastModified
+ *    &#64;Temporal(TemporalType.TIMESTAMP)
+ *    private Date updatedAt;
+ * }
+ * </pre>
+ *
+ * @author SERPRO
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(FIELD)
+public @interface LastModified {
+}
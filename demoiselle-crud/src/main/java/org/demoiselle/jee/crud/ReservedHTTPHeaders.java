@@ -17,7 +17,10 @@ public enum ReservedHTTPHeaders {
     // Pagination
     HTTP_HEADER_CONTENT_RANGE("Content-Range"),
     HTTP_HEADER_ACCEPT_RANGE("Accept-Range"),
-    HTTP_HEADER_ACCESS_CONTROL_EXPOSE_HEADERS("Access-Control-Expose-Headers");
+    HTTP_HEADER_ACCESS_CONTROL_EXPOSE_HEADERS("Access-Control-Expose-Headers"),
+    
+    // Change feed
+    HTTP_HEADER_SINCE_TOKEN("X-Since-Token");
     
     private final String key;
 
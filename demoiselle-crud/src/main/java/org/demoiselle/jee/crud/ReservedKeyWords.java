@@ -16,13 +16,25 @@ public enum ReservedKeyWords {
     
     // Pagination
     DEFAULT_RANGE_KEY("range"),
+    DEFAULT_CURSOR_KEY("cursor"),
     
     // Sort
     DEFAULT_SORT_DESC_KEY("desc"),
     DEFAULT_SORT_KEY("sort"),
     
     // Fields
-    DEFAULT_FIELD_KEY("fields");
+    DEFAULT_FIELD_KEY("fields"),
+    
+    // Aggregation
+    DEFAULT_GROUP_BY_KEY("groupBy"),
+    DEFAULT_COUNT_KEY("count"),
+    DEFAULT_SUM_KEY("sum"),
+    DEFAULT_MIN_KEY("min"),
+    DEFAULT_MAX_KEY("max"),
+    DEFAULT_FACETS_KEY("facets"),
+    
+    // Change feed
+    DEFAULT_SINCE_KEY("since");
     
     private final String key;
 
@@ -0,0 +1,298 @@
+/*
+ * Demoiselle Framework
+ *
+ * License: GNU Lesser General Public License (LGPL), version 3 or later.
+ * See the lgpl.txt file in the root directory or <https://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.demoiselle.jee.crud;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.demoiselle.jee.crud.metadata.EntityMetadataRegistry;
+import org.demoiselle.jee.crud.stream.JsonOutput;
+import org.demoiselle.jee.crud.stream.ProjectedContent;
+
+/**
+ * Compiled selection of the requested fields of the objects of a response, used by {@link CrudFilter}.
+ *
+ * The fields of a (class, {@link FieldTree}) pair are resolved once to {@link MethodHandle} getters, so
+ * each row only invokes the getters and fills the map. The result has the same shape as before:
+ *
+ * <pre>
+ * fields=name,address(street)  -&gt;  {"name": "John", "address": {"street": "..."}}
+ * </pre>
+ *
+ * The fields of the first level are written on the position of the first of them, in the order they are
+ * declared on the class. Only two levels are selected.
+ *
+ * The projection can also write the fields directly as JSON, see {@link #write(Object, JsonOutput)}, with
+ * the names encoded once, so the rows of a {@link ProjectedContent} are written without building the maps.
+ *
+ * The compiled projections are kept on a bounded cache, the least recently used is discarded when it is full.
+ *
+ * @author SERPRO
+ */
+public final class ResponseProjection {
+
+    private static final Logger logger = Logger.getLogger(ResponseProjection.class.getName());
+
+    private static final int MAX_PROJECTIONS = 512;
+
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+    private static final Map<Key, ResponseProjection> PROJECTIONS = Collections.synchronizedMap(new LinkedHashMap<Key, ResponseProjection>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, ResponseProjection> eldest) {
+            return size() > MAX_PROJECTIONS;
+        }
+    });
+
+    private final List<Step> steps;
+
+    private ResponseProjection(Class<?> objectClass, Class<?> targetClass, FieldTree fields) {
+        List<Step> compiled = new ArrayList<>();
+        boolean firstLevelCompiled = false;
+
+        for (FieldTree leaf : fields.getChildren()) {
+            if (leaf.isLeaf()) {
+                if (!firstLevelCompiled) {
+                    firstLevelCompiled = true;
+                    compiled.add(new Step(null, null, firstLevel(objectClass, targetClass, fields)));
+                }
+            }
+            else {
+                Field field = CrudUtilHelper.getField(targetClass, leaf.getKey());
+                Accessor outer = field == null ? null : accessor(field);
+                List<Accessor> inner = new ArrayList<>();
+
+                if (field != null) {
+                    for (FieldTree child : leaf.getChildren()) {
+                        Field secondField = EntityMetadataRegistry.get(field.getType()).getField(child.getKey());
+                        if (secondField == null) {
+                            logger.log(Level.SEVERE, "Field {0} doesn''t exist on {1}", new Object[]{child.getKey(), field.getType().getName()});
+                            continue;
+                        }
+                        inner.add(accessor(secondField));
+                    }
+                }
+                else {
+                    logger.log(Level.SEVERE, "Field {0} doesn''t exist on {1}", new Object[]{leaf.getKey(), targetClass.getName()});
+                }
+
+                compiled.add(new Step(leaf.getKey(), outer, inner));
+            }
+        }
+
+        this.steps = Collections.unmodifiableList(compiled);
+    }
+
+    private static List<Accessor> firstLevel(Class<?> objectClass, Class<?> targetClass, FieldTree fields) {
+        Map<String, Accessor> accessors = new LinkedHashMap<>();
+        for (Field field : EntityMetadataRegistry.get(objectClass).getFields()) {
+            if (fields.getLeafKeys().contains(field.getName())) {
+                Field actualField = CrudUtilHelper.getField(targetClass, field.getName());
+                if (actualField != null) {
+                    accessors.put(field.getName(), accessor(actualField));
+                }
+            }
+        }
+        return new ArrayList<>(accessors.values());
+    }
+
+    private static Accessor accessor(Field field) {
+        try {
+            field.setAccessible(true);
+            MethodHandle getter = MethodHandles.lookup().unreflectGetter(field).asType(GETTER_TYPE);
+            return new Accessor(field.getName(), getter);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Field " + field.getName() + " of " + field.getDeclaringClass().getName() + " can't be read", e);
+        }
+    }
+
+    /**
+     * Return the projection of the fields, compiling it when necessary.
+     *
+     * @param objectClass Class of the objects of the result
+     * @param targetClass Class used on {@literal AbstractREST<TargetClass, I>}
+     * @param fields Requested fields
+     * @return The projection
+     */
+    public static ResponseProjection of(Class<?> objectClass, Class<?> targetClass, FieldTree fields) {
+        Key key = new Key(objectClass, targetClass, fields);
+        ResponseProjection projection = PROJECTIONS.get(key);
+        if (projection == null) {
+            projection = new ResponseProjection(objectClass, targetClass, fields);
+            ResponseProjection previous = PROJECTIONS.putIfAbsent(key, projection);
+            projection = previous == null ? projection : previous;
+        }
+        return projection;
+    }
+
+    /**
+     * Select the fields of the object.
+     *
+     * @param object Object of the result
+     * @return Map with the fields
+     */
+    public Map<String, Object> apply(Object object) {
+        Map<String, Object> keyValue = new LinkedHashMap<>();
+
+        for (Step step : steps) {
+            if (step.key == null) {
+                for (Accessor accessor : step.accessors) {
+                    keyValue.put(accessor.name, accessor.get(object));
+                }
+            }
+            else {
+                Map<String, Object> keyValueSecond = new LinkedHashMap<>();
+                Object secondObject = step.outer == null ? null : step.outer.get(object);
+
+                if (secondObject != null) {
+                    for (Accessor accessor : step.accessors) {
+                        keyValueSecond.put(accessor.name, accessor.get(secondObject));
+                    }
+                }
+
+                keyValue.put(step.key, keyValueSecond);
+            }
+        }
+
+        return keyValue;
+    }
+
+    /**
+     * Write the fields of the object as a JSON object, the same JSON of the map returned by {@link #apply(Object)}.
+     *
+     * @param object Object of the result
+     * @param output Output of the response
+     * @throws IOException Error writing to the stream
+     */
+    public void write(Object object, JsonOutput output) throws IOException {
+        output.writeRaw('{');
+        boolean first = true;
+
+        for (Step step : steps) {
+            if (step.key == null) {
+                for (Accessor accessor : step.accessors) {
+                    first = writeName(output, accessor.encodedName, first);
+                    output.writeValue(accessor.get(object));
+                }
+            }
+            else {
+                first = writeName(output, step.encodedKey, first);
+                Object secondObject = step.outer == null ? null : step.outer.get(object);
+
+                output.writeRaw('{');
+                if (secondObject != null) {
+                    boolean firstSecond = true;
+                    for (Accessor accessor : step.accessors) {
+                        firstSecond = writeName(output, accessor.encodedName, firstSecond);
+                        output.writeValue(accessor.get(secondObject));
+                    }
+                }
+                output.writeRaw('}');
+            }
+        }
+
+        output.writeRaw('}');
+    }
+
+    private static boolean writeName(JsonOutput output, byte[] encodedName, boolean first) throws IOException {
+        if (!first) {
+            output.writeRaw(',');
+        }
+        output.writeRaw(encodedName);
+        return false;
+    }
+
+    /**
+     * The first level fields (key null) or an association with its fields.
+     */
+    private static final class Step {
+
+        private final String key;
+        private final byte[] encodedKey;
+        private final Accessor outer;
+        private final List<Accessor> accessors;
+
+        private Step(String key, Accessor outer, List<Accessor> accessors) {
+            this.key = key;
+            this.encodedKey = key == null ? null : JsonOutput.encodeName(key);
+            this.outer = outer;
+            this.accessors = Collections.unmodifiableList(accessors);
+        }
+
+    }
+
+    private static final class Accessor {
+
+        private final String name;
+        private final byte[] encodedName;
+        private final MethodHandle getter;
+
+        private Accessor(String name, MethodHandle getter) {
+            this.name = name;
+            this.encodedName = JsonOutput.encodeName(name);
+            this.getter = getter;
+        }
+
+        private Object get(Object object) {
+            try {
+                return (Object) getter.invokeExact(object);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+    }
+
+    private static final class Key {
+
+        private final Class<?> objectClass;
+        private final Class<?> targetClass;
+        private final FieldTree fields;
+        private final int hash;
+
+        private Key(Class<?> objectClass, Class<?> targetClass, FieldTree fields) {
+            this.objectClass = objectClass;
+            this.targetClass = targetClass;
+            this.fields = fields;
+            this.hash = Objects.hash(objectClass, targetClass, fields);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return objectClass == other.objectClass && targetClass == other.targetClass && fields.equals(other.fields);
+        }
+
+    }
+
+}
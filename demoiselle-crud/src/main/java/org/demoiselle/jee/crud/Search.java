@@ -13,6 +13,9 @@ import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 
+import org.demoiselle.jee.crud.pagination.CountStrategy;
+import org.demoiselle.jee.crud.pagination.PaginationType;
+
 /**
  * Annotation to be used in methods that want to change the 
  * default paging behavior and determine the fields that can be used by the 
@@ -31,6 +34,45 @@ import java.lang.annotation.Target;
  * The method above will filter just 'field1' and 'field2' and the default pagination page will be 2 
  * register per page.
  * 
+ * The way the total of rows is counted can be changed by the 'countStrategy' attribute, see {@link CountStrategy}.
+ * 
+ * Large collections can be paginated by keyset, the next page is requested with the 'cursor' 
+ * parameter returned on the 'Link' header instead of the 'range' parameter.
+ * 
+ * <pre>
+ * &#64;GET
+ * &#64;Search(fields={"*"}, pagination = PaginationType.KEYSET)
+ * public Result myNewMethod(){
+ *    ...
+ * }
+ * </pre>
+ * 
+ * Large exports can be streamed as a JSON array with the 'streaming' attribute, the rows are read 
+ * from the database in chunks while the response is written and the result isn't paginated. 
+ * Requests with 'Accept: application/x-ndjson' are always streamed, one JSON per line.
+ * 
+ * <pre>
+ * &#64;GET
+ * &#64;Search(fields={"*"}, streaming = true)
+ * public Result myNewMethod(){
+ *    ...
+ * }
+ * </pre>
+ * 
+ * Expensive queries can be limited by guardrails: 'indexed' lists the only fields accepted on filters and sorts, 
+ * 'queryTimeout' is the timeout of each query in milliseconds and 'maxRows' the max number of rows read by 
+ * a request. The requests outside the guardrails are rejected with 400, see 
+ * {@link org.demoiselle.jee.crud.guard.QueryGuardHelper}. The default values come from 
+ * {@link DemoiselleCrudConfig}.
+ * 
+ * <pre>
+ * &#64;GET
+ * &#64;Search(fields={"*"}, indexed={"id", "code"}, queryTimeout = 2000, maxRows = 10000)
+ * public Result myNewMethod(){
+ *    ...
+ * }
+ * </pre>
+ * 
  * @author SERPRO
  */
 @Documented
@@ -40,4 +82,10 @@ public @interface Search {
     String[] fields();
     boolean withPagination() default true;
     int quantityPerPage() default 20;
+    PaginationType pagination() default PaginationType.OFFSET;
+    CountStrategy countStrategy() default CountStrategy.DEFAULT;
+    boolean streaming() default false;
+    String[] indexed() default {};
+    int queryTimeout() default -1;
+    int maxRows() default -1;
 }
@@ -0,0 +1,48 @@
+/*
+ * Demoiselle Framework
+ *
+ * License: GNU Lesser General Public License (LGPL), version 3 or later.
+ * See the lgpl.txt file in the root directory or <https://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.demoiselle.jee.crud;
+
+import static java.lang.annotation.ElementType.FIELD;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import org.demoiselle.jee.crud.index.SearchIndex;
+
+/**
+ * Annotation to be used on the String fields of an entity that are searched with wildcard filters, like 
+ * 'name=*john*', that can't use the indexes of the database.
+ * 
+ * The values of these fields are kept on an in-memory trigram index ({@link SearchIndex}), built by the first 
+ * request that uses it and maintained, after the commit, by the writes of {@link AbstractDAO}. The index only 
+ * narrows the rows checked by the database: the wildcard filters are sent as 'id IN (...) AND name LIKE ...'.
+ * 
+ * Writes that don't pass through the {@link AbstractDAO} of this node (other applications, other nodes) are
+ * seen right away when the entity has a {@link LastModified} field, since the rows modified after the index was
+ * built are checked too. Without it, these writes are only seen when the index is rebuilt, every 
+ * 'demoiselle.crud.searchIndexTimeToLive' seconds.
+ * 
+ * Ex.
+ * 
+ * <pre>
+ * &#64;Entity
+ * public class Customer {
+ *    ...
+ *    &#64;SearchIndexed
+ *    private String name;
+ * }
+ * </pre>
+ * 
+ * @author SERPRO
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(FIELD)
+public @interface SearchIndexed {
+}
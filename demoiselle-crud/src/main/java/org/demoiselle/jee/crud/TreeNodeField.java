@@ -6,13 +6,18 @@
  */
 package org.demoiselle.jee.crud;
 
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 
 /**
  * 
  * This class helps the CRUD feature to hold the fields on a Tree structure.
  * 
+ * The children are also indexed by key. Code that reads the same tree many times, like the 
+ * response of each row, should convert it once to the immutable {@link FieldTree}, see {@link FieldTree#of(TreeNodeField)}.
+ * 
  * @author SERPRO
  */
 public class TreeNodeField<T, K> {
@@ -21,17 +26,20 @@ public class TreeNodeField<T, K> {
     private K value;
     private TreeNodeField<T, K> parent;
     private List<TreeNodeField<T, K>> children;
+    private Map<T, TreeNodeField<T, K>> index;
 
     public TreeNodeField(T key, K value) {
         this.key = key;
         this.value = value;
         this.children = new LinkedList<>();
+        this.index = new HashMap<>();
     }
 
     public TreeNodeField<T, K> addChild(T key, K value) {
         TreeNodeField<T, K> childNode = new TreeNodeField<T, K>(key, value);
         childNode.parent = this;
         this.children.add(childNode);
+        this.index.putIfAbsent(key, childNode);
         return childNode;
     }
     
@@ -52,15 +60,11 @@ public class TreeNodeField<T, K> {
     }
     
     public TreeNodeField<T, K> getChildByKey(T key){
-        return getChildren().stream()
-                .filter( (child) -> child.getKey().equals(key))
-                .findAny()
-                .orElse(null);
+        return this.index.get(key);
     }
     
     public Boolean containsKey(T key){
-        return getChildren().stream()
-                .filter( (child) -> child.getKey().equals(key)).count() > 0;
+        return this.index.containsKey(key);
     }
 
     @Override
@@ -0,0 +1,89 @@
+/*
+ * Demoiselle Framework
+ *
+ * License: GNU Lesser General Public License (LGPL), version 3 or later.
+ * See the lgpl.txt file in the root directory or <https://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.demoiselle.jee.crud.aggregate;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Aggregation requested by the query string, already validated by {@link AggregationHelper} and with
+ * the fields named like on the entity.
+ *
+ * Ex:
+ *
+ * <pre>
+ * ?groupBy=status&amp;count&amp;sum=price  -&gt;  [{"status": "ACTIVE", "count": 10, "sum": {"price": 150.0}}, ...]
+ * ?facets=status,country             -&gt;  [{"facet": "status", "value": "ACTIVE", "count": 10}, ...]
+ * </pre>
+ *
+ * @author SERPRO
+ */
+public final class Aggregation {
+
+    public static final String COUNT = "count";
+    public static final String SUM = "sum";
+    public static final String MIN = "min";
+    public static final String MAX = "max";
+    public static final String FACET = "facet";
+    public static final String VALUE = "value";
+
+    private final List<String> groupBy;
+    private final boolean count;
+    private final List<String> sums;
+    private final List<String> mins;
+    private final List<String> maxs;
+    private final List<String> facets;
+
+    public Aggregation(List<String> groupBy, boolean count, List<String> sums, List<String> mins, List<String> maxs, List<String> facets) {
+        this.groupBy = Collections.unmodifiableList(groupBy);
+        this.count = count;
+        this.sums = Collections.unmodifiableList(sums);
+        this.mins = Collections.unmodifiableList(mins);
+        this.maxs = Collections.unmodifiableList(maxs);
+        this.facets = Collections.unmodifiableList(facets);
+    }
+
+    public List<String> getGroupBy() {
+        return groupBy;
+    }
+
+    /**
+     * @return If the rows should have the number of rows of each group, always true when there isn't other aggregate
+     */
+    public boolean isCount() {
+        return count || (sums.isEmpty() && mins.isEmpty() && maxs.isEmpty());
+    }
+
+    public List<String> getSums() {
+        return sums;
+    }
+
+    public List<String> getMins() {
+        return mins;
+    }
+
+    public List<String> getMaxs() {
+        return maxs;
+    }
+
+    public List<String> getFacets() {
+        return facets;
+    }
+
+    /**
+     * @return If the request asks for the facets, the count of each value of each field
+     */
+    public boolean isFacets() {
+        return !facets.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "Aggregation [groupBy=" + groupBy + ", count=" + count + ", sums=" + sums + ", mins=" + mins + ", maxs=" + maxs + ", facets=" + facets + "]";
+    }
+
+}
@@ -0,0 +1,155 @@
+/*
+ * Demoiselle Framework
+ *
+ * License: GNU Lesser General Public License (LGPL), version 3 or later.
+ * See the lgpl.txt file in the root directory or <https://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.demoiselle.jee.crud.aggregate;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import javax.enterprise.context.RequestScoped;
+import javax.inject.Inject;
+import javax.persistence.Entity;
+import javax.ws.rs.container.ResourceInfo;
+import javax.ws.rs.core.UriInfo;
+
+import org.demoiselle.jee.crud.AbstractDAO;
+import org.demoiselle.jee.crud.CrudMessage;
+import org.demoiselle.jee.crud.DemoiselleRequestContext;
+import org.demoiselle.jee.crud.ReservedKeyWords;
+import org.demoiselle.jee.crud.metadata.EntityMetadataRegistry;
+import org.demoiselle.jee.crud.metadata.SearchMetadata;
+import org.demoiselle.jee.crud.metadata.SearchMetadataRegistry;
+import org.demoiselle.jee.crud.request.RequestSpec;
+
+/**
+ * Class responsible for managing the aggregation parameters comes from Url Query String.
+ *
+ * Ex:
+ *
+ * Given a request
+ * <pre>
+ * GET {@literal http://localhost:8080/api/users?groupBy=status&count&sum=age&max=age}
+ * GET {@literal http://localhost:8080/api/users?facets=status,country&name=John*}
+ * </pre>
+ *
+ * This class will processing the request above and fill the {@link DemoiselleRequestContext#setAggregation(Aggregation)}.
+ * The aggregation is computed on the database by {@link AbstractDAO} with the same filters of the request,
+ * so the rows of the entity aren't returned and the pagination is disabled.
+ *
+ * Only fields of the first level of the entity are accepted and, when the method is annotated with
+ * {@link org.demoiselle.jee.crud.Search}, only its fields.
+ *
+ * @author SERPRO
+ */
+@RequestScoped
+public class AggregationHelper {
+
+    private ResourceInfo resourceInfo;
+
+    private UriInfo uriInfo;
+
+    @Inject
+    private DemoiselleRequestContext drc;
+
+    @Inject
+    private AggregationHelperMessage aggregationHelperMessage;
+
+    @Inject
+    private CrudMessage crudMessage;
+
+    public AggregationHelper() {
+    }
+
+    public AggregationHelper(ResourceInfo resourceInfo, UriInfo uriInfo, DemoiselleRequestContext drc, AggregationHelperMessage aggregationHelperMessage, CrudMessage crudMessage) {
+        this.resourceInfo = resourceInfo;
+        this.uriInfo = uriInfo;
+        this.drc = drc;
+        this.aggregationHelperMessage = aggregationHelperMessage;
+        this.crudMessage = crudMessage;
+    }
+
+    /**
+     * Open the request query string to extract values from 'groupBy', 'count', 'sum', 'min', 'max'
+     * and 'facets' parameters and fill the {@link DemoiselleRequestContext#setAggregation(Aggregation)}
+     *
+     * @param resourceInfo ResourceInfo
+     * @param uriInfo UriInfo
+     */
+    public void execute(ResourceInfo resourceInfo, UriInfo uriInfo) {
+        this.resourceInfo = resourceInfo == null ? this.resourceInfo : resourceInfo;
+        this.uriInfo = uriInfo == null ? this.uriInfo : uriInfo;
+
+        RequestSpec spec = RequestSpec.of(drc, this.uriInfo);
+
+        if (!spec.isAggregationPresent()) {
+            drc.setAggregation(null);
+            return;
+        }
+
+        if (!spec.getFacets().isEmpty() && (spec.isCountPresent() || !spec.getGroupBy().isEmpty()
+                || !spec.getSums().isEmpty() || !spec.getMins().isEmpty() || !spec.getMaxs().isEmpty())) {
+            throw new IllegalArgumentException(aggregationHelperMessage.facetsWithAggregation());
+        }
+
+        SearchMetadata searchMetadata = SearchMetadataRegistry.get(this.resourceInfo);
+
+        List<String> groupBy = validate(searchMetadata, ReservedKeyWords.DEFAULT_GROUP_BY_KEY, spec.getGroupBy());
+        List<String> sums = validate(searchMetadata, ReservedKeyWords.DEFAULT_SUM_KEY, spec.getSums());
+        List<String> mins = validate(searchMetadata, ReservedKeyWords.DEFAULT_MIN_KEY, spec.getMins());
+        List<String> maxs = validate(searchMetadata, ReservedKeyWords.DEFAULT_MAX_KEY, spec.getMaxs());
+        List<String> facets = validate(searchMetadata, ReservedKeyWords.DEFAULT_FACETS_KEY, spec.getFacets());
+
+        for (String sum : sums) {
+            if (!isNumeric(EntityMetadataRegistry.get(searchMetadata.getTargetClass()).getField(sum).getType())) {
+                throw new IllegalArgumentException(aggregationHelperMessage.aggregationFieldNotNumeric(sum));
+            }
+        }
+
+        drc.setAggregation(new Aggregation(groupBy, spec.isCountPresent(), sums, mins, maxs, facets));
+        drc.setPaginationEnabled(Boolean.FALSE);
+    }
+
+    /**
+     * Check the fields of a parameter and return them named like on the entity.
+     */
+    private List<String> validate(SearchMetadata searchMetadata, ReservedKeyWords parameter, List<String> fields) {
+        List<String> searchFields = searchMetadata.getFieldNames();
+        List<String> result = new ArrayList<>();
+
+        for (String field : fields) {
+            if (field.isEmpty()) {
+                continue;
+            }
+
+            if (!searchFields.isEmpty() && !searchFields.contains(field)) {
+                throw new IllegalArgumentException(crudMessage.fieldRequestDoesNotExistsOnSearchField(field));
+            }
+
+            Field entityField = EntityMetadataRegistry.get(searchMetadata.getTargetClass()).getFieldIgnoreCase(field);
+            if (entityField == null || !isAggregable(entityField.getType())) {
+                throw new IllegalArgumentException(aggregationHelperMessage.aggregationFieldInvalid(field, parameter.getKey()));
+            }
+
+            if (!result.contains(entityField.getName())) {
+                result.add(entityField.getName());
+            }
+        }
+
+        return result;
+    }
+
+    private static boolean isAggregable(Class<?> type) {
+        return !Collection.class.isAssignableFrom(type) && !Map.class.isAssignableFrom(type) && !type.isAnnotationPresent(Entity.class);
+    }
+
+    private static boolean isNumeric(Class<?> type) {
+        return Number.class.isAssignableFrom(type) || (type.isPrimitive() && type != boolean.class && type != char.class);
+    }
+
+}
@@ -0,0 +1,30 @@
+/*
+ * Demoiselle Framework
+ *
+ * License: GNU Lesser General Public License (LGPL), version 3 or later.
+ * See the lgpl.txt file in the root directory or <https://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.demoiselle.jee.crud.aggregate;
+
+import org.apache.deltaspike.core.api.message.MessageBundle;
+import org.apache.deltaspike.core.api.message.MessageTemplate;
+
+/**
+ * 
+ * Messages used to inform user about Aggregation feature
+ * 
+ * @author SERPRO
+ */
+@MessageBundle
+public interface AggregationHelperMessage {
+
+    @MessageTemplate("{aggregation-field-invalid}")
+    String aggregationFieldInvalid(String field, String parameter);
+
+    @MessageTemplate("{aggregation-field-not-numeric}")
+    String aggregationFieldNotNumeric(String field);
+
+    @MessageTemplate("{facets-with-aggregation}")
+    String facetsWithAggregation();
+
+}
@@ -0,0 +1,31 @@
+/*
+ * Demoiselle Framework
+ *
+ * License: GNU Lesser General Public License (LGPL), version 3 or later.
+ * See the lgpl.txt file in the root directory or <https://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.demoiselle.jee.crud.async;
+
+/**
+ * What {@link CrudExecutor} does with a request when all threads are busy and the queue is full.
+ *
+ * @author SERPRO
+ */
+public enum AsyncRejectionPolicy {
+
+    /**
+     * The new request is answered with '503 Service Unavailable'.
+     */
+    ABORT,
+
+    /**
+     * The new request is executed on the thread of the container, like {@link org.demoiselle.jee.crud.AbstractREST}.
+     */
+    CALLER_RUNS,
+
+    /**
+     * The oldest request waiting on the queue is answered with '503 Service Unavailable' and the new one is queued.
+     */
+    DISCARD_OLDEST;
+
+}
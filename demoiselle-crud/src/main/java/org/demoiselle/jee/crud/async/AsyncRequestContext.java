@@ -0,0 +1,176 @@
+/*
+ * Demoiselle Framework
+ *
+ * License: GNU Lesser General Public License (LGPL), version 3 or later.
+ * See the lgpl.txt file in the root directory or <https://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.demoiselle.jee.crud.async;
+
+import javax.enterprise.context.ContextNotActiveException;
+
+import org.demoiselle.jee.core.api.security.Token;
+import org.demoiselle.jee.core.api.security.TokenType;
+import org.demoiselle.jee.crud.DemoiselleRequestContext;
+import org.demoiselle.jee.crud.DemoiselleRequestContextImpl;
+
+/**
+ * Copy of the {@link DemoiselleRequestContext} and of the security {@link Token} of a request, carried to the
+ * thread of {@link CrudExecutor} that executes it.
+ *
+ * The request scope of CDI isn't active on the threads of the executor, so the classes of the CRUD feature
+ * that run there ({@link org.demoiselle.jee.crud.AbstractDAO}, {@link org.demoiselle.jee.crud.CrudFilter})
+ * use {@link #resolve(DemoiselleRequestContext)} to read the copy bound to the actual thread. The values set
+ * on the copy by the DAO (count, entity class...) are read by {@link org.demoiselle.jee.crud.CrudFilter} when
+ * the response is resumed on the same thread.
+ *
+ * @author SERPRO
+ */
+public final class AsyncRequestContext {
+
+    private static final ThreadLocal<AsyncRequestContext> CURRENT = new ThreadLocal<>();
+
+    private final DemoiselleRequestContext requestContext;
+
+    private final Token token;
+
+    private AsyncRequestContext(DemoiselleRequestContext requestContext, Token token) {
+        this.requestContext = requestContext;
+        this.token = token;
+    }
+
+    /**
+     * Copy the context of the actual request, must be called on the thread of the request.
+     *
+     * @param requestContext Context of the request, or null
+     * @param token Token of the request, or null when the security isn't used
+     * @return The copy
+     */
+    public static AsyncRequestContext capture(DemoiselleRequestContext requestContext, Token token) {
+        DemoiselleRequestContext copy = requestContext == null ? new DemoiselleRequestContextImpl()
+                : new DemoiselleRequestContextImpl(requestContext);
+        Token tokenCopy = token == null ? null : new DetachedToken(token.getKey(), token.getType());
+        return new AsyncRequestContext(copy, tokenCopy);
+    }
+
+    /**
+     * @return The context bound to the actual thread or null
+     */
+    public static AsyncRequestContext current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Return the context of the request bound to the actual thread, or the injected one when the
+     * actual thread isn't executing an asynchronous request.
+     *
+     * @param injected Context injected by CDI
+     * @return The context to be used
+     */
+    public static DemoiselleRequestContext resolve(DemoiselleRequestContext injected) {
+        AsyncRequestContext current = CURRENT.get();
+        return current == null ? injected : current.requestContext;
+    }
+
+    /**
+     * Execute the task with this context bound to the actual thread.
+     *
+     * @param task Task to be executed
+     */
+    public void run(Runnable task) {
+        AsyncRequestContext previous = CURRENT.get();
+        CURRENT.set(this);
+        try {
+            task.run();
+        }
+        finally {
+            if (previous == null) {
+                CURRENT.remove();
+            }
+            else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    /**
+     * Execute the task with this context bound to the actual thread and the key of the copied token set on the
+     * injected {@link Token}, so the beans of the application that inject the token see the user of the request.
+     * The previous key of the injected token is restored at the end.
+     *
+     * The token can only be set when the request scope of CDI is active on the actual thread, like on the threads
+     * of containers that activate it for the managed threads, otherwise the copy is read by {@link #getToken()}.
+     *
+     * @param task Task to be executed
+     * @param injected Token injected by CDI, or null when the security isn't used
+     */
+    public void run(Runnable task, Token injected) {
+        if (token == null || injected == null) {
+            run(task);
+            return;
+        }
+
+        String previousKey;
+        TokenType previousType;
+        try {
+            previousKey = injected.getKey();
+            previousType = injected.getType();
+        } catch (ContextNotActiveException e) {
+            run(task);
+            return;
+        }
+
+        injected.setKey(token.getKey());
+        injected.setType(token.getType());
+        try {
+            run(task);
+        }
+        finally {
+            injected.setKey(previousKey);
+            injected.setType(previousType);
+        }
+    }
+
+    public DemoiselleRequestContext getRequestContext() {
+        return requestContext;
+    }
+
+    /**
+     * @return Copy of the token of the request or null when the security isn't used
+     */
+    public Token getToken() {
+        return token;
+    }
+
+    private static final class DetachedToken implements Token {
+
+        private String key;
+        private TokenType type;
+
+        private DetachedToken(String key, TokenType type) {
+            this.key = key;
+            this.type = type;
+        }
+
+        @Override
+        public String getKey() {
+            return key;
+        }
+
+        @Override
+        public void setKey(String key) {
+            this.key = key;
+        }
+
+        @Override
+        public TokenType getType() {
+            return type;
+        }
+
+        @Override
+        public void setType(TokenType type) {
+            this.type = type;
+        }
+
+    }
+
+}
@@ -0,0 +1,31 @@
+/*
+ * Demoiselle Framework
+ *
+ * License: GNU Lesser General Public License (LGPL), version 3 or later.
+ * See the lgpl.txt file in the root directory or <https://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.demoiselle.jee.crud.async;
+
+import java.util.function.Supplier;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.transaction.Transactional;
+
+/**
+ * Execute the tasks of {@link org.demoiselle.jee.crud.AbstractAsyncREST} on a transaction, like the
+ * methods of {@link org.demoiselle.jee.crud.AbstractREST} annotated with {@link Transactional}.
+ *
+ * The transaction of the container is bound to the thread, so it is started on the thread of
+ * {@link CrudExecutor} instead of the thread of the request.
+ *
+ * @author SERPRO
+ */
+@ApplicationScoped
+public class AsyncTransaction {
+
+    @Transactional
+    public <R> R execute(Supplier<R> task) {
+        return task.get();
+    }
+
+}
@@ -0,0 +1,205 @@
+/*
+ * Demoiselle Framework
+ *
+ * License: GNU Lesser General Public License (LGPL), version 3 or later.
+ * See the lgpl.txt file in the root directory or <https://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.demoiselle.jee.crud.async;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.inject.Instance;
+import javax.inject.Inject;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.core.Response.Status;
+
+import org.demoiselle.jee.core.api.security.Token;
+import org.demoiselle.jee.crud.DemoiselleCrudConfig;
+import org.demoiselle.jee.crud.DemoiselleRequestContext;
+import org.demoiselle.jee.crud.exception.DemoiselleCrudException;
+
+/**
+ * Bounded executor of the requests of {@link org.demoiselle.jee.crud.AbstractAsyncREST}.
+ *
+ * The slow calls to the database are executed on a fixed number of threads ('demoiselle.crud.asyncPoolSize')
+ * so they don't hold the threads of the container. The requests wait on a queue of 'demoiselle.crud.asyncQueueSize'
+ * positions and, when it is full, the {@link AsyncRejectionPolicy} ('demoiselle.crud.asyncRejectionPolicy') is applied.
+ *
+ * The {@link DemoiselleRequestContext} and the {@link Token} of the request are copied when the task is submitted
+ * and bound to the thread that executes it, see {@link AsyncRequestContext}. The response is resumed on the same
+ * thread, so {@link org.demoiselle.jee.crud.CrudFilter} builds the response with the values set by the DAO.
+ *
+ * The threads are created by the ManagedThreadFactory of the container, see {@link CrudThreadFactory}.
+ *
+ * @author SERPRO
+ */
+@ApplicationScoped
+public class CrudExecutor {
+
+    private static final String BUSY_MESSAGE = "Servidor ocupado, tente novamente";
+
+    private static final long KEEP_ALIVE_SECONDS = 60;
+
+    @Inject
+    private DemoiselleCrudConfig crudConfig;
+
+    @Inject
+    private DemoiselleRequestContext drc;
+
+    @Inject
+    private Instance<Token> token;
+
+    private ThreadPoolExecutor executor;
+
+    private final AtomicLong rejected = new AtomicLong();
+
+    public CrudExecutor() {
+    }
+
+    public CrudExecutor(int poolSize, int queueSize, AsyncRejectionPolicy rejectionPolicy) {
+        this.executor = create(poolSize, queueSize, rejectionPolicy, CrudThreadFactory.DEFAULT_MANAGED_THREAD_FACTORY);
+    }
+
+    @PostConstruct
+    public void init() {
+        if (executor == null) {
+            executor = create(crudConfig.getAsyncPoolSize(), crudConfig.getAsyncQueueSize(), crudConfig.getAsyncRejectionPolicy(), 
+                    crudConfig.getManagedThreadFactory());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        List<Runnable> pending = executor.shutdownNow();
+        for (Runnable runnable : pending) {
+            if (runnable instanceof AsyncTask) {
+                ((AsyncTask) runnable).reject();
+            }
+        }
+    }
+
+    private ThreadPoolExecutor create(int poolSize, int queueSize, AsyncRejectionPolicy rejectionPolicy, String managedThreadFactory) {
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(poolSize, poolSize, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new ArrayBlockingQueue<>(queueSize),
+                new CrudThreadFactory(managedThreadFactory, "demoiselle-crud-async-", Thread.NORM_PRIORITY), rejectionHandler(rejectionPolicy));
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    private RejectedExecutionHandler rejectionHandler(AsyncRejectionPolicy rejectionPolicy) {
+        if (rejectionPolicy == AsyncRejectionPolicy.CALLER_RUNS) {
+            return (runnable, pool) -> {
+                if (pool.isShutdown()) {
+                    throw new RejectedExecutionException();
+                }
+                runnable.run();
+            };
+        }
+
+        if (rejectionPolicy == AsyncRejectionPolicy.DISCARD_OLDEST) {
+            return (runnable, pool) -> {
+                if (pool.isShutdown()) {
+                    throw new RejectedExecutionException();
+                }
+                Runnable oldest = pool.getQueue().poll();
+                if (oldest instanceof AsyncTask) {
+                    ((AsyncTask) oldest).reject();
+                }
+                pool.execute(runnable);
+            };
+        }
+
+        return new ThreadPoolExecutor.AbortPolicy();
+    }
+
+    /**
+     * Execute the task on the executor and resume the response with its result, or with the exception
+     * thrown by it.
+     *
+     * Must be called on the thread of the request, that is when its context is copied.
+     *
+     * @param asyncResponse Suspended response of the request
+     * @param task Task that builds the entity of the response
+     */
+    public void execute(AsyncResponse asyncResponse, Supplier<?> task) {
+        AsyncTask asyncTask = new AsyncTask(asyncResponse, task, AsyncRequestContext.capture(AsyncRequestContext.resolve(drc), getToken()));
+        try {
+            executor.execute(asyncTask);
+        }
+        catch (RejectedExecutionException e) {
+            asyncTask.reject();
+        }
+    }
+
+    private Token getToken() {
+        if (token == null || token.isUnsatisfied() || token.isAmbiguous()) {
+            return null;
+        }
+        return token.get();
+    }
+
+    /**
+     * @return Number of threads executing requests
+     */
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    /**
+     * @return Number of requests waiting on the queue
+     */
+    public int getQueueSize() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * @return Number of requests answered with '503 Service Unavailable' because the executor was full
+     */
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    private final class AsyncTask implements Runnable {
+
+        private final AsyncResponse asyncResponse;
+        private final Supplier<?> task;
+        private final AsyncRequestContext context;
+
+        private AsyncTask(AsyncResponse asyncResponse, Supplier<?> task, AsyncRequestContext context) {
+            this.asyncResponse = asyncResponse;
+            this.task = task;
+            this.context = context;
+        }
+
+        @Override
+        public void run() {
+            context.run(() -> {
+                Object result;
+                try {
+                    result = task.get();
+                }
+                catch (Throwable e) {
+                    asyncResponse.resume(e);
+                    return;
+                }
+                asyncResponse.resume(result);
+            }, getToken());
+        }
+
+        private void reject() {
+            rejected.incrementAndGet();
+            asyncResponse.resume(new DemoiselleCrudException(BUSY_MESSAGE, Status.SERVICE_UNAVAILABLE.getStatusCode()));
+        }
+
+    }
+
+}
@@ -0,0 +1,93 @@
+/*
+ * Demoiselle Framework
+ *
+ * License: GNU Lesser General Public License (LGPL), version 3 or later.
+ * See the lgpl.txt file in the root directory or <https://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.demoiselle.jee.crud.async;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import javax.naming.InitialContext;
+import javax.naming.NamingException;
+
+/**
+ * Create the threads of {@link CrudExecutor} and of {@link org.demoiselle.jee.crud.export.ExportManager}.
+ *
+ * The threads are created by the ManagedThreadFactory of the container ('demoiselle.crud.managedThreadFactory'),
+ * so they run with the naming, class loader and security contexts of the application and are stopped by the
+ * container. The factory is looked up by JNDI as a {@link ThreadFactory}, since the concurrency API isn't
+ * part of the web profile. When it isn't found, like out of a container, plain daemon threads are created.
+ *
+ * @author SERPRO
+ */
+public final class CrudThreadFactory implements ThreadFactory {
+
+    /**
+     * Default ManagedThreadFactory of a Java EE 7 container.
+     */
+    public static final String DEFAULT_MANAGED_THREAD_FACTORY = "java:comp/DefaultManagedThreadFactory";
+
+    private static final Logger logger = Logger.getLogger(CrudThreadFactory.class.getName());
+
+    private final ThreadFactory managedThreadFactory;
+
+    private final String namePrefix;
+
+    private final int priority;
+
+    private final AtomicInteger count = new AtomicInteger();
+
+    /**
+     * @param jndiName JNDI name of the ManagedThreadFactory of the container or null to create plain threads
+     * @param namePrefix Prefix of the names of the threads
+     * @param priority Priority of the threads
+     */
+    public CrudThreadFactory(String jndiName, String namePrefix, int priority) {
+        this.managedThreadFactory = lookup(jndiName);
+        this.namePrefix = namePrefix;
+        this.priority = priority;
+    }
+
+    private static ThreadFactory lookup(String jndiName) {
+        if (jndiName == null || jndiName.isEmpty()) {
+            return null;
+        }
+
+        try {
+            Object factory = new InitialContext().lookup(jndiName);
+            if (factory instanceof ThreadFactory) {
+                return (ThreadFactory) factory;
+            }
+            logger.warning(jndiName + " isn't a ThreadFactory, plain threads will be created");
+        } catch (NamingException e) {
+            logger.fine(jndiName + " not found, plain threads will be created");
+        }
+        return null;
+    }
+
+    /**
+     * @return true if the threads are created by the container
+     */
+    public boolean isManaged() {
+        return managedThreadFactory != null;
+    }
+
+    @Override
+    public Thread newThread(Runnable runnable) {
+        Thread thread;
+        if (managedThreadFactory != null) {
+            thread = managedThreadFactory.newThread(runnable);
+        } else {
+            thread = new Thread(runnable);
+            thread.setDaemon(true);
+        }
+
+        thread.setName(namePrefix + count.incrementAndGet());
+        thread.setPriority(priority);
+        return thread;
+    }
+
+}
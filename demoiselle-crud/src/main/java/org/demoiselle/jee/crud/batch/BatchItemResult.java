@@ -0,0 +1,62 @@
+/*
+ * Demoiselle Framework
+ *
+ * License: GNU Lesser General Public License (LGPL), version 3 or later.
+ * See the lgpl.txt file in the root directory or <https://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.demoiselle.jee.crud.batch;
+
+/**
+ * Result of a single item of a batch operation.
+ * 
+ * @author SERPRO
+ */
+public class BatchItemResult {
+
+    private final int index;
+    private final int status;
+    private final Object id;
+    private final String message;
+
+    /**
+     * @param index Position of the item on the request
+     * @param status HTTP status of the item
+     * @param id Id of the entity or null when unknown
+     * @param message Reason of the failure or null
+     */
+    public BatchItemResult(int index, int status, Object id, String message) {
+        this.index = index;
+        this.status = status;
+        this.id = id;
+        this.message = message;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public Object getId() {
+        return id;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * @return true if the item was processed
+     */
+    public boolean isSuccess() {
+        return status >= 200 && status < 300;
+    }
+
+    @Override
+    public String toString() {
+        return "BatchItemResult [index=" + index + ", status=" + status + ", id=" + id + "]";
+    }
+
+}
@@ -0,0 +1,99 @@
+/*
+ * Demoiselle Framework
+ *
+ * License: GNU Lesser General Public License (LGPL), version 3 or later.
+ * See the lgpl.txt file in the root directory or <https://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.demoiselle.jee.crud.batch;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+import javax.validation.ConstraintViolationException;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Response.Status;
+
+import org.demoiselle.jee.crud.AbstractDAO;
+import org.demoiselle.jee.crud.AbstractREST;
+import org.demoiselle.jee.rest.exception.DemoiselleRestException;
+
+/**
+ * Holds the status of each item of a batch operation made by {@link AbstractDAO} or by 
+ * {@link #of(List, int, Function)}, in the same order of the request.
+ * 
+ * @author SERPRO
+ */
+public class BatchResult {
+
+    private final List<BatchItemResult> items = new ArrayList<>();
+
+    /**
+     * Apply the operation to each item, like the helpers of {@link AbstractREST} that pass each item by 
+     * the methods of the resource.
+     * 
+     * The items rejected with a client error (4xx status or a bean validation failure) are reported and 
+     * don't abort the batch, any other failure is thrown and aborts the whole batch.
+     * 
+     * @param items Items of the request
+     * @param successStatus Status of the items processed
+     * @param operation Operation applied to each item, returns the id of the item
+     * @return Status of each item
+     */
+    public static <X> BatchResult of(List<X> items, int successStatus, Function<X, Object> operation) {
+        BatchResult result = new BatchResult();
+        if (items == null) {
+            return result;
+        }
+
+        for (int index = 0; index < items.size(); index++) {
+            try {
+                result.add(new BatchItemResult(index, successStatus, operation.apply(items.get(index)), null));
+            } catch (ConstraintViolationException e) {
+                result.add(new BatchItemResult(index, Status.BAD_REQUEST.getStatusCode(), null, e.getMessage()));
+            } catch (RuntimeException e) {
+                int status = getStatus(e);
+                if (status < 400 || status >= 500) {
+                    throw e;
+                }
+                result.add(new BatchItemResult(index, status, null, e.getMessage()));
+            }
+        }
+
+        return result;
+    }
+
+    private static int getStatus(RuntimeException e) {
+        if (e instanceof DemoiselleRestException) {
+            return ((DemoiselleRestException) e).getStatusCode();
+        }
+        if (e instanceof WebApplicationException && ((WebApplicationException) e).getResponse() != null) {
+            return ((WebApplicationException) e).getResponse().getStatus();
+        }
+        return Status.INTERNAL_SERVER_ERROR.getStatusCode();
+    }
+
+    public void add(BatchItemResult item) {
+        items.add(item);
+    }
+
+    public List<BatchItemResult> getItems() {
+        return Collections.unmodifiableList(items);
+    }
+
+    /**
+     * @return Number of items processed
+     */
+    public long getSucceeded() {
+        return items.stream().filter(BatchItemResult::isSuccess).count();
+    }
+
+    /**
+     * @return Number of items rejected
+     */
+    public long getFailed() {
+        return items.size() - getSucceeded();
+    }
+
+}
@@ -0,0 +1,32 @@
+/*
+ * Demoiselle Framework
+ *
+ * License: GNU Lesser General Public License (LGPL), version 3 or later.
+ * See the lgpl.txt file in the root directory or <https://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.demoiselle.jee.crud.batch;
+
+import org.demoiselle.jee.crud.AbstractDAO;
+
+/**
+ * Holds the result of an update of all rows that match the filters of the request, 
+ * see {@link AbstractDAO#updateByFilter(Object)}.
+ * 
+ * @author SERPRO
+ */
+public class UpdateResult {
+
+    private final int updated;
+
+    public UpdateResult(int updated) {
+        this.updated = updated;
+    }
+
+    /**
+     * @return Number of rows updated
+     */
+    public int getUpdated() {
+        return updated;
+    }
+
+}
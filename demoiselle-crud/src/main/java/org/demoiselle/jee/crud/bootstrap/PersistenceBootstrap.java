@@ -11,6 +11,8 @@ import javax.enterprise.inject.spi.AnnotatedType;
 import javax.enterprise.inject.spi.ProcessAnnotatedType;
 import javax.persistence.Entity;
 
+import org.demoiselle.jee.crud.metadata.EntityMetadataRegistry;
+
 /**
  *
  * Adding the @Vetoed annotation to all persistent entities is considered a best
@@ -20,6 +22,9 @@ import javax.persistence.Entity;
  * http://www.cdi-spec.org/faq/ Why is @Vetoed a best practice for persistent
  * (JPA) entities?
  * 
+ * The metadata of each entity is also registered on {@link EntityMetadataRegistry}
+ * so the first requests don't pay for the reflection.
+ * 
  * @author SERPRO
  *
  */
@@ -29,6 +34,7 @@ public class PersistenceBootstrap implements javax.enterprise.inject.spi.Extensi
 	public void processAnnotatedType(@Observes final ProcessAnnotatedType pat) {
 		final AnnotatedType annotatedType = pat.getAnnotatedType();
 		if (annotatedType.getJavaClass().isAnnotationPresent(Entity.class)) {
+			EntityMetadataRegistry.register(annotatedType.getJavaClass());
 			pat.veto();
 		}
 	}
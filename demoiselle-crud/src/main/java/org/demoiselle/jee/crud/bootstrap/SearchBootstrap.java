@@ -0,0 +1,75 @@
+/*
+ * Demoiselle Framework
+ *
+ * License: GNU Lesser General Public License (LGPL), version 3 or later.
+ * See the lgpl.txt file in the root directory or <https://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.demoiselle.jee.crud.bootstrap;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.enterprise.event.Observes;
+import javax.enterprise.inject.spi.AfterBeanDiscovery;
+import javax.enterprise.inject.spi.Extension;
+import javax.enterprise.inject.spi.ProcessAnnotatedType;
+import javax.ws.rs.GET;
+
+import org.demoiselle.jee.crud.AbstractAsyncREST;
+import org.demoiselle.jee.crud.AbstractREST;
+import org.demoiselle.jee.crud.Search;
+import org.demoiselle.jee.crud.exception.DemoiselleCrudException;
+import org.demoiselle.jee.crud.metadata.SearchMetadata;
+import org.demoiselle.jee.crud.metadata.SearchMetadataRegistry;
+
+/**
+ * Register the {@link SearchMetadata} of the resource methods of all subclasses of {@link AbstractREST} and
+ * {@link AbstractAsyncREST} on {@link SearchMetadataRegistry}, so the first requests don't pay for the reflection.
+ *
+ * The fields of {@link Search#fields()} are validated against the target class and the deployment
+ * fails when one of them doesn't exist, instead of failing on the first request.
+ *
+ * @author SERPRO
+ */
+public class SearchBootstrap implements Extension {
+
+    private final List<Throwable> errors = new ArrayList<>();
+
+    @SuppressWarnings("rawtypes")
+    public void processAnnotatedType(@Observes final ProcessAnnotatedType<? extends AbstractREST> pat) {
+        register(pat.getAnnotatedType().getJavaClass());
+    }
+
+    @SuppressWarnings("rawtypes")
+    public void processAsyncAnnotatedType(@Observes final ProcessAnnotatedType<? extends AbstractAsyncREST> pat) {
+        register(pat.getAnnotatedType().getJavaClass());
+    }
+
+    private void register(Class<?> resourceClass) {
+        if (resourceClass.isInterface() || Modifier.isAbstract(resourceClass.getModifiers())) {
+            return;
+        }
+
+        for (Method method : resourceClass.getMethods()) {
+            if (method.isAnnotationPresent(GET.class) || method.isAnnotationPresent(Search.class)) {
+                SearchMetadata metadata = SearchMetadataRegistry.register(resourceClass, method);
+                try {
+                    metadata.validate();
+                }
+                catch (IllegalArgumentException e) {
+                    errors.add(new DemoiselleCrudException("The field '" + e.getMessage() + "' of @Search on "
+                            + resourceClass.getName() + "#" + method.getName() + " doesn't exist on "
+                            + metadata.getTargetClass().getName()));
+                }
+            }
+        }
+    }
+
+    public void afterBeanDiscovery(@Observes final AfterBeanDiscovery abd) {
+        errors.forEach(abd::addDefinitionError);
+        errors.clear();
+    }
+
+}
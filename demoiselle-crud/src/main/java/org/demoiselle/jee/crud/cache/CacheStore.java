@@ -0,0 +1,24 @@
+/*
+ * Demoiselle Framework
+ *
+ * License: GNU Lesser General Public License (LGPL), version 3 or later.
+ * See the lgpl.txt file in the root directory or <https://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.demoiselle.jee.crud.cache;
+
+/**
+ * Storage of the entries of a single cache used by {@link CrudCache}.
+ * 
+ * @author SERPRO
+ */
+public interface CacheStore {
+
+    Object get(String key);
+
+    void put(String key, Object value);
+
+    void remove(String key);
+
+    void clear();
+
+}
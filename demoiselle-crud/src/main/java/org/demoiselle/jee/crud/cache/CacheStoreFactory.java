@@ -0,0 +1,24 @@
+/*
+ * Demoiselle Framework
+ *
+ * License: GNU Lesser General Public License (LGPL), version 3 or later.
+ * See the lgpl.txt file in the root directory or <https://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.demoiselle.jee.crud.cache;
+
+/**
+ * Creates the {@link CacheStore}s used by {@link CrudCache}.
+ * 
+ * @author SERPRO
+ */
+@FunctionalInterface
+public interface CacheStoreFactory {
+
+    /**
+     * @param name Name of the cache
+     * @param ttl Seconds an entry is kept after created
+     * @return The store
+     */
+    CacheStore create(String name, long ttl);
+
+}
@@ -0,0 +1,61 @@
+/*
+ * Demoiselle Framework
+ *
+ * License: GNU Lesser General Public License (LGPL), version 3 or later.
+ * See the lgpl.txt file in the root directory or <https://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.demoiselle.jee.crud.cache;
+
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.ElementType.TYPE;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import org.demoiselle.jee.crud.AbstractREST;
+
+/**
+ * Annotation to be used on subclasses of {@link AbstractREST} (or on its 'GET' methods) that want the 
+ * results of 'find(id)' and 'find()' cached by {@link CrudCache}.
+ * 
+ * The entries of the entity are discarded after the commit of any persist, merge or remove of an entity of the
+ * same class. The entities are copied to the cache and each request restores its own copy (see {@link CachedCopy}), 
+ * so they should be {@link java.io.Serializable}; the entities that aren't are not cached.
+ * 
+ * The lists are cached per tenant (see {@link org.demoiselle.jee.crud.DemoiselleCrudConfig#getTenantHeader()}) 
+ * and per user. They aren't cached when the DAO overrides the methods that build the criteria 
+ * ('configureCriteriaQuery', 'configureOrder', 'buildPredicates' or 'buildLikePredicate'), since the 
+ * key can't describe the customization. A warning is logged once per DAO when the results aren't cached.
+ * 
+ * Ex.
+ * 
+ * <pre>
+ * &#64;Path("countries")
+ * &#64;Cached(ttl = 300)
+ * public class CountryREST extends AbstractREST&lt;Country, Long&gt; {
+ *    ...
+ * }
+ * </pre>
+ * 
+ * @author SERPRO
+ */
+@Documented
+@Inherited
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ TYPE, METHOD })
+public @interface Cached {
+
+    /**
+     * @return Seconds an entry is kept after created
+     */
+    int ttl() default 60;
+
+    /**
+     * @return Max number of entries of each cache or -1 to use {@link org.demoiselle.jee.crud.DemoiselleCrudConfig#getCacheMaxEntries()}
+     */
+    int maxEntries() default -1;
+
+}
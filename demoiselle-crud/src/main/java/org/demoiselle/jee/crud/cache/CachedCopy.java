@@ -0,0 +1,92 @@
+/*
+ * Demoiselle Framework
+ *
+ * License: GNU Lesser General Public License (LGPL), version 3 or later.
+ * See the lgpl.txt file in the root directory or <https://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.demoiselle.jee.crud.cache;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.Serializable;
+
+/**
+ * Serialized copy of a value shared by requests of different threads, like the entities cached by {@link CrudCache}
+ * or the result of a query coalesced by {@link org.demoiselle.jee.crud.coalesce.QueryCoalescer}.
+ * 
+ * The entities read by a request are managed by its persistence context, that isn't thread-safe, so they are 
+ * never shared: each request restores its own detached copy with {@link #restore()}.
+ * 
+ * @author SERPRO
+ */
+public final class CachedCopy implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final byte[] bytes;
+
+    private CachedCopy(byte[] bytes) {
+        this.bytes = bytes;
+    }
+
+    /**
+     * @param value Value to be copied, it and its fields should be {@link Serializable}
+     * @return The copy or null when the value is null
+     * 
+     * @throws IllegalArgumentException When the value isn't serializable
+     */
+    public static CachedCopy of(Object value) {
+        if (value == null) {
+            return null;
+        }
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (ObjectOutputStream objects = new ObjectOutputStream(output)) {
+            objects.writeObject(value);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("The value of the cache isn't serializable: " + e.getMessage(), e);
+        }
+        return new CachedCopy(output.toByteArray());
+    }
+
+    /**
+     * @return A new copy of the value
+     */
+    public Object restore() {
+        try (ObjectInputStream objects = new ContextObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return objects.readObject();
+        } catch (IOException | ClassNotFoundException e) {
+            throw new IllegalStateException("The value of the cache can't be restored: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Resolve the classes of the application, that may not be visible to the class loader of the framework.
+     */
+    private static final class ContextObjectInputStream extends ObjectInputStream {
+
+        ContextObjectInputStream(InputStream input) throws IOException {
+            super(input);
+        }
+
+        @Override
+        protected Class<?> resolveClass(ObjectStreamClass descriptor) throws IOException, ClassNotFoundException {
+            ClassLoader loader = Thread.currentThread().getContextClassLoader();
+            if (loader == null) {
+                return super.resolveClass(descriptor);
+            }
+            try {
+                return Class.forName(descriptor.getName(), false, loader);
+            } catch (ClassNotFoundException e) {
+                return super.resolveClass(descriptor);
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,59 @@
+/*
+ * Demoiselle Framework
+ *
+ * License: GNU Lesser General Public License (LGPL), version 3 or later.
+ * See the lgpl.txt file in the root directory or <https://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.demoiselle.jee.crud.cache;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.demoiselle.jee.crud.DemoiselleRequestContext;
+
+/**
+ * Cached result of 'find()' with the pagination information it produced on the {@link DemoiselleRequestContext}.
+ * 
+ * The content is kept as a {@link CachedCopy}, so each request that restores the page has its own rows, 
+ * detached from the persistence context of the request that read them.
+ * 
+ * @author SERPRO
+ */
+public final class CachedPage implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final CachedCopy content;
+    private final Long count;
+    private final Integer limit;
+    private final Boolean nextPageAvailable;
+
+    /**
+     * Copy the result and the pagination information of the request.
+     * 
+     * @param content Content of the result
+     * @param drc Context of the request that produced the result
+     */
+    public CachedPage(List<?> content, DemoiselleRequestContext drc) {
+        this.content = CachedCopy.of(new ArrayList<>(content));
+        this.count = drc.getCount();
+        this.limit = drc.getLimit();
+        this.nextPageAvailable = drc.getNextPageAvailable();
+    }
+
+    /**
+     * Restore the pagination information on the context of the actual request.
+     * 
+     * @param drc Context of the actual request
+     * @return New copy of the content
+     */
+    @SuppressWarnings("unchecked")
+    public List<Object> restore(DemoiselleRequestContext drc) {
+        drc.setCount(count);
+        drc.setLimit(limit);
+        drc.setNextPageAvailable(nextPageAvailable);
+        return (List<Object>) content.restore();
+    }
+
+}
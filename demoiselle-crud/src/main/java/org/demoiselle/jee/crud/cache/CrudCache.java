@@ -0,0 +1,249 @@
+/*
+ * Demoiselle Framework
+ *
+ * License: GNU Lesser General Public License (LGPL), version 3 or later.
+ * See the lgpl.txt file in the root directory or <https://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.demoiselle.jee.crud.cache;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import org.demoiselle.jee.crud.AbstractDAO;
+import org.demoiselle.jee.crud.DemoiselleCrudConfig;
+
+/**
+ * Cache of the results of {@link AbstractDAO#find(Object)} and {@link AbstractDAO#find()} used by 
+ * the resources annotated with {@link Cached}.
+ * 
+ * Each entity has one cache per region ('entity' or 'list') and per {@link Cached#ttl()}, created on the 
+ * JSR-107 provider found on the classpath. Since JSR-107 doesn't bound the size of a cache, the keys are 
+ * also kept on a LRU index and the least recently used entry is removed when a cache is full.
+ * 
+ * Each entity has a generation, changed by {@link #invalidate(Class)}, so a value loaded while the entity was
+ * changed isn't cached: the load may have read the rows before the commit of the change.
+ * 
+ * The cache is disabled when there isn't a JSR-107 provider or when 'demoiselle.crud.cacheEnabled' is false.
+ * 
+ * @author SERPRO
+ */
+@ApplicationScoped
+public class CrudCache {
+
+    public static final String ENTITY_REGION = "entity";
+
+    public static final String LIST_REGION = "list";
+
+    private static final Logger logger = Logger.getLogger(CrudCache.class.getName());
+
+    @Inject
+    private DemoiselleCrudConfig crudConfig;
+
+    private CacheStoreFactory factory;
+
+    private int defaultMaxEntries = 1000;
+
+    private final Map<String, Region> regions = new ConcurrentHashMap<>();
+
+    private final Map<Class<?>, AtomicLong> generations = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    private final AtomicLong evictions = new AtomicLong();
+
+    public CrudCache() {
+    }
+
+    public CrudCache(CacheStoreFactory factory, int defaultMaxEntries) {
+        this.factory = factory;
+        this.defaultMaxEntries = defaultMaxEntries;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (factory != null || crudConfig.getCacheEnabled() == Boolean.FALSE) {
+            return;
+        }
+
+        defaultMaxEntries = crudConfig.getCacheMaxEntries();
+
+        try {
+            Class.forName("javax.cache.Caching", false, CrudCache.class.getClassLoader());
+            factory = new JCacheStoreFactory();
+        } catch (ClassNotFoundException | LinkageError | RuntimeException e) {
+            logger.log(Level.WARNING, "JSR-107 provider not found, the resources annotated with @Cached will not be cached", e);
+        }
+    }
+
+    /**
+     * Return the cached value of the key or load it when the value isn't cached or is expired.
+     * 
+     * @param entityClass Entity of the value
+     * @param region {@link #ENTITY_REGION} or {@link #LIST_REGION}
+     * @param key Key of the value
+     * @param cached Configuration of the cache, the value isn't cached when null
+     * @param loader Loads the value
+     * @return The value
+     */
+    @SuppressWarnings("unchecked")
+    public <V> V get(Class<?> entityClass, String region, String key, Cached cached, Supplier<V> loader) {
+        if (factory == null || cached == null) {
+            return loader.get();
+        }
+
+        Region actual = getRegion(entityClass, region, cached);
+        Object value = actual.get(key);
+        if (value != null) {
+            hits.incrementAndGet();
+            return (V) value;
+        }
+
+        misses.incrementAndGet();
+        AtomicLong generation = getGeneration(entityClass);
+        long before = generation.get();
+        V loaded = loader.get();
+        if (loaded != null && generation.get() == before) {
+            actual.put(key, loaded);
+            // Invalidated between the check and the put
+            if (generation.get() != before) {
+                actual.remove(key);
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * Discard all entries of the entity.
+     * 
+     * @param entityClass Entity changed
+     */
+    public void invalidate(Class<?> entityClass) {
+        getGeneration(entityClass).incrementAndGet();
+        regions.values().stream()
+                .filter(actual -> actual.entityClass.equals(entityClass))
+                .forEach(Region::clear);
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * @return Number of entries removed because a cache was full
+     */
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    /**
+     * @return Hits divided by the requests or 0 before the first request
+     */
+    public double getHitRate() {
+        long requests = hits.get() + misses.get();
+        return requests == 0 ? 0 : (double) hits.get() / requests;
+    }
+
+    /**
+     * @return Number of entries on all caches
+     */
+    public int size() {
+        return regions.values().stream().mapToInt(Region::size).sum();
+    }
+
+    /**
+     * @return If there is a JSR-107 provider to store the entries
+     */
+    public boolean isEnabled() {
+        return factory != null;
+    }
+
+    private AtomicLong getGeneration(Class<?> entityClass) {
+        return generations.computeIfAbsent(entityClass, actual -> new AtomicLong());
+    }
+
+    private Region getRegion(Class<?> entityClass, String region, Cached cached) {
+        int maxEntries = cached.maxEntries() > 0 ? cached.maxEntries() : defaultMaxEntries;
+        String name = "demoiselle.crud." + entityClass.getName() + "." + region + "." + cached.ttl() + "." + maxEntries;
+        return regions.computeIfAbsent(name, actual -> new Region(entityClass, factory.create(actual, cached.ttl()), maxEntries));
+    }
+
+    /**
+     * A cache of the provider with its LRU index.
+     */
+    private final class Region {
+
+        private final Class<?> entityClass;
+        private final CacheStore store;
+        private final Map<String, Boolean> keys;
+
+        Region(Class<?> entityClass, CacheStore store, int maxEntries) {
+            this.entityClass = entityClass;
+            this.store = store;
+            this.keys = Collections.synchronizedMap(new LinkedHashMap<String, Boolean>(16, 0.75f, true) {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                    if (size() > maxEntries) {
+                        store.remove(eldest.getKey());
+                        evictions.incrementAndGet();
+                        return true;
+                    }
+                    return false;
+                }
+            });
+        }
+
+        Object get(String key) {
+            Object value = store.get(key);
+            if (value == null) {
+                keys.remove(key);
+            }
+            else {
+                keys.get(key);
+            }
+            return value;
+        }
+
+        void put(String key, Object value) {
+            try {
+                store.put(key, value);
+                keys.put(key, Boolean.TRUE);
+            } catch (RuntimeException e) {
+                logger.log(Level.WARNING, "Value of " + entityClass.getName() + " can't be cached", e);
+            }
+        }
+
+        void remove(String key) {
+            keys.remove(key);
+            store.remove(key);
+        }
+
+        void clear() {
+            keys.clear();
+            store.clear();
+        }
+
+        int size() {
+            return keys.size();
+        }
+
+    }
+
+}
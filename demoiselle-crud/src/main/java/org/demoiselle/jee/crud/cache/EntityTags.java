@@ -0,0 +1,163 @@
+/*
+ * Demoiselle Framework
+ *
+ * License: GNU Lesser General Public License (LGPL), version 3 or later.
+ * See the lgpl.txt file in the root directory or <https://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.demoiselle.jee.crud.cache;
+
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import javax.persistence.Entity;
+
+import org.demoiselle.jee.crud.DemoiselleRequestContext;
+import org.demoiselle.jee.crud.metadata.EntityMetadata;
+import org.demoiselle.jee.crud.metadata.EntityMetadataRegistry;
+
+/**
+ * Build and compare the strong 'ETag' of the CRUD responses.
+ * 
+ * The tag of an entity comes from its id and {@link javax.persistence.Version} field, or its 
+ * {@link org.demoiselle.jee.crud.LastModified} field when it has no version, so it can be computed by a query 
+ * that selects only that field and it changes with the associations and collections of the entity as long as 
+ * the application keeps the field up to date. Rows projected by the DAO are tagged by a digest of their values. 
+ * Other objects, like entities without those fields, DTOs or files, are not tagged at all, since a 
+ * digest of their fields would miss the changes of their collections and associations. The tag of a page 
+ * is a digest of the tags of its rows and of the pagination, and a page with an untagged row is not tagged.
+ * 
+ * @author SERPRO
+ */
+public final class EntityTags {
+
+    private EntityTags() {
+    }
+
+    /**
+     * Tag of a versioned entity.
+     * 
+     * @param id Id of the entity
+     * @param version Value of the version field
+     * @return The quoted tag
+     */
+    public static String ofVersion(Object id, Object version) {
+        // Date.toString() drops the milliseconds
+        Object value = version instanceof Date ? ((Date) version).getTime() : version;
+        return quote(digest(new StringBuilder().append(id).append(':').append(value)));
+    }
+
+    /**
+     * Return the field that tags the entities of the metadata: the {@link javax.persistence.Version} field
+     * or, when absent, the {@link org.demoiselle.jee.crud.LastModified} field.
+     * 
+     * @param metadata Metadata of the entity
+     * @return Name of the field or null when the entity can't be tagged
+     */
+    public static String getTagAttribute(EntityMetadata metadata) {
+        if (metadata.getIdAttribute() == null) {
+            return null;
+        }
+        return metadata.getVersionAttribute() != null ? metadata.getVersionAttribute() : metadata.getLastModifiedAttribute();
+    }
+
+    /**
+     * Tag of a single entity or projected row.
+     * 
+     * @param entity Entity or row
+     * @return The quoted tag or null when the object can't be tagged
+     */
+    public static String of(Object entity) {
+        if (entity instanceof Map) {
+            return quote(digest(entity.toString()));
+        }
+
+        // Only entities are registered on the EntityMetadataRegistry, DTOs and files are not tagged
+        EntityMetadata metadata = entity.getClass().isAnnotationPresent(Entity.class) ? EntityMetadataRegistry.get(entity.getClass()) : null;
+        String tagAttribute = metadata == null ? null : getTagAttribute(metadata);
+        if (tagAttribute == null) {
+            return null;
+        }
+
+        return ofVersion(read(metadata.getField(metadata.getIdAttribute()), entity), read(metadata.getField(tagAttribute), entity));
+    }
+
+    /**
+     * Tag of a page of 'find()'.
+     * 
+     * @param content Rows of the page
+     * @param drc Context with the pagination of the page
+     * @return The quoted tag or null when a row can't be tagged
+     */
+    public static String ofPage(List<?> content, DemoiselleRequestContext drc) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(drc.getOffset()).append(':').append(drc.getLimit()).append(':').append(drc.getCount())
+                .append(':').append(drc.getNextCursor() == null ? null : drc.getNextCursor().encode());
+
+        for (Object row : content) {
+            String tag = row == null ? "null" : of(row);
+            if (tag == null) {
+                return null;
+            }
+            sb.append('|').append(tag);
+        }
+
+        return quote(digest(sb));
+    }
+
+    /**
+     * Check the value of the 'If-None-Match' header against the tag of the response.
+     * 
+     * @param ifNoneMatch Value of the header or null
+     * @param entityTag Quoted tag of the response or null
+     * @return true if the client already has the response
+     */
+    public static boolean matches(String ifNoneMatch, String entityTag) {
+        if (ifNoneMatch == null || entityTag == null) {
+            return false;
+        }
+
+        for (String candidate : ifNoneMatch.split(",")) {
+            String actual = candidate.trim();
+            if (actual.startsWith("W/")) {
+                actual = actual.substring(2);
+            }
+            if ("*".equals(actual) || entityTag.equals(actual)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static Object read(Field field, Object object) {
+        try {
+            field.setAccessible(true);
+            return field.get(object);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Field " + field.getName() + " can't be read", e);
+        }
+    }
+
+    private static String digest(CharSequence value) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(value.toString().getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(32);
+            for (int i = 0; i < 16; i++) {
+                hex.append(Character.forDigit((hash[i] >> 4) & 0xF, 16)).append(Character.forDigit(hash[i] & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String quote(String value) {
+        return "\"" + value + "\"";
+    }
+
+}
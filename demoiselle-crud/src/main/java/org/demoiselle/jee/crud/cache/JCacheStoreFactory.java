@@ -0,0 +1,81 @@
+/*
+ * Demoiselle Framework
+ *
+ * License: GNU Lesser General Public License (LGPL), version 3 or later.
+ * See the lgpl.txt file in the root directory or <https://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.demoiselle.jee.crud.cache;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.configuration.MutableConfiguration;
+import javax.cache.expiry.CreatedExpiryPolicy;
+import javax.cache.expiry.Duration;
+import javax.enterprise.inject.Vetoed;
+
+/**
+ * {@link CacheStoreFactory} backed by the default JSR-107 provider found on the classpath.
+ * 
+ * @author SERPRO
+ */
+@Vetoed
+public class JCacheStoreFactory implements CacheStoreFactory {
+
+    private final CacheManager cacheManager;
+
+    /**
+     * @throws javax.cache.CacheException There isn't a single JSR-107 provider on the classpath
+     */
+    public JCacheStoreFactory() {
+        this.cacheManager = Caching.getCachingProvider().getCacheManager();
+    }
+
+    @Override
+    public CacheStore create(String name, long ttl) {
+        Cache<String, Object> cache = cacheManager.getCache(name, String.class, Object.class);
+
+        if (cache == null) {
+            MutableConfiguration<String, Object> configuration = new MutableConfiguration<String, Object>()
+                    .setTypes(String.class, Object.class)
+                    .setExpiryPolicyFactory(CreatedExpiryPolicy.factoryOf(new Duration(TimeUnit.SECONDS, ttl)))
+                    .setStatisticsEnabled(true);
+            cache = cacheManager.createCache(name, configuration);
+        }
+
+        return new JCacheStore(cache);
+    }
+
+    private static final class JCacheStore implements CacheStore {
+
+        private final Cache<String, Object> cache;
+
+        JCacheStore(Cache<String, Object> cache) {
+            this.cache = cache;
+        }
+
+        @Override
+        public Object get(String key) {
+            return cache.get(key);
+        }
+
+        @Override
+        public void put(String key, Object value) {
+            cache.put(key, value);
+        }
+
+        @Override
+        public void remove(String key) {
+            cache.remove(key);
+        }
+
+        @Override
+        public void clear() {
+            cache.clear();
+        }
+
+    }
+
+}
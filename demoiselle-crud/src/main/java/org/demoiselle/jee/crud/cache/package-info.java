@@ -0,0 +1,13 @@
+/*
+ * Demoiselle Framework
+ *
+ * License: GNU Lesser General Public License (LGPL), version 3 or later.
+ * See the lgpl.txt file in the root directory or <https://www.gnu.org/licenses/lgpl.html>.
+ */
+
+/**
+ * This package is intended to contain as related classes about the cache of results used by Demoiselle CRUD Framework.
+ *
+ * @author SERPRO
+ */
+package org.demoiselle.jee.crud.cache;
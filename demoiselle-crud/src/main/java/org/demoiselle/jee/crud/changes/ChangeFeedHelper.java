@@ -0,0 +1,112 @@
+/*
+ * Demoiselle Framework
+ *
+ * License: GNU Lesser General Public License (LGPL), version 3 or later.
+ * See the lgpl.txt file in the root directory or <https://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.demoiselle.jee.crud.changes;
+
+import java.util.logging.Logger;
+
+import javax.enterprise.context.RequestScoped;
+import javax.inject.Inject;
+import javax.ws.rs.container.ResourceInfo;
+import javax.ws.rs.core.UriInfo;
+
+import org.demoiselle.jee.crud.AbstractDAO;
+import org.demoiselle.jee.crud.DemoiselleRequestContext;
+import org.demoiselle.jee.crud.LastModified;
+import org.demoiselle.jee.crud.metadata.EntityMetadata;
+import org.demoiselle.jee.crud.metadata.EntityMetadataRegistry;
+import org.demoiselle.jee.crud.metadata.SearchMetadataRegistry;
+import org.demoiselle.jee.crud.request.RequestSpec;
+
+/**
+ * Class responsible for managing the 'since' parameter comes from Url Query String.
+ *
+ * Ex:
+ *
+ * Given the requests
+ * <pre>
+ * GET {@literal http://localhost:8080/api/users?since=}
+ * GET {@literal http://localhost:8080/api/users?since=<X-Since-Token of the previous response>}
+ * </pre>
+ *
+ * This class will processing the requests above and fill the {@link DemoiselleRequestContext#setSince(SinceToken)}.
+ * The first request of a client (empty 'since') returns all rows, the next ones only the rows inserted or updated
+ * after the token, by the field annotated with {@link LastModified}, and the ids removed after it as
+ * '{"id": 1, "_removed": true}'. Each response has the 'X-Since-Token' header, the high-water mark of the
+ * next request, and the status 206 while there are more changes to be read, see {@link AbstractDAO}.
+ *
+ * The filters of the request are applied to the rows but not to the tombstones.
+ *
+ * @author SERPRO
+ */
+@RequestScoped
+public class ChangeFeedHelper {
+
+    private static final Logger logger = Logger.getLogger(ChangeFeedHelper.class.getName());
+
+    private ResourceInfo resourceInfo;
+
+    private UriInfo uriInfo;
+
+    @Inject
+    private DemoiselleRequestContext drc;
+
+    @Inject
+    private ChangeFeedHelperMessage changeFeedHelperMessage;
+
+    public ChangeFeedHelper() {
+    }
+
+    public ChangeFeedHelper(ResourceInfo resourceInfo, UriInfo uriInfo, DemoiselleRequestContext drc, ChangeFeedHelperMessage changeFeedHelperMessage) {
+        this.resourceInfo = resourceInfo;
+        this.uriInfo = uriInfo;
+        this.drc = drc;
+        this.changeFeedHelperMessage = changeFeedHelperMessage;
+    }
+
+    /**
+     * Open the request query string to extract the value from 'since' parameter and fill the
+     * {@link DemoiselleRequestContext#setSince(SinceToken)}, disabling the pagination.
+     *
+     * @param resourceInfo ResourceInfo
+     * @param uriInfo UriInfo
+     */
+    public void execute(ResourceInfo resourceInfo, UriInfo uriInfo) {
+        this.resourceInfo = resourceInfo == null ? this.resourceInfo : resourceInfo;
+        this.uriInfo = uriInfo == null ? this.uriInfo : uriInfo;
+
+        RequestSpec spec = RequestSpec.of(drc, this.uriInfo);
+
+        drc.setSince(null);
+        drc.setNextSince(null);
+
+        if (!spec.isSincePresent()) {
+            return;
+        }
+
+        if (spec.isRangePresent() || spec.isCursorPresent() || spec.isAggregationPresent()) {
+            throw new IllegalArgumentException(changeFeedHelperMessage.sinceWithPagination());
+        }
+
+        Class<?> targetClass = SearchMetadataRegistry.get(this.resourceInfo).getTargetClass();
+        EntityMetadata metadata = EntityMetadataRegistry.get(targetClass);
+
+        if (metadata.getLastModifiedAttribute() == null || metadata.getIdAttribute() == null) {
+            throw new IllegalArgumentException(changeFeedHelperMessage.changeFeedNotEnabled(targetClass.getSimpleName()));
+        }
+
+        try {
+            drc.setSince(SinceToken.decode(spec.getSince(), metadata));
+        } catch (RuntimeException e) {
+            String message = changeFeedHelperMessage.invalidSinceParameter();
+            logger.warning(message + ", [params: " + spec.getSince() + "]");
+            throw new IllegalArgumentException(message);
+        }
+
+        drc.setPaginationEnabled(Boolean.FALSE);
+    }
+
+}
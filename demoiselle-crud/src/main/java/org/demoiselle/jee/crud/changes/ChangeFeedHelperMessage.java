@@ -0,0 +1,30 @@
+/*
+ * Demoiselle Framework
+ *
+ * License: GNU Lesser General Public License (LGPL), version 3 or later.
+ * See the lgpl.txt file in the root directory or <https://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.demoiselle.jee.crud.changes;
+
+import org.apache.deltaspike.core.api.message.MessageBundle;
+import org.apache.deltaspike.core.api.message.MessageTemplate;
+
+/**
+ * 
+ * Messages used to inform user about Change Feed feature
+ * 
+ * @author SERPRO
+ */
+@MessageBundle
+public interface ChangeFeedHelperMessage {
+
+    @MessageTemplate("{change-feed-not-enabled}")
+    String changeFeedNotEnabled(String entity);
+
+    @MessageTemplate("{since-with-pagination}")
+    String sinceWithPagination();
+
+    @MessageTemplate("{invalid-since-parameter}")
+    String invalidSinceParameter();
+
+}
@@ -0,0 +1,110 @@
+/*
+ * Demoiselle Framework
+ *
+ * License: GNU Lesser General Public License (LGPL), version 3 or later.
+ * See the lgpl.txt file in the root directory or <https://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.demoiselle.jee.crud.changes;
+
+import java.io.Serializable;
+import java.util.Date;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+import javax.persistence.Temporal;
+import javax.persistence.TemporalType;
+
+/**
+ * Record of the removal of a row of an entity with change feed, written by
+ * {@link org.demoiselle.jee.crud.AbstractDAO} in the same transaction of the removal and
+ * returned to the clients of the feed as a tombstone.
+ *
+ * The entity should be listed on the persistence unit of the application that uses
+ * {@link org.demoiselle.jee.crud.LastModified}, the old records may be deleted by the application
+ * once all clients are synchronized.
+ *
+ * @author SERPRO
+ */
+@Entity
+@Table(name = "CRUD_TOMBSTONE", indexes = @Index(name = "IDX_CRUD_TOMBSTONE_ENTITY", columnList = "ENTITY_NAME, REMOVED_AT, ID"))
+public class CrudTombstone implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Attribute of the rows returned by the change feed for the removed ids, like '{"id": 1, "_removed": true}'.
+     */
+    public static final String REMOVED_ATTRIBUTE = "_removed";
+
+    @Id
+    @GeneratedValue
+    @Column(name = "ID")
+    private Long id;
+
+    @Column(name = "ENTITY_NAME", nullable = false, length = 255)
+    private String entityName;
+
+    @Column(name = "ENTITY_ID", nullable = false, length = 255)
+    private String entityId;
+
+    @Temporal(TemporalType.TIMESTAMP)
+    @Column(name = "REMOVED_AT", nullable = false)
+    private Date removedAt;
+
+    public CrudTombstone() {
+    }
+
+    public CrudTombstone(String entityName, String entityId, Date removedAt) {
+        this.entityName = entityName;
+        this.entityId = entityId;
+        this.removedAt = removedAt;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    /**
+     * @return Name of the class of the removed entity
+     */
+    public String getEntityName() {
+        return entityName;
+    }
+
+    public void setEntityName(String entityName) {
+        this.entityName = entityName;
+    }
+
+    /**
+     * @return Id of the removed row, as text
+     */
+    public String getEntityId() {
+        return entityId;
+    }
+
+    public void setEntityId(String entityId) {
+        this.entityId = entityId;
+    }
+
+    public Date getRemovedAt() {
+        return removedAt;
+    }
+
+    public void setRemovedAt(Date removedAt) {
+        this.removedAt = removedAt;
+    }
+
+    @Override
+    public String toString() {
+        return "CrudTombstone [id=" + id + ", entityName=" + entityName + ", entityId=" + entityId + ", removedAt=" + removedAt + "]";
+    }
+
+}
@@ -0,0 +1,160 @@
+/*
+ * Demoiselle Framework
+ *
+ * License: GNU Lesser General Public License (LGPL), version 3 or later.
+ * See the lgpl.txt file in the root directory or <https://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.demoiselle.jee.crud.changes;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.demoiselle.jee.crud.metadata.EntityMetadata;
+import org.demoiselle.jee.crud.metadata.EntityMetadataRegistry;
+import org.demoiselle.jee.crud.pagination.KeysetCursor;
+import org.demoiselle.jee.crud.sort.CrudSort;
+import org.demoiselle.jee.crud.sort.SortModel;
+
+/**
+ * Opaque high-water mark of the change feed, the value of the 'since' parameter.
+ *
+ * The token holds two {@link KeysetCursor}s: the position of the last row returned, ordered by the
+ * {@link org.demoiselle.jee.crud.LastModified} field and by the id, and the position of the last
+ * {@link CrudTombstone} returned, ordered by the time of the removal and by its id. A null cursor
+ * means nothing was returned yet, so the next request starts from the first row or tombstone.
+ *
+ * The empty token is the first request of a client: it returns all rows and no tombstones, because
+ * the removals before it don't matter to a client without rows.
+ *
+ * @author SERPRO
+ */
+public final class SinceToken {
+
+    private static final String SEPARATOR = ".";
+
+    private static final SinceToken INITIAL = new SinceToken(true, null, null);
+
+    private static final List<SortModel> TOMBSTONE_SORTS = Collections.unmodifiableList(Arrays.asList(
+            new SortModel(CrudSort.ASC, "removedAt"), new SortModel(CrudSort.ASC, "id")));
+
+    private final boolean initial;
+    private final KeysetCursor rowsCursor;
+    private final KeysetCursor tombstonesCursor;
+
+    private SinceToken(boolean initial, KeysetCursor rowsCursor, KeysetCursor tombstonesCursor) {
+        this.initial = initial;
+        this.rowsCursor = rowsCursor;
+        this.tombstonesCursor = tombstonesCursor;
+    }
+
+    /**
+     * @return The token of the first request of a client
+     */
+    public static SinceToken initial() {
+        return INITIAL;
+    }
+
+    /**
+     * Create the token that points to the last row and to the last tombstone returned.
+     *
+     * @param rowsCursor Position of the last row or null when no row was returned yet
+     * @param tombstonesCursor Position of the last tombstone or null when no tombstone was returned yet
+     * @return The token
+     */
+    public static SinceToken of(KeysetCursor rowsCursor, KeysetCursor tombstonesCursor) {
+        return new SinceToken(false, rowsCursor, tombstonesCursor);
+    }
+
+    /**
+     * Decode a token produced by {@link #encode()} and check it against the entity.
+     *
+     * @param token Value of the 'since' parameter, null or empty for the first request
+     * @param metadata Metadata of the entity
+     * @return The token
+     *
+     * @throws IllegalArgumentException When the token is invalid or was built for other entity
+     */
+    public static SinceToken decode(String token, EntityMetadata metadata) {
+        if (token == null || token.isEmpty()) {
+            return INITIAL;
+        }
+
+        int separator = token.indexOf(SEPARATOR);
+        if (separator < 0 || token.indexOf(SEPARATOR, separator + 1) >= 0) {
+            throw new IllegalArgumentException("Invalid since token");
+        }
+
+        String rows = token.substring(0, separator);
+        String tombstones = token.substring(separator + 1);
+
+        SinceToken result = of(rows.isEmpty() ? null : KeysetCursor.decode(rows), tombstones.isEmpty() ? null : KeysetCursor.decode(tombstones));
+        result.getRowsValues(metadata);
+        result.getTombstonesValues();
+
+        return result;
+    }
+
+    /**
+     * @return Token used on the 'since' parameter
+     */
+    public String encode() {
+        if (initial) {
+            return "";
+        }
+        return (rowsCursor == null ? "" : rowsCursor.encode()) + SEPARATOR + (tombstonesCursor == null ? "" : tombstonesCursor.encode());
+    }
+
+    /**
+     * Return the order of the rows on the feed: the field of the change feed and the id as tie-breaker.
+     *
+     * @param metadata Metadata of the entity
+     * @return Sorts of the rows
+     */
+    public static List<SortModel> rowsSorts(EntityMetadata metadata) {
+        return KeysetCursor.keysetSorts(metadata, Collections.singletonList(new SortModel(CrudSort.ASC, metadata.getLastModifiedAttribute())));
+    }
+
+    /**
+     * @return Order of the tombstones on the feed: the time of the removal and the id as tie-breaker
+     */
+    public static List<SortModel> tombstonesSorts() {
+        return TOMBSTONE_SORTS;
+    }
+
+    /**
+     * @return If this is the token of the first request of a client
+     */
+    public boolean isInitial() {
+        return initial;
+    }
+
+    public KeysetCursor getRowsCursor() {
+        return rowsCursor;
+    }
+
+    public KeysetCursor getTombstonesCursor() {
+        return tombstonesCursor;
+    }
+
+    /**
+     * @param metadata Metadata of the entity
+     * @return Values of the last row returned or null when no row was returned yet
+     */
+    public List<Object> getRowsValues(EntityMetadata metadata) {
+        return rowsCursor == null ? null : rowsCursor.getValues(metadata, rowsSorts(metadata));
+    }
+
+    /**
+     * @return Values of the last tombstone returned or null when no tombstone was returned yet
+     */
+    public List<Object> getTombstonesValues() {
+        return tombstonesCursor == null ? null : tombstonesCursor.getValues(EntityMetadataRegistry.get(CrudTombstone.class), TOMBSTONE_SORTS);
+    }
+
+    @Override
+    public String toString() {
+        return "SinceToken [initial=" + initial + ", rowsCursor=" + rowsCursor + ", tombstonesCursor=" + tombstonesCursor + "]";
+    }
+
+}
@@ -0,0 +1,26 @@
+/*
+ * Demoiselle Framework
+ *
+ * License: GNU Lesser General Public License (LGPL), version 3 or later.
+ * See the lgpl.txt file in the root directory or <https://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.demoiselle.jee.crud.coalesce;
+
+/**
+ * Which requests can share the result of a {@link Coalesced} query.
+ *
+ * @author SERPRO
+ */
+public enum CoalesceScope {
+
+    /**
+     * Only the requests of the same user and tenant, for the resources whose rows depend on the user.
+     */
+    PRINCIPAL,
+
+    /**
+     * The requests of all users of the same tenant, for the resources whose rows are the same for every user.
+     */
+    TENANT
+
+}
@@ -0,0 +1,56 @@
+/*
+ * Demoiselle Framework
+ *
+ * License: GNU Lesser General Public License (LGPL), version 3 or later.
+ * See the lgpl.txt file in the root directory or <https://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.demoiselle.jee.crud.coalesce;
+
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.ElementType.TYPE;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import org.demoiselle.jee.crud.AbstractREST;
+
+/**
+ * Annotation to be used on subclasses of {@link AbstractREST} (or on its 'GET' methods) that want the 
+ * identical concurrent requests of 'find()' answered by a single execution of the queries, see {@link QueryCoalescer}.
+ * 
+ * Requests are identical when they have the same filters, sorts, fields and range and are visible to the 
+ * same {@link #scope()}. Each request receives its own copy of the rows, detached from the persistence context 
+ * that read them (see {@link org.demoiselle.jee.crud.cache.CachedCopy}), so the entities should be 
+ * {@link java.io.Serializable} and their lazy associations aren't loaded.
+ * 
+ * The requests aren't coalesced when the entity isn't serializable or the DAO overrides the methods that 
+ * build the criteria ('configureCriteriaQuery', 'configureOrder', 'buildPredicates' or 'buildLikePredicate'), 
+ * since the key of the request can't describe the customization. A warning is logged once per DAO.
+ * 
+ * Ex.
+ * 
+ * <pre>
+ * &#64;Path("products")
+ * &#64;Coalesced(scope = CoalesceScope.TENANT)
+ * public class ProductREST extends AbstractREST&lt;Product, Long&gt; {
+ *    ...
+ * }
+ * </pre>
+ * 
+ * @author SERPRO
+ */
+@Documented
+@Inherited
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ TYPE, METHOD })
+public @interface Coalesced {
+
+    /**
+     * @return Which requests can share a result
+     */
+    CoalesceScope scope() default CoalesceScope.PRINCIPAL;
+
+}
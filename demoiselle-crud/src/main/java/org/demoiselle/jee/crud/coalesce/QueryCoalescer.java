@@ -0,0 +1,108 @@
+/*
+ * Demoiselle Framework
+ *
+ * License: GNU Lesser General Public License (LGPL), version 3 or later.
+ * See the lgpl.txt file in the root directory or <https://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.demoiselle.jee.crud.coalesce;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import javax.enterprise.context.ApplicationScoped;
+
+import org.demoiselle.jee.crud.AbstractDAO;
+
+/**
+ * Single-flight execution of the queries of {@link AbstractDAO#find()} for the resources annotated 
+ * with {@link Coalesced}.
+ *
+ * The first request of a key executes the query and the identical requests that arrive while it 
+ * is running wait for it and receive the same result, or the same exception. The key is removed 
+ * as soon as the query completes, so nothing is kept between executions: the results are cached 
+ * only by {@link org.demoiselle.jee.crud.cache.Cached}.
+ *
+ * @author SERPRO
+ */
+@ApplicationScoped
+public class QueryCoalescer {
+
+    private final Map<String, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
+    private final AtomicLong executions = new AtomicLong();
+
+    private final AtomicLong coalesced = new AtomicLong();
+
+    /**
+     * Return the result of the query of the key in execution or execute the 'loader'.
+     *
+     * @param key Key of the query, including the scope of the request
+     * @param loader Executes the query
+     * @return The result
+     */
+    @SuppressWarnings("unchecked")
+    public <V> V execute(String key, Supplier<V> loader) {
+        CompletableFuture<Object> created = new CompletableFuture<>();
+        CompletableFuture<Object> running = inFlight.putIfAbsent(key, created);
+
+        if (running != null) {
+            coalesced.incrementAndGet();
+            return (V) await(running);
+        }
+
+        executions.incrementAndGet();
+        try {
+            V value = loader.get();
+            inFlight.remove(key, created);
+            created.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            inFlight.remove(key, created);
+            created.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private static Object await(CompletableFuture<Object> running) {
+        try {
+            return running.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * @return Number of queries executed
+     */
+    public long getExecutions() {
+        return executions.get();
+    }
+
+    /**
+     * @return Number of requests answered by the query of other request
+     */
+    public long getCoalesced() {
+        return coalesced.get();
+    }
+
+    /**
+     * @return Number of queries in execution
+     */
+    public int size() {
+        return inFlight.size();
+    }
+
+}
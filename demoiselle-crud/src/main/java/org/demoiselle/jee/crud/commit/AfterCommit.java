@@ -0,0 +1,31 @@
+/*
+ * Demoiselle Framework
+ *
+ * License: GNU Lesser General Public License (LGPL), version 3 or later.
+ * See the lgpl.txt file in the root directory or <https://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.demoiselle.jee.crud.commit;
+
+/**
+ * Event fired by {@link org.demoiselle.jee.crud.AbstractDAO} with a task that should run only after the 
+ * commit of the actual transaction, like the invalidation of the caches: a cache invalidated before the 
+ * commit could be filled again by a concurrent request with the data not yet committed.
+ *
+ * The task is executed by {@link AfterCommitObserver}, immediately when there is no transaction and 
+ * never when the transaction is rolled back.
+ *
+ * @author SERPRO
+ */
+public final class AfterCommit {
+
+    private final Runnable task;
+
+    public AfterCommit(Runnable task) {
+        this.task = task;
+    }
+
+    public Runnable getTask() {
+        return task;
+    }
+
+}
@@ -0,0 +1,35 @@
+/*
+ * Demoiselle Framework
+ *
+ * License: GNU Lesser General Public License (LGPL), version 3 or later.
+ * See the lgpl.txt file in the root directory or <https://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.demoiselle.jee.crud.commit;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.enterprise.event.TransactionPhase;
+
+/**
+ * Execute the tasks of {@link AfterCommit} after the successful completion of the transaction.
+ *
+ * @author SERPRO
+ */
+@ApplicationScoped
+public class AfterCommitObserver {
+
+    private static final Logger logger = Logger.getLogger(AfterCommitObserver.class.getName());
+
+    public void execute(@Observes(during = TransactionPhase.AFTER_SUCCESS) AfterCommit event) {
+        try {
+            event.getTask().run();
+        } catch (RuntimeException e) {
+            // The transaction is already committed, the failure can't change the response
+            logger.log(Level.WARNING, "Task after the commit failed", e);
+        }
+    }
+
+}
@@ -33,4 +33,8 @@ public class DemoiselleCrudException extends DemoiselleRestException {
         super(message, cause);
     }
 
+    public DemoiselleCrudException(String message, int statusCode) {
+        super(message, statusCode);
+    }
+
 }
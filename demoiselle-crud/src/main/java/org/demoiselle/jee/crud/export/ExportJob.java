@@ -0,0 +1,274 @@
+/*
+ * Demoiselle Framework
+ *
+ * License: GNU Lesser General Public License (LGPL), version 3 or later.
+ * See the lgpl.txt file in the root directory or <https://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.demoiselle.jee.crud.export;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
+
+import org.demoiselle.jee.crud.stream.StreamFormat;
+
+/**
+ * An export of the rows of a resource to a compressed file, executed in background by {@link ExportManager}.
+ *
+ * The job keeps the query string of the request that started it and, after each chunk written, the
+ * cursor of the next chunk and the length of the file. This state is saved on the export directory,
+ * so a job stopped by an error or by a crash of the server continues from the last chunk written.
+ *
+ * Only the public getters are part of the status returned to the user.
+ *
+ * @author SERPRO
+ */
+public final class ExportJob {
+
+    private static final String ID = "id";
+    private static final String OWNER = "owner";
+    private static final String RESOURCE_CLASS = "resourceClass";
+    private static final String RESOURCE_METHOD = "resourceMethod";
+    private static final String FORMAT = "format";
+    private static final String PARAMETERS = "parameters";
+    private static final String CREATED = "created";
+    private static final String STATUS = "status";
+    private static final String ROWS = "rows";
+    private static final String CHUNKS = "chunks";
+    private static final String LENGTH = "length";
+    private static final String CURSOR = "cursor";
+    private static final String ERROR = "error";
+    private static final String UPDATED = "updated";
+
+    private final String id;
+    private final String owner;
+    private final String resourceClass;
+    private final String resourceMethod;
+    private final StreamFormat format;
+    private final Map<String, List<String>> parameters;
+    private final Date created;
+
+    private ExportStatus status = ExportStatus.QUEUED;
+    private long rows;
+    private int chunks;
+    private long length;
+    private String cursor;
+    private String error;
+    private Date updated;
+
+    private ExportJob(String id, String owner, String resourceClass, String resourceMethod, StreamFormat format,
+            Map<String, List<String>> parameters, Date created) {
+        this.id = id;
+        this.owner = owner;
+        this.resourceClass = resourceClass;
+        this.resourceMethod = resourceMethod;
+        this.format = format;
+        this.parameters = Collections.unmodifiableMap(parameters);
+        this.created = created;
+        this.updated = created;
+    }
+
+    /**
+     * Create a new queued job.
+     *
+     * @param owner User that started the export
+     * @param resourceClass Resource class of the request
+     * @param resourceMethod Name of the resource method, whose {@link org.demoiselle.jee.crud.Search} is respected
+     * @param format Format of the rows on the file
+     * @param parameters Query string of the request, with the filters, sorts and fields
+     * @return The job
+     */
+    public static ExportJob create(String owner, Class<?> resourceClass, String resourceMethod, StreamFormat format, Map<String, List<String>> parameters) {
+        Map<String, List<String>> copy = new LinkedHashMap<>();
+        parameters.forEach((key, values) -> copy.put(key, Collections.unmodifiableList(new ArrayList<>(values))));
+        return new ExportJob(UUID.randomUUID().toString(), owner, resourceClass.getName(), resourceMethod, format, copy, new Date());
+    }
+
+    /**
+     * Read a job saved by {@link #toProperties()}.
+     *
+     * @param properties State of the job
+     * @return The job
+     */
+    static ExportJob of(Properties properties) {
+        ExportJob job = new ExportJob(properties.getProperty(ID), properties.getProperty(OWNER), properties.getProperty(RESOURCE_CLASS),
+                properties.getProperty(RESOURCE_METHOD), StreamFormat.valueOf(properties.getProperty(FORMAT)),
+                decodeParameters(properties.getProperty(PARAMETERS, "")), new Date(Long.parseLong(properties.getProperty(CREATED))));
+
+        job.status = ExportStatus.valueOf(properties.getProperty(STATUS));
+        job.rows = Long.parseLong(properties.getProperty(ROWS, "0"));
+        job.chunks = Integer.parseInt(properties.getProperty(CHUNKS, "0"));
+        job.length = Long.parseLong(properties.getProperty(LENGTH, "0"));
+        job.cursor = properties.getProperty(CURSOR);
+        job.error = properties.getProperty(ERROR);
+        job.updated = new Date(Long.parseLong(properties.getProperty(UPDATED, properties.getProperty(CREATED))));
+        return job;
+    }
+
+    /**
+     * @return The state of the job, read back by {@link #of(Properties)}
+     */
+    synchronized Properties toProperties() {
+        Properties properties = new Properties();
+        properties.setProperty(ID, id);
+        properties.setProperty(OWNER, owner);
+        properties.setProperty(RESOURCE_CLASS, resourceClass);
+        properties.setProperty(RESOURCE_METHOD, resourceMethod);
+        properties.setProperty(FORMAT, format.name());
+        properties.setProperty(PARAMETERS, encodeParameters(parameters));
+        properties.setProperty(CREATED, String.valueOf(created.getTime()));
+        properties.setProperty(STATUS, status.name());
+        properties.setProperty(ROWS, String.valueOf(rows));
+        properties.setProperty(CHUNKS, String.valueOf(chunks));
+        properties.setProperty(LENGTH, String.valueOf(length));
+        properties.setProperty(UPDATED, String.valueOf(updated.getTime()));
+        if (cursor != null) {
+            properties.setProperty(CURSOR, cursor);
+        }
+        if (error != null) {
+            properties.setProperty(ERROR, error);
+        }
+        return properties;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public synchronized ExportStatus getStatus() {
+        return status;
+    }
+
+    public StreamFormat getFormat() {
+        return format;
+    }
+
+    /**
+     * @return Number of rows already written on the file
+     */
+    public synchronized long getRows() {
+        return rows;
+    }
+
+    /**
+     * @return Number of chunks already written on the file
+     */
+    public synchronized int getChunks() {
+        return chunks;
+    }
+
+    public Date getCreated() {
+        return created;
+    }
+
+    public synchronized Date getUpdated() {
+        return updated;
+    }
+
+    /**
+     * @return Message of the error that stopped the job or null
+     */
+    public synchronized String getError() {
+        return error;
+    }
+
+    String getOwner() {
+        return owner;
+    }
+
+    String getResourceClass() {
+        return resourceClass;
+    }
+
+    String getResourceMethod() {
+        return resourceMethod;
+    }
+
+    Map<String, List<String>> getParameters() {
+        return parameters;
+    }
+
+    /**
+     * @return Length of the file confirmed by the last chunk, what is after it is discarded when the job continues
+     */
+    synchronized long getLength() {
+        return length;
+    }
+
+    /**
+     * @return Cursor of the next chunk or null before the first chunk
+     */
+    synchronized String getCursor() {
+        return cursor;
+    }
+
+    synchronized void setStatus(ExportStatus status, String error) {
+        this.status = status;
+        this.error = error;
+        this.updated = new Date();
+    }
+
+    /**
+     * Register a chunk written on the file.
+     *
+     * @param cursor Cursor of the next chunk, null after the last chunk
+     * @param rows Number of rows of the chunk
+     * @param length Length of the file after the chunk
+     */
+    synchronized void checkpoint(String cursor, int rows, long length) {
+        this.cursor = cursor;
+        this.rows += rows;
+        this.chunks++;
+        this.length = length;
+        this.updated = new Date();
+    }
+
+    private static String encodeParameters(Map<String, List<String>> parameters) {
+        StringBuilder sb = new StringBuilder();
+        try {
+            for (Map.Entry<String, List<String>> parameter : parameters.entrySet()) {
+                for (String value : parameter.getValue()) {
+                    sb.append(sb.length() == 0 ? "" : "&").append(URLEncoder.encode(parameter.getKey(), StandardCharsets.UTF_8.name()))
+                            .append('=').append(URLEncoder.encode(value, StandardCharsets.UTF_8.name()));
+                }
+            }
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+        return sb.toString();
+    }
+
+    private static Map<String, List<String>> decodeParameters(String query) {
+        Map<String, List<String>> parameters = new LinkedHashMap<>();
+        try {
+            for (String parameter : query.split("&")) {
+                if (parameter.isEmpty()) {
+                    continue;
+                }
+                int separator = parameter.indexOf('=');
+                String key = URLDecoder.decode(parameter.substring(0, separator), StandardCharsets.UTF_8.name());
+                String value = URLDecoder.decode(parameter.substring(separator + 1), StandardCharsets.UTF_8.name());
+                parameters.computeIfAbsent(key, k -> new ArrayList<>()).add(value);
+            }
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+        return parameters;
+    }
+
+    @Override
+    public String toString() {
+        return "ExportJob [id=" + id + ", owner=" + owner + ", resourceClass=" + resourceClass + ", status=" + status
+                + ", rows=" + rows + ", chunks=" + chunks + "]";
+    }
+
+}
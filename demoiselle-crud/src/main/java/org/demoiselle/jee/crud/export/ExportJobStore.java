@@ -0,0 +1,113 @@
+/*
+ * Demoiselle Framework
+ *
+ * License: GNU Lesser General Public License (LGPL), version 3 or later.
+ * See the lgpl.txt file in the root directory or <https://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.demoiselle.jee.crud.export;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+import org.demoiselle.jee.crud.stream.StreamFormat;
+
+/**
+ * Keep the {@link ExportJob}s and their files on the export directory.
+ *
+ * Each job is saved on '&lt;id&gt;.job', replaced atomically after each chunk, and its rows on
+ * '&lt;id&gt;.ndjson.gz' or '&lt;id&gt;.json.gz'.
+ *
+ * @author SERPRO
+ */
+final class ExportJobStore {
+
+    private static final Logger logger = Logger.getLogger(ExportJobStore.class.getName());
+
+    private static final String JOB_EXTENSION = ".job";
+
+    private final Path directory;
+
+    ExportJobStore(Path directory) {
+        this.directory = directory;
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Save the state of the job, replacing the previous one.
+     *
+     * @param job Job to be saved
+     */
+    void save(ExportJob job) {
+        Path file = directory.resolve(job.getId() + JOB_EXTENSION);
+        Path temporary = directory.resolve(job.getId() + JOB_EXTENSION + ".tmp");
+
+        try {
+            try (OutputStream output = Files.newOutputStream(temporary)) {
+                job.toProperties().store(output, null);
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @return All jobs saved on the directory, the unreadable ones are ignored
+     */
+    List<ExportJob> loadAll() {
+        List<ExportJob> jobs = new ArrayList<>();
+
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + JOB_EXTENSION)) {
+            for (Path file : files) {
+                try (InputStream input = Files.newInputStream(file)) {
+                    Properties properties = new Properties();
+                    properties.load(input);
+                    jobs.add(ExportJob.of(properties));
+                } catch (IOException | RuntimeException e) {
+                    logger.warning("Export job ignored, " + file + ": " + e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return jobs;
+    }
+
+    /**
+     * Delete the state and the file of the job.
+     *
+     * @param job Job to be deleted
+     */
+    void delete(ExportJob job) {
+        try {
+            Files.deleteIfExists(getFile(job));
+            Files.deleteIfExists(directory.resolve(job.getId() + JOB_EXTENSION));
+        } catch (IOException e) {
+            logger.warning("Export job not deleted, " + job.getId() + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * @param job The job
+     * @return The compressed file with the rows of the job
+     */
+    Path getFile(ExportJob job) {
+        return directory.resolve(job.getId() + (job.getFormat() == StreamFormat.NDJSON ? ".ndjson.gz" : ".json.gz"));
+    }
+
+}
@@ -0,0 +1,497 @@
+/*
+ * Demoiselle Framework
+ *
+ * License: GNU Lesser General Public License (LGPL), version 3 or later.
+ * See the lgpl.txt file in the root directory or <https://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.demoiselle.jee.crud.export;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.inject.Instance;
+import javax.inject.Inject;
+import javax.ws.rs.container.ResourceInfo;
+import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.ext.Providers;
+
+import org.demoiselle.jee.core.api.security.Token;
+import org.demoiselle.jee.crud.AbstractBusiness;
+import org.demoiselle.jee.crud.CrudMessage;
+import org.demoiselle.jee.crud.DemoiselleCrudConfig;
+import org.demoiselle.jee.crud.DemoiselleRequestContext;
+import org.demoiselle.jee.crud.DemoiselleRequestContextImpl;
+import org.demoiselle.jee.crud.FieldTree;
+import org.demoiselle.jee.crud.ResponseProjection;
+import org.demoiselle.jee.crud.Search;
+import org.demoiselle.jee.crud.async.AsyncRequestContext;
+import org.demoiselle.jee.crud.async.AsyncTransaction;
+import org.demoiselle.jee.crud.async.CrudThreadFactory;
+import org.demoiselle.jee.crud.exception.DemoiselleCrudException;
+import org.demoiselle.jee.crud.field.FieldHelper;
+import org.demoiselle.jee.crud.field.FieldHelperMessage;
+import org.demoiselle.jee.crud.filter.FilterHelper;
+import org.demoiselle.jee.crud.metadata.SearchMetadata;
+import org.demoiselle.jee.crud.metadata.SearchMetadataRegistry;
+import org.demoiselle.jee.crud.pagination.KeysetCursor;
+import org.demoiselle.jee.crud.pagination.PaginationType;
+import org.demoiselle.jee.crud.request.RequestSpec;
+import org.demoiselle.jee.crud.sort.SortHelper;
+import org.demoiselle.jee.crud.sort.SortHelperMessage;
+import org.demoiselle.jee.crud.stream.ResultStreamingOutput;
+import org.demoiselle.jee.crud.stream.StreamFormat;
+
+/**
+ * Execute the {@link ExportJob}s in background, apart from the requests.
+ *
+ * The jobs run on 'demoiselle.crud.exportPoolSize' threads of low priority, created by the ManagedThreadFactory
+ * of the container (see {@link CrudThreadFactory}), so a long export doesn't hold a thread of the requests nor
+ * compete with the interactive requests for them. The {@link Token} of the request that started or resumed
+ * the job is set on the injected token while the job runs, see {@link AsyncRequestContext#run(Runnable, Token)}. Each job reads
+ * the rows by keyset chunks of 'demoiselle.crud.exportChunkSize' rows (see {@link AbstractBusiness#findChunk(int)}),
+ * each chunk read and converted on its own short transaction, with the same filters, sorts and fields of a 'find()' and
+ * respecting the {@link Search} annotation of the resource method.
+ *
+ * Each chunk is appended to the file as a gzip member, so the file is a valid gzip at every chunk, and
+ * the job is saved on 'demoiselle.crud.exportDirectory' after it. A job stopped by an error or by a crash
+ * of the server is resumed by {@link #resume(String, String, AbstractBusiness, Providers)}, that discards
+ * what was written after the last chunk saved and continues from its cursor.
+ *
+ * A user can't have more than 'demoiselle.crud.exportMaxJobsPerUser' jobs queued or running at the same time.
+ * A job is only seen by the user that started it and on the resource where it was started. The jobs that
+ * aren't queued or running are discarded, with their files, 'demoiselle.crud.exportRetention' seconds after
+ * the last change.
+ *
+ * @author SERPRO
+ */
+@ApplicationScoped
+public class ExportManager {
+
+    private static final Logger logger = Logger.getLogger(ExportManager.class.getName());
+
+    private static final int TOO_MANY_REQUESTS = 429;
+
+    private static final String LIMIT_MESSAGE = "Limite de exportações simultâneas atingido, aguarde a conclusão das exportações em andamento";
+
+    private static final String NOT_RESUMABLE_MESSAGE = "A exportação não pode ser retomada";
+
+    private static final String FILE_CHANGED_MESSAGE = "O arquivo da exportação foi alterado";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final long KEEP_ALIVE_SECONDS = 60;
+
+    private static final long PURGE_INTERVAL = TimeUnit.MINUTES.toMillis(1);
+
+    @Inject
+    private DemoiselleCrudConfig crudConfig;
+
+    @Inject
+    private AsyncTransaction transaction;
+
+    @Inject
+    private SortHelperMessage sortHelperMessage;
+
+    @Inject
+    private FieldHelperMessage fieldHelperMessage;
+
+    @Inject
+    private CrudMessage crudMessage;
+
+    @Inject
+    private Instance<Token> token;
+
+    private ExportJobStore store;
+
+    private ThreadPoolExecutor executor;
+
+    private int chunkSize;
+
+    private int maxJobsPerUser;
+
+    private long retention;
+
+    private volatile long nextPurge;
+
+    private final Map<String, ExportJob> jobs = new ConcurrentHashMap<>();
+
+    public ExportManager() {
+    }
+
+    public ExportManager(Path directory, int poolSize, int chunkSize, int maxJobsPerUser, int retention) {
+        open(directory, poolSize, chunkSize, maxJobsPerUser, retention, CrudThreadFactory.DEFAULT_MANAGED_THREAD_FACTORY);
+    }
+
+    @PostConstruct
+    public void init() {
+        if (executor == null) {
+            open(Paths.get(crudConfig.getExportDirectory()), crudConfig.getExportPoolSize(), crudConfig.getExportChunkSize(),
+                    crudConfig.getExportMaxJobsPerUser(), crudConfig.getExportRetention(), crudConfig.getManagedThreadFactory());
+        }
+    }
+
+    /**
+     * Stop the jobs, the running ones are saved as {@link ExportStatus#INTERRUPTED} at the end of the actual chunk.
+     */
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+        try {
+            executor.awaitTermination(KEEP_ALIVE_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        jobs.values().stream().filter(job -> job.getStatus() == ExportStatus.QUEUED).forEach(job -> {
+            job.setStatus(ExportStatus.INTERRUPTED, null);
+            store.save(job);
+        });
+    }
+
+    /**
+     * Load the jobs of the directory, the ones left queued or running by a crash are marked as {@link ExportStatus#INTERRUPTED}.
+     */
+    private void open(Path directory, int poolSize, int chunkSize, int maxJobsPerUser, int retention, String managedThreadFactory) {
+        this.store = new ExportJobStore(directory);
+        this.chunkSize = chunkSize;
+        this.maxJobsPerUser = maxJobsPerUser;
+        this.retention = TimeUnit.SECONDS.toMillis(retention);
+
+        for (ExportJob job : store.loadAll()) {
+            if (job.getStatus().isActive()) {
+                job.setStatus(ExportStatus.INTERRUPTED, null);
+                store.save(job);
+            }
+            jobs.put(job.getId(), job);
+        }
+
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), new CrudThreadFactory(managedThreadFactory, "demoiselle-crud-export-", Thread.MIN_PRIORITY));
+        this.executor.allowCoreThreadTimeOut(true);
+        purgeExpired();
+    }
+
+    /**
+     * Start the export of the rows of a resource.
+     *
+     * The parameters are validated like on a 'find()' before the job is accepted.
+     *
+     * @param bc Business of the resource, used to read the rows
+     * @param resourceInfo Resource class and method of the request, the method {@link Search} is respected
+     * @param parameters Query string of the request
+     * @param format Format of the rows on the file
+     * @param owner User that starts the export
+     * @param providers Providers of the application, used to write the rows
+     * @return The job
+     *
+     * @throws IllegalArgumentException When the parameters are invalid
+     * @throws DemoiselleCrudException When the user already has the max number of jobs
+     */
+    public synchronized ExportJob start(AbstractBusiness<?, ?> bc, ResourceInfo resourceInfo, Map<String, List<String>> parameters,
+            StreamFormat format, String owner, Providers providers) {
+        // The ResourceInfo of the request isn't valid after it
+        ResourceInfo jobResourceInfo = new ExportResourceInfo(resourceInfo.getResourceClass(), resourceInfo.getResourceMethod());
+        createContext(jobResourceInfo, parameters);
+        purgeExpired();
+        checkLimit(owner);
+
+        ExportJob job = ExportJob.create(owner, jobResourceInfo.getResourceClass(), jobResourceInfo.getResourceMethod().getName(), format, parameters);
+        jobs.put(job.getId(), job);
+        submit(job, bc, jobResourceInfo, providers);
+
+        return job;
+    }
+
+    /**
+     * Continue a job stopped by an error or by a crash from the last chunk written.
+     *
+     * @param id Id of the job
+     * @param owner User that started the export
+     * @param resourceClass Resource of the request, the same where the job was started
+     * @param bc Business of the resource, used to read the rows
+     * @param providers Providers of the application, used to write the rows
+     * @return The job or null when the user doesn't have a job with the id on the resource
+     *
+     * @throws DemoiselleCrudException When the job isn't stopped or the user already has the max number of jobs
+     */
+    public synchronized ExportJob resume(String id, String owner, Class<?> resourceClass, AbstractBusiness<?, ?> bc, Providers providers) {
+        ExportJob job = get(id, owner, resourceClass);
+        if (job == null) {
+            return null;
+        }
+        if (!job.getStatus().isResumable()) {
+            throw new DemoiselleCrudException(NOT_RESUMABLE_MESSAGE, Status.CONFLICT.getStatusCode());
+        }
+        checkLimit(owner);
+
+        job.setStatus(ExportStatus.QUEUED, null);
+        submit(job, bc, toResourceInfo(job), providers);
+
+        return job;
+    }
+
+    /**
+     * @param id Id of the job
+     * @param owner User that started the export
+     * @param resourceClass Resource of the request, the same where the job was started
+     * @return The job or null when the user doesn't have a job with the id on the resource
+     */
+    public ExportJob get(String id, String owner, Class<?> resourceClass) {
+        if (System.currentTimeMillis() >= nextPurge) {
+            purgeExpired();
+        }
+
+        ExportJob job = id == null ? null : jobs.get(id);
+        return job != null && job.getOwner().equals(owner) && job.getResourceClass().equals(resourceClass.getName()) ? job : null;
+    }
+
+    /**
+     * @param job The job
+     * @return The compressed file with the rows written by the job
+     */
+    public File getFile(ExportJob job) {
+        return store.getFile(job).toFile();
+    }
+
+    /**
+     * @return Number of jobs waiting for a thread
+     */
+    public int getQueueSize() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * Discard the jobs, and their files, that aren't queued or running and weren't changed for the retention time.
+     */
+    private synchronized void purgeExpired() {
+        long now = System.currentTimeMillis();
+        nextPurge = now + PURGE_INTERVAL;
+
+        jobs.values().removeIf(job -> {
+            boolean expired = !job.getStatus().isActive() && now - job.getUpdated().getTime() > retention;
+            if (expired) {
+                store.delete(job);
+            }
+            return expired;
+        });
+    }
+
+    private void checkLimit(String owner) {
+        long active = jobs.values().stream().filter(job -> job.getOwner().equals(owner) && job.getStatus().isActive()).count();
+        if (active >= maxJobsPerUser) {
+            throw new DemoiselleCrudException(LIMIT_MESSAGE, TOO_MANY_REQUESTS);
+        }
+    }
+
+    private void submit(ExportJob job, AbstractBusiness<?, ?> bc, ResourceInfo resourceInfo, Providers providers) {
+        store.save(job);
+        executor.execute(new ExportTask(job, bc, resourceInfo, providers, AsyncRequestContext.capture(null, getToken())));
+    }
+
+    private Token getToken() {
+        if (token == null || token.isUnsatisfied() || token.isAmbiguous()) {
+            return null;
+        }
+        return token.get();
+    }
+
+    /**
+     * Parse the query string of the job with the same helpers used by {@link org.demoiselle.jee.crud.CrudFilter}.
+     */
+    private DemoiselleRequestContext createContext(ResourceInfo resourceInfo, Map<String, List<String>> parameters) {
+        DemoiselleRequestContext context = new DemoiselleRequestContextImpl();
+        context.setRequestSpec(RequestSpec.parse(parameters));
+
+        new SortHelper(resourceInfo, null, context, sortHelperMessage, crudMessage).execute(resourceInfo, null);
+        new FilterHelper(resourceInfo, null, context, crudMessage).execute(resourceInfo, null);
+        new FieldHelper(resourceInfo, null, context, fieldHelperMessage, crudMessage).execute(resourceInfo, null);
+
+        context.setPaginationEnabled(Boolean.TRUE);
+        context.setPaginationType(PaginationType.KEYSET);
+
+        return context;
+    }
+
+    /**
+     * Resource class and method of a job, found by the names saved with it.
+     */
+    private static ResourceInfo toResourceInfo(ExportJob job) {
+        try {
+            Class<?> resourceClass = Class.forName(job.getResourceClass(), true, Thread.currentThread().getContextClassLoader());
+            Method resourceMethod = null;
+            for (Method method : resourceClass.getMethods()) {
+                if (method.getName().equals(job.getResourceMethod()) && (resourceMethod == null || method.isAnnotationPresent(Search.class))) {
+                    resourceMethod = method;
+                }
+            }
+            return new ExportResourceInfo(resourceClass, resourceMethod);
+        } catch (ClassNotFoundException e) {
+            throw new DemoiselleCrudException(NOT_RESUMABLE_MESSAGE, e);
+        }
+    }
+
+    /**
+     * Append a chunk to the file as a new gzip member, after the length confirmed by the last chunk.
+     *
+     * @return Length of the file after the chunk
+     */
+    private long writeChunk(ExportJob job, List<?> rows, boolean last, Providers providers) throws IOException {
+        long length = job.getLength();
+
+        try (FileChannel channel = FileChannel.open(store.getFile(job), StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            if (channel.size() < length) {
+                throw new IOException(FILE_CHANGED_MESSAGE);
+            }
+            // Discard what an interrupted job wrote after the last chunk saved
+            channel.truncate(length).position(length);
+
+            try (GZIPOutputStream output = new GZIPOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE)) {
+                boolean first = job.getRows() == 0;
+                if (first && job.getFormat() == StreamFormat.JSON_ARRAY) {
+                    output.write('[');
+                }
+
+                new ResultStreamingOutput(rows, job.getFormat(), providers, Function.identity()).writeRows(output, first);
+
+                if (last && job.getFormat() == StreamFormat.JSON_ARRAY) {
+                    output.write(']');
+                }
+
+                output.finish();
+                channel.force(false);
+                return channel.size();
+            }
+        }
+    }
+
+    private final class ExportTask implements Runnable {
+
+        private final ExportJob job;
+        private final AbstractBusiness<?, ?> bc;
+        private final ResourceInfo resourceInfo;
+        private final Providers providers;
+        private final AsyncRequestContext requestContext;
+
+        private ExportTask(ExportJob job, AbstractBusiness<?, ?> bc, ResourceInfo resourceInfo, Providers providers, AsyncRequestContext requestContext) {
+            this.job = job;
+            this.bc = bc;
+            this.resourceInfo = resourceInfo;
+            this.providers = providers;
+            this.requestContext = requestContext;
+        }
+
+        @Override
+        public void run() {
+            try {
+                job.setStatus(ExportStatus.RUNNING, null);
+                store.save(job);
+
+                AsyncRequestContext context = AsyncRequestContext.capture(createContext(resourceInfo, job.getParameters()), requestContext.getToken());
+                context.run(() -> export(context.getRequestContext()), getToken());
+            } catch (ExportInterruptedException e) {
+                stop(ExportStatus.INTERRUPTED, null);
+            } catch (Exception e) {
+                if (Thread.currentThread().isInterrupted()) {
+                    stop(ExportStatus.INTERRUPTED, null);
+                } else {
+                    logger.log(Level.SEVERE, "Export " + job.getId() + " failed", e);
+                    stop(ExportStatus.FAILED, e.getMessage());
+                }
+            }
+        }
+
+        /**
+         * Save the final status of the job, with the interruption cleared while saved because it closes the file.
+         */
+        private void stop(ExportStatus status, String error) {
+            boolean interrupted = Thread.interrupted();
+            job.setStatus(status, error);
+            store.save(job);
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void export(DemoiselleRequestContext context) {
+            SearchMetadata searchMetadata = SearchMetadataRegistry.get(resourceInfo);
+            FieldTree fields = context.getFields() != null ? FieldTree.of(context.getFields()) : searchMetadata.getFieldTree();
+            Class<?> targetClass = searchMetadata.getTargetClass();
+            Function<Object, Object> converter = row -> fields == null || row instanceof Map ? row
+                    : ResponseProjection.of(row.getClass(), targetClass, fields).apply(row);
+
+            boolean last = false;
+            while (!last) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new ExportInterruptedException();
+                }
+
+                context.setCursor(job.getCursor() == null ? null : KeysetCursor.decode(job.getCursor()));
+                // Converted before the transaction of the chunk ends, while the entities are managed
+                List<?> rows = transaction.execute(() -> bc.findChunk(chunkSize).stream().map(converter).collect(Collectors.toList()));
+                KeysetCursor nextCursor = context.getNextCursor();
+                last = nextCursor == null;
+
+                try {
+                    long length = writeChunk(job, rows, last, providers);
+                    job.checkpoint(last ? null : nextCursor.encode(), rows.size(), length);
+                } catch (IOException e) {
+                    throw new DemoiselleCrudException(e.getMessage(), e);
+                }
+                store.save(job);
+            }
+
+            job.setStatus(ExportStatus.COMPLETED, null);
+            store.save(job);
+        }
+
+    }
+
+    private static final class ExportInterruptedException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+    }
+
+    private static final class ExportResourceInfo implements ResourceInfo {
+
+        private final Class<?> resourceClass;
+        private final Method resourceMethod;
+
+        private ExportResourceInfo(Class<?> resourceClass, Method resourceMethod) {
+            this.resourceClass = resourceClass;
+            this.resourceMethod = resourceMethod;
+        }
+
+        @Override
+        public Method getResourceMethod() {
+            return resourceMethod;
+        }
+
+        @Override
+        public Class<?> getResourceClass() {
+            return resourceClass;
+        }
+
+    }
+
+}
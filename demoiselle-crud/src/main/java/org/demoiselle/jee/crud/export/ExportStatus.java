@@ -0,0 +1,55 @@
+/*
+ * Demoiselle Framework
+ *
+ * License: GNU Lesser General Public License (LGPL), version 3 or later.
+ * See the lgpl.txt file in the root directory or <https://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.demoiselle.jee.crud.export;
+
+/**
+ * Status of an {@link ExportJob}.
+ *
+ * @author SERPRO
+ */
+public enum ExportStatus {
+
+    /**
+     * Waiting for a thread of {@link ExportManager}.
+     */
+    QUEUED,
+
+    /**
+     * Reading the rows and writing the file.
+     */
+    RUNNING,
+
+    /**
+     * The file has all rows and can be downloaded.
+     */
+    COMPLETED,
+
+    /**
+     * Stopped by an error, can be resumed from the last chunk written.
+     */
+    FAILED,
+
+    /**
+     * Stopped by the shutdown or by a crash of the server, can be resumed from the last chunk written.
+     */
+    INTERRUPTED;
+
+    /**
+     * @return true if the job is queued or running
+     */
+    public boolean isActive() {
+        return this == QUEUED || this == RUNNING;
+    }
+
+    /**
+     * @return true if the job was stopped before the end and can continue from the last chunk written
+     */
+    public boolean isResumable() {
+        return this == FAILED || this == INTERRUPTED;
+    }
+
+}
@@ -6,10 +6,9 @@
  */
 package org.demoiselle.jee.crud.field;
 
-import java.util.LinkedList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
 
 import javax.enterprise.context.RequestScoped;
 import javax.inject.Inject;
@@ -21,6 +20,8 @@ import org.demoiselle.jee.crud.CrudUtilHelper;
 import org.demoiselle.jee.crud.DemoiselleRequestContext;
 import org.demoiselle.jee.crud.ReservedKeyWords;
 import org.demoiselle.jee.crud.TreeNodeField;
+import org.demoiselle.jee.crud.metadata.SearchMetadataRegistry;
+import org.demoiselle.jee.crud.request.RequestSpec;
 
 /**
  * Class responsible for managing the 'fields' parameter comes from Url Query String.
@@ -84,16 +85,13 @@ public class FieldHelper {
          * 
          */
         
-        List<String> queryStringFields = new LinkedList<>();
-        uriInfo.getQueryParameters().forEach((key, values) -> {
-            if (ReservedKeyWords.DEFAULT_FIELD_KEY.getKey().equalsIgnoreCase(key)) {
-                values.forEach(value -> {
-                    queryStringFields.addAll(extractFields(value));
-                });
-            }
-        });
+        RequestSpec spec = RequestSpec.of(drc, this.uriInfo);
+        if (spec.getMalformedFields() != null) {
+            throw new IllegalArgumentException(this.fieldHelperMessage.fieldRequestMalFormed(ReservedKeyWords.DEFAULT_FIELD_KEY.getKey(), spec.getMalformedFields()));
+        }
+        List<String> queryStringFields = spec.getFields();
         
-        TreeNodeField<String, Set<String>> tnf = new TreeNodeField<>(CrudUtilHelper.getTargetClass(this.resourceInfo.getResourceClass()).getName(), ConcurrentHashMap.newKeySet(1));
+        TreeNodeField<String, Set<String>> tnf = new TreeNodeField<>(SearchMetadataRegistry.get(this.resourceInfo).getTargetClass().getName(), Collections.emptySet());
         
         if(!queryStringFields.isEmpty()) {
             queryStringFields.forEach((field) -> {
@@ -121,19 +119,11 @@ public class FieldHelper {
             
             drc.setFields(tnf);
         }
-        
-    }
-    
-
-    private List<String> extractFields(String fields){
-
-        try{
-            return CrudUtilHelper.extractFields(fields);
-        }
-        catch(IllegalArgumentException e){
-            throw new IllegalArgumentException(this.fieldHelperMessage.fieldRequestMalFormed(ReservedKeyWords.DEFAULT_FIELD_KEY.getKey(), fields));
+        else {
+            // Fields from @Search.fields, so AbstractDAO can select only them
+            drc.setFields(CrudUtilHelper.extractFieldsFromSearchAnnotation(this.resourceInfo));
         }
+        
     }
-    
 
 }
@@ -6,10 +6,10 @@
  */
 package org.demoiselle.jee.crud.filter;
 
+import java.util.Collections;
 import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
 
 import javax.enterprise.context.RequestScoped;
 import javax.inject.Inject;
@@ -19,8 +19,9 @@ import javax.ws.rs.core.UriInfo;
 import org.demoiselle.jee.crud.CrudMessage;
 import org.demoiselle.jee.crud.CrudUtilHelper;
 import org.demoiselle.jee.crud.DemoiselleRequestContext;
-import org.demoiselle.jee.crud.ReservedKeyWords;
 import org.demoiselle.jee.crud.TreeNodeField;
+import org.demoiselle.jee.crud.metadata.SearchMetadataRegistry;
+import org.demoiselle.jee.crud.request.RequestSpec;
 
 /**
  * Class responsible for managing the 'filter' parameter comes from Url Query String.
@@ -70,25 +71,13 @@ public class FilterHelper {
         this.resourceInfo = resourceInfo == null ? this.resourceInfo : resourceInfo;
         this.uriInfo = uriInfo == null ? this.uriInfo : uriInfo;
         
-        Map<String, Set<String>> filters = new ConcurrentHashMap<>(5);
+        Map<String, Set<String>> filters = RequestSpec.of(drc, this.uriInfo).getFilters();
         
-        uriInfo.getQueryParameters().forEach((key, values) ->{
-            if(!isReservedKey(key)){
-                Set<String> paramValues = new LinkedHashSet<>();
-                
-                values.stream().forEach(value -> {
-                    paramValues.addAll(CrudUtilHelper.extractFields(value));
-                });
-                
-                filters.putIfAbsent(key, paramValues);
-            }
-        });
-        
-        TreeNodeField<String, Set<String>> tnf = new TreeNodeField<>(CrudUtilHelper.getTargetClass(this.resourceInfo.getResourceClass()).getName(), ConcurrentHashMap.newKeySet(1));
+        TreeNodeField<String, Set<String>> tnf = new TreeNodeField<>(SearchMetadataRegistry.get(this.resourceInfo).getTargetClass().getName(), Collections.emptySet());
         
         if(!filters.isEmpty()){
             filters.forEach( (key, value) ->
-                CrudUtilHelper.fillLeafTreeNodeField(tnf, key, value)
+                CrudUtilHelper.fillLeafTreeNodeField(tnf, key, new LinkedHashSet<>(value))
             );
             
             CrudUtilHelper.validateFields(tnf, this.resourceInfo, this.crudMessage);
@@ -97,11 +86,4 @@ public class FilterHelper {
         }
         
     }
-
-    private Boolean isReservedKey(String key) {
-        return key.equalsIgnoreCase(ReservedKeyWords.DEFAULT_RANGE_KEY.getKey()) 
-                || key.equalsIgnoreCase(ReservedKeyWords.DEFAULT_SORT_DESC_KEY.getKey()) 
-                || key.equalsIgnoreCase(ReservedKeyWords.DEFAULT_SORT_KEY.getKey())
-                || key.equalsIgnoreCase(ReservedKeyWords.DEFAULT_FIELD_KEY.getKey());
-    }
 }
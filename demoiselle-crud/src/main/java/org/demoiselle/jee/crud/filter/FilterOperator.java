@@ -0,0 +1,46 @@
+/*
+ * Demoiselle Framework
+ *
+ * License: GNU Lesser General Public License (LGPL), version 3 or later.
+ * See the lgpl.txt file in the root directory or <https://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.demoiselle.jee.crud.filter;
+
+/**
+ * Enum to hold the operators that a filter value can be translated to.
+ * 
+ * Ex:
+ * <pre>
+ * ?name=null       - NULL
+ * ?name=*john*     - LIKE
+ * ?active=true     - TRUE
+ * ?active=false    - FALSE
+ * ?status=ACTIVE   - ENUM (when 'status' is an enum)
+ * ?uuid=...        - UUID (when 'uuid' is a UUID)
+ * ?name=john       - EQUAL
+ * ?name=*john*     - INDEXED or NONE (when 'name' is {@link org.demoiselle.jee.crud.SearchIndexed})
+ * </pre>
+ * 
+ * @author SERPRO
+ */
+public enum FilterOperator {
+
+    NULL,
+    EMPTY,
+    LIKE,
+    TRUE,
+    FALSE,
+    ENUM,
+    UUID,
+    EQUAL,
+    INDEXED,
+    NONE;
+
+    /**
+     * @return true if the operator compares the field with a value
+     */
+    public boolean hasValue() {
+        return this == LIKE || this == ENUM || this == UUID || this == EQUAL || this == INDEXED;
+    }
+
+}
@@ -0,0 +1,184 @@
+/*
+ * Demoiselle Framework
+ *
+ * License: GNU Lesser General Public License (LGPL), version 3 or later.
+ * See the lgpl.txt file in the root directory or <https://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.demoiselle.jee.crud.guard;
+
+import java.lang.reflect.Field;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import javax.enterprise.context.RequestScoped;
+import javax.inject.Inject;
+import javax.ws.rs.container.ResourceInfo;
+import javax.ws.rs.core.UriInfo;
+
+import org.demoiselle.jee.crud.AbstractDAO;
+import org.demoiselle.jee.crud.DemoiselleCrudConfig;
+import org.demoiselle.jee.crud.DemoiselleRequestContext;
+import org.demoiselle.jee.crud.Search;
+import org.demoiselle.jee.crud.TreeNodeField;
+import org.demoiselle.jee.crud.metadata.EntityMetadata;
+import org.demoiselle.jee.crud.metadata.EntityMetadataRegistry;
+import org.demoiselle.jee.crud.metadata.SearchMetadata;
+import org.demoiselle.jee.crud.metadata.SearchMetadataRegistry;
+import org.demoiselle.jee.crud.sort.SortModel;
+
+/**
+ * Class responsible for the query guardrails of the request, applied after the other helpers.
+ *
+ * Ex:
+ *
+ * Given the method
+ * <pre>
+ * &#64;GET
+ * &#64;Search(fields={"*"}, indexed={"id", "code"}, queryTimeout = 2000, maxRows = 10000)
+ * public Result find(){
+ *    ...
+ * }
+ * </pre>
+ *
+ * The request 'GET ?description=*a*' or 'GET ?sort=notes' is rejected, because only 'id' and 'code' can 
+ * be filtered and sorted, as well as the request 'GET ?range=0-10000', that reads more than 10000 rows. 
+ * The timeout and the max rows are filled on {@link DemoiselleRequestContext#setQueryTimeout(Integer)} and 
+ * {@link DemoiselleRequestContext#setMaxRows(Integer)} and applied by {@link AbstractDAO} to the queries.
+ *
+ * The methods without {@link Search#indexed()} accept any field, unless 
+ * {@link DemoiselleCrudConfig#getIndexedFiltersOnly()} is enabled, then they accept the fields indexed by the 
+ * mapping of the entity, see {@link EntityMetadata#getIndexedAttributes()}.
+ *
+ * Every rejection is counted by {@link QueryGuardMetrics}.
+ *
+ * @author SERPRO
+ */
+@RequestScoped
+public class QueryGuardHelper {
+
+    private ResourceInfo resourceInfo;
+
+    private UriInfo uriInfo;
+
+    @Inject
+    private DemoiselleRequestContext drc;
+
+    @Inject
+    private DemoiselleCrudConfig crudConfig;
+
+    @Inject
+    private QueryGuardHelperMessage queryGuardHelperMessage;
+
+    @Inject
+    private QueryGuardMetrics queryGuardMetrics;
+
+    public QueryGuardHelper() {
+    }
+
+    public QueryGuardHelper(ResourceInfo resourceInfo, UriInfo uriInfo, DemoiselleRequestContext drc, DemoiselleCrudConfig crudConfig, 
+            QueryGuardHelperMessage queryGuardHelperMessage, QueryGuardMetrics queryGuardMetrics) {
+        this.resourceInfo = resourceInfo;
+        this.uriInfo = uriInfo;
+        this.drc = drc;
+        this.crudConfig = crudConfig;
+        this.queryGuardHelperMessage = queryGuardHelperMessage;
+        this.queryGuardMetrics = queryGuardMetrics;
+    }
+
+    /**
+     * Check the filters, sorts and range already filled on the {@link DemoiselleRequestContext} and 
+     * fill the {@link DemoiselleRequestContext#setQueryTimeout(Integer)} and 
+     * {@link DemoiselleRequestContext#setMaxRows(Integer)}.
+     *
+     * @param resourceInfo ResourceInfo
+     * @param uriInfo UriInfo
+     */
+    public void execute(ResourceInfo resourceInfo, UriInfo uriInfo) {
+        this.resourceInfo = resourceInfo == null ? this.resourceInfo : resourceInfo;
+        this.uriInfo = uriInfo == null ? this.uriInfo : uriInfo;
+
+        SearchMetadata searchMetadata = SearchMetadataRegistry.get(this.resourceInfo);
+        Search search = searchMetadata.getSearch();
+        String endpoint = this.resourceInfo.getResourceClass().getSimpleName() + "." + this.resourceInfo.getResourceMethod().getName();
+
+        int queryTimeout = search != null && search.queryTimeout() >= 0 ? search.queryTimeout() : getConfig(crudConfig == null ? null : crudConfig.getQueryTimeout());
+        int maxRows = search != null && search.maxRows() >= 0 ? search.maxRows() : getConfig(crudConfig == null ? null : crudConfig.getMaxRows());
+
+        drc.setQueryTimeout(queryTimeout > 0 ? queryTimeout : null);
+        drc.setMaxRows(maxRows > 0 ? maxRows : null);
+
+        Set<String> indexed = getIndexedFields(searchMetadata);
+        if (indexed != null) {
+            checkFilters(indexed, endpoint);
+            checkSorts(indexed, endpoint);
+        }
+
+        if (maxRows > 0 && drc.isPaginationEnabled() && drc.getLimit() != null && drc.getLimit() + 1 > maxRows) {
+            String rows = String.valueOf(drc.getLimit() + 1);
+            queryGuardMetrics.record(QueryGuardViolation.MAX_ROWS, endpoint, rows);
+            throw new IllegalArgumentException(queryGuardHelperMessage.maxRowsExceeded(rows, String.valueOf(maxRows)));
+        }
+    }
+
+    private void checkFilters(Set<String> indexed, String endpoint) {
+        if (drc.getFilters() == null) {
+            return;
+        }
+
+        for (TreeNodeField<String, Set<String>> child : drc.getFilters().getChildren()) {
+            if (!contains(indexed, child.getKey())) {
+                queryGuardMetrics.record(QueryGuardViolation.UNINDEXED_FILTER, endpoint, child.getKey());
+                throw new IllegalArgumentException(queryGuardHelperMessage.filterFieldNotIndexed(child.getKey(), indexed.toString()));
+            }
+        }
+    }
+
+    private void checkSorts(Set<String> indexed, String endpoint) {
+        if (drc.getSorts() == null) {
+            return;
+        }
+
+        for (SortModel sort : drc.getSorts()) {
+            if (!contains(indexed, sort.getField())) {
+                queryGuardMetrics.record(QueryGuardViolation.UNINDEXED_SORT, endpoint, sort.getField());
+                throw new IllegalArgumentException(queryGuardHelperMessage.sortFieldNotIndexed(sort.getField(), indexed.toString()));
+            }
+        }
+    }
+
+    /**
+     * Fields accepted on filters and sorts, named like on the entity, or null when any field is accepted.
+     */
+    private Set<String> getIndexedFields(SearchMetadata searchMetadata) {
+        Class<?> targetClass = searchMetadata.getTargetClass();
+        if (targetClass == null) {
+            return null;
+        }
+
+        EntityMetadata metadata = EntityMetadataRegistry.get(targetClass);
+        if (!searchMetadata.getIndexedFieldNames().isEmpty()) {
+            Set<String> indexed = new LinkedHashSet<>();
+            for (String name : searchMetadata.getIndexedFieldNames()) {
+                Field field = metadata.getFieldIgnoreCase(name);
+                indexed.add(field == null ? name : field.getName());
+            }
+            return indexed;
+        }
+
+        if (crudConfig != null && Boolean.TRUE.equals(crudConfig.getIndexedFiltersOnly())) {
+            return metadata.getIndexedAttributes();
+        }
+
+        return null;
+    }
+
+    private static boolean contains(Collection<String> indexed, String field) {
+        return indexed.stream().anyMatch(name -> name.equalsIgnoreCase(field));
+    }
+
+    private static int getConfig(Integer value) {
+        return value == null ? 0 : value;
+    }
+
+}
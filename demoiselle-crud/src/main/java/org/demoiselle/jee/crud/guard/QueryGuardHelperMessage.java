@@ -0,0 +1,30 @@
+/*
+ * Demoiselle Framework
+ *
+ * License: GNU Lesser General Public License (LGPL), version 3 or later.
+ * See the lgpl.txt file in the root directory or <https://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.demoiselle.jee.crud.guard;
+
+import org.apache.deltaspike.core.api.message.MessageBundle;
+import org.apache.deltaspike.core.api.message.MessageTemplate;
+
+/**
+ * 
+ * Messages used to inform user about Query Guardrails feature
+ * 
+ * @author SERPRO
+ */
+@MessageBundle
+public interface QueryGuardHelperMessage {
+
+    @MessageTemplate("{filter-field-not-indexed}")
+    String filterFieldNotIndexed(String field, String indexedFields);
+
+    @MessageTemplate("{sort-field-not-indexed}")
+    String sortFieldNotIndexed(String field, String indexedFields);
+
+    @MessageTemplate("{max-rows-exceeded}")
+    String maxRowsExceeded(String rows, String maxRows);
+
+}
@@ -0,0 +1,77 @@
+/*
+ * Demoiselle Framework
+ *
+ * License: GNU Lesser General Public License (LGPL), version 3 or later.
+ * See the lgpl.txt file in the root directory or <https://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.demoiselle.jee.crud.guard;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+import javax.enterprise.context.ApplicationScoped;
+
+/**
+ * Counters of the requests rejected by the query guardrails, by {@link QueryGuardViolation} and by 
+ * endpoint, to be exported by the application to its monitoring.
+ *
+ * Every rejection is also logged.
+ *
+ * @author SERPRO
+ */
+@ApplicationScoped
+public class QueryGuardMetrics {
+
+    private static final Logger logger = Logger.getLogger(QueryGuardMetrics.class.getName());
+
+    private final Map<QueryGuardViolation, AtomicLong> totals = new EnumMap<>(QueryGuardViolation.class);
+
+    private final Map<String, AtomicLong> counts = new ConcurrentHashMap<>();
+
+    public QueryGuardMetrics() {
+        for (QueryGuardViolation violation : QueryGuardViolation.values()) {
+            totals.put(violation, new AtomicLong());
+        }
+    }
+
+    /**
+     * Count a rejected request.
+     *
+     * @param violation Reason of the rejection
+     * @param endpoint Resource method or entity of the request
+     * @param detail Field or value that caused the rejection
+     */
+    public void record(QueryGuardViolation violation, String endpoint, String detail) {
+        totals.get(violation).incrementAndGet();
+        counts.computeIfAbsent(violation + ":" + endpoint, key -> new AtomicLong()).incrementAndGet();
+        logger.warning("Query guardrail " + violation + " on " + endpoint + ", [detail: " + detail + "]");
+    }
+
+    /**
+     * @param violation Reason of the rejection
+     * @return Number of requests rejected by the reason
+     */
+    public long getCount(QueryGuardViolation violation) {
+        return totals.get(violation).get();
+    }
+
+    /**
+     * @return Number of requests rejected by each pair 'violation:endpoint'
+     */
+    public Map<String, Long> getCounts() {
+        Map<String, Long> snapshot = new TreeMap<>();
+        counts.forEach((key, count) -> snapshot.put(key, count.get()));
+        return Collections.unmodifiableMap(snapshot);
+    }
+
+    public void clear() {
+        totals.values().forEach(total -> total.set(0));
+        counts.clear();
+    }
+
+}
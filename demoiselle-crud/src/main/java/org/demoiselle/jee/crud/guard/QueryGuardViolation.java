@@ -0,0 +1,36 @@
+/*
+ * Demoiselle Framework
+ *
+ * License: GNU Lesser General Public License (LGPL), version 3 or later.
+ * See the lgpl.txt file in the root directory or <https://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.demoiselle.jee.crud.guard;
+
+/**
+ * Reasons of the requests rejected by the query guardrails, counted by {@link QueryGuardMetrics}.
+ *
+ * @author SERPRO
+ */
+public enum QueryGuardViolation {
+
+    /**
+     * Filter on a field that isn't indexed.
+     */
+    UNINDEXED_FILTER,
+
+    /**
+     * Sort by a field that isn't indexed.
+     */
+    UNINDEXED_SORT,
+
+    /**
+     * Request that reads more rows than the max allowed.
+     */
+    MAX_ROWS,
+
+    /**
+     * Query cancelled by the timeout.
+     */
+    TIMEOUT
+
+}
@@ -0,0 +1,217 @@
+/*
+ * Demoiselle Framework
+ *
+ * License: GNU Lesser General Public License (LGPL), version 3 or later.
+ * See the lgpl.txt file in the root directory or <https://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.demoiselle.jee.crud.index;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The {@link TrigramIndex}es of the fields of an entity annotated with {@link org.demoiselle.jee.crud.SearchIndexed}.
+ *
+ * The index is built by {@link org.demoiselle.jee.crud.AbstractDAO} reading the id and the indexed fields of
+ * all rows, see {@link #load(Iterable)}. Only one thread builds it at a time ({@link #startBuild()}), the
+ * others keep using the previous index or the database while it isn't built. The writes applied while the
+ * index is built ({@link #put(Object, Map)}, {@link #remove(Object)}) are replayed on the rows loaded, since
+ * the rows may have been read before them.
+ *
+ * Instances are obtained from {@link SearchIndexRegistry}.
+ *
+ * @author SERPRO
+ */
+public final class SearchIndex {
+
+    private final Class<?> entityClass;
+
+    private final List<String> fieldNames;
+
+    private final AtomicBoolean building = new AtomicBoolean();
+
+    private volatile Map<String, TrigramIndex> indexes;
+
+    private volatile long builtAt;
+
+    private final List<Write> pendingWrites = new ArrayList<>();
+
+    private long generation;
+
+    private long buildGeneration;
+
+    private long buildStartedAt;
+
+    SearchIndex(Class<?> entityClass, List<String> fieldNames) {
+        this.entityClass = entityClass;
+        this.fieldNames = Collections.unmodifiableList(fieldNames);
+    }
+
+    public Class<?> getEntityClass() {
+        return entityClass;
+    }
+
+    /**
+     * @return Names of the indexed fields, in the order of the columns read by {@link #load(Iterable)}
+     */
+    public List<String> getFieldNames() {
+        return fieldNames;
+    }
+
+    /**
+     * @return true when the index was built and can be used
+     */
+    public boolean isBuilt() {
+        return indexes != null;
+    }
+
+    /**
+     * @param timeToLive Time, in milliseconds, after which the index is built again
+     * @return true when the index wasn't built or is older than the time to live
+     */
+    public boolean isExpired(long timeToLive) {
+        return indexes == null || System.currentTimeMillis() - builtAt > timeToLive;
+    }
+
+    /**
+     * @return Time, in milliseconds, when the rows of the index started to be read, the writes after it 
+     * may not be in the index
+     */
+    public long getBuiltAt() {
+        return builtAt;
+    }
+
+    /**
+     * @return true if the actual thread should build the index, see {@link #load(Iterable)}
+     */
+    public boolean startBuild() {
+        if (!building.compareAndSet(false, true)) {
+            return false;
+        }
+
+        synchronized (this) {
+            pendingWrites.clear();
+            buildGeneration = generation;
+            buildStartedAt = System.currentTimeMillis();
+        }
+        return true;
+    }
+
+    /**
+     * Replace the index with the rows and finish the build started by {@link #startBuild()}.
+     *
+     * @param rows Rows with the id followed by the values of {@link #getFieldNames()}
+     */
+    public void load(Iterable<Object[]> rows) {
+        try {
+            Map<String, TrigramIndex> loaded = new LinkedHashMap<>();
+            fieldNames.forEach(name -> loaded.put(name, new TrigramIndex()));
+
+            for (Object[] row : rows) {
+                for (int i = 0; i < fieldNames.size(); i++) {
+                    Object value = row[i + 1];
+                    loaded.get(fieldNames.get(i)).put(row[0], value == null ? null : value.toString());
+                }
+            }
+
+            synchronized (this) {
+                pendingWrites.forEach(write -> apply(loaded, write));
+                // A bulk write invalidated the index during the build, the rows may not have it
+                if (buildGeneration == generation) {
+                    indexes = Collections.unmodifiableMap(loaded);
+                    builtAt = buildStartedAt;
+                }
+            }
+        }
+        finally {
+            cancelBuild();
+        }
+    }
+
+    /**
+     * Finish the build started by {@link #startBuild()} without changing the index, when it failed.
+     */
+    public void cancelBuild() {
+        synchronized (this) {
+            pendingWrites.clear();
+        }
+        building.set(false);
+    }
+
+    /**
+     * Discard the index after a write that can't be applied to it, like a bulk update, so the 
+     * requests are answered by the database until the index is built again.
+     */
+    public synchronized void invalidate() {
+        indexes = null;
+        generation++;
+    }
+
+    /**
+     * Apply a committed write to the index and to the index being built.
+     *
+     * @param id Id of the entity
+     * @param values Values of the indexed fields written, a field absent isn't changed and a null value removes the id
+     */
+    public synchronized void put(Object id, Map<String, String> values) {
+        write(new Write(id, values));
+    }
+
+    /**
+     * Remove a deleted entity from the index and from the index being built.
+     *
+     * @param id Id of the entity
+     */
+    public synchronized void remove(Object id) {
+        write(new Write(id, null));
+    }
+
+    private void write(Write write) {
+        if (indexes != null) {
+            apply(indexes, write);
+        }
+        if (building.get()) {
+            pendingWrites.add(write);
+        }
+    }
+
+    private static void apply(Map<String, TrigramIndex> target, Write write) {
+        target.forEach((name, index) -> {
+            if (write.values == null) {
+                index.remove(write.id);
+            }
+            else if (write.values.containsKey(name)) {
+                index.put(write.id, write.values.get(name));
+            }
+        });
+    }
+
+    /**
+     * @param fieldName Name of the field
+     * @return The index of the field or null when the field isn't indexed or the index wasn't built
+     */
+    public TrigramIndex getIndex(String fieldName) {
+        Map<String, TrigramIndex> actual = indexes;
+        return actual == null ? null : actual.get(fieldName);
+    }
+
+    /**
+     * A write of {@link #put(Object, Map)} or {@link #remove(Object)}, values null on the remove.
+     */
+    private static final class Write {
+
+        private final Object id;
+        private final Map<String, String> values;
+
+        Write(Object id, Map<String, String> values) {
+            this.id = id;
+            this.values = values;
+        }
+
+    }
+
+}
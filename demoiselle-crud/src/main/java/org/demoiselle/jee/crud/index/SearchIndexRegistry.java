@@ -0,0 +1,55 @@
+/*
+ * Demoiselle Framework
+ *
+ * License: GNU Lesser General Public License (LGPL), version 3 or later.
+ * See the lgpl.txt file in the root directory or <https://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.demoiselle.jee.crud.index;
+
+import java.lang.reflect.Field;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import org.demoiselle.jee.crud.metadata.EntityMetadataRegistry;
+
+/**
+ * Registry of the {@link SearchIndex} of each entity with fields annotated with {@link org.demoiselle.jee.crud.SearchIndexed}.
+ *
+ * @author SERPRO
+ */
+public final class SearchIndexRegistry {
+
+    private static final Map<Class<?>, SearchIndex> INDEXES = new ConcurrentHashMap<>();
+
+    private SearchIndexRegistry() {
+    }
+
+    /**
+     * @param entityClass Entity class
+     * @return The index of the entity or null when it doesn't have indexed fields
+     */
+    public static SearchIndex get(Class<?> entityClass) {
+        SearchIndex index = INDEXES.get(entityClass);
+        if (index != null) {
+            return index;
+        }
+
+        List<Field> fields = EntityMetadataRegistry.get(entityClass).getSearchIndexedFields();
+        if (fields.isEmpty()) {
+            return null;
+        }
+
+        return INDEXES.computeIfAbsent(entityClass,
+                type -> new SearchIndex(type, fields.stream().map(Field::getName).collect(Collectors.toList())));
+    }
+
+    /**
+     * Discard all indexes, they will be built again by the next requests.
+     */
+    public static void clear() {
+        INDEXES.clear();
+    }
+
+}
@@ -0,0 +1,188 @@
+/*
+ * Demoiselle Framework
+ *
+ * License: GNU Lesser General Public License (LGPL), version 3 or later.
+ * See the lgpl.txt file in the root directory or <https://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.demoiselle.jee.crud.index;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory trigram index of the values of a field, used to answer wildcard filters like '*john*'.
+ *
+ * Each value is kept lower-cased by id and each sequence of 3 characters of it points to the ids that
+ * contain it. A filter looks up the ids of the rarest trigram of the term and checks their values, so
+ * the result is exact for the values known by the index.
+ *
+ * <pre>
+ * *ohn*  -&gt; contains "ohn"
+ * john*  -&gt; starts with "john"
+ * *son   -&gt; ends with "son"
+ * </pre>
+ *
+ * @author SERPRO
+ */
+public final class TrigramIndex {
+
+    private static final int GRAM_SIZE = 3;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<Object, String> values = new HashMap<>();
+
+    private final Map<String, Set<Object>> grams = new HashMap<>();
+
+    /**
+     * Add or replace the value of an id.
+     *
+     * @param id Id of the entity
+     * @param value Value of the field, null removes the id
+     */
+    public void put(Object id, String value) {
+        if (id == null) {
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            removeInternal(id);
+            if (value != null) {
+                String lowerCase = value.toLowerCase(Locale.ROOT);
+                values.put(id, lowerCase);
+                for (String gram : grams(lowerCase)) {
+                    grams.computeIfAbsent(gram, key -> new HashSet<>()).add(id);
+                }
+            }
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @param id Id of the entity to be removed
+     */
+    public void remove(Object id) {
+        if (id == null) {
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            removeInternal(id);
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void removeInternal(Object id) {
+        String previous = values.remove(id);
+        if (previous == null) {
+            return;
+        }
+        for (String gram : grams(previous)) {
+            Set<Object> ids = grams.get(gram);
+            if (ids != null) {
+                ids.remove(id);
+                if (ids.isEmpty()) {
+                    grams.remove(gram);
+                }
+            }
+        }
+    }
+
+    /**
+     * Find the ids whose value matches the wildcard filter.
+     *
+     * The filter can't be answered when the term has less than 3 characters or has the wildcards of
+     * the LIKE operator ('%', '_') or '*' in the middle, and when more than 'maxIds' ids match.
+     *
+     * @param filter Value of the filter, starting and/or ending with '*'
+     * @param maxIds Max number of ids returned
+     * @return The ids or null when the filter can't be answered by the index
+     */
+    public List<Object> search(String filter, int maxIds) {
+        String pattern = filter.trim();
+        boolean anyStart = pattern.startsWith("*");
+        boolean anyEnd = pattern.endsWith("*") && pattern.length() > 1;
+        String term = pattern.substring(anyStart ? 1 : 0, pattern.length() - (anyEnd ? 1 : 0)).toLowerCase(Locale.ROOT);
+
+        if (term.length() < GRAM_SIZE || term.indexOf('*') >= 0 || term.indexOf('%') >= 0 || term.indexOf('_') >= 0) {
+            return null;
+        }
+
+        lock.readLock().lock();
+        try {
+            Set<Object> rarest = null;
+            for (String gram : grams(term)) {
+                Set<Object> ids = grams.get(gram);
+                if (ids == null) {
+                    return Collections.emptyList();
+                }
+                if (rarest == null || ids.size() < rarest.size()) {
+                    rarest = ids;
+                }
+            }
+
+            List<Object> result = new ArrayList<>();
+            for (Object id : rarest) {
+                if (matches(values.get(id), term, anyStart, anyEnd)) {
+                    if (result.size() == maxIds) {
+                        return null;
+                    }
+                    result.add(id);
+                }
+            }
+            return result;
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static boolean matches(String value, String term, boolean anyStart, boolean anyEnd) {
+        if (anyStart && anyEnd) {
+            return value.contains(term);
+        }
+        if (anyEnd) {
+            return value.startsWith(term);
+        }
+        if (anyStart) {
+            return value.endsWith(term);
+        }
+        return value.equals(term);
+    }
+
+    private static Set<String> grams(String value) {
+        Set<String> result = new HashSet<>();
+        for (int i = 0; i + GRAM_SIZE <= value.length(); i++) {
+            result.add(value.substring(i, i + GRAM_SIZE));
+        }
+        return result;
+    }
+
+    /**
+     * @return Number of values on the index
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return values.size();
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+
+}
@@ -0,0 +1,447 @@
+/*
+ * Demoiselle Framework
+ *
+ * License: GNU Lesser General Public License (LGPL), version 3 or later.
+ * See the lgpl.txt file in the root directory or <https://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.demoiselle.jee.crud.metadata;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import javax.persistence.Basic;
+import javax.persistence.CascadeType;
+import javax.persistence.Column;
+import javax.persistence.ElementCollection;
+import javax.persistence.EntityListeners;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.JoinColumn;
+import javax.persistence.ManyToMany;
+import javax.persistence.ManyToOne;
+import javax.persistence.OneToMany;
+import javax.persistence.OneToOne;
+import javax.persistence.PostRemove;
+import javax.persistence.PreRemove;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+import javax.persistence.Version;
+import javax.validation.constraints.NotNull;
+
+import org.demoiselle.jee.crud.CrudUtilHelper;
+import org.demoiselle.jee.crud.LastModified;
+import org.demoiselle.jee.crud.SearchIndexed;
+
+/**
+ * Immutable snapshot of the reflective information about a class used by the CRUD feature.
+ *
+ * The fields are collected once (including the fields of the super classes) and indexed by
+ * name and by lower-cased name, so the filter, sort and field helpers can answer their questions
+ * without walking the class hierarchy again.
+ *
+ * Instances are obtained from {@link EntityMetadataRegistry}.
+ *
+ * @author SERPRO
+ */
+public final class EntityMetadata {
+
+    private final Class<?> type;
+    private final List<Field> fields;
+    private final Map<String, Field> fieldsByName;
+    private final Map<String, Field> fieldsByLowerCaseName;
+    private final Map<String, Map<String, Integer>> enumOrdinals;
+    private final List<Field> updatableFields;
+    private final List<Field> searchIndexedFields;
+    private final Set<String> indexedAttributes;
+    private final String idAttribute;
+    private final String versionAttribute;
+    private final String lastModifiedAttribute;
+    private final boolean bulkDeletable;
+
+    EntityMetadata(Class<?> type) {
+        this.type = type;
+
+        List<Field> allFields = CrudUtilHelper.getAllFields(new ArrayList<Field>(), type);
+        Map<String, Field> byName = new HashMap<>();
+        Map<String, Field> byLowerCaseName = new HashMap<>();
+        Map<String, Map<String, Integer>> ordinals = new HashMap<>();
+        List<Field> updatable = new ArrayList<>();
+        List<Field> searchIndexed = new ArrayList<>();
+        String id = null;
+        String version = null;
+        String lastModified = null;
+
+        for (Field field : allFields) {
+            byName.putIfAbsent(field.getName(), field);
+            byLowerCaseName.putIfAbsent(toLowerCase(field.getName()), field);
+
+            if (id == null && field.isAnnotationPresent(Id.class)) {
+                id = field.getName();
+            }
+
+            if (version == null && field.isAnnotationPresent(Version.class)) {
+                version = field.getName();
+            }
+
+            if (lastModified == null && field.isAnnotationPresent(LastModified.class) 
+                    && (isTemporal(field.getType()) || isNumber(field.getType()))) {
+                lastModified = field.getName();
+            }
+
+            if (isUpdatable(field)) {
+                updatable.add(field);
+            }
+
+            if (field.isAnnotationPresent(SearchIndexed.class) && String.class.equals(field.getType())) {
+                searchIndexed.add(field);
+            }
+
+            if (field.getType().isEnum() && !ordinals.containsKey(field.getName())) {
+                Map<String, Integer> constants = new HashMap<>();
+                for (Object constant : field.getType().getEnumConstants()) {
+                    constants.putIfAbsent(toLowerCase(constant.toString()), ((Enum<?>) constant).ordinal());
+                }
+                ordinals.put(field.getName(), Collections.unmodifiableMap(constants));
+            }
+        }
+
+        this.fields = Collections.unmodifiableList(allFields);
+        this.fieldsByName = Collections.unmodifiableMap(byName);
+        this.fieldsByLowerCaseName = Collections.unmodifiableMap(byLowerCaseName);
+        this.enumOrdinals = Collections.unmodifiableMap(ordinals);
+        this.updatableFields = Collections.unmodifiableList(updatable);
+        this.searchIndexedFields = Collections.unmodifiableList(searchIndexed);
+        this.idAttribute = id;
+        this.versionAttribute = version;
+        this.lastModifiedAttribute = lastModified;
+        this.bulkDeletable = !hasRemoveCallbacks(type) && allFields.stream().noneMatch(EntityMetadata::isRemovedWithOwner);
+        this.indexedAttributes = Collections.unmodifiableSet(findIndexedAttributes(type, allFields, id, searchIndexed));
+    }
+
+    /**
+     * Fields that lead an index of the database: the id, the unique columns, the {@link SearchIndexed} fields 
+     * and the first column of each index and unique constraint of the {@link Table}.
+     */
+    private static Set<String> findIndexedAttributes(Class<?> type, List<Field> allFields, String id, List<Field> searchIndexed) {
+        Set<String> indexed = new LinkedHashSet<>();
+        if (id != null) {
+            indexed.add(id);
+        }
+
+        List<String> leadingColumns = new ArrayList<>();
+        Table table = type.getAnnotation(Table.class);
+        if (table != null) {
+            for (Index index : table.indexes()) {
+                leadingColumns.add(index.columnList().split(",")[0].trim().split("\\s+")[0]);
+            }
+            for (UniqueConstraint constraint : table.uniqueConstraints()) {
+                if (constraint.columnNames().length > 0) {
+                    leadingColumns.add(constraint.columnNames()[0].trim());
+                }
+            }
+        }
+
+        for (Field field : allFields) {
+            Column column = field.getAnnotation(Column.class);
+            if ((column != null && column.unique()) || searchIndexed.contains(field) 
+                    || leadingColumns.stream().anyMatch(getColumnName(field)::equalsIgnoreCase)) {
+                indexed.add(field.getName());
+            }
+        }
+
+        return indexed;
+    }
+
+    private static String getColumnName(Field field) {
+        Column column = field.getAnnotation(Column.class);
+        if (column != null && !column.name().isEmpty()) {
+            return column.name();
+        }
+        JoinColumn joinColumn = field.getAnnotation(JoinColumn.class);
+        if (joinColumn != null && !joinColumn.name().isEmpty()) {
+            return joinColumn.name();
+        }
+        return field.getName();
+    }
+
+    /**
+     * Check if the values of a type are points in time, like the fields of {@link LastModified}.
+     * 
+     * @param type Type of a field
+     * @return true or false
+     */
+    public static boolean isTemporal(Class<?> type) {
+        return Date.class.isAssignableFrom(type) || Calendar.class.isAssignableFrom(type)
+                || Instant.class.equals(type) || LocalDateTime.class.equals(type);
+    }
+
+    /**
+     * Convert the time to a temporal type, see {@link #isTemporal(Class)}.
+     * 
+     * @param type Type of a field
+     * @param date Time to be converted
+     * @return Value of the type
+     */
+    public static Object toTemporalValue(Class<?> type, Date date) {
+        if (Timestamp.class.equals(type)) {
+            return new Timestamp(date.getTime());
+        }
+        if (java.sql.Date.class.equals(type)) {
+            return new java.sql.Date(date.getTime());
+        }
+        if (Calendar.class.isAssignableFrom(type)) {
+            Calendar calendar = Calendar.getInstance();
+            calendar.setTime(date);
+            return calendar;
+        }
+        if (Instant.class.equals(type)) {
+            return date.toInstant();
+        }
+        if (LocalDateTime.class.equals(type)) {
+            return LocalDateTime.ofInstant(date.toInstant(), ZoneId.systemDefault());
+        }
+        return date;
+    }
+
+    private static boolean isNumber(Class<?> type) {
+        return Number.class.isAssignableFrom(type) || long.class.equals(type) || int.class.equals(type);
+    }
+
+    /**
+     * A field whose rows are changed when the owner is removed: cascades on remove,
+     * orphan removal, join tables and collection tables.
+     */
+    private static boolean isRemovedWithOwner(Field field) {
+        if (field.isAnnotationPresent(ManyToMany.class) || field.isAnnotationPresent(ElementCollection.class)) {
+            return true;
+        }
+
+        OneToMany oneToMany = field.getAnnotation(OneToMany.class);
+        if (oneToMany != null) {
+            return oneToMany.orphanRemoval() || isCascadeRemove(oneToMany.cascade());
+        }
+
+        OneToOne oneToOne = field.getAnnotation(OneToOne.class);
+        if (oneToOne != null) {
+            return oneToOne.orphanRemoval() || isCascadeRemove(oneToOne.cascade());
+        }
+
+        ManyToOne manyToOne = field.getAnnotation(ManyToOne.class);
+        return manyToOne != null && isCascadeRemove(manyToOne.cascade());
+    }
+
+    private static boolean isCascadeRemove(CascadeType[] cascade) {
+        return Arrays.stream(cascade).anyMatch(type -> type == CascadeType.ALL || type == CascadeType.REMOVE);
+    }
+
+    /**
+     * The class or a super class has entity listeners or remove callbacks.
+     */
+    private static boolean hasRemoveCallbacks(Class<?> type) {
+        for (Class<?> actual = type; actual != null && !Object.class.equals(actual); actual = actual.getSuperclass()) {
+            if (actual.isAnnotationPresent(EntityListeners.class)) {
+                return true;
+            }
+
+            for (Method method : actual.getDeclaredMethods()) {
+                if (method.isAnnotationPresent(PreRemove.class) || method.isAnnotationPresent(PostRemove.class)) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * A field takes part on partial updates when it is a {@link ManyToOne} association
+     * or when it is annotated with an updatable {@link Column}.
+     */
+    private static boolean isUpdatable(Field field) {
+        if (field.isAnnotationPresent(ManyToOne.class)) {
+            return true;
+        }
+        Column column = field.getAnnotation(Column.class);
+        return column != null && column.updatable();
+    }
+
+    private static String toLowerCase(String value) {
+        return value.toLowerCase(Locale.ROOT);
+    }
+
+    public Class<?> getType() {
+        return type;
+    }
+
+    /**
+     * @return All fields of the class and its super classes, in the same order given by
+     * {@link CrudUtilHelper#getAllFields(List, Class)}
+     */
+    public List<Field> getFields() {
+        return fields;
+    }
+
+    /**
+     * @param name Field name
+     * @return The field with exactly the given name or null
+     */
+    public Field getField(String name) {
+        return name == null ? null : fieldsByName.get(name);
+    }
+
+    /**
+     * @param name Field name
+     * @return The field with the given name ignoring the case or null
+     */
+    public Field getFieldIgnoreCase(String name) {
+        return name == null ? null : fieldsByLowerCaseName.get(toLowerCase(name));
+    }
+
+    public boolean containsFieldIgnoreCase(String name) {
+        return getFieldIgnoreCase(name) != null;
+    }
+
+    /**
+     * @param name Field name (ignoring case)
+     * @return Type of the field or null when the field doesn't exists
+     */
+    public Class<?> getFieldType(String name) {
+        Field field = getFieldIgnoreCase(name);
+        return field == null ? null : field.getType();
+    }
+
+    /**
+     * Check if a field may hold null values, used by the keyset pagination to place the null values
+     * of the sorts. A field is not nullable when it is the id, the version, a primitive or when it is
+     * annotated with {@link Column#nullable()}, {@link Basic#optional()}, {@link ManyToOne#optional()} 
+     * or {@link NotNull}.
+     * 
+     * @param name Field name
+     * @return true if the field may be null
+     */
+    public boolean isNullable(String name) {
+        Field field = getFieldIgnoreCase(name);
+        if (field == null) {
+            return true;
+        }
+        if (field.getType().isPrimitive() || field.getName().equals(idAttribute) || field.getName().equals(versionAttribute)
+                || field.isAnnotationPresent(NotNull.class)) {
+            return false;
+        }
+
+        Column column = field.getAnnotation(Column.class);
+        Basic basic = field.getAnnotation(Basic.class);
+        ManyToOne manyToOne = field.getAnnotation(ManyToOne.class);
+        return (column == null || column.nullable()) && (basic == null || basic.optional()) && (manyToOne == null || manyToOne.optional());
+    }
+
+    public boolean isEnumField(String name) {
+        Class<?> fieldType = getFieldType(name);
+        return fieldType != null && fieldType.isEnum();
+    }
+
+    public boolean isUUIDField(String name) {
+        Class<?> fieldType = getFieldType(name);
+        return fieldType != null && fieldType.isAssignableFrom(UUID.class);
+    }
+
+    /**
+     * Find the ordinal of the enum constant whose {@link Object#toString()} is equal (ignoring case) to the value.
+     *
+     * @param fieldName Name of a field declared with an enum type
+     * @param value Value to be converted
+     * @return The ordinal or null when the field isn't an enum or no constant match the value
+     */
+    public Integer getEnumOrdinal(String fieldName, String value) {
+        Map<String, Integer> constants = enumOrdinals.get(fieldName);
+        if (constants == null || value == null) {
+            return null;
+        }
+        return constants.get(toLowerCase(value));
+    }
+
+    /**
+     * @return Name of the field annotated with {@link Id} or null
+     */
+    public String getIdAttribute() {
+        return idAttribute;
+    }
+
+    /**
+     * @return Name of the field annotated with {@link Version} or null
+     */
+    public String getVersionAttribute() {
+        return versionAttribute;
+    }
+
+    /**
+     * Return the field that drives the change feed of the entity: the field annotated with {@link LastModified}.
+     * A timestamp {@link Version} does not enable the change feed by itself, since the removes of the entity
+     * would then record a {@link org.demoiselle.jee.crud.changes.CrudTombstone} that may not be mapped by the
+     * persistence unit of the application.
+     * 
+     * @return Name of the field or null when the entity has no change feed
+     */
+    public String getLastModifiedAttribute() {
+        return lastModifiedAttribute;
+    }
+
+    /**
+     * @return Fields that can be changed by a partial update
+     */
+    public List<Field> getUpdatableFields() {
+        return updatableFields;
+    }
+
+    /**
+     * @return String fields annotated with {@link SearchIndexed}
+     */
+    public List<Field> getSearchIndexedFields() {
+        return searchIndexedFields;
+    }
+
+    /**
+     * Return the fields that lead an index of the database, declared on the mapping: the {@link Id}, the 
+     * unique {@link Column}s, the {@link SearchIndexed} fields and the first column of each {@link Index} and 
+     * {@link UniqueConstraint} of the {@link Table}. Indexes created only on the database aren't detected.
+     * 
+     * @return Names of the fields
+     */
+    public Set<String> getIndexedAttributes() {
+        return indexedAttributes;
+    }
+
+    /**
+     * Return true if a row can be deleted by a bulk DELETE statement, what is false when the entity 
+     * has cascades on remove, orphan removal, join or collection tables, entity listeners or remove callbacks.
+     * 
+     * Default listeners declared on orm.xml are not detected.
+     * 
+     * @return true or false
+     */
+    public boolean isBulkDeletable() {
+        return bulkDeletable;
+    }
+
+    @Override
+    public String toString() {
+        return "EntityMetadata [type=" + type.getName() + ", idAttribute=" + idAttribute + ", fields=" + fieldsByName.keySet() + "]";
+    }
+
+}
@@ -0,0 +1,52 @@
+/*
+ * Demoiselle Framework
+ *
+ * License: GNU Lesser General Public License (LGPL), version 3 or later.
+ * See the lgpl.txt file in the root directory or <https://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.demoiselle.jee.crud.metadata;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.demoiselle.jee.crud.bootstrap.PersistenceBootstrap;
+
+/**
+ * Registry that holds one {@link EntityMetadata} per class.
+ *
+ * The entities are registered at deployment time by {@link PersistenceBootstrap}, any other class
+ * (e.g. an embeddable or a class used on a second level filter) is registered the first time it is requested.
+ * Once built the metadata never changes.
+ *
+ * @author SERPRO
+ */
+public final class EntityMetadataRegistry {
+
+    private static final Map<Class<?>, EntityMetadata> METADATA = new ConcurrentHashMap<>();
+
+    private EntityMetadataRegistry() {
+    }
+
+    /**
+     * Return the metadata of the given class, building it when necessary.
+     *
+     * @param type Class
+     * @return Metadata of the class or null when the type is null
+     */
+    public static EntityMetadata get(Class<?> type) {
+        if (type == null) {
+            return null;
+        }
+        return METADATA.computeIfAbsent(type, EntityMetadata::new);
+    }
+
+    /**
+     * Build the metadata of the given class ahead of the first request.
+     *
+     * @param type Class
+     */
+    public static void register(Class<?> type) {
+        get(type);
+    }
+
+}
@@ -0,0 +1,195 @@
+/*
+ * Demoiselle Framework
+ *
+ * License: GNU Lesser General Public License (LGPL), version 3 or later.
+ * See the lgpl.txt file in the root directory or <https://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.demoiselle.jee.crud.metadata;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import org.demoiselle.jee.crud.CrudUtilHelper;
+import org.demoiselle.jee.crud.FieldTree;
+import org.demoiselle.jee.crud.Search;
+import org.demoiselle.jee.crud.TreeNodeField;
+
+/**
+ * Immutable snapshot of the {@link Search} annotation of a resource method.
+ *
+ * The annotation is read and the allowed fields are parsed to a {@link FieldTree} once, so the
+ * helpers don't need to read the annotation and rebuild the tree on every request.
+ *
+ * The same method of {@link org.demoiselle.jee.crud.AbstractREST} is shared by all its subclasses
+ * but the target class isn't, so the metadata is built for the pair resource class and method,
+ * see {@link SearchMetadataRegistry}.
+ *
+ * @author SERPRO
+ */
+public final class SearchMetadata {
+
+    private final Class<?> resourceClass;
+    private final Method method;
+    private final Search search;
+    private final Class<?> targetClass;
+    private final List<String> fieldNames;
+    private final TreeNodeField<String, Set<String>> fields;
+    private final FieldTree fieldTree;
+    private final List<String> indexedFieldNames;
+
+    SearchMetadata(Class<?> resourceClass, Method method) {
+        this.resourceClass = resourceClass;
+        this.method = method;
+        this.search = method == null ? null : method.getAnnotation(Search.class);
+        this.targetClass = resolveTargetClass(resourceClass);
+
+        String[] searchFields = search == null ? null : search.fields();
+        if (searchFields != null && searchFields.length > 0 && searchFields[0] != null && !searchFields[0].equals("*")) {
+            this.fieldNames = Collections.unmodifiableList(Arrays.asList(searchFields.clone()));
+            this.fieldTree = FieldTree.of(targetClass == null ? null : targetClass.getName(), this.fieldNames);
+            this.fields = this.fieldTree.toTreeNodeField();
+        }
+        else {
+            this.fieldNames = Collections.emptyList();
+            this.fieldTree = null;
+            this.fields = null;
+        }
+
+        this.indexedFieldNames = search == null ? Collections.emptyList() : Collections.unmodifiableList(Arrays.asList(search.indexed().clone()));
+    }
+
+    private static Class<?> resolveTargetClass(Class<?> resourceClass) {
+        try {
+            return resourceClass == null ? null : CrudUtilHelper.getTargetClass(resourceClass);
+        }
+        catch (RuntimeException e) {
+            // Not a direct subclass of AbstractREST with the entity as argument
+            return null;
+        }
+    }
+
+    /**
+     * Check if the fields of {@link Search#fields()} and {@link Search#indexed()} exist on the target class.
+     *
+     * @throws IllegalArgumentException A field doesn't exist, with the field on the message
+     */
+    public void validate() {
+        if (targetClass == null) {
+            return;
+        }
+
+        for (FieldTree leaf : fieldTree == null ? Collections.<FieldTree>emptyList() : fieldTree.getChildren()) {
+            Field field = EntityMetadataRegistry.get(targetClass).getFieldIgnoreCase(leaf.getKey());
+            if (field == null) {
+                throw new IllegalArgumentException(leaf.getKey());
+            }
+
+            Class<?> fieldClass = getElementType(field);
+            for (FieldTree subLeaf : leaf.getChildren()) {
+                if (!EntityMetadataRegistry.get(fieldClass).containsFieldIgnoreCase(subLeaf.getKey())) {
+                    throw new IllegalArgumentException(leaf.getKey() + "(" + subLeaf.getKey() + ")");
+                }
+            }
+        }
+
+        for (String indexed : indexedFieldNames) {
+            if (!EntityMetadataRegistry.get(targetClass).containsFieldIgnoreCase(indexed)) {
+                throw new IllegalArgumentException(indexed);
+            }
+        }
+    }
+
+    private static Class<?> getElementType(Field field) {
+        Type type = field.getGenericType();
+        if (Collection.class.isAssignableFrom(field.getType()) && type instanceof ParameterizedType) {
+            Type argument = ((ParameterizedType) type).getActualTypeArguments()[0];
+            if (argument instanceof Class) {
+                return (Class<?>) argument;
+            }
+        }
+        return field.getType();
+    }
+
+    public Class<?> getResourceClass() {
+        return resourceClass;
+    }
+
+    public Method getMethod() {
+        return method;
+    }
+
+    /**
+     * @return The annotation or null when the method isn't annotated
+     */
+    public Search getSearch() {
+        return search;
+    }
+
+    public boolean hasSearch() {
+        return search != null;
+    }
+
+    /**
+     * @return The entity used on {@literal AbstractREST<TargetClass, I>} or null
+     */
+    public Class<?> getTargetClass() {
+        return targetClass;
+    }
+
+    /**
+     * @return Fields of {@link Search#fields()}, empty when the method isn't annotated or allows all fields
+     */
+    public List<String> getFieldNames() {
+        return fieldNames;
+    }
+
+    /**
+     * The allowed fields parsed to a tree. The tree is shared by all requests and shouldn't be changed.
+     *
+     * @return The tree or null when the method isn't annotated or allows all fields ('*')
+     */
+    public TreeNodeField<String, Set<String>> getFields() {
+        return fields;
+    }
+
+    /**
+     * @return The allowed fields as an immutable tree or null when the method isn't annotated or allows all fields ('*')
+     */
+    public FieldTree getFieldTree() {
+        return fieldTree;
+    }
+
+    /**
+     * @return Fields of {@link Search#indexed()}, empty when the method isn't annotated or doesn't restrict the fields
+     */
+    public List<String> getIndexedFieldNames() {
+        return indexedFieldNames;
+    }
+
+    /**
+     * @return {@link Search#withPagination()} or null when the method isn't annotated
+     */
+    public Boolean getWithPagination() {
+        return search == null ? null : search.withPagination();
+    }
+
+    /**
+     * @return {@link Search#quantityPerPage()} or null when the method isn't annotated
+     */
+    public Integer getQuantityPerPage() {
+        return search == null ? null : search.quantityPerPage();
+    }
+
+    @Override
+    public String toString() {
+        return "SearchMetadata [resourceClass=" + resourceClass + ", method=" + method + ", targetClass=" + targetClass + ", fields=" + fieldNames + "]";
+    }
+
+}
@@ -0,0 +1,69 @@
+/*
+ * Demoiselle Framework
+ *
+ * License: GNU Lesser General Public License (LGPL), version 3 or later.
+ * See the lgpl.txt file in the root directory or <https://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.demoiselle.jee.crud.metadata;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.ws.rs.container.ResourceInfo;
+
+import org.demoiselle.jee.crud.bootstrap.SearchBootstrap;
+
+/**
+ * Registry that holds one {@link SearchMetadata} per resource class and method.
+ *
+ * The methods of the subclasses of {@link org.demoiselle.jee.crud.AbstractREST} are registered at deployment
+ * time by {@link SearchBootstrap}, any other method is registered the first time it is requested.
+ * Once built the metadata never changes.
+ *
+ * @author SERPRO
+ */
+public final class SearchMetadataRegistry {
+
+    private static final Map<Class<?>, Map<Method, SearchMetadata>> METADATA = new ConcurrentHashMap<>();
+
+    private SearchMetadataRegistry() {
+    }
+
+    /**
+     * Return the metadata of the given method, building it when necessary.
+     *
+     * @param resourceClass Resource class, that may inherit the method
+     * @param method Resource method
+     * @return Metadata of the method
+     */
+    public static SearchMetadata get(Class<?> resourceClass, Method method) {
+        if (resourceClass == null || method == null) {
+            return new SearchMetadata(resourceClass, method);
+        }
+        return METADATA.computeIfAbsent(resourceClass, type -> new ConcurrentHashMap<>())
+                .computeIfAbsent(method, m -> new SearchMetadata(resourceClass, m));
+    }
+
+    /**
+     * Return the metadata of the method of the actual request.
+     *
+     * @param resourceInfo ResourceInfo
+     * @return Metadata of the method
+     */
+    public static SearchMetadata get(ResourceInfo resourceInfo) {
+        return get(resourceInfo.getResourceClass(), resourceInfo.getResourceMethod());
+    }
+
+    /**
+     * Build the metadata of the given method ahead of the first request.
+     *
+     * @param resourceClass Resource class
+     * @param method Resource method
+     * @return Metadata of the method
+     */
+    public static SearchMetadata register(Class<?> resourceClass, Method method) {
+        return get(resourceClass, method);
+    }
+
+}
@@ -0,0 +1,107 @@
+/*
+ * Demoiselle Framework
+ *
+ * License: GNU Lesser General Public License (LGPL), version 3 or later.
+ * See the lgpl.txt file in the root directory or <https://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.demoiselle.jee.crud.pagination;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+/**
+ * Cache of counts used by the {@link CountStrategy#CACHED} strategy.
+ * 
+ * The counts are grouped by entity, so all counts of an entity can be discarded when the entity is changed.
+ * The DAO discards them after the commit of the change, and a count executed while the counts were discarded
+ * isn't cached, since it may have read the rows before the commit.
+ * 
+ * @author SERPRO
+ */
+@ApplicationScoped
+public class CountCache {
+
+    @Inject
+    private PaginationHelperConfig paginationConfig;
+
+    private final Map<Class<?>, Map<String, Entry>> counts = new ConcurrentHashMap<>();
+
+    private final Map<Class<?>, AtomicLong> generations = new ConcurrentHashMap<>();
+
+    public CountCache() {
+    }
+
+    public CountCache(PaginationHelperConfig paginationConfig) {
+        this.paginationConfig = paginationConfig;
+    }
+
+    /**
+     * Return the cached count of the key or execute the 'counter' when the count isn't cached or is expired.
+     * 
+     * @param entityClass Entity counted
+     * @param key Key of the count, including the values of the filters
+     * @param counter Executes the count
+     * @return The count
+     */
+    public Long get(Class<?> entityClass, String key, Supplier<Long> counter) {
+        Map<String, Entry> entityCounts = counts.computeIfAbsent(entityClass, type -> new ConcurrentHashMap<>());
+        long now = System.nanoTime();
+
+        Entry entry = entityCounts.get(key);
+        if (entry != null && entry.expiresAt - now > 0) {
+            return entry.count;
+        }
+
+        long generation = generation(entityClass).get();
+        Long count = counter.get();
+        if (generation != generation(entityClass).get()) {
+            return count;
+        }
+
+        if (entityCounts.size() >= paginationConfig.getCountCacheSize()) {
+            entityCounts.values().removeIf(actual -> actual.expiresAt - now <= 0);
+            if (entityCounts.size() >= paginationConfig.getCountCacheSize()) {
+                entityCounts.clear();
+            }
+        }
+
+        entityCounts.put(key, new Entry(count, now + TimeUnit.SECONDS.toNanos(paginationConfig.getCountCacheTimeToLive())));
+        return count;
+    }
+
+    /**
+     * Discard all counts of the entity.
+     * 
+     * @param entityClass Entity changed
+     */
+    public void invalidate(Class<?> entityClass) {
+        generation(entityClass).incrementAndGet();
+        Map<String, Entry> entityCounts = counts.get(entityClass);
+        if (entityCounts != null) {
+            entityCounts.clear();
+        }
+    }
+
+    private AtomicLong generation(Class<?> entityClass) {
+        return generations.computeIfAbsent(entityClass, type -> new AtomicLong());
+    }
+
+    private static final class Entry {
+
+        private final Long count;
+        private final long expiresAt;
+
+        private Entry(Long count, long expiresAt) {
+            this.count = count;
+            this.expiresAt = expiresAt;
+        }
+
+    }
+
+}
@@ -0,0 +1,54 @@
+/*
+ * Demoiselle Framework
+ *
+ * License: GNU Lesser General Public License (LGPL), version 3 or later.
+ * See the lgpl.txt file in the root directory or <https://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.demoiselle.jee.crud.pagination;
+
+import org.demoiselle.jee.crud.AbstractDAO;
+import org.demoiselle.jee.crud.Search;
+
+/**
+ * Strategies used by {@link AbstractDAO#find()} to know the total of rows of a paginated request.
+ * 
+ * @author SERPRO
+ */
+public enum CountStrategy {
+
+    /**
+     * Used only by {@link Search#countStrategy()} to inform that the strategy of
+     * {@link PaginationHelperConfig#getCountStrategy()} should be used.
+     */
+    DEFAULT,
+
+    /**
+     * A count query is executed before the page query.
+     */
+    EXACT,
+
+    /**
+     * The count query is never executed. The page query fetches one extra row to know if there is a next page, 
+     * the total is informed only when the last page is reached, otherwise the 'Content-Range' header 
+     * uses '*' as total.
+     */
+    NONE,
+
+    /**
+     * The result of the count query is cached by the shape and the values of the filters during 
+     * {@link PaginationHelperConfig#getCountCacheTimeToLive()} seconds. The cache of an entity is discarded 
+     * on every write made through {@link AbstractDAO}.
+     */
+    CACHED,
+
+    /**
+     * The total is obtained together with the page: the page query fetches one extra row and, when the
+     * page is the last one, the total is derived from the page and the count query is skipped. 
+     * Otherwise the count query is executed.
+     * 
+     * JPA criteria queries can't express 'COUNT(*) OVER()', so this is the portable way of avoiding 
+     * the count on the requests that don't need it.
+     */
+    WINDOW;
+
+}
@@ -0,0 +1,229 @@
+/*
+ * Demoiselle Framework
+ *
+ * License: GNU Lesser General Public License (LGPL), version 3 or later.
+ * See the lgpl.txt file in the root directory or <https://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.demoiselle.jee.crud.pagination;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import org.demoiselle.jee.crud.CrudUtilHelper;
+import org.demoiselle.jee.crud.metadata.EntityMetadata;
+import org.demoiselle.jee.crud.sort.CrudSort;
+import org.demoiselle.jee.crud.sort.SortModel;
+
+/**
+ * Opaque position used by the {@link PaginationType#KEYSET} pagination.
+ * 
+ * The cursor holds the values of the sort fields (and of the id) of the last row of a page and 
+ * the sort used to build it, so a cursor can't be reused with a different sort. The values may be 
+ * null, the seek predicate of the DAO places the null values after the others on ascending sorts and 
+ * before them on descending sorts.
+ * 
+ * @author SERPRO
+ */
+public final class KeysetCursor {
+
+    private static final String SEPARATOR = "\n";
+    private static final String NULL_VALUE = "~";
+
+    private final String signature;
+    private final List<String> values;
+
+    private KeysetCursor(String signature, List<String> values) {
+        this.signature = signature;
+        this.values = Collections.unmodifiableList(values);
+    }
+
+    /**
+     * Return the sorts used by the keyset: the requested sorts followed by the id of the entity,
+     * used as tie-breaker, when the id is not already sorted.
+     * 
+     * @param metadata Metadata of the entity
+     * @param sorts Requested sorts
+     * @return Sorts used by the keyset
+     */
+    public static List<SortModel> keysetSorts(EntityMetadata metadata, List<SortModel> sorts) {
+        List<SortModel> result = new LinkedList<>(sorts);
+        String id = metadata.getIdAttribute();
+
+        if (id != null && sorts.stream().noneMatch(sortModel -> id.equalsIgnoreCase(sortModel.getField()))) {
+            result.add(new SortModel(CrudSort.ASC, id));
+        }
+
+        return result;
+    }
+
+    /**
+     * Create the cursor that points to the row with the values.
+     * 
+     * @param sorts Sorts used by the keyset
+     * @param values Values of the sort fields of the row, null values included
+     * @return The cursor
+     */
+    public static KeysetCursor of(List<SortModel> sorts, List<Object> values) {
+        List<String> cursorValues = new ArrayList<>(values.size());
+
+        for (int i = 0; i < values.size(); i++) {
+            cursorValues.add(values.get(i) == null ? null : toCursorValue(values.get(i)));
+        }
+
+        return new KeysetCursor(signature(sorts), cursorValues);
+    }
+
+    /**
+     * Decode a cursor produced by {@link #encode()}.
+     * 
+     * @param token Value of the 'cursor' parameter
+     * @return The cursor
+     * 
+     * @throws IllegalArgumentException When the token is invalid
+     */
+    public static KeysetCursor decode(String token) {
+        if (token == null || token.isEmpty()) {
+            throw new IllegalArgumentException("Empty cursor");
+        }
+
+        String[] parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8).split(SEPARATOR, -1);
+        if (parts.length < 2) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+
+        List<String> values = new ArrayList<>(parts.length - 1);
+        for (int i = 1; i < parts.length; i++) {
+            values.add(NULL_VALUE.equals(parts[i]) ? null : decodeValue(parts[i]));
+        }
+
+        return new KeysetCursor(parts[0], values);
+    }
+
+    /**
+     * @return Token used on the 'cursor' parameter
+     */
+    public String encode() {
+        StringBuilder sb = new StringBuilder(signature);
+        values.stream().forEachOrdered(value -> sb.append(SEPARATOR).append(value == null ? NULL_VALUE : encodeValue(value)));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(sb.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Return the values of the cursor converted to the types of the sort fields.
+     * 
+     * @param metadata Metadata of the entity
+     * @param sorts Sorts used by the keyset
+     * @return Values of the cursor, null values included
+     * 
+     * @throws IllegalArgumentException When the cursor was built for other sort or the values are invalid
+     */
+    public List<Object> getValues(EntityMetadata metadata, List<SortModel> sorts) {
+        if (!signature.equals(signature(sorts)) || values.size() != sorts.size()) {
+            throw new IllegalArgumentException("The cursor was built for other sort");
+        }
+
+        List<Object> result = new ArrayList<>(values.size());
+        for (int i = 0; i < values.size(); i++) {
+            if (values.get(i) == null && !metadata.isNullable(sorts.get(i).getField())) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            result.add(values.get(i) == null ? null : fromCursorValue(metadata.getFieldType(sorts.get(i).getField()), values.get(i)));
+        }
+
+        return result;
+    }
+
+    private static String signature(List<SortModel> sorts) {
+        return sorts.stream().map(sortModel -> sortModel.getField() + ":" + sortModel.getType().name()).collect(Collectors.joining(","));
+    }
+
+    private static String toCursorValue(Object value) {
+        if (value instanceof Date) {
+            return String.valueOf(((Date) value).getTime());
+        }
+        if (value instanceof Calendar) {
+            return String.valueOf(((Calendar) value).getTimeInMillis());
+        }
+        if (value instanceof Enum) {
+            return ((Enum<?>) value).name();
+        }
+        return value.toString();
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static Object fromCursorValue(Class<?> type, String value) {
+        if (type == null || String.class.equals(type)) {
+            return value;
+        }
+        if (UUID.class.equals(type)) {
+            return UUID.fromString(value);
+        }
+        if (Boolean.class.equals(type) || boolean.class.equals(type)) {
+            return Boolean.valueOf(value);
+        }
+        if (type.isEnum()) {
+            return Enum.valueOf((Class<? extends Enum>) type, value);
+        }
+        if (Timestamp.class.equals(type)) {
+            return new Timestamp(Long.parseLong(value));
+        }
+        if (java.sql.Date.class.equals(type)) {
+            return new java.sql.Date(Long.parseLong(value));
+        }
+        if (Date.class.isAssignableFrom(type)) {
+            return new Date(Long.parseLong(value));
+        }
+        if (Calendar.class.isAssignableFrom(type)) {
+            Calendar calendar = Calendar.getInstance();
+            calendar.setTimeInMillis(Long.parseLong(value));
+            return calendar;
+        }
+        if (LocalDate.class.equals(type)) {
+            return LocalDate.parse(value);
+        }
+        if (LocalDateTime.class.equals(type)) {
+            return LocalDateTime.parse(value);
+        }
+        if (Instant.class.equals(type)) {
+            return Instant.parse(value);
+        }
+        return CrudUtilHelper.convertToFieldType(type, value);
+    }
+
+    private static String encodeValue(String value) {
+        try {
+            return URLEncoder.encode(value, StandardCharsets.UTF_8.name());
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String decodeValue(String value) {
+        try {
+            return URLDecoder.decode(value, StandardCharsets.UTF_8.name());
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "KeysetCursor [signature=" + signature + ", values=" + values + "]";
+    }
+
+}
@@ -6,7 +6,6 @@
  */
 package org.demoiselle.jee.crud.pagination;
 
-import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Logger;
@@ -24,6 +23,11 @@ import org.demoiselle.jee.crud.DemoiselleRequestContext;
 import org.demoiselle.jee.crud.ReservedHTTPHeaders;
 import org.demoiselle.jee.crud.ReservedKeyWords;
 import org.demoiselle.jee.crud.Search;
+import org.demoiselle.jee.crud.metadata.EntityMetadata;
+import org.demoiselle.jee.crud.metadata.EntityMetadataRegistry;
+import org.demoiselle.jee.crud.metadata.SearchMetadataRegistry;
+import org.demoiselle.jee.crud.request.RequestSpec;
+import org.demoiselle.jee.crud.sort.SortHelper;
 
 /**
  * Class responsible for managing the 'range' parameter comes from Url Query
@@ -42,6 +46,9 @@ import org.demoiselle.jee.crud.Search;
  * This object will be use on {@link AbstractDAO} class to execute the
  * pagination on database.
  *
+ * When the method is annotated with {@literal @Search(pagination = KEYSET)} the 'range' parameter
+ * is replaced by the opaque 'cursor' parameter returned on the 'Link' header, see {@link PaginationType#KEYSET}.
+ *
  */
 @RequestScoped
 public class PaginationHelper {
@@ -84,21 +91,37 @@ public class PaginationHelper {
         fillObjects(resourceInfo, uriInfo);
 
         drc.setPaginationEnabled(isPaginationEnabled());
+        drc.setPaginationType(getPaginationType());
+        drc.setCountStrategy(getCountStrategy());
 
         if (drc.isPaginationEnabled()) {
 
-            if (isRequestPagination()) {
-                checkAndFillRangeValues();
-            }
+            if (isKeysetPagination()) {
+                if (isRequestPagination()) {
+                    throw new IllegalArgumentException(message.rangeWithKeysetPagination());
+                }
 
-            if (hasSearchAnnotation() && !isRequestPagination()) {
                 drc.setLimit(getDefaultNumberPagination() - 1);
                 drc.setOffset(new Integer(0));
             }
+            else {
+                if (isRequestPagination()) {
+                    checkAndFillRangeValues();
+                }
+
+                if (hasSearchAnnotation() && !isRequestPagination()) {
+                    drc.setLimit(getDefaultNumberPagination() - 1);
+                    drc.setOffset(new Integer(0));
+                }
+            }
+        }
+
+        if (isRequestCursor() && !isKeysetPagination()) {
+            throw new IllegalArgumentException(message.cursorWithoutKeysetPagination());
         }
 
         if (hasSearchAnnotation() && isRequestPagination()) {
-            Search searchAnnotation = resourceInfo.getResourceMethod().getAnnotation(Search.class);
+            Search searchAnnotation = getSearch();
             // Pagination @Search.withPagination is disabled but the request parameter has 'range' parameter
             if (searchAnnotation.withPagination() == Boolean.FALSE) {
                 throw new IllegalArgumentException(message.paginationIsNotEnabled());
@@ -106,6 +129,38 @@ public class PaginationHelper {
         }
     }
 
+    /**
+     * Open the request query string to extract the value from 'cursor' parameter
+     * and fill the {@link DemoiselleRequestContext#setCursor(KeysetCursor)}.
+     *
+     * The cursor depends on the sort of the request, so this method should be called
+     * after {@link SortHelper#execute(ResourceInfo, UriInfo)}.
+     *
+     * @throws IllegalArgumentException The cursor is invalid or was built for other sort
+     */
+    public void executeCursor() {
+        drc.setCursor(null);
+
+        if (isKeysetPagination() && isRequestCursor()) {
+            String token = RequestSpec.of(drc, uriInfo).getCursor();
+
+            try {
+                KeysetCursor cursor = KeysetCursor.decode(token);
+                Class<?> targetClass = CrudUtilHelper.getTargetClass(resourceInfo.getResourceClass());
+
+                if (targetClass != null) {
+                    EntityMetadata metadata = EntityMetadataRegistry.get(targetClass);
+                    cursor.getValues(metadata, KeysetCursor.keysetSorts(metadata, drc.getSorts()));
+                }
+
+                drc.setCursor(cursor);
+            } catch (RuntimeException e) {
+                logger.warning(message.invalidCursorParameter() + ", [params: " + token + "]");
+                throw new IllegalArgumentException(message.invalidCursorParameter());
+            }
+        }
+    }
+
     private void fillObjects(ResourceInfo resourceInfo, UriInfo uriInfo) {
         this.resourceInfo = resourceInfo == null ? this.resourceInfo : resourceInfo;
         this.uriInfo = uriInfo == null ? this.uriInfo : uriInfo;
@@ -117,18 +172,74 @@ public class PaginationHelper {
      * @return pagination enabled/disabled
      */
     private Boolean isPaginationEnabled() {
-        if (paginationConfig.getIsGlobalEnabled() == Boolean.FALSE) {
+        // Streamed results are never paginated
+        if (paginationConfig.getIsGlobalEnabled() == Boolean.FALSE || drc.getStreamFormat() != null) {
             return Boolean.FALSE;
         }
 
         if (hasSearchAnnotation()) {
-            Search searchAnnotation = resourceInfo.getResourceMethod().getAnnotation(Search.class);
+            Search searchAnnotation = getSearch();
             return searchAnnotation.withPagination();
         }
 
         return paginationConfig.getIsGlobalEnabled();
     }
 
+    /**
+     * Get the type of pagination, {@link Search#pagination()} or {@link PaginationType#OFFSET}
+     * when the method isn't annotated
+     *
+     * @return Type of pagination
+     */
+    private PaginationType getPaginationType() {
+        if (hasSearchAnnotation()) {
+            Search searchAnnotation = getSearch();
+            return searchAnnotation.pagination();
+        }
+
+        return PaginationType.OFFSET;
+    }
+
+    /**
+     * Get the count strategy, {@link Search#countStrategy()} or {@link PaginationHelperConfig#getCountStrategy()}
+     * when the method isn't annotated or the annotation uses {@link CountStrategy#DEFAULT}
+     *
+     * @return Count strategy
+     */
+    private CountStrategy getCountStrategy() {
+        if (hasSearchAnnotation()) {
+            Search searchAnnotation = getSearch();
+            if (!CountStrategy.DEFAULT.equals(searchAnnotation.countStrategy())) {
+                return searchAnnotation.countStrategy();
+            }
+        }
+
+        CountStrategy countStrategy = paginationConfig.getCountStrategy();
+        return countStrategy == null || CountStrategy.DEFAULT.equals(countStrategy) ? CountStrategy.EXACT : countStrategy;
+    }
+
+    /**
+     * Check if the total of rows is unknown, what happens with {@link CountStrategy#NONE} before the last page
+     *
+     * @return is the total unknown or not
+     */
+    private Boolean isCountUnknown() {
+        return drc.isPaginationEnabled() && drc.getCount() == null && drc.getNextPageAvailable() != null;
+    }
+
+    private Boolean isKeysetPagination() {
+        return drc.isPaginationEnabled() && PaginationType.KEYSET.equals(drc.getPaginationType());
+    }
+
+    /**
+     * Check if the actual request has the 'cursor' parameter on query string
+     *
+     * @return is request with cursor or not
+     */
+    private Boolean isRequestCursor() {
+        return RequestSpec.of(drc, uriInfo).isCursorPresent();
+    }
+
     /**
      * Check if the actual request has the 'range' parameter on query string
      *
@@ -136,10 +247,7 @@ public class PaginationHelper {
      */
     private Boolean isRequestPagination() {
         // Verify if contains 'range' in url
-        if (uriInfo.getQueryParameters().containsKey(ReservedKeyWords.DEFAULT_RANGE_KEY.getKey())) {
-            return Boolean.TRUE;
-        }
-        return Boolean.FALSE;
+        return RequestSpec.of(drc, uriInfo).isRangePresent();
     }
 
     /**
@@ -153,9 +261,9 @@ public class PaginationHelper {
      * @throws IllegalArgumentException The format is invalid
      */
     private void checkAndFillRangeValues() throws IllegalArgumentException {
-        List<String> rangeList = uriInfo.getQueryParameters().get(ReservedKeyWords.DEFAULT_RANGE_KEY.getKey());
-        if (!rangeList.isEmpty()) {
-            String range[] = rangeList.get(0).split("-");
+        String rangeValue = RequestSpec.of(drc, uriInfo).getRange();
+        if (rangeValue != null) {
+            String range[] = rangeValue.split("-");
             if (range.length == 2) {
                 String offset = range[0];
                 String limit = range[1];
@@ -165,7 +273,7 @@ public class PaginationHelper {
                     drc.setLimit(new Integer(limit));
 
                     if (drc.getOffset() > drc.getLimit()) {
-                        logInvalidRangeParameters(rangeList.get(0));
+                        logInvalidRangeParameters(rangeValue);
                         throw new IllegalArgumentException(this.message.invalidRangeParameters());
                     }
 
@@ -175,11 +283,11 @@ public class PaginationHelper {
                     }
 
                 } catch (NumberFormatException nfe) {
-                    logInvalidRangeParameters(rangeList.get(0));
+                    logInvalidRangeParameters(rangeValue);
                     throw new IllegalArgumentException(message.invalidRangeParameters());
                 }
             } else {
-                logInvalidRangeParameters(rangeList.get(0));
+                logInvalidRangeParameters(rangeValue);
                 throw new IllegalArgumentException(message.invalidRangeParameters());
             }
         }
@@ -196,7 +304,7 @@ public class PaginationHelper {
      */
     private Integer getDefaultNumberPagination() {
         if (hasSearchAnnotation()) {
-            Search searchAnnotation = resourceInfo.getResourceMethod().getAnnotation(Search.class);
+            Search searchAnnotation = getSearch();
             return searchAnnotation.quantityPerPage();
         }
 
@@ -204,7 +312,11 @@ public class PaginationHelper {
     }
 
     private Boolean hasSearchAnnotation() {
-        return resourceInfo.getResourceMethod().isAnnotationPresent(Search.class);
+        return getSearch() != null;
+    }
+
+    private Search getSearch() {
+        return SearchMetadataRegistry.get(resourceInfo).getSearch();
     }
 
     /**
@@ -213,6 +325,19 @@ public class PaginationHelper {
      * @return is partial content or not
      */
     public Boolean isPartialContentResponse() {
+        // Change feed with more changes after the token of the response
+        if (drc.getSince() != null) {
+            return Boolean.TRUE.equals(drc.getNextPageAvailable());
+        }
+
+        if (isKeysetPagination()) {
+            return drc.getNextCursor() != null;
+        }
+
+        if (isCountUnknown()) {
+            return (drc.getOffset() != null && drc.getOffset() > 0) || Boolean.TRUE.equals(drc.getNextPageAvailable());
+        }
+
         Integer limit = drc.getLimit() == null ? 0 : drc.getLimit();
         Long count = drc.getCount() == null ? 0 : drc.getCount();
         return !((limit + 1) >= count);
@@ -223,13 +348,18 @@ public class PaginationHelper {
     }
 
     /**
-     * Build the 'Content-Range' HTTP Header value.
+     * Build the 'Content-Range' HTTP Header value, using '*' as total when the total is unknown.
      *
      * @return 'Content-Range' value
      */
     private String buildContentRange() {
         Integer limit = drc.getLimit() == null ? getDefaultNumberPagination() - 1 : drc.getLimit();
         Integer offset = drc.getOffset() == null ? 0 : drc.getOffset();
+
+        if (isCountUnknown()) {
+            return offset + "-" + limit + "/*";
+        }
+
         Long count = drc.getCount() == null ? 0 : drc.getCount();
         return offset + "-" + (limit.equals(0) ? count - 1 : limit) + "/" + count;
     }
@@ -261,7 +391,7 @@ public class PaginationHelper {
     }
 
     /**
-     * Set the 'Content-Range', 'Accept-Range', 'Link' and
+     * Set the 'Content-Range', 'Accept-Range', 'Link', 'X-Since-Token' and
      * 'Access-Control-Expose-Headers' HTTP headers;
      *
      * @param resourceInfo ResourceInfo
@@ -273,7 +403,20 @@ public class PaginationHelper {
         fillObjects(resourceInfo, uriInfo);
         Map<String, String> headers = new ConcurrentHashMap<>();
 
-        if (drc.isPaginationEnabled()) {
+        if (drc.getSince() != null) {
+            if (drc.getNextSince() != null) {
+                headers.putIfAbsent(ReservedHTTPHeaders.HTTP_HEADER_SINCE_TOKEN.getKey(), drc.getNextSince().encode());
+            }
+        }
+        else if (isKeysetPagination()) {
+            headers.putIfAbsent(ReservedHTTPHeaders.HTTP_HEADER_ACCEPT_RANGE.getKey(), buildAcceptRange());
+            String linkHeader = buildKeysetLinkHeader();
+
+            if (!linkHeader.isEmpty()) {
+                headers.putIfAbsent(HttpHeaders.LINK, linkHeader);
+            }
+        }
+        else if (drc.isPaginationEnabled()) {
             headers.putIfAbsent(ReservedHTTPHeaders.HTTP_HEADER_CONTENT_RANGE.getKey(), buildContentRange());
             headers.putIfAbsent(ReservedHTTPHeaders.HTTP_HEADER_ACCEPT_RANGE.getKey(), buildAcceptRange());
             String linkHeader = buildLinkHeader();
@@ -308,8 +451,9 @@ public class PaginationHelper {
         Integer limit = drc.getLimit() + 1;
         Integer quantityPerPage = (limit - offset) + 1;
 
-        if (uriInfo.getQueryParameters().isEmpty()
-                || (uriInfo.getQueryParameters().size() == 1 && uriInfo.getQueryParameters().containsKey(ReservedKeyWords.DEFAULT_RANGE_KEY.getKey()))) {
+        RequestSpec spec = RequestSpec.of(drc, uriInfo);
+        if (spec.getParameterCount() == 0
+                || (spec.getParameterCount() == 1 && spec.isRangePresent())) {
             url += "?" + ReservedKeyWords.DEFAULT_RANGE_KEY.getKey() + "=";
         } else {
             url += "&" + ReservedKeyWords.DEFAULT_RANGE_KEY.getKey() + "=";
@@ -326,7 +470,13 @@ public class PaginationHelper {
             sb.append("<").append(prevPage).append(">; rel=\"prev\",");
         }
 
-        if (isPartialContentResponse()) {
+        if (isCountUnknown()) {
+            if (Boolean.TRUE.equals(drc.getNextPageAvailable())) {
+                String nextPage = url + (drc.getOffset() + quantityPerPage) + "-" + (2 * quantityPerPage + drc.getOffset() - 1);
+                sb.append("<").append(nextPage).append(">; rel=\"next\"");
+            }
+        }
+        else if (isPartialContentResponse()) {
             String nextPage = url + (drc.getOffset() + quantityPerPage) + "-" + (2 * quantityPerPage + drc.getOffset() - 1);
             String lastPage = url + (drc.getCount() - quantityPerPage) + "-" + (drc.getCount() - 1);
 
@@ -341,6 +491,43 @@ public class PaginationHelper {
         return sb.toString();
     }
 
+    /**
+     * Build the 'Link' HTTP header value of a keyset paginated request, with the
+     * 'first' page (when the request isn't the first page) and the 'next' page
+     * (when there are more rows)
+     *
+     * @return 'Link' value
+     */
+    private String buildKeysetLinkHeader() {
+        StringBuilder sb = new StringBuilder();
+        String url = removeQueryParameter(uriInfo.getRequestUri().toString(), ReservedKeyWords.DEFAULT_CURSOR_KEY.getKey());
+
+        if (drc.getCursor() != null) {
+            sb.append("<").append(url).append(">; rel=\"first\"");
+        }
+
+        if (drc.getNextCursor() != null) {
+            String nextPage = url + (url.contains("?") ? "&" : "?") + ReservedKeyWords.DEFAULT_CURSOR_KEY.getKey() + "=" + drc.getNextCursor().encode();
+
+            if (sb.length() > 0) {
+                sb.append(",");
+            }
+            sb.append("<").append(nextPage).append(">; rel=\"next\"");
+        }
+
+        return sb.toString();
+    }
+
+    private static String removeQueryParameter(String url, String parameter) {
+        String result = url.replaceAll("([?&])" + parameter + "=[^&]*&?", "$1");
+
+        if (result.endsWith("?") || result.endsWith("&")) {
+            result = result.substring(0, result.length() - 1);
+        }
+
+        return result;
+    }
+
     private Boolean isFirstPage() {
         return drc.getOffset().equals(0);
     }
@@ -18,6 +18,9 @@ public class PaginationHelperConfig {
 	
     private Boolean isGlobalEnabled = Boolean.TRUE;
 	private Integer defaultPagination = new Integer(20);
+	private CountStrategy countStrategy = CountStrategy.EXACT;
+	private Integer countCacheTimeToLive = new Integer(60);
+	private Integer countCacheSize = new Integer(1024);
 
 	public Integer getDefaultPagination() {
 		return defaultPagination;
@@ -27,4 +30,31 @@ public class PaginationHelperConfig {
         return isGlobalEnabled;
     }
 
+    /**
+     * Strategy used to count the rows of paginated requests, see {@link CountStrategy}.
+     * 
+     * @return Count strategy
+     */
+    public CountStrategy getCountStrategy() {
+        return countStrategy;
+    }
+
+    /**
+     * Time in seconds that a count is kept by {@link CountStrategy#CACHED} strategy.
+     * 
+     * @return Time to live in seconds
+     */
+    public Integer getCountCacheTimeToLive() {
+        return countCacheTimeToLive;
+    }
+
+    /**
+     * Max number of counts kept by entity on {@link CountStrategy#CACHED} strategy.
+     * 
+     * @return Max number of counts
+     */
+    public Integer getCountCacheSize() {
+        return countCacheSize;
+    }
+
 }
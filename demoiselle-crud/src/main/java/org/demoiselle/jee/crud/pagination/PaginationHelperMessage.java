@@ -27,4 +27,13 @@ public interface PaginationHelperMessage {
 	@MessageTemplate("{pagination-is-not-enabled}")
     String paginationIsNotEnabled();
 
+	@MessageTemplate("{invalid-cursor-parameter}")
+	String invalidCursorParameter();
+
+	@MessageTemplate("{cursor-without-keyset-pagination}")
+	String cursorWithoutKeysetPagination();
+
+	@MessageTemplate("{range-with-keyset-pagination}")
+	String rangeWithKeysetPagination();
+
 }
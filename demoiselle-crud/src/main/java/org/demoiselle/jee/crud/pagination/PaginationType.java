@@ -0,0 +1,30 @@
+/*
+ * Demoiselle Framework
+ *
+ * License: GNU Lesser General Public License (LGPL), version 3 or later.
+ * See the lgpl.txt file in the root directory or <https://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.demoiselle.jee.crud.pagination;
+
+import org.demoiselle.jee.crud.Search;
+
+/**
+ * Types of pagination supported by {@link Search#pagination()}.
+ * 
+ * @author SERPRO
+ */
+public enum PaginationType {
+
+    /**
+     * Pages are requested with the 'range=offset-limit' parameter and the database skips 'offset' rows.
+     */
+    OFFSET,
+
+    /**
+     * Pages are requested with the opaque 'cursor' parameter returned on the 'Link' header and the 
+     * database seeks directly to the rows after the last row of the previous page, using the sort fields
+     * and the id of the entity. The total of rows is not counted.
+     */
+    KEYSET;
+
+}
@@ -0,0 +1,223 @@
+/*
+ * Demoiselle Framework
+ *
+ * License: GNU Lesser General Public License (LGPL), version 3 or later.
+ * See the lgpl.txt file in the root directory or <https://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.demoiselle.jee.crud.query;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+
+import org.demoiselle.jee.crud.AbstractDAO;
+import org.demoiselle.jee.crud.metadata.EntityMetadata;
+import org.demoiselle.jee.crud.metadata.EntityMetadataRegistry;
+
+/**
+ * Compiled partial update of an entity, used by {@link AbstractDAO#mergeHalf(Object, Object)} and
+ * {@link AbstractDAO#updateByFilter(Object)}.
+ *
+ * The accessors of the {@link EntityMetadata#getUpdatableFields()} are prepared once per entity and the 
+ * JPQL statement is built once per combination of non-null fields, so a request only reads the values and 
+ * binds them. Reusing the same statement string also lets the provider reuse its parsed query.
+ *
+ * Like {@link AbstractDAO#updateByFilter(Object)}, the statement increments the {@link javax.persistence.Version} 
+ * field (or sets it to the actual time when it is a timestamp) and sets the {@link org.demoiselle.jee.crud.LastModified} 
+ * timestamp, so the 'ETag' and the change feed see the updated row. The version field never takes part on the values.
+ *
+ * @author SERPRO
+ */
+public final class PartialUpdate {
+
+    private static final Map<Class<?>, PartialUpdate> UPDATES = new ConcurrentHashMap<>();
+
+    private final String entityName;
+    private final String idAttribute;
+    private final List<String> names;
+    private final List<MethodHandle> getters;
+    private final String versionAttribute;
+    private final Class<?> versionType;
+    private final String lastModifiedAttribute;
+    private final Class<?> lastModifiedType;
+    private final int lastModifiedIndex;
+    private final Map<BitSet, String> statements = new ConcurrentHashMap<>();
+
+    private PartialUpdate(Class<?> entityClass) {
+        EntityMetadata metadata = EntityMetadataRegistry.get(entityClass);
+        List<String> fieldNames = new ArrayList<>();
+        List<MethodHandle> fieldGetters = new ArrayList<>();
+
+        for (Field field : metadata.getUpdatableFields()) {
+            if (field.getName().equals(metadata.getVersionAttribute())) {
+                continue;
+            }
+            try {
+                field.setAccessible(true);
+                fieldGetters.add(MethodHandles.lookup().unreflectGetter(field));
+                fieldNames.add(field.getName());
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException("Field " + field.getName() + " of " + entityClass.getName() + " can't be read", e);
+            }
+        }
+
+        this.entityName = entityClass.getCanonicalName();
+        this.idAttribute = metadata.getIdAttribute();
+        this.names = Collections.unmodifiableList(fieldNames);
+        this.getters = Collections.unmodifiableList(fieldGetters);
+
+        this.versionAttribute = metadata.getVersionAttribute();
+        this.versionType = versionAttribute == null ? null : metadata.getFieldType(versionAttribute);
+
+        String lastModified = metadata.getLastModifiedAttribute();
+        boolean stamped = lastModified != null && !lastModified.equals(versionAttribute) 
+                && EntityMetadata.isTemporal(metadata.getFieldType(lastModified));
+        this.lastModifiedAttribute = stamped ? lastModified : null;
+        this.lastModifiedType = stamped ? metadata.getFieldType(lastModified) : null;
+        this.lastModifiedIndex = fieldNames.indexOf(lastModified);
+    }
+
+    /**
+     * Return the partial update of the entity, compiling it when necessary.
+     *
+     * @param entityClass Class of the entity
+     * @return The partial update
+     */
+    public static PartialUpdate of(Class<?> entityClass) {
+        return UPDATES.computeIfAbsent(entityClass, PartialUpdate::new);
+    }
+
+    /**
+     * Create the update of the non-null updatable fields of the entity.
+     *
+     * @param entityManager EntityManager
+     * @param id Id of the row to be updated
+     * @param entity Entity with the new values
+     * @return Query ready to be executed or null when there is nothing to update
+     */
+    public Query createQuery(EntityManager entityManager, Object id, Object entity) {
+        BitSet mask = new BitSet(getters.size());
+        Object[] values = new Object[getters.size()];
+
+        for (int i = 0; i < getters.size(); i++) {
+            values[i] = get(i, entity);
+            if (values[i] != null) {
+                mask.set(i);
+            }
+        }
+
+        if (mask.isEmpty()) {
+            return null;
+        }
+
+        Query query = entityManager.createQuery(getStatement(mask));
+        int position = 1;
+        for (int i = mask.nextSetBit(0); i >= 0; i = mask.nextSetBit(i + 1)) {
+            query.setParameter(position++, values[i]);
+        }
+
+        Date now = new Date();
+        if (versionAttribute != null && EntityMetadata.isTemporal(versionType)) {
+            query.setParameter(position++, EntityMetadata.toTemporalValue(versionType, now));
+        }
+        if (isLastModifiedStamped(mask)) {
+            query.setParameter(position++, EntityMetadata.toTemporalValue(lastModifiedType, now));
+        }
+        query.setParameter(position, id);
+
+        return query;
+    }
+
+    /**
+     * Read the non-null updatable fields of the entity.
+     *
+     * @param entity Entity with the new values
+     * @return Values indexed by the name of the field, empty when there is nothing to update
+     */
+    public Map<String, Object> getValues(Object entity) {
+        Map<String, Object> values = new LinkedHashMap<>();
+
+        for (int i = 0; i < getters.size(); i++) {
+            Object value = get(i, entity);
+            if (value != null) {
+                values.put(names.get(i), value);
+            }
+        }
+
+        return values;
+    }
+
+    /**
+     * Return the statement that updates the fields of the mask, with one positional 
+     * parameter per field, followed by the timestamps of the version and of the last
+     * modification, when the entity has them, and by the id.
+     *
+     * @param mask Indexes of the fields to be updated
+     * @return JPQL statement
+     */
+    public String getStatement(BitSet mask) {
+        return statements.computeIfAbsent(mask, this::buildStatement);
+    }
+
+    /**
+     * @return Number of statements already compiled
+     */
+    public int size() {
+        return statements.size();
+    }
+
+    private String buildStatement(BitSet mask) {
+        StringBuilder sb = new StringBuilder("UPDATE ").append(entityName).append(" SET ");
+        int position = 1;
+
+        for (int i = mask.nextSetBit(0); i >= 0; i = mask.nextSetBit(i + 1)) {
+            if (position > 1) {
+                sb.append(", ");
+            }
+            sb.append(names.get(i)).append(" = ?").append(position++);
+        }
+
+        if (versionAttribute != null) {
+            sb.append(", ").append(versionAttribute);
+            if (EntityMetadata.isTemporal(versionType)) {
+                sb.append(" = ?").append(position++);
+            }
+            else {
+                sb.append(" = ").append(versionAttribute).append(" + 1");
+            }
+        }
+        if (isLastModifiedStamped(mask)) {
+            sb.append(", ").append(lastModifiedAttribute).append(" = ?").append(position++);
+        }
+        sb.append(" WHERE ").append(idAttribute).append(" = ?").append(position);
+
+        return sb.toString();
+    }
+
+    /**
+     * The last modification is stamped unless the request itself changes it.
+     */
+    private boolean isLastModifiedStamped(BitSet mask) {
+        return lastModifiedAttribute != null && (lastModifiedIndex < 0 || !mask.get(lastModifiedIndex));
+    }
+
+    private Object get(int index, Object entity) {
+        try {
+            return getters.get(index).invoke(entity);
+        } catch (Throwable e) {
+            throw new IllegalStateException("Field " + names.get(index) + " of " + entityName + " can't be read", e);
+        }
+    }
+
+}
@@ -0,0 +1,233 @@
+/*
+ * Demoiselle Framework
+ *
+ * License: GNU Lesser General Public License (LGPL), version 3 or later.
+ * See the lgpl.txt file in the root directory or <https://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.demoiselle.jee.crud.query;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.persistence.Tuple;
+import javax.persistence.metamodel.Attribute;
+import javax.persistence.metamodel.Attribute.PersistentAttributeType;
+import javax.persistence.metamodel.ManagedType;
+import javax.persistence.metamodel.Metamodel;
+
+import org.demoiselle.jee.crud.CrudFilter;
+import org.demoiselle.jee.crud.TreeNodeField;
+import org.demoiselle.jee.crud.metadata.EntityMetadataRegistry;
+
+/**
+ * The fields requested by 'fields=...' (or by {@literal @}Search.fields) translated to the select list of a query.
+ * 
+ * Only the requested attributes are selected and only the requested associations are joined. The rows
+ * are returned as maps with the same shape built by {@link CrudFilter} from the entities:
+ * 
+ * <pre>
+ * fields=name,address(street)  -&gt;  {"name": "John", "address": {"street": "..."}}
+ * </pre>
+ * 
+ * A projection can't be built when a field is a collection or has more than two levels, in that case the 
+ * entities are loaded as before.
+ * 
+ * @author SERPRO
+ */
+public final class Projection {
+
+    private final List<Node> nodes;
+    private final String signature;
+
+    private Projection(List<Node> nodes, String signature) {
+        this.nodes = Collections.unmodifiableList(nodes);
+        this.signature = signature;
+    }
+
+    /**
+     * Build the projection of the fields.
+     * 
+     * @param metamodel Metamodel of the persistence unit
+     * @param entityClass Entity queried
+     * @param fields Requested fields
+     * @return The projection or null when the fields can't be projected
+     */
+    public static Projection of(Metamodel metamodel, Class<?> entityClass, TreeNodeField<String, Set<String>> fields) {
+        try {
+            ManagedType<?> type = metamodel.managedType(entityClass);
+            List<Node> nodes = new ArrayList<>();
+            StringBuilder signature = new StringBuilder();
+
+            for (TreeNodeField<String, Set<String>> field : fields.getChildren()) {
+                Attribute<?, ?> attribute = type.getAttribute(field.getKey());
+                if (attribute.isCollection()) {
+                    return null;
+                }
+
+                Node node = new Node(field.getKey(), attribute);
+                signature.append(signature.length() == 0 ? "" : ",").append(field.getKey());
+
+                if (!field.getChildren().isEmpty()) {
+                    if (!node.isAssociation() && !node.isEmbedded()) {
+                        return null;
+                    }
+
+                    ManagedType<?> childType = metamodel.managedType(attribute.getJavaType());
+                    if (node.isAssociation()) {
+                        node.marker = EntityMetadataRegistry.get(attribute.getJavaType()).getIdAttribute();
+                    }
+
+                    signature.append('(');
+                    for (TreeNodeField<String, Set<String>> child : field.getChildren()) {
+                        Attribute<?, ?> childAttribute = childType.getAttribute(child.getKey());
+                        if (!child.getChildren().isEmpty() || childAttribute.isCollection() || isJoined(childAttribute)) {
+                            return null;
+                        }
+                        node.children.add(child.getKey());
+                        signature.append(child.getKey()).append(' ');
+                    }
+                    signature.append(')');
+                }
+
+                nodes.add(node);
+            }
+
+            return nodes.isEmpty() ? null : new Projection(nodes, signature.toString());
+        } catch (IllegalArgumentException e) {
+            // Field or type unknown by the persistence unit
+            return null;
+        }
+    }
+
+    private static boolean isJoined(Attribute<?, ?> attribute) {
+        return PersistentAttributeType.MANY_TO_ONE.equals(attribute.getPersistentAttributeType())
+                || PersistentAttributeType.ONE_TO_ONE.equals(attribute.getPersistentAttributeType());
+    }
+
+    /**
+     * @return Identifies the requested fields on the key of a {@link QueryShape}
+     */
+    public String getSignature() {
+        return signature;
+    }
+
+    /**
+     * Render the JPQL select list of the requested fields.
+     * 
+     * @param alias Alias of the entity queried
+     * @return Select items in the order expected by {@link #toMap(Tuple)}
+     */
+    public String buildSelectClause(String alias) {
+        List<String> selections = new ArrayList<>();
+
+        nodes.stream().forEachOrdered(node -> {
+            String path = node.isAssociation() ? joinAlias(alias, node) : alias + "." + node.key;
+            if (node.children.isEmpty()) {
+                selections.add(path);
+            }
+            else {
+                if (node.marker != null) {
+                    selections.add(path + "." + node.marker);
+                }
+                node.children.stream().forEachOrdered(child -> selections.add(path + "." + child));
+            }
+        });
+
+        return String.join(", ", selections);
+    }
+
+    /**
+     * Render the joins (LEFT) of the requested associations used by {@link #buildSelectClause(String)}.
+     * 
+     * @param alias Alias of the entity queried
+     * @return The joins, each one preceded by a space, or an empty string
+     */
+    public String buildJoinClause(String alias) {
+        StringBuilder joins = new StringBuilder();
+
+        nodes.stream().filter(Node::isAssociation).forEachOrdered(node -> 
+            joins.append(" LEFT JOIN ").append(alias).append('.').append(node.key).append(' ').append(joinAlias(alias, node)));
+
+        return joins.toString();
+    }
+
+    private static String joinAlias(String alias, Node node) {
+        return alias + "_" + node.key;
+    }
+
+    /**
+     * Convert a row to the shape of the response.
+     * 
+     * @param tuple Row selected by {@link #buildSelectClause(String)}
+     * @return Map with the requested fields
+     */
+    public Map<String, Object> toMap(Tuple tuple) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        int index = 0;
+
+        for (Node node : nodes) {
+            if (node.children.isEmpty()) {
+                result.put(node.key, tuple.get(index++));
+                continue;
+            }
+
+            Map<String, Object> child = new LinkedHashMap<>();
+            boolean present = node.marker == null || tuple.get(index++) != null;
+
+            for (String childKey : node.children) {
+                Object value = tuple.get(index++);
+                if (present) {
+                    child.put(childKey, value);
+                }
+            }
+
+            result.put(node.key, child);
+        }
+
+        return result;
+    }
+
+    /**
+     * Convert all rows, see {@link #toMap(Tuple)}.
+     * 
+     * @param tuples Rows
+     * @return Rows converted
+     */
+    public List<Map<String, Object>> toMaps(List<Tuple> tuples) {
+        List<Map<String, Object>> result = new ArrayList<>(tuples.size());
+        tuples.stream().forEachOrdered(tuple -> result.add(toMap(tuple)));
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "Projection [" + signature + "]";
+    }
+
+    private static final class Node {
+
+        private final String key;
+        private final Attribute<?, ?> attribute;
+        private final List<String> children = new ArrayList<>();
+        private String marker;
+
+        private Node(String key, Attribute<?, ?> attribute) {
+            this.key = key;
+            this.attribute = attribute;
+        }
+
+        private boolean isAssociation() {
+            return isJoined(attribute);
+        }
+
+        private boolean isEmbedded() {
+            return PersistentAttributeType.EMBEDDED.equals(attribute.getPersistentAttributeType());
+        }
+
+    }
+
+}
@@ -0,0 +1,106 @@
+/*
+ * Demoiselle Framework
+ *
+ * License: GNU Lesser General Public License (LGPL), version 3 or later.
+ * See the lgpl.txt file in the root directory or <https://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.demoiselle.jee.crud.query;
+
+import java.util.List;
+
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+
+/**
+ * JPQL of the data and count queries rendered for a {@link QueryShape} by {@link QueryPlanBuilder}.
+ *
+ * Both statements use the same named parameters ({@link #parameterName(int)}), bound in the order of
+ * {@link QueryShape#getValues()}. A plan holds only strings, so it can be shared by concurrent requests,
+ * and the statements are translated once by the persistence provider, that caches the queries by their JPQL.
+ *
+ * Plans of keyset paginated shapes don't have the count query, since these requests are never counted.
+ *
+ * @author SERPRO
+ */
+public final class QueryPlan<T> {
+
+    private final Class<T> resultClass;
+    private final String dataQuery;
+    private final String countQuery;
+    private final int parameterCount;
+
+    public QueryPlan(Class<T> resultClass, String dataQuery, String countQuery, int parameterCount) {
+        this.resultClass = resultClass;
+        this.dataQuery = dataQuery;
+        this.countQuery = countQuery;
+        this.parameterCount = parameterCount;
+    }
+
+    /**
+     * @param index Position of the value on {@link QueryShape#getValues()}
+     * @return Name of the parameter that receives the value
+     */
+    public static String parameterName(int index) {
+        return "p" + index;
+    }
+
+    public Class<T> getResultClass() {
+        return resultClass;
+    }
+
+    public String getDataQuery() {
+        return dataQuery;
+    }
+
+    /**
+     * @return The count query or null when the plan doesn't count
+     */
+    public String getCountQuery() {
+        return countQuery;
+    }
+
+    public int getParameterCount() {
+        return parameterCount;
+    }
+
+    /**
+     * Create the data query and bind the values.
+     *
+     * @param entityManager EntityManager
+     * @param values Values of the shape
+     * @return Query ready to be executed
+     */
+    public TypedQuery<T> createDataQuery(EntityManager entityManager, List<Object> values) {
+        return bind(entityManager.createQuery(dataQuery, resultClass), values);
+    }
+
+    /**
+     * Create the count query and bind the values.
+     *
+     * @param entityManager EntityManager
+     * @param values Values of the shape
+     * @return Query ready to be executed
+     */
+    public TypedQuery<Long> createCountQuery(EntityManager entityManager, List<Object> values) {
+        if (countQuery == null) {
+            throw new IllegalStateException("The plan doesn't have a count query");
+        }
+        return bind(entityManager.createQuery(countQuery, Long.class), values);
+    }
+
+    private <X> TypedQuery<X> bind(TypedQuery<X> query, List<Object> values) {
+        if (values.size() != parameterCount) {
+            throw new IllegalArgumentException("Expected " + parameterCount + " values but got " + values.size());
+        }
+        for (int i = 0; i < parameterCount; i++) {
+            query.setParameter(parameterName(i), values.get(i));
+        }
+        return query;
+    }
+
+    @Override
+    public String toString() {
+        return "QueryPlan [" + dataQuery + "]";
+    }
+
+}
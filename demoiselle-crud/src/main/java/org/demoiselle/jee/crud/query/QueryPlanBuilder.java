@@ -0,0 +1,239 @@
+/*
+ * Demoiselle Framework
+ *
+ * License: GNU Lesser General Public License (LGPL), version 3 or later.
+ * See the lgpl.txt file in the root directory or <https://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.demoiselle.jee.crud.query;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.persistence.Tuple;
+
+import org.demoiselle.jee.crud.AbstractDAO;
+import org.demoiselle.jee.crud.filter.FilterOperator;
+import org.demoiselle.jee.crud.metadata.EntityMetadata;
+import org.demoiselle.jee.crud.sort.CrudSort;
+import org.demoiselle.jee.crud.sort.SortModel;
+
+/**
+ * Render the {@link QueryPlan} of a {@link QueryShape}, with named parameters in place of the values.
+ *
+ * The statements follow the same rules of the criteria built by {@link AbstractDAO} when its query hooks
+ * aren't customized: the terms of a group are combined with OR, the groups with AND and each group of
+ * second level filters joins (INNER) its association.
+ *
+ * @author SERPRO
+ */
+public final class QueryPlanBuilder {
+
+    private static final String ALIAS = "e";
+
+    private final String entityName;
+    private final EntityMetadata metadata;
+
+    /**
+     * @param entityName Name of the entity on the persistence unit that executes the plans
+     * @param metadata Metadata of the entity
+     */
+    public QueryPlanBuilder(String entityName, EntityMetadata metadata) {
+        this.entityName = entityName;
+        this.metadata = metadata;
+    }
+
+    /**
+     * Build the plan selecting the entities.
+     *
+     * @param resultClass Entity class
+     * @param shape Shape of the request
+     * @param sorts Sorts of the request, ignored when the shape is paginated by keyset
+     * @return The plan
+     */
+    public <T> QueryPlan<T> build(Class<T> resultClass, QueryShape shape, List<SortModel> sorts) {
+        return build(resultClass, shape, sorts, ALIAS, "");
+    }
+
+    /**
+     * Build the plan selecting only the fields of the projection.
+     *
+     * @param shape Shape of the request
+     * @param projection Projection of the requested fields
+     * @param sorts Sorts of the request, ignored when the shape is paginated by keyset
+     * @return The plan
+     */
+    public QueryPlan<Tuple> build(QueryShape shape, Projection projection, List<SortModel> sorts) {
+        return build(Tuple.class, shape, sorts, projection.buildSelectClause(ALIAS), projection.buildJoinClause(ALIAS));
+    }
+
+    private <T> QueryPlan<T> build(Class<T> resultClass, QueryShape shape, List<SortModel> sorts, String select, String selectJoins) {
+        Parameters parameters = new Parameters();
+        StringBuilder from = new StringBuilder(" FROM ").append(entityName).append(' ').append(ALIAS);
+        List<String> conditions = new ArrayList<>();
+
+        for (QueryShape.Group group : shape.getGroups()) {
+            String alias = ALIAS;
+            if (group.getParentKey() != null) {
+                alias = "j" + conditions.size();
+                from.append(" JOIN ").append(ALIAS).append('.').append(group.getParentKey()).append(' ').append(alias);
+            }
+            conditions.add(renderGroup(group, alias, parameters));
+        }
+
+        if (shape.isKeyset()) {
+            if (shape.getKeysetValues() != null) {
+                conditions.add(renderSeek(shape.getKeysetSorts(), shape.getKeysetValues(), parameters));
+            }
+
+            // Keyset paginated requests are never counted
+            String dataQuery = "SELECT " + select + from + selectJoins + renderWhere(conditions) + renderKeysetOrder(shape.getKeysetSorts());
+            return new QueryPlan<>(resultClass, dataQuery, null, parameters.count);
+        }
+
+        String where = renderWhere(conditions);
+        String dataQuery = "SELECT " + select + from + selectJoins + where + renderOrder(sorts);
+        String countQuery = "SELECT COUNT(" + ALIAS + ")" + from + where;
+        return new QueryPlan<>(resultClass, dataQuery, countQuery, parameters.count);
+    }
+
+    private static String renderWhere(List<String> conditions) {
+        return conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions);
+    }
+
+    private String renderGroup(QueryShape.Group group, String alias, Parameters parameters) {
+        List<String> terms = new ArrayList<>(group.getTerms().size());
+        group.getTerms().stream().forEachOrdered(term -> terms.add(renderTerm(term, alias, parameters)));
+
+        // Same as an empty disjunction of the criteria
+        return terms.isEmpty() ? "1 = 0" : "(" + String.join(" OR ", terms) + ")";
+    }
+
+    private String renderTerm(QueryShape.Term term, String alias, Parameters parameters) {
+        String path = alias + "." + term.getKey();
+
+        switch (term.getOperator()) {
+            case NULL:
+                return path + " IS NULL";
+            case EMPTY:
+                return path + " IS EMPTY";
+            case LIKE:
+                return "LOWER(" + path + ") LIKE :" + parameters.next();
+            case TRUE:
+                return path + " = TRUE";
+            case FALSE:
+                return path + " = FALSE";
+            case INDEXED:
+                return renderIndexed(term, alias, path, parameters);
+            case NONE:
+                return "1 = 0";
+            default:
+                // The shape doesn't bind null values, compared as the criteria does
+                return term.getValue() == null ? path + " IS NULL" : path + " = :" + parameters.next();
+        }
+    }
+
+    /**
+     * The {@link FilterOperator#INDEXED} term, with the values bound in order: the candidates of the index
+     * or null, the LIKE pattern and the time since the index may miss writes or null. The LIKE is kept, so
+     * the candidates that no longer match are left out by the database.
+     */
+    private String renderIndexed(QueryShape.Term term, String alias, String path, Parameters parameters) {
+        List<String> alternatives = new ArrayList<>(2);
+        if (term.getValues().get(0) != null) {
+            alternatives.add(alias + "." + metadata.getIdAttribute() + " IN :" + parameters.next());
+        }
+        String like = "LOWER(" + path + ") LIKE :" + parameters.next();
+        if (term.getValues().get(2) != null) {
+            alternatives.add(alias + "." + metadata.getLastModifiedAttribute() + " >= :" + parameters.next());
+        }
+
+        return "((" + String.join(" OR ", alternatives) + ") AND " + like + ")";
+    }
+
+    /**
+     * The rows after the cursor: (s1 &gt; v1) OR (s1 = v1 AND s2 &gt; v2) OR ... using '&lt;' for the descending
+     * sorts, with the null values placed by {@link #renderKeysetOrder(List)}. The same rules of the criteria
+     * built by {@link AbstractDAO} for the customized hooks.
+     */
+    private String renderSeek(List<SortModel> sorts, List<Object> values, Parameters parameters) {
+        // Only the non-null values are bound
+        List<String> names = new ArrayList<>(values.size());
+        values.stream().forEachOrdered(value -> names.add(value == null ? null : parameters.next()));
+
+        List<String> alternatives = new ArrayList<>(sorts.size());
+        for (int i = 0; i < sorts.size(); i++) {
+            List<String> conditions = new ArrayList<>(i + 1);
+
+            for (int j = 0; j < i; j++) {
+                String previous = ALIAS + "." + sorts.get(j).getField();
+                conditions.add(names.get(j) == null ? previous + " IS NULL" : previous + " = :" + names.get(j));
+            }
+
+            String path = ALIAS + "." + sorts.get(i).getField();
+            boolean ascending = CrudSort.ASC.equals(sorts.get(i).getType());
+
+            if (names.get(i) == null) {
+                if (ascending) {
+                    // Nothing comes after the null values
+                    continue;
+                }
+                conditions.add(path + " IS NOT NULL");
+            } else if (ascending) {
+                String greater = path + " > :" + names.get(i);
+                conditions.add(metadata.isNullable(sorts.get(i).getField()) ? "(" + greater + " OR " + path + " IS NULL)" : greater);
+            } else {
+                conditions.add(path + " < :" + names.get(i));
+            }
+
+            alternatives.add("(" + String.join(" AND ", conditions) + ")");
+        }
+
+        return alternatives.isEmpty() ? "1 = 0" : "(" + String.join(" OR ", alternatives) + ")";
+    }
+
+    /**
+     * Order of the keyset, where a nullable field is preceded by 'CASE WHEN field IS NULL THEN 1 ELSE 0 END'
+     * on the same direction.
+     */
+    private String renderKeysetOrder(List<SortModel> sorts) {
+        List<String> orders = new ArrayList<>(sorts.size());
+
+        sorts.stream().forEachOrdered(sortModel -> {
+            String path = ALIAS + "." + sortModel.getField();
+            String direction = CrudSort.ASC.equals(sortModel.getType()) ? " ASC" : " DESC";
+
+            if (metadata.isNullable(sortModel.getField())) {
+                orders.add("CASE WHEN " + path + " IS NULL THEN 1 ELSE 0 END" + direction);
+            }
+            orders.add(path + direction);
+        });
+
+        return " ORDER BY " + String.join(", ", orders);
+    }
+
+    private static String renderOrder(List<SortModel> sorts) {
+        if (sorts == null || sorts.isEmpty()) {
+            return "";
+        }
+
+        List<String> orders = new ArrayList<>(sorts.size());
+        sorts.stream().forEachOrdered(sortModel ->
+                orders.add(ALIAS + "." + sortModel.getField() + (CrudSort.ASC.equals(sortModel.getType()) ? " ASC" : " DESC")));
+
+        return " ORDER BY " + String.join(", ", orders);
+    }
+
+    /**
+     * Names the parameters in the order the values are bound.
+     */
+    private static final class Parameters {
+
+        private int count;
+
+        String next() {
+            return QueryPlan.parameterName(count++);
+        }
+
+    }
+
+}
@@ -0,0 +1,139 @@
+/*
+ * Demoiselle Framework
+ *
+ * License: GNU Lesser General Public License (LGPL), version 3 or later.
+ * See the lgpl.txt file in the root directory or <https://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.demoiselle.jee.crud.query;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import org.demoiselle.jee.crud.AbstractDAO;
+import org.demoiselle.jee.crud.DemoiselleCrudConfig;
+
+/**
+ * Bounded cache of {@link QueryPlan}s indexed by the persistence unit and by {@link QueryShape#getKey()}.
+ *
+ * Used by {@link AbstractDAO#find()} so requests with the same shape reuse the rendered JPQL instead
+ * of building a new query. The plans of a persistence unit (usually its EntityManagerFactory) are kept
+ * apart from the others, since the names of the entities may differ between units. When the cache is
+ * full the least recently used plan is discarded.
+ *
+ * @author SERPRO
+ */
+@ApplicationScoped
+public class QueryPlanCache {
+
+    @Inject
+    private DemoiselleCrudConfig crudConfig;
+
+    private Map<Key, QueryPlan<?>> plans;
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    public QueryPlanCache() {
+    }
+
+    public QueryPlanCache(int maxSize) {
+        this.plans = createMap(maxSize);
+    }
+
+    @PostConstruct
+    public void init() {
+        if (plans == null) {
+            plans = createMap(crudConfig.getQueryPlanCacheSize());
+        }
+    }
+
+    private static Map<Key, QueryPlan<?>> createMap(int maxSize) {
+        return Collections.synchronizedMap(new LinkedHashMap<Key, QueryPlan<?>>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, QueryPlan<?>> eldest) {
+                return size() > maxSize;
+            }
+        });
+    }
+
+    /**
+     * Return the plan of the key, building it with 'builder' when the key is not on the cache.
+     *
+     * @param unit Identifies the persistence unit that executes the plan, compared by identity
+     * @param shapeKey Key of the shape
+     * @param builder Builds the plan on a cache miss
+     * @return The plan
+     */
+    @SuppressWarnings("unchecked")
+    public <T> QueryPlan<T> get(Object unit, String shapeKey, Supplier<QueryPlan<T>> builder) {
+        Key key = new Key(unit, shapeKey);
+        QueryPlan<T> plan = (QueryPlan<T>) plans.get(key);
+        if (plan != null) {
+            hits.incrementAndGet();
+            return plan;
+        }
+
+        misses.incrementAndGet();
+        plan = builder.get();
+        QueryPlan<T> previous = (QueryPlan<T>) plans.putIfAbsent(key, plan);
+        return previous == null ? plan : previous;
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public int size() {
+        return plans.size();
+    }
+
+    /**
+     * Discard all plans and reset the counters.
+     */
+    public void clear() {
+        plans.clear();
+        hits.set(0);
+        misses.set(0);
+    }
+
+    private static final class Key {
+
+        private final Object unit;
+        private final String shapeKey;
+
+        private Key(Object unit, String shapeKey) {
+            this.unit = unit;
+            this.shapeKey = shapeKey;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(unit) + shapeKey.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return unit == other.unit && shapeKey.equals(other.shapeKey);
+        }
+
+    }
+
+}
@@ -0,0 +1,277 @@
+/*
+ * Demoiselle Framework
+ *
+ * License: GNU Lesser General Public License (LGPL), version 3 or later.
+ * See the lgpl.txt file in the root directory or <https://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.demoiselle.jee.crud.query;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.demoiselle.jee.crud.filter.FilterOperator;
+import org.demoiselle.jee.crud.sort.CrudSort;
+import org.demoiselle.jee.crud.sort.SortModel;
+
+/**
+ * The normalized "shape" of a request: which fields are filtered and with which operator,
+ * how the result is sorted and if it is paginated. The values of the filters are kept apart
+ * so two requests that differ only by the values share the same {@link #getKey()} and,
+ * consequently, the same {@link QueryPlan}.
+ *
+ * The filters are organized in groups: the terms of a group are combined with OR and the
+ * groups are combined with AND, the same way the query string is interpreted.
+ *
+ * @author SERPRO
+ */
+public final class QueryShape {
+
+    private final String key;
+    private final List<Group> groups;
+    private final List<Object> values;
+    private final List<SortModel> keysetSorts;
+    private final List<Object> keysetValues;
+
+    private QueryShape(String key, List<Group> groups, List<Object> values, List<SortModel> keysetSorts, List<Object> keysetValues) {
+        this.key = key;
+        this.groups = groups;
+        this.values = values;
+        this.keysetSorts = keysetSorts;
+        this.keysetValues = keysetValues;
+    }
+
+    /**
+     * @return Key that identifies the shape, without the filter values
+     */
+    public String getKey() {
+        return key;
+    }
+
+    public List<Group> getGroups() {
+        return groups;
+    }
+
+    /**
+     * @return Values of the filters, in the same order the terms with value appear on the groups
+     */
+    public List<Object> getValues() {
+        return values;
+    }
+
+    /**
+     * @return If the shape is of a keyset paginated request
+     */
+    public boolean isKeyset() {
+        return keysetSorts != null;
+    }
+
+    /**
+     * @return Sorts used by the keyset pagination or null
+     */
+    public List<SortModel> getKeysetSorts() {
+        return keysetSorts;
+    }
+
+    /**
+     * @return Values of the cursor, the non-null ones also present at the end of {@link #getValues()}, or null on the first page
+     */
+    public List<Object> getKeysetValues() {
+        return keysetValues;
+    }
+
+    @Override
+    public String toString() {
+        return "QueryShape [key=" + key + "]";
+    }
+
+    /**
+     * Filters over the same field (or over fields of the same association) combined with OR.
+     */
+    public static final class Group {
+
+        private final String parentKey;
+        private final List<Term> terms = new ArrayList<>();
+
+        private Group(String parentKey) {
+            this.parentKey = parentKey;
+        }
+
+        /**
+         * @return The association used on a second level filter ('category' on '?category(description)=test') or null
+         */
+        public String getParentKey() {
+            return parentKey;
+        }
+
+        public List<Term> getTerms() {
+            return Collections.unmodifiableList(terms);
+        }
+
+    }
+
+    /**
+     * A single comparison between a field and a value, or the values of a compound comparison.
+     */
+    public static final class Term {
+
+        private final String key;
+        private final FilterOperator operator;
+        private final List<Object> values;
+
+        private Term(String key, FilterOperator operator, List<Object> values) {
+            this.key = key;
+            this.operator = operator;
+            this.values = values;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public FilterOperator getOperator() {
+            return operator;
+        }
+
+        /**
+         * @return Value already converted to the type used on the query or null when the operator doesn't have value
+         */
+        public Object getValue() {
+            return values.isEmpty() ? null : values.get(0);
+        }
+
+        /**
+         * @return Values of a compound comparison, see {@link Builder#compoundTerm(String, FilterOperator, Object...)}
+         */
+        public List<Object> getValues() {
+            return values;
+        }
+
+    }
+
+    /**
+     * Builder of {@link QueryShape}.
+     */
+    public static final class Builder {
+
+        private final StringBuilder key = new StringBuilder();
+        private final List<Group> groups = new ArrayList<>();
+        private final List<Object> values = new ArrayList<>();
+        private Group actualGroup;
+        private List<SortModel> keysetSorts;
+        private List<Object> keysetValues;
+
+        /**
+         * @param prefix Identifies the owner of the query, usually the DAO and the entity classes
+         */
+        public Builder(String prefix) {
+            key.append(prefix);
+        }
+
+        /**
+         * Start a new group of terms.
+         *
+         * @param parentKey The association of a second level filter or null
+         * @return this builder
+         */
+        public Builder group(String parentKey) {
+            actualGroup = new Group(parentKey);
+            groups.add(actualGroup);
+            key.append("|g:").append(parentKey == null ? "" : parentKey);
+            return this;
+        }
+
+        /**
+         * Add a term to the actual group.
+         *
+         * @param field Field name
+         * @param operator Operator
+         * @param value Value converted to the type of the field, ignored when the operator doesn't have value
+         * @return this builder
+         */
+        public Builder term(String field, FilterOperator operator, Object value) {
+            if (actualGroup == null) {
+                throw new IllegalStateException("A group should be started before adding terms");
+            }
+            Object termValue = operator.hasValue() ? value : null;
+            actualGroup.terms.add(new Term(field, operator, termValue == null ? Collections.emptyList() : Collections.singletonList(termValue)));
+            key.append("|t:").append(field).append(':').append(operator.name());
+            if (termValue != null) {
+                key.append(':').append(termValue.getClass().getName());
+                values.add(termValue);
+            }
+            return this;
+        }
+
+        /**
+         * Add a term compared with more than one value, like the {@link FilterOperator#INDEXED}. The null 
+         * values change the comparison and are not bound.
+         *
+         * @param field Field name
+         * @param operator Operator
+         * @param termValues Values, in the order they are bound
+         * @return this builder
+         */
+        public Builder compoundTerm(String field, FilterOperator operator, Object... termValues) {
+            if (actualGroup == null) {
+                throw new IllegalStateException("A group should be started before adding terms");
+            }
+            actualGroup.terms.add(new Term(field, operator, Collections.unmodifiableList(Arrays.asList(termValues))));
+            key.append("|t:").append(field).append(':').append(operator.name());
+            for (Object termValue : termValues) {
+                key.append(':').append(termValue == null ? "null" : termValue.getClass().getName());
+                if (termValue != null) {
+                    values.add(termValue);
+                }
+            }
+            return this;
+        }
+
+        public Builder sort(String field, CrudSort type) {
+            key.append("|s:").append(field).append(':').append(type.name());
+            return this;
+        }
+
+        /**
+         * Page the query by keyset. Should be the last information added to the builder.
+         *
+         * @param sorts Sorts used by the keyset, already present on the key by {@link #sort(String, CrudSort)}
+         * @param cursorValues Values of the cursor or null for the first page, the null values change the 
+         * seek predicate and are not bound
+         * @return this builder
+         */
+        public Builder keyset(List<SortModel> sorts, List<Object> cursorValues) {
+            keysetSorts = Collections.unmodifiableList(new ArrayList<>(sorts));
+            key.append("|k:").append(cursorValues == null ? "first" : "seek");
+            if (cursorValues != null) {
+                keysetValues = Collections.unmodifiableList(new ArrayList<>(cursorValues));
+                cursorValues.stream().forEachOrdered(value -> {
+                    key.append(value == null ? 'n' : 'v');
+                    if (value != null) {
+                        values.add(value);
+                    }
+                });
+            }
+            return this;
+        }
+
+        /**
+         * Add any other information that changes the query.
+         *
+         * @param name Name of the information
+         * @param value Value of the information
+         * @return this builder
+         */
+        public Builder with(String name, Object value) {
+            key.append('|').append(name).append(':').append(value);
+            return this;
+        }
+
+        public QueryShape build() {
+            return new QueryShape(key.toString(), Collections.unmodifiableList(groups), Collections.unmodifiableList(values), keysetSorts, keysetValues);
+        }
+
+    }
+
+}
@@ -0,0 +1,326 @@
+/*
+ * Demoiselle Framework
+ *
+ * License: GNU Lesser General Public License (LGPL), version 3 or later.
+ * See the lgpl.txt file in the root directory or <https://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.demoiselle.jee.crud.request;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.ws.rs.core.UriInfo;
+
+import org.demoiselle.jee.crud.CrudUtilHelper;
+import org.demoiselle.jee.crud.DemoiselleRequestContext;
+import org.demoiselle.jee.crud.ReservedKeyWords;
+
+/**
+ * The parameters of the query string used by the CRUD features, read once and already split
+ * by {@link CrudUtilHelper#extractFields(String)}.
+ *
+ * Ex:
+ *
+ * Given a request
+ * <pre>
+ * GET {@literal http://localhost:8080/api/users?range=0-9&sort=name&desc=name&fields=id,name&name=John}
+ * </pre>
+ *
+ * The spec will hold the range '0-9', the sort [name], the desc [name], the fields [id, name] and
+ * the filter {name=[John]}.
+ *
+ * The aggregation parameters ('groupBy', 'count', 'sum', 'min', 'max' and 'facets') are held the same way,
+ * see {@link org.demoiselle.jee.crud.aggregate.AggregationHelper}.
+ *
+ * The spec only interprets the syntax of the query string, the validation against the resource
+ * is still done by the helpers. It is never changed after built, so the same instance can be shared
+ * by concurrent requests, see {@link RequestSpecCache}.
+ *
+ * @author SERPRO
+ */
+public final class RequestSpec {
+
+    private static final Set<ReservedKeyWords> AGGREGATION_KEYS = Collections.unmodifiableSet(EnumSet.of(ReservedKeyWords.DEFAULT_GROUP_BY_KEY,
+            ReservedKeyWords.DEFAULT_SUM_KEY, ReservedKeyWords.DEFAULT_MIN_KEY, ReservedKeyWords.DEFAULT_MAX_KEY, ReservedKeyWords.DEFAULT_FACETS_KEY));
+
+    private final int parameterCount;
+    private final boolean rangePresent;
+    private final String range;
+    private final boolean cursorPresent;
+    private final String cursor;
+    private final boolean sincePresent;
+    private final String since;
+    private final List<String> sorts;
+    private final List<String> descs;
+    private final List<String> fields;
+    private final String malformedFields;
+    private final Map<String, Set<String>> filters;
+    private final List<String> groupBy;
+    private final boolean countPresent;
+    private final List<String> sums;
+    private final List<String> mins;
+    private final List<String> maxs;
+    private final List<String> facets;
+
+    private RequestSpec(Map<String, List<String>> parameters) {
+        parameterCount = parameters.size();
+
+        List<String> rangeValues = parameters.get(ReservedKeyWords.DEFAULT_RANGE_KEY.getKey());
+        rangePresent = rangeValues != null;
+        range = rangeValues == null || rangeValues.isEmpty() ? null : rangeValues.get(0);
+
+        List<String> cursorValues = parameters.get(ReservedKeyWords.DEFAULT_CURSOR_KEY.getKey());
+        cursorPresent = cursorValues != null;
+        cursor = cursorValues == null || cursorValues.isEmpty() ? null : cursorValues.get(0);
+
+        List<String> sinceValues = parameters.get(ReservedKeyWords.DEFAULT_SINCE_KEY.getKey());
+        sincePresent = sinceValues != null;
+        since = sinceValues == null || sinceValues.isEmpty() ? null : sinceValues.get(0);
+
+        List<String> sortValues = null;
+        List<String> descValues = null;
+        List<String> fieldValues = new ArrayList<>();
+        String malformed = null;
+        Map<String, Set<String>> filterValues = new LinkedHashMap<>();
+        Map<ReservedKeyWords, List<String>> aggregationValues = new LinkedHashMap<>();
+        boolean count = false;
+
+        for (Map.Entry<String, List<String>> parameter : parameters.entrySet()) {
+            String key = parameter.getKey();
+            List<String> values = parameter.getValue();
+
+            if (ReservedKeyWords.DEFAULT_SORT_KEY.getKey().equalsIgnoreCase(key)) {
+                if (sortValues == null) {
+                    sortValues = extract(values);
+                }
+            }
+            else if (ReservedKeyWords.DEFAULT_SORT_DESC_KEY.getKey().equalsIgnoreCase(key)) {
+                if (descValues == null) {
+                    descValues = extract(values);
+                }
+            }
+            else if (ReservedKeyWords.DEFAULT_FIELD_KEY.getKey().equalsIgnoreCase(key)) {
+                for (String value : values) {
+                    try {
+                        fieldValues.addAll(CrudUtilHelper.extractFields(value));
+                    }
+                    catch (IllegalArgumentException e) {
+                        malformed = malformed == null ? value : malformed;
+                    }
+                }
+            }
+            else if (ReservedKeyWords.DEFAULT_COUNT_KEY.getKey().equalsIgnoreCase(key)) {
+                count = true;
+            }
+            else if (AGGREGATION_KEYS.contains(toReservedKey(key))) {
+                aggregationValues.putIfAbsent(toReservedKey(key), extract(values));
+            }
+            else if (!isReservedKey(key)) {
+                filterValues.putIfAbsent(key, Collections.unmodifiableSet(new LinkedHashSet<>(extract(values))));
+            }
+        }
+
+        sorts = sortValues;
+        descs = descValues;
+        fields = Collections.unmodifiableList(fieldValues);
+        malformedFields = malformed;
+        filters = Collections.unmodifiableMap(filterValues);
+        countPresent = count;
+        groupBy = aggregationValues.getOrDefault(ReservedKeyWords.DEFAULT_GROUP_BY_KEY, Collections.emptyList());
+        sums = aggregationValues.getOrDefault(ReservedKeyWords.DEFAULT_SUM_KEY, Collections.emptyList());
+        mins = aggregationValues.getOrDefault(ReservedKeyWords.DEFAULT_MIN_KEY, Collections.emptyList());
+        maxs = aggregationValues.getOrDefault(ReservedKeyWords.DEFAULT_MAX_KEY, Collections.emptyList());
+        facets = aggregationValues.getOrDefault(ReservedKeyWords.DEFAULT_FACETS_KEY, Collections.emptyList());
+    }
+
+    /**
+     * Read the parameters of a query string.
+     *
+     * @param parameters Decoded parameters, like returned by {@link UriInfo#getQueryParameters()}
+     * @return The spec of the parameters
+     * @throws IllegalArgumentException The value of a 'sort', 'desc' or filter parameter is malformed
+     */
+    public static RequestSpec parse(Map<String, List<String>> parameters) {
+        return new RequestSpec(parameters);
+    }
+
+    /**
+     * Return the spec already read for the actual request, or read it from the query string when
+     * the request didn't pass by {@link org.demoiselle.jee.crud.CrudFilter}.
+     *
+     * @param drc DemoiselleRequestContext
+     * @param uriInfo UriInfo
+     * @return The spec of the request
+     */
+    public static RequestSpec of(DemoiselleRequestContext drc, UriInfo uriInfo) {
+        RequestSpec spec = drc == null ? null : drc.getRequestSpec();
+        return spec == null ? parse(uriInfo.getQueryParameters()) : spec;
+    }
+
+    private static List<String> extract(List<String> values) {
+        List<String> result = new ArrayList<>();
+        for (String value : values) {
+            result.addAll(CrudUtilHelper.extractFields(value));
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    private static boolean isReservedKey(String key) {
+        return toReservedKey(key) != null;
+    }
+
+    private static ReservedKeyWords toReservedKey(String key) {
+        for (ReservedKeyWords reservedKey : ReservedKeyWords.values()) {
+            if (reservedKey.getKey().equalsIgnoreCase(key)) {
+                return reservedKey;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return Number of distinct parameters on the query string
+     */
+    public int getParameterCount() {
+        return parameterCount;
+    }
+
+    /**
+     * @return If the 'range' parameter is present, even without value
+     */
+    public boolean isRangePresent() {
+        return rangePresent;
+    }
+
+    /**
+     * @return Value of the 'range' parameter or null
+     */
+    public String getRange() {
+        return range;
+    }
+
+    /**
+     * @return If the 'cursor' parameter is present, even without value
+     */
+    public boolean isCursorPresent() {
+        return cursorPresent;
+    }
+
+    /**
+     * @return Value of the 'cursor' parameter or null
+     */
+    public String getCursor() {
+        return cursor;
+    }
+
+    /**
+     * @return If the 'since' parameter is present, even without value
+     */
+    public boolean isSincePresent() {
+        return sincePresent;
+    }
+
+    /**
+     * @return Value of the 'since' parameter, null or empty on the first request of a client
+     */
+    public String getSince() {
+        return since;
+    }
+
+    /**
+     * @return Fields of the 'sort' parameter or null when the parameter is absent
+     */
+    public List<String> getSorts() {
+        return sorts;
+    }
+
+    /**
+     * @return Fields of the 'desc' parameter, empty for '&amp;desc' without value, or null when the parameter is absent
+     */
+    public List<String> getDescs() {
+        return descs;
+    }
+
+    /**
+     * @return Fields of the 'fields' parameter, like [field1, field2(subField1,subField2)]
+     */
+    public List<String> getFields() {
+        return fields;
+    }
+
+    /**
+     * @return The value of 'fields' parameter that couldn't be read or null
+     */
+    public String getMalformedFields() {
+        return malformedFields;
+    }
+
+    /**
+     * @return Values of the parameters that aren't {@link ReservedKeyWords}, indexed by the parameter
+     */
+    public Map<String, Set<String>> getFilters() {
+        return filters;
+    }
+
+    /**
+     * @return Fields of the 'groupBy' parameter, empty when the parameter is absent
+     */
+    public List<String> getGroupBy() {
+        return groupBy;
+    }
+
+    /**
+     * @return If the 'count' parameter is present, even without value
+     */
+    public boolean isCountPresent() {
+        return countPresent;
+    }
+
+    /**
+     * @return Fields of the 'sum' parameter, empty when the parameter is absent
+     */
+    public List<String> getSums() {
+        return sums;
+    }
+
+    /**
+     * @return Fields of the 'min' parameter, empty when the parameter is absent
+     */
+    public List<String> getMins() {
+        return mins;
+    }
+
+    /**
+     * @return Fields of the 'max' parameter, empty when the parameter is absent
+     */
+    public List<String> getMaxs() {
+        return maxs;
+    }
+
+    /**
+     * @return Fields of the 'facets' parameter, empty when the parameter is absent
+     */
+    public List<String> getFacets() {
+        return facets;
+    }
+
+    /**
+     * @return If any of the aggregation parameters is present
+     */
+    public boolean isAggregationPresent() {
+        return countPresent || !groupBy.isEmpty() || !sums.isEmpty() || !mins.isEmpty() || !maxs.isEmpty() || !facets.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "RequestSpec [range=" + range + ", cursor=" + cursor + (sincePresent ? ", since=" + since : "") + ", sorts=" + sorts + ", descs=" + descs + ", fields=" + fields + ", filters=" + filters
+                + (isAggregationPresent() ? ", groupBy=" + groupBy + ", count=" + countPresent + ", sums=" + sums + ", mins=" + mins + ", maxs=" + maxs + ", facets=" + facets : "") + "]";
+    }
+
+}
@@ -0,0 +1,155 @@
+/*
+ * Demoiselle Framework
+ *
+ * License: GNU Lesser General Public License (LGPL), version 3 or later.
+ * See the lgpl.txt file in the root directory or <https://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.demoiselle.jee.crud.request;
+
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.ws.rs.container.ResourceInfo;
+import javax.ws.rs.core.UriInfo;
+
+import org.demoiselle.jee.crud.DemoiselleCrudConfig;
+
+/**
+ * Bounded cache of {@link RequestSpec}s indexed by the raw query string and the resource method.
+ *
+ * Used by {@link org.demoiselle.jee.crud.CrudFilter} so the same URLs, that repeat constantly, are
+ * read only once. When the cache is full the least recently used spec is discarded.
+ *
+ * @author SERPRO
+ */
+@ApplicationScoped
+public class RequestSpecCache {
+
+    @Inject
+    private DemoiselleCrudConfig crudConfig;
+
+    private Map<Key, RequestSpec> specs;
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    public RequestSpecCache() {
+    }
+
+    public RequestSpecCache(int maxSize) {
+        this.specs = createMap(maxSize);
+    }
+
+    @PostConstruct
+    public void init() {
+        if (specs == null) {
+            specs = createMap(crudConfig.getRequestSpecCacheSize());
+        }
+    }
+
+    private static Map<Key, RequestSpec> createMap(int maxSize) {
+        return Collections.synchronizedMap(new LinkedHashMap<Key, RequestSpec>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, RequestSpec> eldest) {
+                return size() > maxSize;
+            }
+        });
+    }
+
+    /**
+     * Return the spec of the actual request, reading the query string when it is not on the cache.
+     *
+     * Requests without the raw query string available are read without the cache.
+     *
+     * @param resourceInfo ResourceInfo
+     * @param uriInfo UriInfo
+     * @return The spec
+     * @throws IllegalArgumentException The query string is malformed, see {@link RequestSpec#parse(Map)}
+     */
+    public RequestSpec get(ResourceInfo resourceInfo, UriInfo uriInfo) {
+        if (uriInfo.getRequestUri() == null) {
+            return RequestSpec.parse(uriInfo.getQueryParameters());
+        }
+
+        String rawQuery = uriInfo.getRequestUri().getRawQuery();
+        Key key = new Key(resourceInfo.getResourceClass(), resourceInfo.getResourceMethod(), rawQuery == null ? "" : rawQuery);
+
+        RequestSpec spec = specs.get(key);
+        if (spec != null) {
+            hits.incrementAndGet();
+            return spec;
+        }
+
+        misses.incrementAndGet();
+        spec = RequestSpec.parse(uriInfo.getQueryParameters());
+        RequestSpec previous = specs.putIfAbsent(key, spec);
+        return previous == null ? spec : previous;
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public int size() {
+        return specs.size();
+    }
+
+    /**
+     * Discard all specs and reset the counters.
+     */
+    public void clear() {
+        specs.clear();
+        hits.set(0);
+        misses.set(0);
+    }
+
+    private static final class Key {
+
+        private final Class<?> resourceClass;
+        private final Method resourceMethod;
+        private final String rawQuery;
+        private final int hash;
+
+        private Key(Class<?> resourceClass, Method resourceMethod, String rawQuery) {
+            this.resourceClass = resourceClass;
+            this.resourceMethod = resourceMethod;
+            this.rawQuery = rawQuery;
+            this.hash = Objects.hash(resourceClass, resourceMethod, rawQuery);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return rawQuery.equals(other.rawQuery)
+                    && Objects.equals(resourceMethod, other.resourceMethod)
+                    && Objects.equals(resourceClass, other.resourceClass);
+        }
+
+    }
+
+}
@@ -6,9 +6,7 @@
  */
 package org.demoiselle.jee.crud.sort;
 
-import java.util.Arrays;
 import java.util.LinkedHashSet;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
 
@@ -22,8 +20,9 @@ import org.demoiselle.jee.crud.AbstractDAO;
 import org.demoiselle.jee.crud.CrudMessage;
 import org.demoiselle.jee.crud.CrudUtilHelper;
 import org.demoiselle.jee.crud.DemoiselleRequestContext;
-import org.demoiselle.jee.crud.ReservedKeyWords;
-import org.demoiselle.jee.crud.Search;
+import org.demoiselle.jee.crud.metadata.SearchMetadata;
+import org.demoiselle.jee.crud.metadata.SearchMetadataRegistry;
+import org.demoiselle.jee.crud.request.RequestSpec;
 
 /**
  * Class responsible for managing the 'sort' parameter comes from Url Query
@@ -85,8 +84,9 @@ public class SortHelper {
         Set<String> descList = new LinkedHashSet<>();
         Boolean descAll = Boolean.FALSE;
 
-        List<String> descValues = getValuesFromQueryString(ReservedKeyWords.DEFAULT_SORT_DESC_KEY.getKey());
-        List<String> sortValues = getValuesFromQueryString(ReservedKeyWords.DEFAULT_SORT_KEY.getKey());
+        RequestSpec spec = RequestSpec.of(drc, this.uriInfo);
+        List<String> descValues = spec.getDescs();
+        List<String> sortValues = spec.getSorts();
 
         // 'desc' parameter was filled and 'sort' parameter not
         if (descValues != null && sortValues == null) {
@@ -128,34 +128,18 @@ public class SortHelper {
         }
 
         //Valid if fields exists on fields attribute from @Search annotation
-        if (this.resourceInfo.getResourceMethod().isAnnotationPresent(Search.class)) {
-            Search search = this.resourceInfo.getResourceMethod().getAnnotation(Search.class);
-            List<String> searchFields = Arrays.asList(search.fields());
-            if (searchFields.get(0) != null && !searchFields.get(0).equals("*")) {
-                drc.getSorts().stream().filter((sortModel) -> (!searchFields.contains(sortModel.getField()))).forEachOrdered((sortModel) -> {
-                    throw new BadRequestException(crudMessage.fieldRequestDoesNotExistsOnSearchField(sortModel.getField()));
-                });
-            }
+        SearchMetadata searchMetadata = SearchMetadataRegistry.get(this.resourceInfo);
+        List<String> searchFields = searchMetadata.getFieldNames();
+        if (!searchFields.isEmpty()) {
+            drc.getSorts().stream().filter((sortModel) -> (!searchFields.contains(sortModel.getField()))).forEachOrdered((sortModel) -> {
+                throw new BadRequestException(crudMessage.fieldRequestDoesNotExistsOnSearchField(sortModel.getField()));
+            });
         }
 
         // Validate if the fields are valid
         drc.getSorts().stream().forEach(sortModel -> {
-            CrudUtilHelper.checkIfExistField(CrudUtilHelper.getTargetClass(this.resourceInfo.getResourceClass()), sortModel.getField());
+            CrudUtilHelper.checkIfExistField(searchMetadata.getTargetClass(), sortModel.getField());
         });
 
     }
-
-    private List<String> getValuesFromQueryString(String key) {
-
-        for (String queryStringKey : uriInfo.getQueryParameters().keySet()) {
-            if (key.equalsIgnoreCase(queryStringKey)) {
-                List<String> result = new LinkedList<>();
-                for (String value : uriInfo.getQueryParameters().get(queryStringKey)) {
-                    result.addAll(CrudUtilHelper.extractFields(value));
-                }
-                return result;
-            }
-        }
-        return null;
-    }
 }
@@ -0,0 +1,32 @@
+/*
+ * Demoiselle Framework
+ *
+ * License: GNU Lesser General Public License (LGPL), version 3 or later.
+ * See the lgpl.txt file in the root directory or <https://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.demoiselle.jee.crud.stream;
+
+import java.util.function.Supplier;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.transaction.Transactional;
+import javax.transaction.Transactional.TxType;
+
+/**
+ * Read each chunk of a {@link StreamingResult} on its own transaction.
+ *
+ * The rows of a streamed result are read while the response is written, after the transaction of the
+ * resource method ended, so each chunk is read, and converted to what is written, on a new transaction
+ * and persistence context.
+ *
+ * @author SERPRO
+ */
+@ApplicationScoped
+public class ChunkTransaction {
+
+    @Transactional(TxType.REQUIRES_NEW)
+    public <R> R execute(Supplier<R> task) {
+        return task.get();
+    }
+
+}
@@ -0,0 +1,169 @@
+/*
+ * Demoiselle Framework
+ *
+ * License: GNU Lesser General Public License (LGPL), version 3 or later.
+ * See the lgpl.txt file in the root directory or <https://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.demoiselle.jee.crud.stream;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+
+import javax.ws.rs.InternalServerErrorException;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.ext.MessageBodyWriter;
+import javax.ws.rs.ext.Providers;
+
+/**
+ * Minimal JSON output used to write the projected results directly to the response stream.
+ *
+ * Strings, numbers and booleans are written by this class. Any other value (dates, enums, embedded
+ * objects...) is written by the JSON {@link MessageBodyWriter} registered on the application, so it
+ * keeps the same representation it has on the other responses.
+ *
+ * @author SERPRO
+ */
+public final class JsonOutput {
+
+    private static final Annotation[] NO_ANNOTATIONS = new Annotation[0];
+
+    private static final byte[] NULL = "null".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] TRUE = "true".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] FALSE = "false".getBytes(StandardCharsets.UTF_8);
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final OutputStream output;
+    private final OutputStream nonClosing;
+    private final Providers providers;
+
+    /**
+     * @param output Stream of the response, never closed by this class
+     * @param providers Providers of the application, used to write the values that aren't simple
+     */
+    public JsonOutput(OutputStream output, Providers providers) {
+        this.output = output;
+        this.providers = providers;
+        this.nonClosing = new FilterOutputStream(output) {
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+            }
+
+            @Override
+            public void close() throws IOException {
+                // The writers may close the stream after each value
+                flush();
+            }
+        };
+    }
+
+    /**
+     * Encode a member name, like <code>"name":</code>, to be written many times by {@link #writeRaw(byte[])}.
+     *
+     * @param name Name of the member
+     * @return The encoded name followed by ':'
+     */
+    public static byte[] encodeName(String name) {
+        return (quote(name) + ":").getBytes(StandardCharsets.UTF_8);
+    }
+
+    public void writeRaw(int b) throws IOException {
+        output.write(b);
+    }
+
+    public void writeRaw(byte[] bytes) throws IOException {
+        output.write(bytes);
+    }
+
+    /**
+     * Write a value, delegating to the JSON {@link MessageBodyWriter} of the application when
+     * the value isn't a string, number or boolean.
+     *
+     * @param value Value to be written
+     * @throws IOException Error writing to the stream
+     */
+    public void writeValue(Object value) throws IOException {
+        if (value == null) {
+            output.write(NULL);
+        }
+        else if (value instanceof String || value instanceof Character) {
+            output.write(quote(value.toString()).getBytes(StandardCharsets.UTF_8));
+        }
+        else if (value instanceof Boolean) {
+            output.write((Boolean) value ? TRUE : FALSE);
+        }
+        else if (isFiniteNumber(value)) {
+            output.write(value.toString().getBytes(StandardCharsets.US_ASCII));
+        }
+        else {
+            writeWithProvider(value);
+        }
+    }
+
+    public void flush() throws IOException {
+        output.flush();
+    }
+
+    private static boolean isFiniteNumber(Object value) {
+        if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte
+                || value instanceof BigInteger || value instanceof BigDecimal) {
+            return true;
+        }
+        if (value instanceof Double) {
+            return !((Double) value).isNaN() && !((Double) value).isInfinite();
+        }
+        if (value instanceof Float) {
+            return !((Float) value).isNaN() && !((Float) value).isInfinite();
+        }
+        return false;
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private void writeWithProvider(Object value) throws IOException {
+        MessageBodyWriter writer = providers == null ? null
+                : providers.getMessageBodyWriter(value.getClass(), value.getClass(), NO_ANNOTATIONS, MediaType.APPLICATION_JSON_TYPE);
+        if (writer == null) {
+            throw new InternalServerErrorException("No JSON writer for " + value.getClass().getName());
+        }
+        writer.writeTo(value, value.getClass(), value.getClass(), NO_ANNOTATIONS, MediaType.APPLICATION_JSON_TYPE, new MultivaluedHashMap<String, Object>(), nonClosing);
+    }
+
+    private static String quote(String value) {
+        StringBuilder sb = null;
+
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= 0x20 && c != '"' && c != '\\') {
+                if (sb != null) {
+                    sb.append(c);
+                }
+                continue;
+            }
+
+            if (sb == null) {
+                sb = new StringBuilder(value.length() + 16).append('"').append(value, 0, i);
+            }
+            switch (c) {
+                case '"': sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                case '\t': sb.append("\\t"); break;
+                case '\b': sb.append("\\b"); break;
+                case '\f': sb.append("\\f"); break;
+                default:
+                    sb.append("\\u00").append(HEX[c >> 4]).append(HEX[c & 0xF]);
+            }
+        }
+
+        return sb == null ? "\"" + value + "\"" : sb.append('"').toString();
+    }
+
+}
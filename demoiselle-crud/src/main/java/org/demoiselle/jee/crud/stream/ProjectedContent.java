@@ -0,0 +1,76 @@
+/*
+ * Demoiselle Framework
+ *
+ * License: GNU Lesser General Public License (LGPL), version 3 or later.
+ * See the lgpl.txt file in the root directory or <https://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.demoiselle.jee.crud.stream;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+import org.demoiselle.jee.crud.FieldTree;
+import org.demoiselle.jee.crud.ResponseProjection;
+
+/**
+ * Content of a response with the requested fields of each row, as built by {@link org.demoiselle.jee.crud.CrudFilter}.
+ *
+ * The rows are kept as returned by the database and {@link ProjectedJsonWriter} writes only the requested
+ * fields directly to the response. The list is still a list of maps for any other reader: each element is
+ * projected by {@link ResponseProjection#apply(Object)} when it is read. Rows already projected by
+ * {@link org.demoiselle.jee.crud.AbstractDAO} are returned as they are.
+ *
+ * @author SERPRO
+ */
+public final class ProjectedContent extends AbstractList<Object> implements RandomAccess {
+
+    private final List<?> rows;
+    private final FieldTree fields;
+    private final Class<?> targetClass;
+
+    /**
+     * @param rows Rows of the result
+     * @param fields Requested fields
+     * @param targetClass Class used on {@literal AbstractREST<TargetClass, I>}
+     */
+    public ProjectedContent(Collection<?> rows, FieldTree fields, Class<?> targetClass) {
+        this.rows = Collections.unmodifiableList(new ArrayList<>(rows));
+        this.fields = fields;
+        this.targetClass = targetClass;
+    }
+
+    @Override
+    public Object get(int index) {
+        Object row = rows.get(index);
+        if (row == null || row instanceof Map) {
+            return row;
+        }
+        return ResponseProjection.of(row.getClass(), targetClass, fields).apply(row);
+    }
+
+    @Override
+    public int size() {
+        return rows.size();
+    }
+
+    /**
+     * @return The rows before the projection
+     */
+    public List<?> getRows() {
+        return rows;
+    }
+
+    public FieldTree getFields() {
+        return fields;
+    }
+
+    public Class<?> getTargetClass() {
+        return targetClass;
+    }
+
+}
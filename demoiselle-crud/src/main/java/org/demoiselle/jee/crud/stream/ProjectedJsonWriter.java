@@ -0,0 +1,94 @@
+/*
+ * Demoiselle Framework
+ *
+ * License: GNU Lesser General Public License (LGPL), version 3 or later.
+ * See the lgpl.txt file in the root directory or <https://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.demoiselle.jee.crud.stream;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.util.Map;
+
+import javax.ws.rs.Produces;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.MessageBodyWriter;
+import javax.ws.rs.ext.Provider;
+import javax.ws.rs.ext.Providers;
+
+import org.demoiselle.jee.crud.ResponseProjection;
+
+/**
+ * Write a {@link ProjectedContent} as a JSON array directly to the response.
+ *
+ * The requested fields are read from each row by the compiled {@link ResponseProjection}, with the names
+ * already encoded, so no map is built per row. The other values are written by the JSON writer of the
+ * application, see {@link JsonOutput}.
+ *
+ * @author SERPRO
+ */
+@Provider
+@Produces(MediaType.APPLICATION_JSON)
+public class ProjectedJsonWriter implements MessageBodyWriter<ProjectedContent> {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    @Context
+    private Providers providers;
+
+    public ProjectedJsonWriter() {
+    }
+
+    public ProjectedJsonWriter(Providers providers) {
+        this.providers = providers;
+    }
+
+    @Override
+    public boolean isWriteable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return ProjectedContent.class.isAssignableFrom(type)
+                && (mediaType == null || StreamFormat.JSON_ARRAY.isCompatible(mediaType));
+    }
+
+    @Override
+    public long getSize(ProjectedContent content, Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return -1;
+    }
+
+    @Override
+    public void writeTo(ProjectedContent content, Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType,
+            MultivaluedMap<String, Object> httpHeaders, OutputStream entityStream) throws IOException, WebApplicationException {
+
+        JsonOutput output = new JsonOutput(new BufferedOutputStream(entityStream, BUFFER_SIZE), providers);
+        ResponseProjection projection = null;
+        Class<?> projectionClass = null;
+        boolean first = true;
+
+        output.writeRaw('[');
+        for (Object row : content.getRows()) {
+            if (!first) {
+                output.writeRaw(',');
+            }
+            first = false;
+
+            if (row == null || row instanceof Map) {
+                output.writeValue(row);
+                continue;
+            }
+
+            if (row.getClass() != projectionClass) {
+                projectionClass = row.getClass();
+                projection = ResponseProjection.of(projectionClass, content.getTargetClass(), content.getFields());
+            }
+            projection.write(row, output);
+        }
+        output.writeRaw(']');
+        output.flush();
+    }
+
+}
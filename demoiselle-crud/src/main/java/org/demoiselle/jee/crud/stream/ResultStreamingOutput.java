@@ -0,0 +1,125 @@
+/*
+ * Demoiselle Framework
+ *
+ * License: GNU Lesser General Public License (LGPL), version 3 or later.
+ * See the lgpl.txt file in the root directory or <https://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.demoiselle.jee.crud.stream;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.function.Function;
+
+import javax.ws.rs.InternalServerErrorException;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.StreamingOutput;
+import javax.ws.rs.ext.MessageBodyWriter;
+import javax.ws.rs.ext.Providers;
+
+/**
+ * Write the rows of a {@link StreamingResult} one by one, so the result is never fully loaded to memory.
+ * 
+ * Each row is serialized by the JSON {@link MessageBodyWriter} registered on the application and 
+ * separated according to the {@link StreamFormat}.
+ * 
+ * @author SERPRO
+ */
+public class ResultStreamingOutput implements StreamingOutput {
+
+    private static final Annotation[] NO_ANNOTATIONS = new Annotation[0];
+
+    private final Iterable<?> rows;
+    private final StreamFormat format;
+    private final Providers providers;
+    private final Function<Object, Object> converter;
+
+    /**
+     * @param rows Rows to be written
+     * @param format Format of the output
+     * @param providers Providers of the application, used to find the JSON writer
+     * @param converter Converts each row before written, like the selection of the requested fields
+     */
+    public ResultStreamingOutput(Iterable<?> rows, StreamFormat format, Providers providers, Function<Object, Object> converter) {
+        this.rows = rows;
+        this.format = format;
+        this.providers = providers;
+        this.converter = converter;
+    }
+
+    @Override
+    public void write(OutputStream output) throws IOException, WebApplicationException {
+        if (format == StreamFormat.JSON_ARRAY) {
+            output.write('[');
+        }
+
+        writeRows(output, true);
+
+        if (format == StreamFormat.JSON_ARRAY) {
+            output.write(']');
+        }
+        output.flush();
+    }
+
+    /**
+     * Write only the rows, without the brackets of {@link StreamFormat#JSON_ARRAY}, so the
+     * rows of a large result can be written in parts.
+     *
+     * @param output Stream where the rows are written
+     * @param first If no row was written before, otherwise the rows of a JSON array are preceded by ','
+     * @return Number of rows written
+     * @throws IOException Error writing to the stream
+     */
+    public int writeRows(OutputStream output, boolean first) throws IOException {
+        OutputStream row = new FilterOutputStream(output) {
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+            }
+
+            @Override
+            public void close() throws IOException {
+                // The writers close the stream after each row
+                flush();
+            }
+        };
+
+        Iterator<?> it = rows.iterator();
+        int count = 0;
+        while (it.hasNext()) {
+            Object value = converter.apply(it.next());
+
+            if (format == StreamFormat.JSON_ARRAY && !first) {
+                output.write(',');
+            }
+            writeRow(value, row);
+            if (format == StreamFormat.NDJSON) {
+                output.write('\n');
+            }
+            first = false;
+            count++;
+        }
+
+        return count;
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private void writeRow(Object value, OutputStream output) throws IOException {
+        if (value == null) {
+            output.write("null".getBytes(StandardCharsets.UTF_8));
+            return;
+        }
+
+        MessageBodyWriter writer = providers.getMessageBodyWriter(value.getClass(), value.getClass(), NO_ANNOTATIONS, MediaType.APPLICATION_JSON_TYPE);
+        if (writer == null) {
+            throw new InternalServerErrorException("No JSON writer for " + value.getClass().getName());
+        }
+        writer.writeTo(value, value.getClass(), value.getClass(), NO_ANNOTATIONS, MediaType.APPLICATION_JSON_TYPE, new MultivaluedHashMap<String, Object>(), output);
+    }
+
+}
@@ -0,0 +1,45 @@
+/*
+ * Demoiselle Framework
+ *
+ * License: GNU Lesser General Public License (LGPL), version 3 or later.
+ * See the lgpl.txt file in the root directory or <https://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.demoiselle.jee.crud.stream;
+
+import javax.ws.rs.core.MediaType;
+
+/**
+ * Formats used to stream the rows of a result.
+ * 
+ * @author SERPRO
+ */
+public enum StreamFormat {
+
+    /**
+     * One JSON document per line.
+     */
+    NDJSON("application/x-ndjson"),
+
+    /**
+     * A single JSON array written element by element.
+     */
+    JSON_ARRAY(MediaType.APPLICATION_JSON);
+
+    private final String mediaType;
+
+    StreamFormat(String mediaType) {
+        this.mediaType = mediaType;
+    }
+
+    public String getMediaType() {
+        return mediaType;
+    }
+
+    /**
+     * @return true if the media type is the one of this format, ignoring the parameters and wildcards
+     */
+    public boolean isCompatible(MediaType type) {
+        return type != null && mediaType.equalsIgnoreCase(type.getType() + "/" + type.getSubtype());
+    }
+
+}
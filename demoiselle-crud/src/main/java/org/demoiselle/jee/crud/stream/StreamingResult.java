@@ -0,0 +1,92 @@
+/*
+ * Demoiselle Framework
+ *
+ * License: GNU Lesser General Public License (LGPL), version 3 or later.
+ * See the lgpl.txt file in the root directory or <https://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.demoiselle.jee.crud.stream;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Function;
+
+import org.demoiselle.jee.core.api.crud.Result;
+import org.demoiselle.jee.crud.AbstractDAO;
+
+/**
+ * {@link Result} whose rows are read from the database only while the response is written.
+ * 
+ * Returned by {@link AbstractDAO#find()} when the request is streamed, see {@link StreamFormat}. 
+ * The rows can be iterated only once; {@link #getContent()} reads all of them to memory and should 
+ * be avoided on large results.
+ * 
+ * The rows are converted by {@link #setConverter(Function)}, like the selection of the requested fields, 
+ * while they are read: the rows of {@link AbstractDAO#find()} are read and converted by chunks, each
+ * one on its own transaction (see {@link ChunkTransaction}), so the conversion doesn't touch an entity
+ * out of its persistence context.
+ * 
+ * @author SERPRO
+ */
+public class StreamingResult implements Result {
+
+    private final Function<Function<Object, Object>, Iterator<Object>> rows;
+    private Function<Object, Object> converter = Function.identity();
+    private List<?> content;
+
+    public StreamingResult(Iterable<?> rows) {
+        this.rows = rowConverter -> convert(rows.iterator(), rowConverter);
+    }
+
+    /**
+     * @param rows Creates the iterator of the rows already converted by the converter received
+     */
+    public StreamingResult(Function<Function<Object, Object>, Iterator<Object>> rows) {
+        this.rows = rows;
+    }
+
+    /**
+     * @param converter Converts each row, before written
+     */
+    public void setConverter(Function<Object, Object> converter) {
+        this.converter = converter;
+    }
+
+    /**
+     * @return The rows not yet read, converted
+     */
+    public Iterable<?> getRows() {
+        Function<Object, Object> rowConverter = converter;
+        return content != null ? content : (Iterable<Object>) () -> rows.apply(rowConverter);
+    }
+
+    @Override
+    public List<?> getContent() {
+        if (content == null) {
+            List<Object> list = new ArrayList<>();
+            getRows().forEach(list::add);
+            content = list;
+        }
+        return content;
+    }
+
+    @Override
+    public void setContent(List<?> content) {
+        this.content = content;
+    }
+
+    private static Iterator<Object> convert(Iterator<?> iterator, Function<Object, Object> converter) {
+        return new Iterator<Object>() {
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public Object next() {
+                return converter.apply(iterator.next());
+            }
+        };
+    }
+
+}
@@ -0,0 +1,153 @@
+/*
+  * Demoiselle Framework
+  *
+  * License: GNU Lesser General Public License (LGPL), version 3 or later.
+  * See the lgpl.txt file in the root directory or <https://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.demoiselle.jee.crud
+
+import javax.ws.rs.container.ResourceInfo
+import javax.ws.rs.core.MultivaluedHashMap
+import javax.ws.rs.core.MultivaluedMap
+import javax.ws.rs.core.UriInfo
+
+import org.demoiselle.jee.crud.aggregate.AggregationHelper
+import org.demoiselle.jee.crud.aggregate.AggregationHelperMessage
+
+import spock.lang.*
+
+/**
+ * Test of {@link AggregationHelper} class.
+ *
+ * @author SERPRO
+ */
+class AggregationHelperSpec extends Specification {
+
+    ResourceInfo resourceInfo = Mock()
+    UriInfo uriInfo = Mock()
+    DemoiselleRequestContext drc = new DemoiselleRequestContextImpl()
+    AggregationHelperMessage aggregationHelperMessage = Mock()
+    CrudMessage crudMessage = Mock()
+
+    MultivaluedMap mvmRequest = new MultivaluedHashMap<>()
+
+    AggregationHelper aggregationHelper = new AggregationHelper(resourceInfo, uriInfo, drc, aggregationHelperMessage, crudMessage)
+
+    def setup() {
+        resourceInfo.getResourceClass() >> UserRestForTest.class
+        uriInfo.getRequestUri() >> new URI("http://localhost:9090/api/users")
+        uriInfo.getQueryParameters() >> mvmRequest
+    }
+
+    def "A request without aggregation parameters should not populate 'DemoiselleRequestContext.aggregation'"() {
+        given:
+        resourceInfo.getResourceMethod() >> UserRestForTest.class.getDeclaredMethod("find")
+        mvmRequest.addAll("name", "John")
+
+        when:
+        aggregationHelper.execute(resourceInfo, uriInfo)
+
+        then:
+        drc.getAggregation() == null
+        drc.isPaginationEnabled()
+    }
+
+    def "A request with 'groupBy', 'sum' and 'max' should populate 'DemoiselleRequestContext.aggregation' and disable the pagination"() {
+        given:
+        resourceInfo.getResourceMethod() >> UserRestForTest.class.getDeclaredMethod("find")
+        mvmRequest.addAll("groupBy", "NAME")
+        mvmRequest.addAll("sum", "age")
+        mvmRequest.addAll("max", "age,mail")
+
+        when:
+        aggregationHelper.execute(resourceInfo, uriInfo)
+
+        then:
+        drc.getAggregation().getGroupBy() == ["name"]
+        drc.getAggregation().getSums() == ["age"]
+        drc.getAggregation().getMaxs() == ["age", "mail"]
+        drc.getAggregation().getMins().isEmpty()
+        !drc.getAggregation().isCount()
+        !drc.getAggregation().isFacets()
+        !drc.isPaginationEnabled()
+    }
+
+    def "A request with only 'groupBy' should count the rows of each group"() {
+        given:
+        resourceInfo.getResourceMethod() >> UserRestForTest.class.getDeclaredMethod("find")
+        mvmRequest.addAll("groupBy", "mail")
+
+        when:
+        aggregationHelper.execute(resourceInfo, uriInfo)
+
+        then:
+        drc.getAggregation().isCount()
+    }
+
+    def "A request with 'facets' should populate the facets of 'DemoiselleRequestContext.aggregation'"() {
+        given:
+        resourceInfo.getResourceMethod() >> UserRestForTest.class.getDeclaredMethod("find")
+        mvmRequest.addAll("facets", "name,mail")
+
+        when:
+        aggregationHelper.execute(resourceInfo, uriInfo)
+
+        then:
+        drc.getAggregation().isFacets()
+        drc.getAggregation().getFacets() == ["name", "mail"]
+    }
+
+    def "A request with 'facets' and other aggregation parameter should throw IllegalArgumentException"() {
+        given:
+        resourceInfo.getResourceMethod() >> UserRestForTest.class.getDeclaredMethod("find")
+        mvmRequest.addAll("facets", "name")
+        mvmRequest.addAll("count", "")
+
+        when:
+        aggregationHelper.execute(resourceInfo, uriInfo)
+
+        then:
+        1 * aggregationHelperMessage.facetsWithAggregation()
+        thrown(IllegalArgumentException)
+    }
+
+    def "A request with 'sum' of a field that isn't numeric should throw IllegalArgumentException"() {
+        given:
+        resourceInfo.getResourceMethod() >> UserRestForTest.class.getDeclaredMethod("find")
+        mvmRequest.addAll("sum", "name")
+
+        when:
+        aggregationHelper.execute(resourceInfo, uriInfo)
+
+        then:
+        1 * aggregationHelperMessage.aggregationFieldNotNumeric("name")
+        thrown(IllegalArgumentException)
+    }
+
+    def "A request with a field that doesn't exist on the entity should throw IllegalArgumentException"() {
+        given:
+        resourceInfo.getResourceMethod() >> UserRestForTest.class.getDeclaredMethod("find")
+        mvmRequest.addAll("groupBy", "address(street)")
+
+        when:
+        aggregationHelper.execute(resourceInfo, uriInfo)
+
+        then:
+        1 * aggregationHelperMessage.aggregationFieldInvalid("address(street)", "groupBy")
+        thrown(IllegalArgumentException)
+    }
+
+    def "A request with a field that isn't on @Search.fields should throw IllegalArgumentException"() {
+        given:
+        resourceInfo.getResourceMethod() >> UserRestForTest.class.getDeclaredMethod("findWithSearchAndFields")
+        mvmRequest.addAll("groupBy", "age")
+
+        when:
+        aggregationHelper.execute(resourceInfo, uriInfo)
+
+        then:
+        1 * crudMessage.fieldRequestDoesNotExistsOnSearchField("age")
+        thrown(IllegalArgumentException)
+    }
+
+}
@@ -0,0 +1,59 @@
+/*
+  * Demoiselle Framework
+  *
+  * License: GNU Lesser General Public License (LGPL), version 3 or later.
+  * See the lgpl.txt file in the root directory or <https://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.demoiselle.jee.crud
+
+import javax.validation.ConstraintViolationException
+import javax.ws.rs.core.Response.Status
+
+import org.demoiselle.jee.crud.batch.BatchResult
+import org.demoiselle.jee.crud.exception.DemoiselleCrudException
+
+import spock.lang.*
+
+/**
+ * Test of {@link BatchResult} class.
+ *
+ * @author SERPRO
+ */
+class BatchResultSpec extends Specification {
+
+    def "Each item should be applied by the operation and the client errors reported"() {
+        when:
+        BatchResult result = BatchResult.of([1, 2, 3, 4], Status.CREATED.getStatusCode(), { item ->
+            switch (item) {
+                case 2: throw new ConstraintViolationException("invalid", [] as Set)
+                case 3: throw new DemoiselleCrudException("Acesso negado", Status.FORBIDDEN.getStatusCode())
+                default: return item * 10
+            }
+        })
+
+        then:
+        result.getItems()*.getStatus() == [201, 400, 403, 201]
+        result.getItems()*.getId() == [10, null, null, 40]
+        result.getSucceeded() == 2
+        result.getFailed() == 2
+    }
+
+    def "A server error should abort the whole batch"() {
+        given:
+        List<Integer> applied = []
+
+        when:
+        BatchResult.of([1, 2, 3], Status.OK.getStatusCode(), { item ->
+            if (item == 2) {
+                throw new DemoiselleCrudException("Não foi possível salvar")
+            }
+            applied << item
+            return item
+        })
+
+        then:
+        thrown(DemoiselleCrudException)
+        applied == [1]
+    }
+
+}
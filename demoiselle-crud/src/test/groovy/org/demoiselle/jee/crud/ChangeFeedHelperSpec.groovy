@@ -0,0 +1,154 @@
+/*
+  * Demoiselle Framework
+  *
+  * License: GNU Lesser General Public License (LGPL), version 3 or later.
+  * See the lgpl.txt file in the root directory or <https://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.demoiselle.jee.crud
+
+import javax.ws.rs.container.ResourceInfo
+import javax.ws.rs.core.MultivaluedHashMap
+import javax.ws.rs.core.MultivaluedMap
+import javax.ws.rs.core.UriInfo
+
+import org.demoiselle.jee.crud.changes.ChangeFeedHelper
+import org.demoiselle.jee.crud.changes.ChangeFeedHelperMessage
+import org.demoiselle.jee.crud.changes.SinceToken
+import org.demoiselle.jee.crud.entity.ProductModelForTest
+import org.demoiselle.jee.crud.entity.UserModelForTest
+import org.demoiselle.jee.crud.metadata.EntityMetadata
+import org.demoiselle.jee.crud.metadata.EntityMetadataRegistry
+import org.demoiselle.jee.crud.pagination.KeysetCursor
+
+import spock.lang.*
+
+/**
+ * Test of {@link ChangeFeedHelper} class.
+ *
+ * @author SERPRO
+ */
+class ChangeFeedHelperSpec extends Specification {
+
+    ResourceInfo resourceInfo = Mock()
+    UriInfo uriInfo = Mock()
+    DemoiselleRequestContext drc = new DemoiselleRequestContextImpl()
+    ChangeFeedHelperMessage changeFeedHelperMessage = Mock()
+
+    MultivaluedMap mvmRequest = new MultivaluedHashMap<>()
+
+    ChangeFeedHelper changeFeedHelper = new ChangeFeedHelper(resourceInfo, uriInfo, drc, changeFeedHelperMessage)
+
+    EntityMetadata metadata = EntityMetadataRegistry.get(ProductModelForTest.class)
+
+    def setup() {
+        resourceInfo.getResourceClass() >> ProductRestForTest.class
+        resourceInfo.getResourceMethod() >> ProductRestForTest.class.getDeclaredMethod("find")
+        uriInfo.getRequestUri() >> new URI("http://localhost:9090/api/products")
+        uriInfo.getQueryParameters() >> mvmRequest
+    }
+
+    def "The field annotated with @LastModified should drive the change feed of the entity"() {
+        expect:
+        metadata.getLastModifiedAttribute() == "updatedAt"
+        SinceToken.rowsSorts(metadata)*.getField() == ["updatedAt", "id"]
+        EntityMetadataRegistry.get(UserModelForTest.class).getLastModifiedAttribute() == null
+    }
+
+    def "A request without 'since' should not populate 'DemoiselleRequestContext.since'"() {
+        given:
+        mvmRequest.addAll("description", "notebook")
+
+        when:
+        changeFeedHelper.execute(resourceInfo, uriInfo)
+
+        then:
+        drc.getSince() == null
+        drc.isPaginationEnabled()
+    }
+
+    def "A request with an empty 'since' should read all rows and disable the pagination"() {
+        given:
+        mvmRequest.addAll("since", "")
+
+        when:
+        changeFeedHelper.execute(resourceInfo, uriInfo)
+
+        then:
+        drc.getSince().isInitial()
+        !drc.isPaginationEnabled()
+    }
+
+    def "The token of a response should be read back by the next request"() {
+        given:
+        Date updatedAt = new Date(1500000000000L)
+        Date removedAt = new Date(1500000001000L)
+        SinceToken token = SinceToken.of(KeysetCursor.of(SinceToken.rowsSorts(metadata), [updatedAt, 5L]),
+                KeysetCursor.of(SinceToken.tombstonesSorts(), [removedAt, 7L]))
+        mvmRequest.addAll("since", token.encode())
+
+        when:
+        changeFeedHelper.execute(resourceInfo, uriInfo)
+
+        then:
+        !drc.getSince().isInitial()
+        drc.getSince().getRowsValues(metadata) == [updatedAt, 5L]
+        drc.getSince().getTombstonesValues() == [removedAt, 7L]
+    }
+
+    def "A token without rows or tombstones should start from the first change"() {
+        given:
+        mvmRequest.addAll("since", SinceToken.of(null, null).encode())
+
+        when:
+        changeFeedHelper.execute(resourceInfo, uriInfo)
+
+        then:
+        !drc.getSince().isInitial()
+        drc.getSince().getRowsValues(metadata) == null
+        drc.getSince().getTombstonesValues() == null
+    }
+
+    def "An invalid 'since' should throw IllegalArgumentException"() {
+        given:
+        mvmRequest.addAll("since", value)
+
+        when:
+        changeFeedHelper.execute(resourceInfo, uriInfo)
+
+        then:
+        1 * changeFeedHelperMessage.invalidSinceParameter() >> "invalid"
+        thrown(IllegalArgumentException)
+
+        where:
+        value << ["abc", "a.b.c", KeysetCursor.of(KeysetCursor.keysetSorts(EntityMetadataRegistry.get(ProductModelForTest.class), []), [1L]).encode() + "."]
+    }
+
+    def "A request with 'since' and 'range' should throw IllegalArgumentException"() {
+        given:
+        mvmRequest.addAll("since", "")
+        mvmRequest.addAll("range", "0-9")
+
+        when:
+        changeFeedHelper.execute(resourceInfo, uriInfo)
+
+        then:
+        1 * changeFeedHelperMessage.sinceWithPagination()
+        thrown(IllegalArgumentException)
+    }
+
+    def "A request with 'since' of an entity without @LastModified should throw IllegalArgumentException"() {
+        given:
+        ResourceInfo userResourceInfo = Mock()
+        userResourceInfo.getResourceClass() >> UserRestForTest.class
+        userResourceInfo.getResourceMethod() >> UserRestForTest.class.getDeclaredMethod("find")
+        mvmRequest.addAll("since", "")
+
+        when:
+        changeFeedHelper.execute(userResourceInfo, uriInfo)
+
+        then:
+        1 * changeFeedHelperMessage.changeFeedNotEnabled("UserModelForTest")
+        thrown(IllegalArgumentException)
+    }
+
+}
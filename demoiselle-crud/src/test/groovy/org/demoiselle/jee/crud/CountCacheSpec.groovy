@@ -0,0 +1,76 @@
+/*
+  * Demoiselle Framework
+  *
+  * License: GNU Lesser General Public License (LGPL), version 3 or later.
+  * See the lgpl.txt file in the root directory or <https://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.demoiselle.jee.crud
+
+import org.demoiselle.jee.crud.entity.ProductModelForTest
+import org.demoiselle.jee.crud.entity.UserModelForTest
+import org.demoiselle.jee.crud.pagination.CountCache
+import org.demoiselle.jee.crud.pagination.PaginationHelperConfig
+
+import spock.lang.*
+
+/**
+ * Test of {@link CountCache} class.
+ * 
+ * @author SERPRO
+ */
+class CountCacheSpec extends Specification {
+
+    PaginationHelperConfig config = Mock()
+
+    CountCache countCache = new CountCache(config)
+
+    def "A cached count should be reused until the entity is changed"() {
+        given:
+        config.getCountCacheTimeToLive() >> 60
+        config.getCountCacheSize() >> 10
+        int executions = 0
+
+        when:
+        Long first = countCache.get(UserModelForTest.class, "key", { executions++; 10L })
+        Long second = countCache.get(UserModelForTest.class, "key", { executions++; 20L })
+        countCache.get(ProductModelForTest.class, "key", { executions++; 5L })
+        countCache.invalidate(UserModelForTest.class)
+        Long third = countCache.get(UserModelForTest.class, "key", { executions++; 30L })
+        Long product = countCache.get(ProductModelForTest.class, "key", { executions++; 50L })
+
+        then:
+        first == 10L
+        second == 10L
+        third == 30L
+        product == 5L
+        executions == 3
+    }
+
+    def "An expired count should be counted again"() {
+        given:
+        config.getCountCacheTimeToLive() >> 0
+        config.getCountCacheSize() >> 10
+
+        when:
+        countCache.get(UserModelForTest.class, "key", { 10L })
+        Long count = countCache.get(UserModelForTest.class, "key", { 20L })
+
+        then:
+        count == 20L
+    }
+
+    def "A count executed while the entity was changed should not be cached"() {
+        given:
+        config.getCountCacheTimeToLive() >> 60
+        config.getCountCacheSize() >> 10
+
+        when:
+        Long stale = countCache.get(UserModelForTest.class, "key", { countCache.invalidate(UserModelForTest.class); 10L })
+        Long count = countCache.get(UserModelForTest.class, "key", { 11L })
+
+        then:
+        stale == 10L
+        count == 11L
+    }
+
+}
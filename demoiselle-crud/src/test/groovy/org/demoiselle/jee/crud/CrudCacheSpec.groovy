@@ -0,0 +1,117 @@
+/*
+  * Demoiselle Framework
+  *
+  * License: GNU Lesser General Public License (LGPL), version 3 or later.
+  * See the lgpl.txt file in the root directory or <https://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.demoiselle.jee.crud
+
+import java.util.concurrent.ConcurrentHashMap
+
+import org.demoiselle.jee.crud.cache.CacheStore
+import org.demoiselle.jee.crud.cache.CacheStoreFactory
+import org.demoiselle.jee.crud.cache.Cached
+import org.demoiselle.jee.crud.cache.CrudCache
+import org.demoiselle.jee.crud.entity.ProductModelForTest
+import org.demoiselle.jee.crud.entity.UserModelForTest
+
+import spock.lang.*
+
+/**
+ * Test of {@link CrudCache} class.
+ * 
+ * @author SERPRO
+ */
+class CrudCacheSpec extends Specification {
+
+    CacheStoreFactory factory = { String name, long ttl -> new MapCacheStore() } as CacheStoreFactory
+
+    CrudCache crudCache = new CrudCache(factory, 2)
+
+    Cached cached = CachedResourceForTest.class.getAnnotation(Cached.class)
+
+    def "A cached value should be reused until the entity is changed"() {
+        given:
+        int loads = 0
+
+        when:
+        def first = crudCache.get(UserModelForTest.class, CrudCache.ENTITY_REGION, "1", cached, { loads++; "John" })
+        def second = crudCache.get(UserModelForTest.class, CrudCache.ENTITY_REGION, "1", cached, { loads++; "Mary" })
+        crudCache.get(ProductModelForTest.class, CrudCache.ENTITY_REGION, "1", cached, { loads++; "Product" })
+        crudCache.invalidate(UserModelForTest.class)
+        def third = crudCache.get(UserModelForTest.class, CrudCache.ENTITY_REGION, "1", cached, { loads++; "Mary" })
+        def product = crudCache.get(ProductModelForTest.class, CrudCache.ENTITY_REGION, "1", cached, { loads++; "Other" })
+
+        then:
+        first == "John"
+        second == "John"
+        third == "Mary"
+        product == "Product"
+        loads == 3
+        crudCache.hits == 2
+        crudCache.misses == 3
+        crudCache.hitRate == 0.4d
+    }
+
+    def "A value loaded while the entity is invalidated should not be cached"() {
+        when:
+        def stale = crudCache.get(UserModelForTest.class, CrudCache.ENTITY_REGION, "1", cached, {
+            // The change commits while the previous row is being loaded
+            crudCache.invalidate(UserModelForTest.class)
+            "John"
+        })
+        def actual = crudCache.get(UserModelForTest.class, CrudCache.ENTITY_REGION, "1", cached, { "Mary" })
+        def cachedValue = crudCache.get(UserModelForTest.class, CrudCache.ENTITY_REGION, "1", cached, { "Other" })
+
+        then:
+        stale == "John"
+        actual == "Mary"
+        cachedValue == "Mary"
+        crudCache.size() == 1
+    }
+
+    def "A full cache should evict the least recently used entry"() {
+        when:
+        crudCache.get(UserModelForTest.class, CrudCache.LIST_REGION, "a", cached, { "A" })
+        crudCache.get(UserModelForTest.class, CrudCache.LIST_REGION, "b", cached, { "B" })
+        crudCache.get(UserModelForTest.class, CrudCache.LIST_REGION, "a", cached, { "A2" })
+        crudCache.get(UserModelForTest.class, CrudCache.LIST_REGION, "c", cached, { "C" })
+
+        then:
+        crudCache.size() == 2
+        crudCache.evictions == 1
+        crudCache.get(UserModelForTest.class, CrudCache.LIST_REGION, "a", cached, { "A3" }) == "A"
+        crudCache.get(UserModelForTest.class, CrudCache.LIST_REGION, "b", cached, { "B2" }) == "B2"
+    }
+
+    def "A request without @Cached should not be cached"() {
+        given:
+        int loads = 0
+
+        when:
+        crudCache.get(UserModelForTest.class, CrudCache.ENTITY_REGION, "1", null, { loads++; "John" })
+        crudCache.get(UserModelForTest.class, CrudCache.ENTITY_REGION, "1", null, { loads++; "John" })
+
+        then:
+        loads == 2
+        crudCache.size() == 0
+    }
+
+    @Cached(ttl = 10)
+    static class CachedResourceForTest {
+    }
+
+    static class MapCacheStore implements CacheStore {
+
+        Map<String, Object> values = new ConcurrentHashMap<>()
+
+        Object get(String key) { values.get(key) }
+
+        void put(String key, Object value) { values.put(key, value) }
+
+        void remove(String key) { values.remove(key) }
+
+        void clear() { values.clear() }
+    }
+
+}
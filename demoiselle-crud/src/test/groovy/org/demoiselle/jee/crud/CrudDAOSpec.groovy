@@ -0,0 +1,870 @@
+/*
+  * Demoiselle Framework
+  *
+  * License: GNU Lesser General Public License (LGPL), version 3 or later.
+  * See the lgpl.txt file in the root directory or <https://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.demoiselle.jee.crud
+
+import java.sql.Timestamp
+
+import javax.enterprise.event.Event
+import javax.persistence.Column
+import javax.persistence.EntityManager
+import javax.persistence.Id
+import javax.persistence.Query
+import javax.persistence.QueryTimeoutException
+import javax.persistence.TypedQuery
+import javax.persistence.Version
+import javax.persistence.criteria.CriteriaBuilder
+import javax.persistence.criteria.CriteriaQuery
+import javax.persistence.criteria.CriteriaUpdate
+import javax.persistence.criteria.Expression
+import javax.persistence.criteria.Path as CriteriaPath
+import javax.persistence.criteria.Predicate
+import javax.persistence.criteria.Root
+import javax.persistence.metamodel.EntityType
+import javax.persistence.metamodel.Metamodel
+import javax.validation.ConstraintViolation
+import javax.validation.Path
+import javax.validation.Validator
+
+import org.demoiselle.jee.crud.batch.BatchResult
+import org.demoiselle.jee.crud.cache.Cached
+import org.demoiselle.jee.crud.cache.CachedPage
+import org.demoiselle.jee.crud.cache.CrudCache
+import org.demoiselle.jee.crud.cache.EntityTags
+import org.demoiselle.jee.crud.changes.CrudTombstone
+import org.demoiselle.jee.crud.coalesce.CoalesceScope
+import org.demoiselle.jee.crud.coalesce.Coalesced
+import org.demoiselle.jee.crud.coalesce.QueryCoalescer
+import org.demoiselle.jee.crud.commit.AfterCommit
+import org.demoiselle.jee.crud.entity.AddressModelForTest
+import org.demoiselle.jee.crud.entity.ProductModelForTest
+import org.demoiselle.jee.crud.exception.DemoiselleCrudException
+import org.demoiselle.jee.crud.guard.QueryGuardMetrics
+import org.demoiselle.jee.crud.guard.QueryGuardViolation
+import org.demoiselle.jee.crud.index.SearchIndexRegistry
+import org.demoiselle.jee.crud.metadata.EntityMetadataRegistry
+import org.demoiselle.jee.crud.pagination.CountCache
+import org.demoiselle.jee.crud.pagination.KeysetCursor
+import org.demoiselle.jee.crud.query.QueryPlanCache
+import org.demoiselle.jee.crud.sort.CrudSort
+import org.demoiselle.jee.crud.sort.SortModel
+import org.demoiselle.jee.crud.stream.ChunkTransaction
+import org.demoiselle.jee.crud.stream.StreamFormat
+import org.demoiselle.jee.crud.stream.StreamingResult
+
+import spock.lang.*
+
+/**
+ * Test of {@link AbstractDAO} class.
+ * 
+ * @author SERPRO
+ */
+class CrudDAOSpec extends Specification {
+
+    EntityManager entityManager = Mock()
+
+    DemoiselleCrudConfig crudConfig = Mock()
+
+    Validator validator = Mock()
+
+    AddressDAOForTest dao = new AddressDAOForTest(entityManager)
+
+    def setup() {
+        inject("crudConfig", crudConfig)
+        inject("validator", validator)
+    }
+
+    private void inject(String name, Object value, AbstractDAO target = dao) {
+        def field = AbstractDAO.class.getDeclaredField(name)
+        field.setAccessible(true)
+        field.set(target, value)
+    }
+
+    private void copyContext(AbstractDAO source, AbstractDAO target) {
+        ["drc", "crudConfig"].each { name ->
+            def field = AbstractDAO.class.getDeclaredField(name)
+            field.setAccessible(true)
+            field.set(target, field.get(source))
+        }
+    }
+
+    private ProductDAOForTest createProductDAOWithFilter(String field, String value) {
+        ProductDAOForTest productDAO = new ProductDAOForTest(entityManager)
+        DemoiselleRequestContext drc = new DemoiselleRequestContextImpl()
+        TreeNodeField<String, Set<String>> filters = new TreeNodeField<>(ProductModelForTest.class.getName(), Collections.emptySet())
+        CrudUtilHelper.fillLeafTreeNodeField(filters, field, [value] as Set)
+        drc.setFilters(filters)
+        inject("drc", drc, productDAO)
+        inject("crudConfig", crudConfig, productDAO)
+        return productDAO
+    }
+
+    def "A batch should flush and clear the persistence context every 'batchSize' entities"() {
+        given:
+        crudConfig.getBatchSize() >> 2
+        validator.validate(_) >> ([] as Set)
+        def addresses = (1..5).collect { new AddressModelForTest(id: it) }
+
+        when:
+        BatchResult result = dao.persistBatch(addresses)
+
+        then:
+        5 * entityManager.persist(_)
+        3 * entityManager.flush()
+        3 * entityManager.clear()
+        result.getSucceeded() == 5
+        result.getItems()*.getStatus() == [201, 201, 201, 201, 201]
+        result.getItems()*.getId() == [1L, 2L, 3L, 4L, 5L]
+    }
+
+    def "An invalid entity should be reported without aborting the batch"() {
+        given:
+        crudConfig.getBatchSize() >> 50
+        AddressModelForTest invalid = new AddressModelForTest(id: 2)
+        ConstraintViolation violation = Mock()
+        violation.getPropertyPath() >> Stub(Path) { toString() >> "street" }
+        violation.getMessage() >> "may not be null"
+        validator.validate(_) >> { args -> args[0].is(invalid) ? ([violation] as Set) : ([] as Set) }
+
+        when:
+        BatchResult result = dao.persistBatch([new AddressModelForTest(id: 1), invalid, new AddressModelForTest(id: 3)])
+
+        then:
+        2 * entityManager.persist(_)
+        0 * entityManager.persist(invalid)
+        result.getItems()*.getStatus() == [201, 400, 201]
+        result.getItems()[1].getMessage() == "street: may not be null"
+        result.getFailed() == 1
+    }
+
+    def "A batch remove should report the ids not found"() {
+        given:
+        crudConfig.getBatchSize() >> 50
+        AddressModelForTest address = new AddressModelForTest(id: 1)
+        entityManager.find(AddressModelForTest.class, 1L) >> address
+        entityManager.find(AddressModelForTest.class, 2L) >> null
+
+        when:
+        BatchResult result = dao.removeBatch([1, 2])
+
+        then:
+        1 * entityManager.remove(address)
+        result.getItems()*.getStatus() == [204, 404]
+    }
+
+    def "A DAO annotated with @DirectDelete should remove with a single statement"() {
+        given:
+        ProductDAOForTest productDAO = new ProductDAOForTest(entityManager)
+        Query query = Mock()
+
+        when:
+        productDAO.remove(1L)
+
+        then:
+        1 * entityManager.createQuery("DELETE FROM org.demoiselle.jee.crud.entity.ProductModelForTest WHERE id = ?1") >> query
+        1 * query.setParameter(1, 1L) >> query
+        1 * query.executeUpdate() >> 1
+        0 * entityManager.find(_, _)
+        0 * entityManager.remove(_)
+    }
+
+    def "A direct delete without affected rows should be a 404"() {
+        given:
+        ProductDAOForTest productDAO = new ProductDAOForTest(entityManager)
+        Query query = Mock()
+        entityManager.createQuery(_) >> query
+        query.setParameter(_, _) >> query
+        query.executeUpdate() >> 0
+
+        when:
+        productDAO.remove(1L)
+
+        then:
+        DemoiselleCrudException e = thrown()
+        e.getStatusCode() == 404
+    }
+
+    def "A remove of an entity with @LastModified should record a tombstone for the change feed"() {
+        given:
+        ProductDAOForTest productDAO = new ProductDAOForTest(entityManager)
+        Query query = Mock()
+        entityManager.createQuery(_) >> query
+        query.setParameter(_, _) >> query
+        query.executeUpdate() >> 1
+
+        when:
+        productDAO.remove(1L)
+
+        then:
+        1 * entityManager.persist({ it instanceof CrudTombstone && it.entityName == ProductModelForTest.class.getName() && it.entityId == "1" && it.removedAt != null })
+
+        when:
+        dao.remove(1L)
+
+        then:
+        1 * entityManager.find(AddressModelForTest.class, 1L) >> new AddressModelForTest(id: 1)
+        0 * entityManager.persist(_)
+    }
+
+    def "A remove of an entity with a timestamp @Version and no @LastModified should not record a tombstone"() {
+        given:
+        TimestampVersionedDAOForTest versionedDAO = new TimestampVersionedDAOForTest(entityManager)
+        inject("crudConfig", crudConfig, versionedDAO)
+
+        expect:
+        EntityMetadataRegistry.get(TimestampVersionedModelForTest.class).getLastModifiedAttribute() == null
+
+        when:
+        versionedDAO.remove(1L)
+
+        then:
+        1 * entityManager.find(TimestampVersionedModelForTest.class, 1L) >> new TimestampVersionedModelForTest(id: 1L)
+        1 * entityManager.remove(_)
+        0 * entityManager.persist(_)
+    }
+
+    def "The counts and the cache should be discarded only after the commit of the write"() {
+        given:
+        CountCache countCache = Mock()
+        CrudCache crudCache = Mock()
+        Event<AfterCommit> afterCommit = Mock()
+        inject("countCache", countCache)
+        inject("crudCache", crudCache)
+        inject("afterCommit", afterCommit)
+        List<AfterCommit> events = []
+
+        when:
+        dao.persist(new AddressModelForTest(id: 1))
+
+        then:
+        2 * afterCommit.fire(_) >> { args -> events << args[0] }
+        0 * countCache.invalidate(_)
+        0 * crudCache.invalidate(_)
+
+        when:
+        events*.getTask()*.run()
+
+        then:
+        1 * countCache.invalidate(AddressModelForTest.class)
+        1 * crudCache.invalidate(AddressModelForTest.class)
+    }
+
+    def "A cached list should be kept apart per tenant and user"() {
+        given:
+        ProductDAOForTest productDAO = new ProductDAOForTest(entityManager)
+        DemoiselleRequestContext drc = new DemoiselleRequestContextImpl()
+        drc.setCached(Stub(Cached))
+        drc.setPrincipal("alice")
+        drc.setTenant("acme")
+        CrudCache crudCache = Mock()
+        inject("drc", drc, productDAO)
+        inject("crudConfig", crudConfig, productDAO)
+        inject("crudCache", crudCache, productDAO)
+
+        when:
+        def result = productDAO.find()
+
+        then:
+        1 * crudCache.get(ProductModelForTest.class, CrudCache.LIST_REGION, 
+                { it.startsWith(ProductDAOForTest.class.getName() + "|t:4:acme|u:5:alice|") }, _, _) >> 
+                new CachedPage([new ProductModelForTest(id: 1L)], new DemoiselleRequestContextImpl())
+        0 * entityManager.createQuery(_)
+        result.getContent()*.getId() == [1L]
+    }
+
+    def "A DAO without @DirectDelete should load the entity before removing it"() {
+        given:
+        AddressModelForTest address = new AddressModelForTest(id: 1)
+
+        when:
+        dao.remove(1L)
+
+        then:
+        1 * entityManager.find(AddressModelForTest.class, 1L) >> address
+        1 * entityManager.remove(address)
+        0 * entityManager.createQuery(_)
+    }
+
+    def "A conditional GET after a PATCH should not be answered by the previous version"() {
+        given:
+        TimestampVersionedDAOForTest versionedDAO = new TimestampVersionedDAOForTest(entityManager)
+        inject("crudConfig", crudConfig, versionedDAO)
+        Timestamp previous = new Timestamp(0)
+        String previousTag = EntityTags.ofVersion(1L, previous)
+        Query update = Mock()
+        Query select = Mock()
+        Object bumped = null
+
+        when:
+        versionedDAO.mergeHalf(1L, new TimestampVersionedModelForTest(name: "new", version: previous))
+
+        then:
+        1 * entityManager.createQuery("UPDATE " + TimestampVersionedModelForTest.class.getCanonicalName() 
+            + " SET name = ?1, version = ?2 WHERE id = ?3") >> update
+        1 * update.setParameter(2, _) >> { args -> bumped = args[1]; update }
+        1 * update.executeUpdate() >> 1
+
+        when:
+        String entityTag = versionedDAO.findEntityTag(1L)
+
+        then:
+        1 * entityManager.createQuery({ it.startsWith("SELECT e.version") }) >> select
+        select.setParameter(1, 1L) >> select
+        select.getResultList() >> [bumped]
+        bumped instanceof Timestamp && bumped != previous
+        !EntityTags.matches(previousTag, entityTag)
+    }
+
+    def "The tag of an entity should not be found without the access checks of a customized find by id"() {
+        given:
+        CheckedVersionedDAOForTest checkedDAO = new CheckedVersionedDAOForTest(entityManager)
+        inject("crudConfig", crudConfig, checkedDAO)
+        AbstractDAO<TimestampVersionedModelForTest, Long> versionedDAO = Mock()
+        AbstractBusiness<TimestampVersionedModelForTest, Long> business = new AbstractBusiness<TimestampVersionedModelForTest, Long>() {}
+        AbstractBusiness<TimestampVersionedModelForTest, Long> checkedBusiness = new CheckedBusinessForTest()
+        business.dao = versionedDAO
+        checkedBusiness.dao = versionedDAO
+
+        when:
+        String daoTag = checkedDAO.findEntityTag(1L)
+        String checkedTag = checkedBusiness.findEntityTag(1L)
+        String tag = business.findEntityTag(1L)
+
+        then:
+        daoTag == null
+        0 * entityManager.createQuery(_)
+        checkedTag == null
+        1 * versionedDAO.findEntityTag(1L) >> '"abc"'
+        tag == '"abc"'
+    }
+
+    def "A keyset cursor with a null sort value should seek the rows with 'IS NULL' and place the nulls last"() {
+        given:
+        List<SortModel> sorts = [new SortModel(CrudSort.ASC, "street"), new SortModel(CrudSort.ASC, "id")]
+        DemoiselleRequestContext drc = new DemoiselleRequestContextImpl()
+        drc.getSorts().add(sorts[0])
+        drc.setCursor(KeysetCursor.decode(KeysetCursor.of(sorts, [null, 5L]).encode()))
+        inject("drc", drc)
+
+        CriteriaBuilder criteriaBuilder = Mock()
+        CriteriaQuery<AddressModelForTest> criteriaQuery = Mock()
+        Root<AddressModelForTest> root = Mock()
+        CriteriaPath street = Mock()
+        CriteriaPath id = Mock()
+        CriteriaBuilder.Case nullsRank = Mock()
+        TypedQuery<AddressModelForTest> query = Mock()
+        entityManager.getCriteriaBuilder() >> criteriaBuilder
+        criteriaBuilder.createQuery(AddressModelForTest.class) >> criteriaQuery
+        criteriaQuery.from(AddressModelForTest.class) >> root
+        criteriaQuery.getRoots() >> ([root] as Set)
+        root.get("street") >> street
+        root.get("id") >> id
+        criteriaBuilder.selectCase() >> nullsRank
+        nullsRank.when(_, _) >> nullsRank
+        nullsRank.otherwise(_) >> Mock(Expression)
+        entityManager.createQuery(criteriaQuery) >> query
+
+        when:
+        dao.findChunk(10)
+
+        then:
+        1 * criteriaBuilder.literal(5L) >> Mock(Expression)
+        0 * criteriaBuilder.literal(null)
+        0 * criteriaBuilder.greaterThan(street, _)
+        (1.._) * criteriaBuilder.isNull(street)
+        1 * criteriaBuilder.greaterThan(id, _)
+        1 * query.getResultList() >> []
+    }
+
+    def "A streamed result should read and convert each chunk on its own transaction"() {
+        given:
+        DemoiselleRequestContext drc = new DemoiselleRequestContextImpl()
+        drc.setStreamFormat(StreamFormat.NDJSON)
+        inject("drc", drc)
+        crudConfig.getStreamChunkSize() >> 2
+        ChunkTransaction chunkTransaction = Mock()
+        inject("chunkTransaction", chunkTransaction)
+        boolean inTransaction = false
+
+        CriteriaBuilder criteriaBuilder = Mock()
+        CriteriaQuery<AddressModelForTest> criteriaQuery = Mock()
+        Root<AddressModelForTest> root = Mock()
+        TypedQuery<AddressModelForTest> query = Mock()
+        entityManager.getCriteriaBuilder() >> criteriaBuilder
+        criteriaBuilder.createQuery(AddressModelForTest.class) >> criteriaQuery
+        criteriaQuery.from(AddressModelForTest.class) >> root
+        criteriaQuery.getRoots() >> ([root] as Set)
+        root.get(_) >> Mock(CriteriaPath)
+        entityManager.createQuery(criteriaQuery) >> query
+        query.getResultList() >>> [[new AddressModelForTest(id: 1), new AddressModelForTest(id: 2)], [new AddressModelForTest(id: 3)]]
+
+        when:
+        StreamingResult result = dao.find()
+        result.setConverter({ row -> assert inTransaction; row.id * 10 })
+        List<Object> rows = result.getRows().collect()
+
+        then:
+        2 * chunkTransaction.execute(_) >> { args -> inTransaction = true; def chunk = args[0].get(); inTransaction = false; chunk }
+        3 * entityManager.detach(_)
+        rows == [10L, 20L, 30L]
+    }
+
+    def "An update by filter should be a single statement with the predicates of the request"() {
+        given:
+        ProductDAOForTest productDAO = createProductDAOWithFilter("code", "A1")
+        CriteriaBuilder criteriaBuilder = Mock()
+        CriteriaQuery<Long> countCriteria = Mock()
+        CriteriaUpdate<ProductModelForTest> criteriaUpdate = Mock()
+        TypedQuery<Long> countQuery = Mock()
+        Query updateQuery = Mock()
+        entityManager.getCriteriaBuilder() >> criteriaBuilder
+        criteriaBuilder.createQuery(Long.class) >> countCriteria
+        countCriteria.from(ProductModelForTest.class) >> Mock(Root)
+        criteriaUpdate.from(ProductModelForTest.class) >> Mock(Root)
+        crudConfig.getUpdateByFilterMaxRows() >> 10
+
+        when:
+        def result = productDAO.updateByFilter(new ProductModelForTest(description: "Tablet"))
+
+        then:
+        1 * entityManager.createQuery(countCriteria) >> countQuery
+        1 * countQuery.getSingleResult() >> 3L
+        1 * criteriaBuilder.createCriteriaUpdate(ProductModelForTest.class) >> criteriaUpdate
+        1 * criteriaUpdate.set("description", "Tablet")
+        1 * criteriaUpdate.set("updatedAt", { it instanceof Date })
+        1 * criteriaUpdate.where(_) >> criteriaUpdate
+        1 * entityManager.createQuery(criteriaUpdate) >> updateQuery
+        1 * updateQuery.executeUpdate() >> 3
+        result.getUpdated() == 3
+    }
+
+    def "An update by filter should build its predicates with the criteria update, that creates the subqueries"() {
+        given:
+        UpdateSubqueryProductDAOForTest productDAO = new UpdateSubqueryProductDAOForTest(entityManager)
+        copyContext(createProductDAOWithFilter("code", "A1"), productDAO)
+        CriteriaBuilder criteriaBuilder = Mock()
+        CriteriaQuery<Long> countCriteria = Mock()
+        CriteriaUpdate<ProductModelForTest> criteriaUpdate = Mock()
+        TypedQuery<Long> countQuery = Mock()
+        Query updateQuery = Mock()
+        entityManager.getCriteriaBuilder() >> criteriaBuilder
+        criteriaBuilder.createQuery(Long.class) >> countCriteria
+        countCriteria.from(ProductModelForTest.class) >> Mock(Root)
+        entityManager.createQuery(countCriteria) >> countQuery
+        countQuery.getSingleResult() >> 1L
+        criteriaBuilder.createCriteriaUpdate(ProductModelForTest.class) >> criteriaUpdate
+        criteriaUpdate.from(ProductModelForTest.class) >> Mock(Root)
+        criteriaUpdate.where(_) >> criteriaUpdate
+        entityManager.createQuery(criteriaUpdate) >> updateQuery
+        updateQuery.executeUpdate() >> 1
+        crudConfig.getUpdateByFilterMaxRows() >> 10
+
+        when:
+        def result = productDAO.updateByFilter(new ProductModelForTest(description: "Tablet"))
+
+        then:
+        1 * criteriaUpdate.subquery(Long.class)
+        result.getUpdated() == 1
+    }
+
+    def "An update by filter of a DAO that customizes the predicates only of the queries should not be implemented"() {
+        given:
+        SubqueryProductDAOForTest productDAO = new SubqueryProductDAOForTest(entityManager)
+        copyContext(createProductDAOWithFilter("code", "A1"), productDAO)
+
+        when:
+        productDAO.updateByFilter(new ProductModelForTest(description: "Tablet"))
+
+        then:
+        DemoiselleCrudException e = thrown()
+        e.getStatusCode() == 501
+        e.getMessage().contains("buildUpdatePredicates")
+        0 * entityManager.getCriteriaBuilder()
+    }
+
+    def "An equality filter should compare the value converted to the type of the field"() {
+        given:
+        ProductDAOForTest productDAO = createProductDAOWithFilter("id", "5")
+        CriteriaBuilder criteriaBuilder = Mock()
+        CriteriaQuery<Long> countCriteria = Mock()
+        TypedQuery<Long> countQuery = Mock()
+        entityManager.getCriteriaBuilder() >> criteriaBuilder
+        criteriaBuilder.createQuery(Long.class) >> countCriteria
+        countCriteria.from(ProductModelForTest.class) >> Mock(Root)
+        entityManager.createQuery(countCriteria) >> countQuery
+
+        when:
+        productDAO.count()
+
+        then:
+        1 * criteriaBuilder.equal(_, 5L)
+    }
+
+    def "A query plan should bind the same converted values of the criteria"() {
+        given:
+        ProductDAOForTest productDAO = createProductDAOWithFilter("id", "5")
+        inject("queryPlanCache", new QueryPlanCache(10), productDAO)
+        crudConfig.getQueryPlanCacheEnabled() >> true
+        Metamodel metamodel = Mock()
+        EntityType entityType = Mock()
+        entityManager.getMetamodel() >> metamodel
+        metamodel.entity(ProductModelForTest.class) >> entityType
+        entityType.getName() >> "Product"
+        TypedQuery<Long> countQuery = Mock()
+
+        when:
+        productDAO.count()
+
+        then:
+        1 * entityManager.createQuery("SELECT COUNT(e) FROM Product e WHERE (e.id = :p0)", Long.class) >> countQuery
+        1 * countQuery.setParameter("p0", 5L)
+        0 * entityManager.getCriteriaBuilder()
+    }
+
+    def "An update by filter that matches more rows than the limit should be rejected before the update"() {
+        given:
+        ProductDAOForTest productDAO = createProductDAOWithFilter("code", "A1")
+        CriteriaBuilder criteriaBuilder = Mock()
+        CriteriaQuery<Long> countCriteria = Mock()
+        TypedQuery<Long> countQuery = Mock()
+        entityManager.getCriteriaBuilder() >> criteriaBuilder
+        criteriaBuilder.createQuery(Long.class) >> countCriteria
+        countCriteria.from(ProductModelForTest.class) >> Mock(Root)
+        entityManager.createQuery(countCriteria) >> countQuery
+        countQuery.getSingleResult() >> 11L
+        crudConfig.getUpdateByFilterMaxRows() >> 10
+
+        when:
+        productDAO.updateByFilter(new ProductModelForTest(description: "Tablet"))
+
+        then:
+        DemoiselleCrudException e = thrown()
+        e.getStatusCode() == 400
+        0 * criteriaBuilder.createCriteriaUpdate(_)
+    }
+
+    def "An update by filter without filters should be rejected"() {
+        given:
+        ProductDAOForTest productDAO = new ProductDAOForTest(entityManager)
+        inject("drc", new DemoiselleRequestContextImpl(), productDAO)
+
+        when:
+        productDAO.updateByFilter(new ProductModelForTest(description: "Tablet"))
+
+        then:
+        DemoiselleCrudException e = thrown()
+        e.getStatusCode() == 400
+        0 * entityManager.createQuery(_)
+    }
+
+    def "The reads should use the read replica while the request and the entity weren't written"() {
+        given:
+        AbstractDAO.LAST_WRITES.clear()
+        EntityManager replica = Mock()
+        ReplicaDAOForTest replicaDAO = new ReplicaDAOForTest(entityManager, replica)
+        inject("drc", new DemoiselleRequestContextImpl(), replicaDAO)
+        inject("crudConfig", crudConfig, replicaDAO)
+
+        when:
+        def address = replicaDAO.find(1L)
+
+        then:
+        1 * replica.find(AddressModelForTest.class, 1L) >> new AddressModelForTest(id: 1)
+        0 * entityManager.find(_, _)
+        address.getId() == 1L
+    }
+
+    def "The query plans of the reads should be built and executed on the read replica"() {
+        given:
+        AbstractDAO.LAST_WRITES.clear()
+        EntityManager replica = Mock()
+        ReplicaDAOForTest replicaDAO = new ReplicaDAOForTest(entityManager, replica)
+        QueryPlanCache queryPlanCache = new QueryPlanCache(10)
+        inject("drc", new DemoiselleRequestContextImpl(), replicaDAO)
+        inject("crudConfig", crudConfig, replicaDAO)
+        inject("queryPlanCache", queryPlanCache, replicaDAO)
+        crudConfig.getQueryPlanCacheEnabled() >> true
+        Metamodel metamodel = Mock()
+        EntityType entityType = Mock()
+        replica.getMetamodel() >> metamodel
+        metamodel.entity(AddressModelForTest.class) >> entityType
+        entityType.getName() >> "ReplicaAddress"
+        TypedQuery<Long> countQuery = Mock()
+
+        when:
+        Long count = replicaDAO.count()
+
+        then:
+        1 * replica.createQuery("SELECT COUNT(e) FROM ReplicaAddress e", Long.class) >> countQuery
+        1 * countQuery.getSingleResult() >> 2L
+        0 * entityManager.getMetamodel()
+        0 * entityManager.createQuery(_, _)
+        count == 2L
+        queryPlanCache.size() == 1
+    }
+
+    def "The reads after a write should stay on the primary"() {
+        given:
+        AbstractDAO.LAST_WRITES.clear()
+        EntityManager replica = Mock()
+        ReplicaDAOForTest replicaDAO = new ReplicaDAOForTest(entityManager, replica)
+        ReplicaDAOForTest otherRequestDAO = new ReplicaDAOForTest(entityManager, replica)
+        DemoiselleRequestContext drc = new DemoiselleRequestContextImpl()
+        inject("drc", drc, replicaDAO)
+        inject("crudConfig", crudConfig, replicaDAO)
+        inject("drc", new DemoiselleRequestContextImpl(), otherRequestDAO)
+        inject("crudConfig", crudConfig, otherRequestDAO)
+        crudConfig.getReadReplicaMaxLag() >> maxLag
+
+        when:
+        replicaDAO.persist(new AddressModelForTest(id: 1))
+        replicaDAO.find(1L)
+        otherRequestDAO.find(1L)
+
+        then:
+        drc.isWritten()
+        1 * entityManager.persist(_)
+        primaryReads * entityManager.find(AddressModelForTest.class, 1L)
+        replicaReads * replica.find(AddressModelForTest.class, 1L)
+
+        where:
+        maxLag | primaryReads | replicaReads
+        5      | 2            | 0
+        0      | 1            | 1
+    }
+
+    def "A query that exceeds the timeout of the guardrails should be answered with 503"() {
+        given:
+        ProductDAOForTest productDAO = new ProductDAOForTest(entityManager)
+        DemoiselleRequestContext drc = new DemoiselleRequestContextImpl()
+        drc.setPaginationEnabled(Boolean.FALSE)
+        drc.setQueryTimeout(2000)
+        QueryGuardMetrics queryGuardMetrics = new QueryGuardMetrics()
+        inject("drc", drc, productDAO)
+        inject("crudConfig", crudConfig, productDAO)
+        inject("queryGuardMetrics", queryGuardMetrics, productDAO)
+        CriteriaBuilder criteriaBuilder = Mock()
+        CriteriaQuery<ProductModelForTest> criteriaQuery = Mock()
+        TypedQuery<ProductModelForTest> query = Mock()
+        entityManager.getCriteriaBuilder() >> criteriaBuilder
+        criteriaBuilder.createQuery(ProductModelForTest.class) >> criteriaQuery
+        entityManager.createQuery(criteriaQuery) >> query
+        query.getResultList() >> { throw new QueryTimeoutException("timeout") }
+
+        when:
+        productDAO.find()
+
+        then:
+        1 * query.setHint("javax.persistence.query.timeout", 2000)
+        DemoiselleCrudException e = thrown()
+        e.getStatusCode() == 503
+        queryGuardMetrics.getCount(QueryGuardViolation.TIMEOUT) == 1
+    }
+
+    def "A request without pagination that matches more rows than the guardrails should be rejected"() {
+        given:
+        ProductDAOForTest productDAO = new ProductDAOForTest(entityManager)
+        DemoiselleRequestContext drc = new DemoiselleRequestContextImpl()
+        drc.setPaginationEnabled(Boolean.FALSE)
+        drc.setMaxRows(2)
+        inject("drc", drc, productDAO)
+        inject("crudConfig", crudConfig, productDAO)
+        CriteriaBuilder criteriaBuilder = Mock()
+        CriteriaQuery<ProductModelForTest> criteriaQuery = Mock()
+        TypedQuery<ProductModelForTest> query = Mock()
+        entityManager.getCriteriaBuilder() >> criteriaBuilder
+        criteriaBuilder.createQuery(ProductModelForTest.class) >> criteriaQuery
+        entityManager.createQuery(criteriaQuery) >> query
+
+        when:
+        productDAO.find()
+
+        then:
+        1 * query.setMaxResults(3)
+        1 * query.getResultList() >> (1..3).collect { new ProductModelForTest(id: it) }
+        DemoiselleCrudException e = thrown()
+        e.getStatusCode() == 400
+    }
+
+    def "A coalesced request should share the page of the identical request in execution"() {
+        given:
+        ProductDAOForTest productDAO = new ProductDAOForTest(entityManager)
+        DemoiselleRequestContext drc = new DemoiselleRequestContextImpl()
+        DemoiselleRequestContext running = new DemoiselleRequestContextImpl()
+        running.setCount(42L)
+        drc.setCoalesced(Stub(Coalesced) { scope() >> coalesceScope })
+        drc.setPrincipal("alice")
+        drc.setTenant("acme")
+        QueryCoalescer queryCoalescer = Mock()
+        inject("drc", drc, productDAO)
+        inject("crudConfig", crudConfig, productDAO)
+        inject("queryCoalescer", queryCoalescer, productDAO)
+
+        when:
+        def result = productDAO.find()
+
+        then:
+        1 * queryCoalescer.execute({ it.startsWith(ProductDAOForTest.class.getName() + "|t:4:acme|u:" + user + "|") }, _) >> 
+                new CachedPage([new ProductModelForTest(id: 1L)], running)
+        0 * entityManager.createQuery(_)
+        result.getContent()*.getId() == [1L]
+        drc.getCount() == 42L
+
+        where:
+        coalesceScope           | user
+        CoalesceScope.PRINCIPAL | "5:alice"
+        CoalesceScope.TENANT    | "*"
+    }
+
+    def "The requests that share a page should receive their own copies of the entities"() {
+        given:
+        ProductModelForTest leaderRow = new ProductModelForTest(id: 1L, description: "Notebook")
+        CachedPage page = new CachedPage([leaderRow], new DemoiselleRequestContextImpl())
+
+        when:
+        List<Object> first = page.restore(new DemoiselleRequestContextImpl())
+        List<Object> second = page.restore(new DemoiselleRequestContextImpl())
+
+        then:
+        !first[0].is(leaderRow)
+        !first[0].is(second[0])
+        first*.getDescription() == ["Notebook"]
+        second*.getDescription() == ["Notebook"]
+    }
+
+    def "An entity that isn't Serializable should not be cached"() {
+        given:
+        DemoiselleRequestContext drc = new DemoiselleRequestContextImpl()
+        drc.setCached(Stub(Cached))
+        CrudCache crudCache = Mock()
+        inject("drc", drc)
+        inject("crudCache", crudCache)
+
+        when:
+        dao.find(1L)
+
+        then:
+        0 * crudCache.get(*_)
+        1 * entityManager.find(AddressModelForTest.class, 1L) >> new AddressModelForTest(id: 1)
+    }
+
+    def "A wildcard filter on a @SearchIndexed field should be narrowed by the index and checked by the database"() {
+        given:
+        SearchIndexRegistry.clear()
+        ProductDAOForTest productDAO = new ProductDAOForTest(entityManager)
+        TypedQuery<Object[]> query = Mock()
+        CriteriaBuilder criteriaBuilder = Mock()
+        Root<ProductModelForTest> root = Mock()
+        CriteriaPath idPath = Mock()
+        CriteriaPath updatedAtPath = Mock()
+        Predicate candidates = Mock()
+        Predicate modified = Mock()
+        Predicate narrowed = Mock()
+        Predicate like = Mock()
+        Predicate predicate = Mock()
+        root.getJavaType() >> ProductModelForTest.class
+        long start = System.currentTimeMillis()
+
+        when:
+        Predicate result = productDAO.buildLikePredicate(criteriaBuilder, Mock(CriteriaQuery), root, "description", "*notebook*")
+
+        then:
+        1 * entityManager.createQuery("SELECT e.id, e.description FROM org.demoiselle.jee.crud.entity.ProductModelForTest e", Object[].class) >> query
+        1 * query.getResultList() >> [[1L, "Notebook 14"] as Object[], [2L, "Mouse"] as Object[], [3L, "Bag for notebooks"] as Object[]]
+        1 * criteriaBuilder.like(_, "%notebook%") >> like
+        1 * root.get("id") >> idPath
+        1 * idPath."in"({ it as Set == [1L, 3L] as Set }) >> candidates
+        1 * root.get("updatedAt") >> updatedAtPath
+        1 * criteriaBuilder.literal({ it instanceof Date && it.getTime() <= start }) >> Mock(Expression)
+        1 * criteriaBuilder.greaterThanOrEqualTo(updatedAtPath, _) >> modified
+        1 * criteriaBuilder.or(candidates, modified) >> narrowed
+        1 * criteriaBuilder.and(narrowed, like) >> predicate
+        result == predicate
+
+        cleanup:
+        SearchIndexRegistry.clear()
+    }
+
+    def "The writes of the DAO should keep the search index up to date"() {
+        given:
+        SearchIndexRegistry.clear()
+        SearchIndexRegistry.get(ProductModelForTest.class).startBuild()
+        SearchIndexRegistry.get(ProductModelForTest.class).load([[1L, "Old notebook"] as Object[]])
+        ProductDAOForTest productDAO = new ProductDAOForTest(entityManager)
+        Query query = Mock()
+        entityManager.createQuery(_) >> query
+        query.setParameter(_, _) >> query
+        query.executeUpdate() >> 1
+
+        when:
+        productDAO.persist(new ProductModelForTest(id: 2L, description: "New notebook"))
+        productDAO.mergeFull(new ProductModelForTest(id: 1L, description: "Old tablet"))
+        productDAO.remove(2L)
+
+        then:
+        1 * entityManager.merge(_) >> { args -> args[0] }
+        SearchIndexRegistry.get(ProductModelForTest.class).getIndex("description").search("*notebook*", 10) == []
+        SearchIndexRegistry.get(ProductModelForTest.class).getIndex("description").search("*tablet", 10) == [1L]
+
+        cleanup:
+        SearchIndexRegistry.clear()
+    }
+
+    static class TimestampVersionedModelForTest {
+        @Id
+        Long id
+
+        @Column
+        String name
+
+        @Version
+        Timestamp version
+    }
+
+    static class TimestampVersionedDAOForTest extends AbstractDAO<TimestampVersionedModelForTest, Long> {
+
+        private final EntityManager entityManager
+
+        TimestampVersionedDAOForTest(EntityManager entityManager) {
+            this.entityManager = entityManager
+        }
+
+        @Override
+        protected EntityManager getEntityManager() {
+            return entityManager
+        }
+    }
+
+    static class CheckedVersionedDAOForTest extends AbstractDAO<TimestampVersionedModelForTest, Long> {
+
+        private final EntityManager entityManager
+
+        CheckedVersionedDAOForTest(EntityManager entityManager) {
+            this.entityManager = entityManager
+        }
+
+        @Override
+        protected EntityManager getEntityManager() {
+            return entityManager
+        }
+
+        @Override
+        TimestampVersionedModelForTest find(Long id) {
+            // Access checks of the application
+            return super.find(id)
+        }
+    }
+
+    static class CheckedBusinessForTest extends AbstractBusiness<TimestampVersionedModelForTest, Long> {
+
+        @Override
+        TimestampVersionedModelForTest find(Long id) {
+            // Access checks of the application
+            return super.find(id)
+        }
+    }
+
+}
@@ -0,0 +1,219 @@
+/*
+  * Demoiselle Framework
+  *
+  * License: GNU Lesser General Public License (LGPL), version 3 or later.
+  * See the lgpl.txt file in the root directory or <https://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.demoiselle.jee.crud
+
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.ThreadFactory
+import java.util.concurrent.TimeUnit
+
+import javax.enterprise.context.ContextNotActiveException
+import javax.naming.Context
+import javax.naming.NameNotFoundException
+import javax.naming.spi.InitialContextFactory
+import javax.ws.rs.container.AsyncResponse
+
+import org.demoiselle.jee.core.api.security.Token
+import org.demoiselle.jee.core.api.security.TokenType
+import org.demoiselle.jee.crud.async.AsyncRejectionPolicy
+import org.demoiselle.jee.crud.async.AsyncRequestContext
+import org.demoiselle.jee.crud.async.CrudExecutor
+import org.demoiselle.jee.crud.async.CrudThreadFactory
+import org.demoiselle.jee.crud.exception.DemoiselleCrudException
+
+import spock.lang.*
+import spock.util.concurrent.BlockingVariable
+
+/**
+ * Test of {@link CrudExecutor}, {@link CrudThreadFactory} and {@link AsyncRequestContext} classes.
+ *
+ * @author SERPRO
+ */
+class CrudExecutorSpec extends Specification {
+
+    static ThreadFactory managedThreadFactory
+
+    CrudExecutor executor
+
+    def cleanup() {
+        executor?.shutdown()
+        System.clearProperty(Context.INITIAL_CONTEXT_FACTORY)
+    }
+
+    static class ContextFactoryForTest implements InitialContextFactory {
+
+        @Override
+        Context getInitialContext(Hashtable<?, ?> environment) {
+            [lookup: { String name ->
+                if (name != CrudThreadFactory.DEFAULT_MANAGED_THREAD_FACTORY) {
+                    throw new NameNotFoundException(name)
+                }
+                managedThreadFactory
+            }] as Context
+        }
+
+    }
+
+    static class TokenForTest implements Token {
+        String key
+        TokenType type
+    }
+
+    def "The task should be executed on the executor with a copy of the context of the request"() {
+        given:
+        DemoiselleRequestContext drc = new DemoiselleRequestContextImpl()
+        drc.setLimit(10)
+        executor = new CrudExecutor(1, 1, AsyncRejectionPolicy.ABORT)
+        executor.drc = drc
+
+        BlockingVariable<Object> resumed = new BlockingVariable<>(5)
+        AsyncResponse asyncResponse = Mock(AsyncResponse)
+        asyncResponse.resume(_) >> { args -> resumed.set(args[0]); true }
+
+        when:
+        executor.execute(asyncResponse, {
+            DemoiselleRequestContext context = AsyncRequestContext.resolve(null)
+            context.setCount(5L)
+            [limit: context.getLimit(), thread: Thread.currentThread().getName(), context: context]
+        })
+        Map result = resumed.get()
+
+        then:
+        result.limit == 10
+        result.thread.startsWith("demoiselle-crud-async-")
+        !result.context.is(drc)
+        drc.getCount() == null
+        AsyncRequestContext.current() == null
+    }
+
+    def "The exception of the task should resume the response"() {
+        given:
+        executor = new CrudExecutor(1, 1, AsyncRejectionPolicy.ABORT)
+        IllegalStateException exception = new IllegalStateException()
+
+        BlockingVariable<Object> resumed = new BlockingVariable<>(5)
+        AsyncResponse asyncResponse = Mock(AsyncResponse)
+        asyncResponse.resume(_) >> { args -> resumed.set(args[0]); true }
+
+        when:
+        executor.execute(asyncResponse, { throw exception })
+
+        then:
+        resumed.get().is(exception)
+    }
+
+    def "The requests should be answered with 503 when the executor is full"() {
+        given:
+        executor = new CrudExecutor(1, 1, AsyncRejectionPolicy.ABORT)
+        CountDownLatch running = new CountDownLatch(1)
+        CountDownLatch release = new CountDownLatch(1)
+
+        AsyncResponse busy = Mock(AsyncResponse)
+        AsyncResponse queued = Mock(AsyncResponse)
+        AsyncResponse rejected = Mock(AsyncResponse)
+
+        when:
+        executor.execute(busy, { running.countDown(); release.await(5, TimeUnit.SECONDS); "busy" })
+        running.await(5, TimeUnit.SECONDS)
+        executor.execute(queued, { "queued" })
+        executor.execute(rejected, { "rejected" })
+
+        then:
+        1 * rejected.resume({ it instanceof DemoiselleCrudException && it.getStatusCode() == 503 })
+        0 * rejected.resume("rejected")
+        executor.getRejectedCount() == 1
+        executor.getQueueSize() == 1
+
+        cleanup:
+        release.countDown()
+    }
+
+    def "The oldest request waiting should be answered with 503 when the policy is DISCARD_OLDEST"() {
+        given:
+        executor = new CrudExecutor(1, 1, AsyncRejectionPolicy.DISCARD_OLDEST)
+        CountDownLatch running = new CountDownLatch(1)
+        CountDownLatch release = new CountDownLatch(1)
+
+        AsyncResponse busy = Mock(AsyncResponse)
+        AsyncResponse oldest = Mock(AsyncResponse)
+        AsyncResponse newest = Mock(AsyncResponse)
+
+        when:
+        executor.execute(busy, { running.countDown(); release.await(5, TimeUnit.SECONDS); "busy" })
+        running.await(5, TimeUnit.SECONDS)
+        executor.execute(oldest, { "oldest" })
+        executor.execute(newest, { "newest" })
+
+        then:
+        1 * oldest.resume({ it instanceof DemoiselleCrudException && it.getStatusCode() == 503 })
+        0 * newest.resume(_)
+        executor.getQueueSize() == 1
+
+        cleanup:
+        release.countDown()
+    }
+
+    def "The threads should be created by the managed thread factory of the container"() {
+        given:
+        System.setProperty(Context.INITIAL_CONTEXT_FACTORY, ContextFactoryForTest.class.getName())
+        List<Runnable> created = []
+        managedThreadFactory = { Runnable runnable -> created << runnable; new Thread(runnable) } as ThreadFactory
+
+        when:
+        CrudThreadFactory factory = new CrudThreadFactory(CrudThreadFactory.DEFAULT_MANAGED_THREAD_FACTORY, "export-", Thread.MIN_PRIORITY)
+        Runnable task = {}
+        Thread thread = factory.newThread(task)
+
+        then:
+        factory.isManaged()
+        created == [task]
+        thread.getName() == "export-1"
+        thread.getPriority() == Thread.MIN_PRIORITY
+        !thread.isDaemon()
+    }
+
+    def "Plain daemon threads should be created when the container doesn't have a managed thread factory"() {
+        when:
+        CrudThreadFactory factory = new CrudThreadFactory(CrudThreadFactory.DEFAULT_MANAGED_THREAD_FACTORY, "async-", Thread.NORM_PRIORITY)
+        Thread thread = factory.newThread({})
+
+        then:
+        !factory.isManaged()
+        thread.isDaemon()
+        thread.getName() == "async-1"
+    }
+
+    def "The token of the request should be set on the injected token while the task runs"() {
+        given:
+        AsyncRequestContext context = AsyncRequestContext.capture(null, new TokenForTest(key: "abc", type: TokenType.JWT))
+        TokenForTest injected = new TokenForTest()
+        String seen = null
+
+        when:
+        context.run({ seen = injected.getKey() }, injected)
+
+        then:
+        seen == "abc"
+        injected.getKey() == null
+        injected.getType() == null
+    }
+
+    def "The copy of the token should be used when the request scope isn't active on the thread"() {
+        given:
+        AsyncRequestContext context = AsyncRequestContext.capture(null, new TokenForTest(key: "abc", type: TokenType.JWT))
+        Token injected = Mock()
+        injected.getKey() >> { throw new ContextNotActiveException() }
+        String seen = null
+
+        when:
+        context.run({ seen = AsyncRequestContext.current().getToken().getKey() }, injected)
+
+        then:
+        seen == "abc"
+        0 * injected.setKey(_)
+    }
+
+}
@@ -9,6 +9,7 @@ package org.demoiselle.jee.crud
 import javax.ws.rs.container.ContainerRequestContext
 import javax.ws.rs.container.ContainerResponseContext
 import javax.ws.rs.container.ResourceInfo
+import javax.ws.rs.core.MediaType
 import javax.ws.rs.core.MultivaluedHashMap
 import javax.ws.rs.core.MultivaluedMap
 import javax.ws.rs.core.UriInfo
@@ -17,6 +18,7 @@ import javax.ws.rs.core.Response.Status
 import org.demoiselle.jee.core.api.crud.Result
 import org.demoiselle.jee.crud.entity.AddressModelForTest
 import org.demoiselle.jee.crud.entity.CountryModelForTest
+import org.demoiselle.jee.crud.entity.ProductModelForTest
 import org.demoiselle.jee.crud.entity.UserModelForTest
 import org.demoiselle.jee.crud.field.FieldHelper
 import org.demoiselle.jee.crud.field.FieldHelperMessage
@@ -27,6 +29,9 @@ import org.demoiselle.jee.crud.pagination.PaginationHelperMessage
 import org.demoiselle.jee.crud.pagination.ResultSet
 import org.demoiselle.jee.crud.sort.SortHelper
 import org.demoiselle.jee.crud.sort.SortHelperMessage
+import org.demoiselle.jee.crud.stream.ResultStreamingOutput
+import org.demoiselle.jee.crud.stream.StreamFormat
+import org.demoiselle.jee.crud.stream.StreamingResult
 
 import spock.lang.*
 
@@ -391,4 +396,118 @@ class CrudFilterSpec extends Specification{
         URI uri = new URI("http://localhost:9090/api/users")
         uriInfo.getRequestUri() >> uri
     }
+
+    def "A request accepting 'application/x-ndjson' should be streamed without pagination"() {
+        given:
+        dpc.getDefaultPagination() >> 20
+        dpc.getIsGlobalEnabled() >> true
+
+        uriInfo.getQueryParameters() >> mvmRequest
+        requestContext.getAcceptableMediaTypes() >> [new MediaType("application", "x-ndjson")]
+        responseContext.getHeaders() >> mvmResponse
+        responseContext.getEntity() >> new StreamingResult([new UserModelForTest(id: 1, name: "John")])
+
+        resourceInfo.getResourceClass() >> UserRestForTest.class
+        resourceInfo.getResourceMethod() >> UserRestForTest.class.getDeclaredMethod("findWithSearch")
+
+        when:
+        crudFilter.filter(requestContext)
+        crudFilter.filter(requestContext, responseContext)
+
+        then:
+        drc.getStreamFormat() == StreamFormat.NDJSON
+        drc.isPaginationEnabled() == false
+        mvmResponse.getFirst("Content-Type") == "application/x-ndjson"
+        1 * responseContext.setEntity({ it instanceof ResultStreamingOutput })
+        1 * responseContext.setStatus(Status.OK.getStatusCode())
+    }
+
+    def "A request with the 'If-None-Match' of the actual page should be answered with 304"() {
+        given:
+        dpc.getDefaultPagination() >> 20
+        dpc.getIsGlobalEnabled() >> true
+
+        uriInfo.getQueryParameters() >> mvmRequest
+        uriInfo.getRequestUri() >> new URI("http://localhost:9090/api/products")
+        responseContext.getHeaders() >> mvmResponse
+
+        resourceInfo.getResourceClass() >> ProductRestForTest.class
+        resourceInfo.getResourceMethod() >> ProductRestForTest.class.getDeclaredMethod("find")
+
+        Result result = new ResultSet()
+        result.getContent().addAll([new ProductModelForTest(id: 1, updatedAt: new Date(0))])
+        responseContext.getEntity() >> result
+        drc.count = 1
+
+        when:
+        crudFilter.filter(requestContext)
+        crudFilter.filter(requestContext, responseContext)
+        String entityTag = mvmResponse.getFirst("ETag")
+
+        then:
+        entityTag != null
+        1 * responseContext.setStatus(Status.OK.getStatusCode())
+
+        when:
+        mvmResponse.clear()
+        crudFilter.filter(requestContext)
+        crudFilter.filter(requestContext, responseContext)
+
+        then:
+        requestContext.getHeaderString("If-None-Match") >> entityTag
+        mvmResponse.getFirst("ETag") == entityTag
+        1 * responseContext.setStatus(Status.NOT_MODIFIED.getStatusCode())
+        0 * responseContext.setStatus(Status.OK.getStatusCode())
+    }
+
+    def "A page with rows that can't be tagged should not have an 'ETag'"() {
+        given:
+        dpc.getDefaultPagination() >> 20
+        dpc.getIsGlobalEnabled() >> true
+
+        uriInfo.getQueryParameters() >> mvmRequest
+        uriInfo.getRequestUri() >> new URI("http://localhost:9090/api/users")
+        responseContext.getHeaders() >> mvmResponse
+
+        resourceInfo.getResourceClass() >> UserRestForTest.class
+        resourceInfo.getResourceMethod() >> UserRestForTest.class.getDeclaredMethod("find")
+
+        Result result = new ResultSet()
+        result.getContent().addAll([new UserModelForTest(id: 1, name: "John")])
+        responseContext.getEntity() >> result
+        drc.count = 1
+
+        when:
+        crudFilter.filter(requestContext)
+        crudFilter.filter(requestContext, responseContext)
+
+        then:
+        requestContext.getHeaderString("If-None-Match") >> "*"
+        mvmResponse.getFirst("ETag") == null
+        1 * responseContext.setStatus(Status.OK.getStatusCode())
+    }
+
+    def "Only the 'find(id)' of the resource should have an 'ETag'"() {
+        given:
+        uriInfo.getQueryParameters() >> mvmRequest
+        uriInfo.getRequestUri() >> new URI("http://localhost:9090/api/products/export/1")
+        responseContext.getHeaders() >> mvmResponse
+        requestContext.getMethod() >> "GET"
+
+        resourceInfo.getResourceClass() >> ProductRestForTest.class
+        resourceInfo.getResourceMethod() >> AbstractREST.class.getDeclaredMethod(method, parameter)
+        responseContext.getEntity() >> new ProductModelForTest(id: 1, updatedAt: new Date(0))
+
+        when:
+        crudFilter.filter(requestContext, responseContext)
+
+        then:
+        (mvmResponse.getFirst("ETag") != null) == tagged
+
+        where:
+        method          | parameter     | tagged
+        "findExport"    | String.class  | false
+        "find"          | Object.class  | true
+    }
+
 }
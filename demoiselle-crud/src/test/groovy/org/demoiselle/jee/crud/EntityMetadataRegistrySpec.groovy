@@ -0,0 +1,118 @@
+/*
+  * Demoiselle Framework
+  *
+  * License: GNU Lesser General Public License (LGPL), version 3 or later.
+  * See the lgpl.txt file in the root directory or <https://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.demoiselle.jee.crud
+
+import javax.persistence.CascadeType
+import javax.persistence.Id
+import javax.persistence.OneToMany
+import javax.persistence.PreRemove
+
+import org.demoiselle.jee.crud.entity.CountryModelForTest
+import org.demoiselle.jee.crud.entity.ProductModelForTest
+import org.demoiselle.jee.crud.entity.StatusForTest
+import org.demoiselle.jee.crud.entity.UserModelForTest
+import org.demoiselle.jee.crud.metadata.EntityMetadata
+import org.demoiselle.jee.crud.metadata.EntityMetadataRegistry
+
+import spock.lang.*
+
+/**
+ * Test of {@link EntityMetadataRegistry} class.
+ * 
+ * @author SERPRO
+ */
+class EntityMetadataRegistrySpec extends Specification {
+
+    def "The metadata should be built once and reused"() {
+        when:
+        EntityMetadata first = EntityMetadataRegistry.get(ProductModelForTest.class)
+        EntityMetadata second = EntityMetadataRegistry.get(ProductModelForTest.class)
+
+        then:
+        first.is(second)
+        EntityMetadataRegistry.get(null) == null
+    }
+
+    def "The metadata should index fields of the class and its super classes"() {
+        when:
+        EntityMetadata metadata = EntityMetadataRegistry.get(ProductModelForTest.class)
+
+        then:
+        metadata.getField("description") != null
+        metadata.getField("id") != null
+        metadata.getField("Description") == null
+        metadata.getFieldIgnoreCase("DESCRIPTION").name == "description"
+        metadata.containsFieldIgnoreCase("externalid")
+        !metadata.containsFieldIgnoreCase("invalidField")
+        metadata.getFieldType("country") == CountryModelForTest.class
+    }
+
+    def "The metadata should hold the id attribute and the updatable fields"() {
+        when:
+        EntityMetadata metadata = EntityMetadataRegistry.get(ProductModelForTest.class)
+
+        then:
+        metadata.idAttribute == "id"
+        metadata.updatableFields*.name as Set == ["description", "status", "country"] as Set
+        EntityMetadataRegistry.get(UserModelForTest.class).idAttribute == null
+    }
+
+    def "The metadata should resolve enum and UUID fields"() {
+        when:
+        EntityMetadata metadata = EntityMetadataRegistry.get(ProductModelForTest.class)
+
+        then:
+        metadata.isEnumField("status")
+        !metadata.isEnumField("description")
+        metadata.isUUIDField("externalId")
+        !metadata.isUUIDField("id")
+        metadata.getEnumOrdinal("status", "inactive") == StatusForTest.INACTIVE.ordinal()
+        metadata.getEnumOrdinal("status", "unknown") == null
+        metadata.getEnumOrdinal("description", "ACTIVE") == null
+    }
+
+    def "The CrudUtilHelper should use the registry to find fields"() {
+        when:
+        CrudUtilHelper.checkIfExistField(ProductModelForTest.class, "ID")
+
+        then:
+        notThrown(IllegalArgumentException)
+        CrudUtilHelper.getField(ProductModelForTest.class, "code").name == "code"
+        CrudUtilHelper.getMethodAnnotatedWithID(ProductModelForTest.class) == "id"
+
+        when:
+        CrudUtilHelper.checkIfExistField(ProductModelForTest.class, "invalidField")
+
+        then:
+        thrown(IllegalArgumentException)
+    }
+
+    def "The metadata should tell when a bulk DELETE skips the side effects of a remove"() {
+        expect:
+        EntityMetadataRegistry.get(ProductModelForTest.class).isBulkDeletable()
+        !EntityMetadataRegistry.get(CascadeModelForTest.class).isBulkDeletable()
+        !EntityMetadataRegistry.get(CallbackModelForTest.class).isBulkDeletable()
+    }
+
+    static class CascadeModelForTest {
+        @Id
+        Long id
+
+        @OneToMany(cascade = CascadeType.ALL)
+        List<ProductModelForTest> products
+    }
+
+    static class CallbackModelForTest {
+        @Id
+        Long id
+
+        @PreRemove
+        void beforeRemove() {
+        }
+    }
+
+}
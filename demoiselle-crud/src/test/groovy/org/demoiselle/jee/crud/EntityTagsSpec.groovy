@@ -0,0 +1,110 @@
+/*
+  * Demoiselle Framework
+  *
+  * License: GNU Lesser General Public License (LGPL), version 3 or later.
+  * See the lgpl.txt file in the root directory or <https://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.demoiselle.jee.crud
+
+import javax.persistence.Entity
+import javax.persistence.Id
+import javax.persistence.Version
+
+import org.demoiselle.jee.crud.cache.EntityTags
+import org.demoiselle.jee.crud.entity.AddressModelForTest
+import org.demoiselle.jee.crud.entity.ProductModelForTest
+import org.demoiselle.jee.crud.entity.UserModelForTest
+
+import spock.lang.*
+
+/**
+ * Test of {@link EntityTags} class.
+ * 
+ * @author SERPRO
+ */
+class EntityTagsSpec extends Specification {
+
+    def "The tag of a versioned entity should be the same computed from its version"() {
+        given:
+        VersionedModelForTest entity = new VersionedModelForTest(id: 1L, version: 3L, name: "John")
+
+        expect:
+        EntityTags.of(entity) == EntityTags.ofVersion(1L, 3L)
+        EntityTags.of(entity) != EntityTags.ofVersion(1L, 4L)
+        EntityTags.of(entity).matches(/"[0-9a-f]{32}"/)
+    }
+
+    def "The tag of an entity without version should come from its @LastModified field"() {
+        given:
+        ProductModelForTest product = new ProductModelForTest(id: 1L, description: "product", updatedAt: new Date(0))
+        String before = EntityTags.of(product)
+
+        when:
+        product.description = "other product"
+
+        then:
+        EntityTags.of(product) == before
+        EntityTags.of(product) == EntityTags.ofVersion(1L, new Date(0))
+
+        when:
+        product.updatedAt = new Date(1)
+
+        then:
+        EntityTags.of(product) != before
+    }
+
+    def "Objects that aren't versioned entities should not be tagged"() {
+        expect:
+        EntityTags.of(value) == null
+        EntityTags.ofPage([new VersionedModelForTest(id: 1L, version: 1L), value], new DemoiselleRequestContextImpl()) == null
+
+        where:
+        value << [new AddressModelForTest(id: 1L, street: "street"), new UserModelForTest(id: 1L), "text", new File("export.csv")]
+    }
+
+    def "The tag of a page should change with its rows and pagination"() {
+        given:
+        DemoiselleRequestContext drc = new DemoiselleRequestContextImpl()
+        drc.offset = 0
+        drc.limit = 9
+        drc.count = 20L
+        def rows = [new VersionedModelForTest(id: 1L, version: 1L), new VersionedModelForTest(id: 2L, version: 1L)]
+        String page = EntityTags.ofPage(rows, drc)
+
+        expect:
+        EntityTags.ofPage(rows, drc) == page
+        EntityTags.ofPage([rows[0], new VersionedModelForTest(id: 2L, version: 2L)], drc) != page
+
+        when:
+        drc.count = 21L
+
+        then:
+        EntityTags.ofPage(rows, drc) != page
+    }
+
+    def "The 'If-None-Match' header should match any of its tags"() {
+        expect:
+        EntityTags.matches(header, '"abc"') == expected
+
+        where:
+        header              | expected
+        null                | false
+        '"abc"'             | true
+        '"xyz", "abc"'      | true
+        'W/"abc"'           | true
+        '*'                 | true
+        '"xyz"'             | false
+    }
+
+    @Entity
+    static class VersionedModelForTest {
+        @Id
+        Long id
+
+        @Version
+        Long version
+
+        String name
+    }
+
+}
@@ -0,0 +1,245 @@
+/*
+  * Demoiselle Framework
+  *
+  * License: GNU Lesser General Public License (LGPL), version 3 or later.
+  * See the lgpl.txt file in the root directory or <https://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.demoiselle.jee.crud
+
+import java.nio.file.Files
+import java.nio.file.Path
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+import java.util.zip.GZIPInputStream
+
+import javax.ws.rs.container.ResourceInfo
+import javax.ws.rs.ext.MessageBodyWriter
+import javax.ws.rs.ext.Providers
+
+import org.demoiselle.jee.crud.async.AsyncRequestContext
+import org.demoiselle.jee.crud.async.AsyncTransaction
+import org.demoiselle.jee.crud.entity.UserModelForTest
+import org.demoiselle.jee.crud.exception.DemoiselleCrudException
+import org.demoiselle.jee.crud.export.ExportJob
+import org.demoiselle.jee.crud.export.ExportManager
+import org.demoiselle.jee.crud.export.ExportStatus
+import org.demoiselle.jee.crud.field.FieldHelperMessage
+import org.demoiselle.jee.crud.metadata.EntityMetadataRegistry
+import org.demoiselle.jee.crud.pagination.KeysetCursor
+import org.demoiselle.jee.crud.sort.CrudSort
+import org.demoiselle.jee.crud.sort.SortHelperMessage
+import org.demoiselle.jee.crud.sort.SortModel
+import org.demoiselle.jee.crud.stream.StreamFormat
+
+import groovy.json.JsonOutput
+import spock.lang.*
+import spock.util.concurrent.PollingConditions
+
+/**
+ * Test of {@link ExportManager} class.
+ *
+ * @author SERPRO
+ */
+class ExportManagerSpec extends Specification {
+
+    static final List<SortModel> SORTS = [new SortModel(CrudSort.ASC, "id")]
+
+    Path directory = Files.createTempDirectory("export")
+
+    ResourceInfo resourceInfo = Mock()
+    Providers providers = Mock()
+    MessageBodyWriter writer = Mock()
+    AbstractBusiness bc = Mock()
+
+    PollingConditions conditions = new PollingConditions(timeout: 5)
+
+    List<ExportManager> managers = []
+
+    def setup() {
+        resourceInfo.getResourceClass() >> UserRestForTest.class
+        resourceInfo.getResourceMethod() >> UserRestForTest.class.getDeclaredMethod("findWithSearchAndFields")
+
+        providers.getMessageBodyWriter(_, _, _, _) >> writer
+        writer.writeTo(_, _, _, _, _, _, _) >> { args ->
+            args[6].write(JsonOutput.toJson(args[0]).getBytes("UTF-8"))
+            args[6].close()
+        }
+    }
+
+    def cleanup() {
+        managers.each { it.shutdown() }
+        directory.toFile().deleteDir()
+    }
+
+    ExportManager createManager(int maxJobsPerUser, int retention = 3600) {
+        ExportManager manager = new ExportManager(directory, 1, 2, maxJobsPerUser, retention)
+        manager.transaction = new AsyncTransaction()
+        manager.sortHelperMessage = Mock(SortHelperMessage)
+        manager.fieldHelperMessage = Mock(FieldHelperMessage)
+        manager.crudMessage = Mock(CrudMessage)
+        managers << manager
+        return manager
+    }
+
+    /**
+     * Chunk of the users 1 to 5 after the cursor of the context, like AbstractDAO.findChunk(int).
+     */
+    static List<UserModelForTest> findChunk(int chunkSize) {
+        DemoiselleRequestContext context = AsyncRequestContext.current().getRequestContext()
+        Long after = context.getCursor() == null ? 0L : context.getCursor().getValues(EntityMetadataRegistry.get(UserModelForTest.class), SORTS)[0]
+
+        List<UserModelForTest> chunk = ((after + 1)..5).findAll { after < 5 }.take(chunkSize).collect {
+            new UserModelForTest(id: it, name: "user" + it, mail: "user" + it + "@mail.com", age: 20)
+        }
+        context.setNextCursor(chunk.size() == chunkSize && chunk.last().id < 5 ? KeysetCursor.of(SORTS, [chunk.last().id]) : null)
+        return chunk
+    }
+
+    List<String> readLines(ExportManager manager, ExportJob job) {
+        new GZIPInputStream(new FileInputStream(manager.getFile(job))).getText("UTF-8").readLines()
+    }
+
+    def "The export should write all rows by chunks on a compressed file with the fields of @Search"() {
+        given:
+        ExportManager manager = createManager(1)
+        bc.findChunk(2) >> { args -> findChunk(args[0]) }
+
+        when:
+        ExportJob job = manager.start(bc, resourceInfo, [:], StreamFormat.NDJSON, "john", providers)
+
+        then:
+        conditions.eventually {
+            assert manager.get(job.getId(), "john", UserRestForTest.class).getStatus() == ExportStatus.COMPLETED
+        }
+        job.getRows() == 5
+        job.getChunks() == 3
+        readLines(manager, job) == (1..5).collect { '{"id":' + it + ',"name":"user' + it + '","mail":"user' + it + '@mail.com"}' }
+        manager.get(job.getId(), "mary", UserRestForTest.class) == null
+        manager.get(job.getId(), "john", ProductRestForTest.class) == null
+    }
+
+    def "A failed export should be resumed from the last chunk written"() {
+        given:
+        ExportManager manager = createManager(1)
+        int calls = 0
+        bc.findChunk(2) >> { args ->
+            if (++calls == 2) {
+                throw new IllegalStateException("database down")
+            }
+            findChunk(args[0])
+        }
+
+        when:
+        ExportJob job = manager.start(bc, resourceInfo, [:], StreamFormat.JSON_ARRAY, "john", providers)
+
+        then:
+        conditions.eventually {
+            assert job.getStatus() == ExportStatus.FAILED
+        }
+        job.getRows() == 2
+        job.getError() == "database down"
+
+        when:
+        // Bytes written after the last chunk saved, like by a crash
+        manager.getFile(job).append("garbage".getBytes("UTF-8"))
+        manager.resume(job.getId(), "john", UserRestForTest.class, bc, providers)
+
+        then:
+        conditions.eventually {
+            assert job.getStatus() == ExportStatus.COMPLETED
+        }
+        job.getRows() == 5
+        readLines(manager, job) == ['[' + (1..5).collect { '{"id":' + it + ',"name":"user' + it + '","mail":"user' + it + '@mail.com"}' }.join(',') + ']']
+    }
+
+    def "A user should not have more jobs than the limit at the same time"() {
+        given:
+        ExportManager manager = createManager(1)
+        CountDownLatch release = new CountDownLatch(1)
+        bc.findChunk(2) >> { args -> release.await(5, TimeUnit.SECONDS); findChunk(args[0]) }
+
+        when:
+        manager.start(bc, resourceInfo, [:], StreamFormat.NDJSON, "john", providers)
+        manager.start(bc, resourceInfo, [:], StreamFormat.NDJSON, "john", providers)
+
+        then:
+        DemoiselleCrudException e = thrown()
+        e.getStatusCode() == 429
+
+        when:
+        ExportJob other = manager.start(bc, resourceInfo, [:], StreamFormat.NDJSON, "mary", providers)
+
+        then:
+        other.getStatus().isActive()
+
+        cleanup:
+        release.countDown()
+    }
+
+    def "A job should not be resumed from another resource"() {
+        given:
+        ExportManager manager = createManager(1)
+        bc.findChunk(2) >> { throw new IllegalStateException("database down") }
+        ExportJob job = manager.start(bc, resourceInfo, [:], StreamFormat.NDJSON, "john", providers)
+        conditions.eventually {
+            assert job.getStatus() == ExportStatus.FAILED
+        }
+
+        expect:
+        manager.resume(job.getId(), "john", ProductRestForTest.class, Mock(AbstractBusiness), providers) == null
+        job.getStatus() == ExportStatus.FAILED
+    }
+
+    def "The finished jobs should be discarded with their files after the retention"() {
+        given:
+        ExportManager manager = createManager(1, 0)
+        bc.findChunk(2) >> { args -> findChunk(args[0]) }
+        ExportJob job = manager.start(bc, resourceInfo, [:], StreamFormat.NDJSON, "john", providers)
+        conditions.eventually {
+            assert job.getStatus() == ExportStatus.COMPLETED
+        }
+        File file = manager.getFile(job)
+        sleep(5)
+
+        when:
+        ExportManager restarted = createManager(1, 0)
+
+        then:
+        restarted.get(job.getId(), "john", UserRestForTest.class) == null
+        !file.exists()
+        directory.toFile().list().length == 0
+    }
+
+    def "The jobs left running by a crash should be loaded as interrupted"() {
+        given:
+        ExportManager manager = createManager(1)
+        CountDownLatch running = new CountDownLatch(1)
+        CountDownLatch release = new CountDownLatch(1)
+        bc.findChunk(2) >> { args -> running.countDown(); release.await(5, TimeUnit.SECONDS); findChunk(args[0]) }
+
+        when:
+        ExportJob job = manager.start(bc, resourceInfo, [name: ["user*"]], StreamFormat.NDJSON, "john", providers)
+        running.await(5, TimeUnit.SECONDS)
+        ExportJob loaded = createManager(1).get(job.getId(), "john", UserRestForTest.class)
+
+        then:
+        loaded.getStatus() == ExportStatus.INTERRUPTED
+        loaded.getFormat() == StreamFormat.NDJSON
+
+        cleanup:
+        release.countDown()
+    }
+
+    def "An export with an invalid parameter should not be started"() {
+        given:
+        ExportManager manager = createManager(1)
+
+        when:
+        manager.start(bc, resourceInfo, [fields: ["age"]], StreamFormat.NDJSON, "john", providers)
+
+        then:
+        thrown(IllegalArgumentException)
+        0 * bc.findChunk(_)
+    }
+
+}
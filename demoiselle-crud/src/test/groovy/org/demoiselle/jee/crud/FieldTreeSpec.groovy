@@ -0,0 +1,66 @@
+/*
+  * Demoiselle Framework
+  *
+  * License: GNU Lesser General Public License (LGPL), version 3 or later.
+  * See the lgpl.txt file in the root directory or <https://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.demoiselle.jee.crud
+
+import spock.lang.*
+
+/**
+ * Test of {@link FieldTree} class.
+ *
+ * @author SERPRO
+ */
+class FieldTreeSpec extends Specification {
+
+    def "Trees with the same structure should be equal"() {
+        when:
+        FieldTree first = FieldTree.of("User", ["id", "name", "address(street,country(name))"])
+        FieldTree second = FieldTree.of(new String("User"), [new String("id"), "name", "address(street,country(name))"])
+        FieldTree third = FieldTree.of("User", ["id", "address(street,country(name))"])
+
+        then:
+        first == second
+        first.hashCode() == second.hashCode()
+        first.getChildren()[0].getKey().is(second.getChildren()[0].getKey())
+        first != third
+    }
+
+    def "Children should be found by key at any depth"() {
+        when:
+        FieldTree tree = FieldTree.of("User", ["id", "name", "address(street,country(name))"])
+
+        then:
+        tree.containsKey("address")
+        !tree.containsKey("mail")
+        tree.getLeafKeys() == ["id", "name"] as Set
+        tree.getChild("address").getChild("country").getChild("name").isLeaf()
+        tree.getChild("address").getLeafKeys() == ["street"] as Set
+    }
+
+    def "The tree should be converted from and to TreeNodeField"() {
+        given:
+        TreeNodeField<String, Set<String>> tnf = new TreeNodeField<>("User", null)
+        tnf.addChild("name", ["John", "Mary"] as Set)
+        tnf.addChild("address", null).addChild("street", ["Main"] as Set)
+
+        when:
+        FieldTree tree = FieldTree.of(tnf)
+        TreeNodeField<String, Set<String>> copy = tree.toTreeNodeField()
+
+        then:
+        tree.getChild("name").getValues() == ["John", "Mary"] as Set
+        copy.getChildByKey("address").getChildByKey("street").getValue() == ["Main"] as Set
+        copy.getChildByKey("address").getParent().is(copy)
+        FieldTree.of(copy) == tree
+
+        when:
+        tree.getChild("name").getValues().add("Paul")
+
+        then:
+        thrown(UnsupportedOperationException)
+    }
+
+}
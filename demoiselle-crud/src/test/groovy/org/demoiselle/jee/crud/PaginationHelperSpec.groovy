@@ -17,11 +17,17 @@ import javax.ws.rs.core.MultivaluedMap
 import javax.ws.rs.core.UriInfo
 
 import org.demoiselle.jee.core.api.crud.Result
+import org.demoiselle.jee.crud.entity.AddressModelForTest
 import org.demoiselle.jee.crud.entity.UserModelForTest
+import org.demoiselle.jee.crud.metadata.EntityMetadataRegistry
+import org.demoiselle.jee.crud.pagination.CountStrategy
+import org.demoiselle.jee.crud.pagination.KeysetCursor
 import org.demoiselle.jee.crud.pagination.PaginationHelperConfig
 import org.demoiselle.jee.crud.pagination.PaginationHelperMessage
 import org.demoiselle.jee.crud.pagination.PaginationHelper
 import org.demoiselle.jee.crud.pagination.ResultSet
+import org.demoiselle.jee.crud.sort.CrudSort
+import org.demoiselle.jee.crud.sort.SortModel
 
 import spock.lang.*
 
@@ -373,6 +379,148 @@ class PaginationHelperSpec extends Specification {
         
     }
 
+    def "A method with keyset pagination should not accept the 'range' parameter"(){
+        given:
+        configureRequestForKeyset("http://localhost:9090/api/users?range=0-9")
+        dpc.getIsGlobalEnabled() >> true
+        mvmRequest.putSingle("range", "0-9")
+        uriInfo.getQueryParameters() >> mvmRequest
+
+        when:
+        paginationHelper.execute(resourceInfo, uriInfo)
+
+        then:
+        thrown(IllegalArgumentException)
+    }
+
+    def "A method without keyset pagination should not accept the 'cursor' parameter"(){
+        given:
+        configureRequestForCrud()
+        dpc.getDefaultPagination() >> 20
+        dpc.getIsGlobalEnabled() >> true
+        mvmRequest.putSingle("cursor", "abc")
+        uriInfo.getQueryParameters() >> mvmRequest
+
+        when:
+        paginationHelper.execute(resourceInfo, uriInfo)
+
+        then:
+        thrown(IllegalArgumentException)
+    }
+
+    def "A request with keyset pagination should build a 'Link' header with the next cursor"(){
+        given:
+        List sorts = [new SortModel(CrudSort.ASC, "name")]
+        String cursor = KeysetCursor.of(sorts, ["John"]).encode()
+        String url = "http://localhost:9090/api/users?sort=name&cursor=${cursor}"
+        configureRequestForKeyset(url)
+        dpc.getIsGlobalEnabled() >> true
+        mvmRequest.putSingle("sort", "name")
+        mvmRequest.putSingle("cursor", cursor)
+        uriInfo.getQueryParameters() >> mvmRequest
+        drc.getSorts().addAll(sorts)
+
+        when:
+        paginationHelper.execute(resourceInfo, uriInfo)
+        paginationHelper.executeCursor()
+        drc.nextCursor = KeysetCursor.of(sorts, ["Mary"])
+        Map headers = paginationHelper.buildHeaders(resourceInfo, uriInfo)
+
+        then:
+        drc.offset == 0
+        drc.limit == 9
+        drc.cursor.getValues(EntityMetadataRegistry.get(UserModelForTest.class), sorts) == ["John"]
+        headers.get(HttpHeaders.LINK) == "<http://localhost:9090/api/users?sort=name>; rel=\"first\",<http://localhost:9090/api/users?sort=name&cursor=${drc.nextCursor.encode()}>; rel=\"next\""
+        !headers.containsKey(ReservedHTTPHeaders.HTTP_HEADER_CONTENT_RANGE.getKey())
+        paginationHelper.isPartialContentResponse()
+    }
+
+    def "A cursor of a row with a null sort value should keep the null value"() {
+        given:
+        List sorts = KeysetCursor.keysetSorts(EntityMetadataRegistry.get(AddressModelForTest.class), [new SortModel(CrudSort.ASC, "street")])
+
+        expect:
+        KeysetCursor.decode(KeysetCursor.of(sorts, [null, 5L]).encode()).getValues(EntityMetadataRegistry.get(AddressModelForTest.class), sorts) == [null, 5L]
+
+        when:
+        KeysetCursor.decode(KeysetCursor.of(sorts, ["street", null]).encode()).getValues(EntityMetadataRegistry.get(AddressModelForTest.class), sorts)
+
+        then:
+        thrown(IllegalArgumentException)
+    }
+
+    @Unroll
+    def "A request with invalid 'cursor' (#description) should throw IllegalArgumentException"(description, cursor){
+        given:
+        configureRequestForKeyset("http://localhost:9090/api/users?sort=name&cursor=${cursor}")
+        dpc.getIsGlobalEnabled() >> true
+        mvmRequest.putSingle("sort", "name")
+        mvmRequest.putSingle("cursor", cursor)
+        uriInfo.getQueryParameters() >> mvmRequest
+        drc.getSorts().add(new SortModel(CrudSort.ASC, "name"))
+
+        when:
+        paginationHelper.execute(resourceInfo, uriInfo)
+        paginationHelper.executeCursor()
+
+        then:
+        thrown(IllegalArgumentException)
+
+        where:
+        description         | cursor
+        "not encoded"       | "not-a-cursor!"
+        "other sort"        | KeysetCursor.of([new SortModel(CrudSort.DESC, "name")], ["John"]).encode()
+        "invalid value"     | KeysetCursor.of([new SortModel(CrudSort.ASC, "age")], ["x"]).encode()
+    }
+
+    def "The count strategy should come from @Search or from the configuration"(){
+        given:
+        configureRequestForCrud()
+        dpc.getDefaultPagination() >> 20
+        dpc.getIsGlobalEnabled() >> true
+        dpc.getCountStrategy() >> CountStrategy.NONE
+        uriInfo.getQueryParameters() >> mvmRequest
+
+        when:
+        paginationHelper.execute(resourceInfo, uriInfo)
+
+        then:
+        drc.countStrategy == CountStrategy.NONE
+    }
+
+    @Unroll
+    def "A response with unknown total should use '*' on 'Content-Range' [offset: #offset, nextPage: #nextPage]"(offset, nextPage, partial, link){
+        given:
+        configureRequestForCrud()
+        dpc.getDefaultPagination() >> 10
+        dpc.getIsGlobalEnabled() >> true
+        mvmRequest.putSingle("range", "${offset}-${offset + 9}".toString())
+        uriInfo.getQueryParameters() >> mvmRequest
+
+        when:
+        paginationHelper.execute(resourceInfo, uriInfo)
+        drc.count = null
+        drc.nextPageAvailable = nextPage
+        Map headers = paginationHelper.buildHeaders(resourceInfo, uriInfo)
+
+        then:
+        headers.get(ReservedHTTPHeaders.HTTP_HEADER_CONTENT_RANGE.getKey()) == "${offset}-${offset + 9}/*".toString()
+        paginationHelper.isPartialContentResponse() == partial
+        headers.get(HttpHeaders.LINK) == link
+
+        where:
+        offset  | nextPage  | partial   | link
+        0       | true      | true      | "<http://localhost:9090/api/users?range=10-19>; rel=\"next\""
+        10      | true      | true      | "<http://localhost:9090/api/users?range=0-9>; rel=\"first\",<http://localhost:9090/api/users?range=0-9>; rel=\"prev\",<http://localhost:9090/api/users?range=20-29>; rel=\"next\""
+        10      | false     | true      | "<http://localhost:9090/api/users?range=0-9>; rel=\"first\",<http://localhost:9090/api/users?range=0-9>; rel=\"prev\","
+    }
+
+    private configureRequestForKeyset(String url){
+        resourceInfo.getResourceClass() >> UserRestForTest.class
+        resourceInfo.getResourceMethod() >> UserRestForTest.class.getDeclaredMethod("findWithKeysetPagination")
+        uriInfo.getRequestUri() >> new URI(url)
+    }
+
     private configureRequestForCrud(){
         resourceInfo.getResourceClass() >> UserRestForTest.class
         resourceInfo.getResourceClass().getSuperclass() >> AbstractREST.class
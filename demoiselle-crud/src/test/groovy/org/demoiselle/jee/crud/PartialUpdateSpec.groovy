@@ -0,0 +1,97 @@
+/*
+  * Demoiselle Framework
+  *
+  * License: GNU Lesser General Public License (LGPL), version 3 or later.
+  * See the lgpl.txt file in the root directory or <https://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.demoiselle.jee.crud
+
+import javax.persistence.Column
+import javax.persistence.EntityManager
+import javax.persistence.Id
+import javax.persistence.Query
+import javax.persistence.Version
+
+import org.demoiselle.jee.crud.entity.CountryModelForTest
+import org.demoiselle.jee.crud.entity.ProductModelForTest
+import org.demoiselle.jee.crud.entity.StatusForTest
+import org.demoiselle.jee.crud.query.PartialUpdate
+
+import spock.lang.*
+
+/**
+ * Test of {@link PartialUpdate} class.
+ * 
+ * @author SERPRO
+ */
+class PartialUpdateSpec extends Specification {
+
+    EntityManager entityManager = Mock()
+
+    Query query = Mock()
+
+    def "A partial update should update only the non-null updatable fields"() {
+        given:
+        CountryModelForTest country = new CountryModelForTest(id: 2)
+        ProductModelForTest product = new ProductModelForTest(description: "new", code: "ignored", country: country)
+
+        when:
+        Query result = PartialUpdate.of(ProductModelForTest.class).createQuery(entityManager, 1L, product)
+
+        then:
+        1 * entityManager.createQuery("UPDATE org.demoiselle.jee.crud.entity.ProductModelForTest SET description = ?1, country = ?2, updatedAt = ?3 WHERE id = ?4") >> query
+        1 * query.setParameter(1, "new")
+        1 * query.setParameter(2, country)
+        1 * query.setParameter(3, { it instanceof Date })
+        1 * query.setParameter(4, 1L)
+        result == query
+    }
+
+    def "The statement should be compiled once per combination of fields"() {
+        given:
+        PartialUpdate update = PartialUpdate.of(ProductModelForTest.class)
+        entityManager.createQuery(_) >> query
+
+        when:
+        update.createQuery(entityManager, 1L, new ProductModelForTest(status: StatusForTest.ACTIVE))
+        int size = update.size()
+        update.createQuery(entityManager, 2L, new ProductModelForTest(status: StatusForTest.INACTIVE))
+
+        then:
+        update.size() == size
+        update.getStatement(BitSet.valueOf([2L] as long[])).is(update.getStatement(BitSet.valueOf([2L] as long[])))
+    }
+
+    def "A partial update should increment the version and never take it from the entity"() {
+        when:
+        PartialUpdate.of(VersionedModelForTest.class).createQuery(entityManager, 1L, new VersionedModelForTest(name: "new", version: 7L))
+
+        then:
+        1 * entityManager.createQuery("UPDATE org.demoiselle.jee.crud.PartialUpdateSpec.VersionedModelForTest SET name = ?1, version = version + 1 WHERE id = ?2") >> query
+        1 * query.setParameter(1, "new")
+        1 * query.setParameter(2, 1L)
+        0 * query.setParameter(_, 7L)
+    }
+
+    def "A partial update without values should not create a query"() {
+        when:
+        Query result = PartialUpdate.of(ProductModelForTest.class).createQuery(entityManager, 1L, new ProductModelForTest(code: "ignored"))
+
+        then:
+        0 * entityManager.createQuery(_)
+        result == null
+    }
+
+    static class VersionedModelForTest {
+        @Id
+        Long id
+
+        @Column
+        String name
+
+        @Version
+        @Column
+        Long version
+    }
+
+}
@@ -0,0 +1,68 @@
+/*
+  * Demoiselle Framework
+  *
+  * License: GNU Lesser General Public License (LGPL), version 3 or later.
+  * See the lgpl.txt file in the root directory or <https://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.demoiselle.jee.crud
+
+import java.nio.charset.StandardCharsets
+
+import javax.ws.rs.core.MediaType
+
+import org.demoiselle.jee.crud.entity.AddressModelForTest
+import org.demoiselle.jee.crud.entity.UserModelForTest
+import org.demoiselle.jee.crud.stream.ProjectedContent
+import org.demoiselle.jee.crud.stream.ProjectedJsonWriter
+
+import spock.lang.*
+
+/**
+ * Test of {@link ProjectedJsonWriter} class.
+ *
+ * @author SERPRO
+ */
+class ProjectedJsonWriterSpec extends Specification {
+
+    ProjectedJsonWriter writer = new ProjectedJsonWriter(null)
+
+    def "The projected rows should be written directly as a JSON array"() {
+        given:
+        AddressModelForTest address = new AddressModelForTest()
+        address.setStreet("Main \"A\"")
+        UserModelForTest user = new UserModelForTest()
+        user.setId(1L)
+        user.setName("John\nDoe")
+        user.setAddress(address)
+
+        UserModelForTest withoutAddress = new UserModelForTest()
+        withoutAddress.setId(2L)
+
+        ProjectedContent content = new ProjectedContent([user, withoutAddress], FieldTree.of("User", ["name", "address(street)", "id"]), UserModelForTest.class)
+        ByteArrayOutputStream output = new ByteArrayOutputStream()
+
+        when:
+        writer.writeTo(content, ProjectedContent.class, ProjectedContent.class, null, MediaType.APPLICATION_JSON_TYPE, null, output)
+
+        then:
+        new String(output.toByteArray(), StandardCharsets.UTF_8) ==
+            '[{"id":1,"name":"John\\nDoe","address":{"street":"Main \\"A\\""}},{"id":2,"name":null,"address":{}}]'
+    }
+
+    def "The content should still be read as a list of maps"() {
+        given:
+        UserModelForTest user = new UserModelForTest()
+        user.setId(1L)
+        user.setName("John")
+
+        when:
+        ProjectedContent content = new ProjectedContent([user], FieldTree.of("User", ["name", "id"]), UserModelForTest.class)
+
+        then:
+        content == [[id: 1L, name: "John"]]
+        content.getRows() == [user]
+        writer.isWriteable(ProjectedContent.class, ProjectedContent.class, null, MediaType.APPLICATION_JSON_TYPE)
+        !writer.isWriteable(List.class, List.class, null, MediaType.APPLICATION_JSON_TYPE)
+    }
+
+}
@@ -0,0 +1,86 @@
+/*
+  * Demoiselle Framework
+  *
+  * License: GNU Lesser General Public License (LGPL), version 3 or later.
+  * See the lgpl.txt file in the root directory or <https://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.demoiselle.jee.crud
+
+import javax.persistence.Tuple
+import javax.persistence.metamodel.Attribute
+import javax.persistence.metamodel.ManagedType
+import javax.persistence.metamodel.Metamodel
+import javax.persistence.metamodel.Attribute.PersistentAttributeType
+
+import org.demoiselle.jee.crud.entity.AddressModelForTest
+import org.demoiselle.jee.crud.entity.UserModelForTest
+import org.demoiselle.jee.crud.query.Projection
+
+import spock.lang.*
+
+/**
+ * Test of {@link Projection} class.
+ * 
+ * @author SERPRO
+ */
+class ProjectionSpec extends Specification {
+
+    Metamodel metamodel = Mock()
+    ManagedType userType = Mock()
+    ManagedType addressType = Mock()
+
+    def setup() {
+        metamodel.managedType(UserModelForTest.class) >> userType
+        metamodel.managedType(AddressModelForTest.class) >> addressType
+        userType.getAttribute("name") >> attribute(PersistentAttributeType.BASIC, String.class)
+        userType.getAttribute("address") >> attribute(PersistentAttributeType.MANY_TO_ONE, AddressModelForTest.class)
+        userType.getAttribute("phones") >> attribute(PersistentAttributeType.ONE_TO_MANY, List.class, true)
+        userType.getAttribute("invalid") >> { throw new IllegalArgumentException() }
+        addressType.getAttribute("street") >> attribute(PersistentAttributeType.BASIC, String.class)
+    }
+
+    def attribute(PersistentAttributeType type, Class javaType, boolean collection = false) {
+        Attribute attribute = Mock()
+        attribute.getPersistentAttributeType() >> type
+        attribute.getJavaType() >> javaType
+        attribute.isCollection() >> collection
+        attribute
+    }
+
+    def fields(String... fields) {
+        TreeNodeField tnf = new TreeNodeField(UserModelForTest.class.getName(), null)
+        fields.each { CrudUtilHelper.fillLeafTreeNodeField(tnf, it, null) }
+        tnf
+    }
+
+    def tuple(List values) {
+        Tuple tuple = Mock()
+        tuple.get(_ as Integer) >> { Integer index -> values[index] }
+        tuple
+    }
+
+    def "The rows should have the same shape built by CrudFilter"() {
+        when:
+        Projection projection = Projection.of(metamodel, UserModelForTest.class, fields("name", "address(street)"))
+
+        then:
+        projection.getSignature() == "name,address(street )"
+        projection.buildSelectClause("e") == "e.name, e_address.id, e_address.street"
+        projection.buildJoinClause("e") == " LEFT JOIN e.address e_address"
+        projection.toMap(tuple(["John", 1L, "my street"])) == ['name': 'John', 'address': ['street': 'my street']]
+        projection.toMap(tuple(["John", null, null])) == ['name': 'John', 'address': [:]]
+    }
+
+    @Unroll
+    def "Fields that can't be selected (#description) should not be projected"(description, requested) {
+        expect:
+        Projection.of(metamodel, UserModelForTest.class, fields(requested)) == null
+
+        where:
+        description         | requested
+        "collection"        | "phones"
+        "unknown field"     | "invalid"
+        "sub field of basic"| "name(value)"
+    }
+
+}
@@ -0,0 +1,82 @@
+/*
+  * Demoiselle Framework
+  *
+  * License: GNU Lesser General Public License (LGPL), version 3 or later.
+  * See the lgpl.txt file in the root directory or <https://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.demoiselle.jee.crud
+
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+import org.demoiselle.jee.crud.coalesce.QueryCoalescer
+
+import spock.lang.*
+
+/**
+ * Test of {@link QueryCoalescer} class.
+ *
+ * @author SERPRO
+ */
+class QueryCoalescerSpec extends Specification {
+
+    QueryCoalescer queryCoalescer = new QueryCoalescer()
+
+    def "Identical concurrent requests should share a single execution"() {
+        given:
+        def executor = Executors.newFixedThreadPool(5)
+        CountDownLatch started = new CountDownLatch(1)
+        CountDownLatch release = new CountDownLatch(1)
+        AtomicInteger executions = new AtomicInteger()
+        def loader = {
+            executions.incrementAndGet()
+            started.countDown()
+            release.await(5, TimeUnit.SECONDS)
+            return ["row"]
+        }
+
+        when:
+        def leader = executor.submit({ queryCoalescer.execute("key", loader) } as java.util.concurrent.Callable)
+        started.await(5, TimeUnit.SECONDS)
+        def followers = (1..4).collect { executor.submit({ queryCoalescer.execute("key", loader) } as java.util.concurrent.Callable) }
+        while (queryCoalescer.getCoalesced() < 4) {
+            Thread.sleep(5)
+        }
+        release.countDown()
+        def results = [leader.get(5, TimeUnit.SECONDS)] + followers*.get(5, TimeUnit.SECONDS)
+
+        then:
+        executions.get() == 1
+        results.every { it.is(results[0]) }
+        queryCoalescer.getExecutions() == 1
+        queryCoalescer.size() == 0
+
+        cleanup:
+        executor.shutdownNow()
+    }
+
+    def "The key should be removed when the query completes"() {
+        when:
+        def first = queryCoalescer.execute("key", { "first" })
+        def second = queryCoalescer.execute("key", { "second" })
+
+        then:
+        first == "first"
+        second == "second"
+        queryCoalescer.getExecutions() == 2
+        queryCoalescer.getCoalesced() == 0
+        queryCoalescer.size() == 0
+    }
+
+    def "The failure of the query should be thrown and the key removed"() {
+        when:
+        queryCoalescer.execute("key", { throw new IllegalStateException("failed") })
+
+        then:
+        thrown(IllegalStateException)
+        queryCoalescer.size() == 0
+    }
+
+}
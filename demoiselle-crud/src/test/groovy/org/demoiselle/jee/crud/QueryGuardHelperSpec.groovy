@@ -0,0 +1,135 @@
+/*
+  * Demoiselle Framework
+  *
+  * License: GNU Lesser General Public License (LGPL), version 3 or later.
+  * See the lgpl.txt file in the root directory or <https://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.demoiselle.jee.crud
+
+import javax.ws.rs.container.ResourceInfo
+import javax.ws.rs.core.UriInfo
+
+import org.demoiselle.jee.crud.entity.ProductModelForTest
+import org.demoiselle.jee.crud.guard.QueryGuardHelper
+import org.demoiselle.jee.crud.guard.QueryGuardHelperMessage
+import org.demoiselle.jee.crud.guard.QueryGuardMetrics
+import org.demoiselle.jee.crud.guard.QueryGuardViolation
+import org.demoiselle.jee.crud.metadata.EntityMetadataRegistry
+import org.demoiselle.jee.crud.sort.CrudSort
+import org.demoiselle.jee.crud.sort.SortModel
+
+import spock.lang.*
+
+/**
+ * Test of {@link QueryGuardHelper} class.
+ *
+ * @author SERPRO
+ */
+class QueryGuardHelperSpec extends Specification {
+
+    ResourceInfo resourceInfo = Mock()
+    UriInfo uriInfo = Mock()
+    DemoiselleRequestContext drc = new DemoiselleRequestContextImpl()
+    DemoiselleCrudConfig crudConfig = Mock()
+    QueryGuardHelperMessage queryGuardHelperMessage = Mock()
+    QueryGuardMetrics queryGuardMetrics = new QueryGuardMetrics()
+
+    QueryGuardHelper queryGuardHelper = new QueryGuardHelper(resourceInfo, uriInfo, drc, crudConfig, queryGuardHelperMessage, queryGuardMetrics)
+
+    def setup() {
+        resourceInfo.getResourceClass() >> ProductRestForTest.class
+        drc.setPaginationEnabled(Boolean.FALSE)
+    }
+
+    private void useMethod(String name) {
+        resourceInfo.getResourceMethod() >> ProductRestForTest.class.getDeclaredMethod(name)
+    }
+
+    private void filterBy(String field, String value) {
+        TreeNodeField<String, Set<String>> filters = new TreeNodeField<>(ProductModelForTest.class.getName(), Collections.emptySet())
+        CrudUtilHelper.fillLeafTreeNodeField(filters, field, [value] as Set)
+        drc.setFilters(filters)
+    }
+
+    def "The fields of the indexes declared on the mapping should be detected"() {
+        expect:
+        EntityMetadataRegistry.get(ProductModelForTest.class).getIndexedAttributes() == ["id", "description", "code"] as Set
+    }
+
+    def "The timeout and the max rows of @Search should be filled on the context"() {
+        given:
+        useMethod("findGuarded")
+        filterBy("code", "A1")
+        drc.setSorts([new SortModel(CrudSort.ASC, "id")])
+
+        when:
+        queryGuardHelper.execute(resourceInfo, uriInfo)
+
+        then:
+        drc.getQueryTimeout() == 2000
+        drc.getMaxRows() == 100
+        queryGuardMetrics.getCounts().isEmpty()
+    }
+
+    def "The global timeout and max rows should be used by methods without guardrails on @Search"() {
+        given:
+        useMethod("find")
+        filterBy("notes", "a")
+        crudConfig.getQueryTimeout() >> 500
+        crudConfig.getMaxRows() >> 0
+
+        when:
+        queryGuardHelper.execute(resourceInfo, uriInfo)
+
+        then:
+        drc.getQueryTimeout() == 500
+        drc.getMaxRows() == null
+    }
+
+    def "A filter on a field out of @Search(indexed) should be rejected and counted"() {
+        given:
+        useMethod("findGuarded")
+        filterBy("description", "*a*")
+
+        when:
+        queryGuardHelper.execute(resourceInfo, uriInfo)
+
+        then:
+        1 * queryGuardHelperMessage.filterFieldNotIndexed("description", "[id, code]") >> "not indexed"
+        thrown(IllegalArgumentException)
+        queryGuardMetrics.getCount(QueryGuardViolation.UNINDEXED_FILTER) == 1
+        queryGuardMetrics.getCounts() == ["UNINDEXED_FILTER:ProductRestForTest.findGuarded": 1L]
+    }
+
+    def "A sort by a field not indexed on the mapping should be rejected when only indexed fields are accepted"() {
+        given:
+        useMethod("find")
+        crudConfig.getIndexedFiltersOnly() >> Boolean.TRUE
+        drc.setSorts([new SortModel(CrudSort.ASC, "code"), new SortModel(CrudSort.DESC, "status")])
+
+        when:
+        queryGuardHelper.execute(resourceInfo, uriInfo)
+
+        then:
+        1 * queryGuardHelperMessage.sortFieldNotIndexed("status", _) >> "not indexed"
+        thrown(IllegalArgumentException)
+        queryGuardMetrics.getCount(QueryGuardViolation.UNINDEXED_SORT) == 1
+    }
+
+    def "A range that reads more rows than the max should be rejected"() {
+        given:
+        useMethod("findGuarded")
+        drc.setPaginationEnabled(Boolean.TRUE)
+        drc.setOffset(0)
+        drc.setLimit(100)
+
+        when:
+        queryGuardHelper.execute(resourceInfo, uriInfo)
+
+        then:
+        1 * queryGuardHelperMessage.maxRowsExceeded("101", "100") >> "max rows"
+        thrown(IllegalArgumentException)
+        queryGuardMetrics.getCount(QueryGuardViolation.MAX_ROWS) == 1
+    }
+
+}
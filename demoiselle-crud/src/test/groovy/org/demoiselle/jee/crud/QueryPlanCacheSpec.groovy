@@ -0,0 +1,180 @@
+/*
+  * Demoiselle Framework
+  *
+  * License: GNU Lesser General Public License (LGPL), version 3 or later.
+  * See the lgpl.txt file in the root directory or <https://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.demoiselle.jee.crud
+
+import javax.persistence.EntityManager
+import javax.persistence.TypedQuery
+
+import org.demoiselle.jee.crud.entity.ProductModelForTest
+import org.demoiselle.jee.crud.filter.FilterOperator
+import org.demoiselle.jee.crud.metadata.EntityMetadataRegistry
+import org.demoiselle.jee.crud.query.QueryPlan
+import org.demoiselle.jee.crud.query.QueryPlanBuilder
+import org.demoiselle.jee.crud.query.QueryPlanCache
+import org.demoiselle.jee.crud.query.QueryShape
+import org.demoiselle.jee.crud.sort.CrudSort
+import org.demoiselle.jee.crud.sort.SortModel
+
+import spock.lang.*
+
+/**
+ * Test of {@link QueryPlanCache}, {@link QueryPlanBuilder} and {@link QueryShape} classes.
+ * 
+ * @author SERPRO
+ */
+class QueryPlanCacheSpec extends Specification {
+
+    Object unit = new Object()
+
+    QueryPlanBuilder planBuilder = new QueryPlanBuilder("Product", EntityMetadataRegistry.get(ProductModelForTest.class))
+
+    def newPlan() {
+        new QueryPlan(Object.class, "SELECT e FROM Product e", "SELECT COUNT(e) FROM Product e", 0)
+    }
+
+    def "Requests that differ only by values should have the same shape"() {
+        when:
+        QueryShape first = new QueryShape.Builder("dao").group(null).term("name", FilterOperator.EQUAL, "John").sort("id", CrudSort.ASC).build()
+        QueryShape second = new QueryShape.Builder("dao").group(null).term("name", FilterOperator.EQUAL, "Mary").sort("id", CrudSort.ASC).build()
+        QueryShape third = new QueryShape.Builder("dao").group(null).term("name", FilterOperator.LIKE, "%mary").sort("id", CrudSort.ASC).build()
+
+        then:
+        first.getKey() == second.getKey()
+        first.getKey() != third.getKey()
+        first.getValues() == ["John"]
+        second.getValues() == ["Mary"]
+    }
+
+    def "Operators without value should not add values to the shape"() {
+        when:
+        QueryShape shape = new QueryShape.Builder("dao").group(null).term("name", FilterOperator.NULL, "null").term("active", FilterOperator.TRUE, "true").build()
+
+        then:
+        shape.getValues().isEmpty()
+        shape.getGroups().size() == 1
+        shape.getGroups()[0].getTerms()*.getValue() == [null, null]
+    }
+
+    def "The null values of a compound term should change the key and not be bound"() {
+        when:
+        QueryShape withIds = new QueryShape.Builder("dao").group(null).compoundTerm("name", FilterOperator.INDEXED, [1L, 2L], "%john%", null).build()
+        QueryShape withoutIds = new QueryShape.Builder("dao").group(null).compoundTerm("name", FilterOperator.INDEXED, null, "%john%", new Date(0)).build()
+
+        then:
+        withIds.getKey() != withoutIds.getKey()
+        withIds.getValues() == [[1L, 2L], "%john%"]
+        withoutIds.getValues() == ["%john%", new Date(0)]
+        withIds.getGroups()[0].getTerms()[0].getValues() == [[1L, 2L], "%john%", null]
+    }
+
+    def "The cache should count hits and misses"() {
+        given:
+        QueryPlanCache cache = new QueryPlanCache(10)
+        QueryPlan plan = newPlan()
+
+        when:
+        QueryPlan first = cache.get(unit, "key", { plan })
+        QueryPlan second = cache.get(unit, "key", { newPlan() })
+
+        then:
+        first.is(plan)
+        second.is(plan)
+        cache.getMisses() == 1
+        cache.getHits() == 1
+        cache.size() == 1
+    }
+
+    def "The least recently used plan should be discarded when the cache is full"() {
+        given:
+        QueryPlanCache cache = new QueryPlanCache(2)
+
+        when:
+        cache.get(unit, "a", { newPlan() })
+        cache.get(unit, "b", { newPlan() })
+        cache.get(unit, "a", { newPlan() })
+        cache.get(unit, "c", { newPlan() })
+        cache.get(unit, "a", { newPlan() })
+        cache.get(unit, "b", { newPlan() })
+
+        then:
+        cache.size() == 2
+        cache.getHits() == 2
+        cache.getMisses() == 4
+    }
+
+    def "The plans of different persistence units should be kept apart"() {
+        given:
+        QueryPlanCache cache = new QueryPlanCache(10)
+        QueryPlan plan = newPlan()
+        QueryPlan other = newPlan()
+
+        when:
+        QueryPlan first = cache.get(unit, "key", { plan })
+        QueryPlan second = cache.get(new Object(), "key", { other })
+
+        then:
+        first.is(plan)
+        second.is(other)
+        cache.size() == 2
+        cache.getMisses() == 2
+    }
+
+    def "The plan should render the filters as JPQL with named parameters"() {
+        given:
+        QueryShape shape = new QueryShape.Builder("dao")
+                .group(null).term("code", FilterOperator.EQUAL, "A1").term("code", FilterOperator.NULL, null)
+                .group("country").term("name", FilterOperator.LIKE, "%bra%")
+                .group(null).compoundTerm("description", FilterOperator.INDEXED, [1L, 2L], "%john%", new Date(0))
+                .sort("code", CrudSort.DESC).build()
+
+        when:
+        QueryPlan plan = planBuilder.build(ProductModelForTest.class, shape, [new SortModel(CrudSort.DESC, "code")])
+
+        then:
+        String where = " WHERE (e.code = :p0 OR e.code IS NULL) AND (LOWER(j1.name) LIKE :p1)" + 
+                " AND (((e.id IN :p2 OR e.updatedAt >= :p4) AND LOWER(e.description) LIKE :p3))"
+        plan.getDataQuery() == "SELECT e FROM Product e JOIN e.country j1" + where + " ORDER BY e.code DESC"
+        plan.getCountQuery() == "SELECT COUNT(e) FROM Product e JOIN e.country j1" + where
+        plan.getParameterCount() == shape.getValues().size()
+    }
+
+    def "The keyset plan should seek after the cursor placing the null values"() {
+        given:
+        List<SortModel> sorts = [new SortModel(CrudSort.ASC, "code"), new SortModel(CrudSort.ASC, "id")]
+        QueryShape shape = new QueryShape.Builder("dao").sort("code", CrudSort.ASC).sort("id", CrudSort.ASC).keyset(sorts, [cursorCode, 10L]).build()
+
+        when:
+        QueryPlan plan = planBuilder.build(ProductModelForTest.class, shape, [])
+
+        then:
+        plan.getDataQuery() == "SELECT e FROM Product e WHERE " + seek + 
+                " ORDER BY CASE WHEN e.code IS NULL THEN 1 ELSE 0 END ASC, e.code ASC, e.id ASC"
+        plan.getCountQuery() == null
+        plan.getParameterCount() == shape.getValues().size()
+
+        where:
+        cursorCode | seek
+        "A1"       | "(((e.code > :p0 OR e.code IS NULL)) OR (e.code = :p0 AND e.id > :p1))"
+        null       | "((e.code IS NULL AND e.id > :p0))"
+    }
+
+    def "The values should be bound by name on the query of the executing entity manager"() {
+        given:
+        EntityManager entityManager = Mock()
+        TypedQuery query = Mock()
+        QueryShape shape = new QueryShape.Builder("dao").group(null).term("code", FilterOperator.EQUAL, "A1").build()
+        QueryPlan plan = planBuilder.build(ProductModelForTest.class, shape, [])
+
+        when:
+        plan.createDataQuery(entityManager, shape.getValues())
+
+        then:
+        1 * entityManager.createQuery("SELECT e FROM Product e WHERE (e.code = :p0)", ProductModelForTest.class) >> query
+        1 * query.setParameter("p0", "A1")
+    }
+
+}
@@ -0,0 +1,107 @@
+/*
+  * Demoiselle Framework
+  *
+  * License: GNU Lesser General Public License (LGPL), version 3 or later.
+  * See the lgpl.txt file in the root directory or <https://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.demoiselle.jee.crud
+
+import javax.ws.rs.container.ResourceInfo
+import javax.ws.rs.core.MultivaluedHashMap
+import javax.ws.rs.core.MultivaluedMap
+import javax.ws.rs.core.UriInfo
+
+import org.demoiselle.jee.crud.request.RequestSpec
+import org.demoiselle.jee.crud.request.RequestSpecCache
+
+import spock.lang.*
+
+/**
+ * Test of {@link RequestSpec} and {@link RequestSpecCache} classes.
+ *
+ * @author SERPRO
+ */
+class RequestSpecSpec extends Specification {
+
+    def "The query string should be read once to the spec"() {
+        given:
+        MultivaluedMap parameters = new MultivaluedHashMap()
+        parameters.putSingle("range", "0-9")
+        parameters.putSingle("sort", "name,id")
+        parameters.putSingle("desc", "")
+        parameters.putSingle("fields", "id,address(street,number)")
+        parameters.putSingle("cursor", "abc")
+        parameters.putSingle("name", "John,Mary")
+
+        when:
+        RequestSpec spec = RequestSpec.parse(parameters)
+
+        then:
+        spec.getParameterCount() == 6
+        spec.isRangePresent()
+        spec.getRange() == "0-9"
+        spec.getCursor() == "abc"
+        spec.getSorts() == ["name", "id"]
+        spec.getDescs() == []
+        spec.getFields() == ["id", "address(street,number)"]
+        spec.getMalformedFields() == null
+        spec.getFilters() == [name: ["John", "Mary"] as Set]
+    }
+
+    def "Absent and malformed parameters should be reported by the spec"() {
+        given:
+        MultivaluedMap parameters = new MultivaluedHashMap()
+        parameters.putSingle("fields", "id,address(street,number")
+
+        when:
+        RequestSpec spec = RequestSpec.parse(parameters)
+
+        then:
+        !spec.isRangePresent()
+        !spec.isCursorPresent()
+        spec.getSorts() == null
+        spec.getDescs() == null
+        spec.getFilters().isEmpty()
+        spec.getMalformedFields() == "id,address(street,number"
+
+        when:
+        spec.getFilters().put("name", ["John"] as Set)
+
+        then:
+        thrown(UnsupportedOperationException)
+    }
+
+    def "The cache should reuse the spec of the same query string and resource method"() {
+        given:
+        RequestSpecCache cache = new RequestSpecCache(1)
+        ResourceInfo resourceInfo = Mock(ResourceInfo)
+        UriInfo uriInfo = Mock(UriInfo)
+        MultivaluedMap parameters = new MultivaluedHashMap()
+        parameters.putSingle("name", "John")
+        String query = "name=John"
+
+        resourceInfo.getResourceClass() >> UserRestForTest.class
+        resourceInfo.getResourceMethod() >> UserRestForTest.class.getDeclaredMethod("find")
+        uriInfo.getQueryParameters() >> parameters
+        uriInfo.getRequestUri() >> { new URI("http://localhost:9090/api/users?" + query) }
+
+        when:
+        RequestSpec first = cache.get(resourceInfo, uriInfo)
+        RequestSpec second = cache.get(resourceInfo, uriInfo)
+
+        then:
+        first.is(second)
+        cache.getHits() == 1
+        cache.getMisses() == 1
+
+        when:
+        query = "name=Mary"
+        RequestSpec third = cache.get(resourceInfo, uriInfo)
+
+        then:
+        !third.is(first)
+        cache.getMisses() == 2
+        cache.size() == 1
+    }
+
+}
@@ -0,0 +1,55 @@
+/*
+  * Demoiselle Framework
+  *
+  * License: GNU Lesser General Public License (LGPL), version 3 or later.
+  * See the lgpl.txt file in the root directory or <https://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.demoiselle.jee.crud
+
+import org.demoiselle.jee.crud.entity.AddressModelForTest
+import org.demoiselle.jee.crud.entity.UserModelForTest
+
+import spock.lang.*
+
+/**
+ * Test of {@link ResponseProjection} class.
+ *
+ * @author SERPRO
+ */
+class ResponseProjectionSpec extends Specification {
+
+    def "The projection should be compiled once per class and fields"() {
+        when:
+        ResponseProjection first = ResponseProjection.of(UserModelForTest.class, UserModelForTest.class, FieldTree.of("User", ["name", "mail"]))
+        ResponseProjection second = ResponseProjection.of(UserModelForTest.class, UserModelForTest.class, FieldTree.of("User", ["name", "mail"]))
+        ResponseProjection third = ResponseProjection.of(UserModelForTest.class, UserModelForTest.class, FieldTree.of("User", ["name"]))
+
+        then:
+        first.is(second)
+        !first.is(third)
+    }
+
+    def "The fields should be selected with the same shape of the entity"() {
+        given:
+        AddressModelForTest address = new AddressModelForTest()
+        address.setStreet("Main")
+        UserModelForTest user = new UserModelForTest()
+        user.setId(1L)
+        user.setName("John")
+        user.setMail("john@test.com")
+        user.setAddress(address)
+
+        UserModelForTest withoutAddress = new UserModelForTest()
+        withoutAddress.setName("Mary")
+
+        when:
+        ResponseProjection projection = ResponseProjection.of(UserModelForTest.class, UserModelForTest.class, FieldTree.of("User", ["mail", "address(street)", "id"]))
+        Map result = projection.apply(user)
+
+        then:
+        result == [id: 1L, mail: "john@test.com", address: [street: "Main"]]
+        result.keySet() as List == ["id", "mail", "address"]
+        projection.apply(withoutAddress) == [id: null, mail: null, address: [:]]
+    }
+
+}
@@ -0,0 +1,61 @@
+/*
+  * Demoiselle Framework
+  *
+  * License: GNU Lesser General Public License (LGPL), version 3 or later.
+  * See the lgpl.txt file in the root directory or <https://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.demoiselle.jee.crud
+
+import javax.ws.rs.ext.MessageBodyWriter
+import javax.ws.rs.ext.Providers
+
+import org.demoiselle.jee.crud.stream.ResultStreamingOutput
+import org.demoiselle.jee.crud.stream.StreamFormat
+import org.demoiselle.jee.crud.stream.StreamingResult
+
+import spock.lang.*
+
+/**
+ * Test of {@link ResultStreamingOutput} class.
+ * 
+ * @author SERPRO
+ */
+class ResultStreamingOutputSpec extends Specification {
+
+    Providers providers = Mock()
+
+    MessageBodyWriter writer = Mock()
+
+    def setup() {
+        providers.getMessageBodyWriter(_, _, _, _) >> writer
+        writer.writeTo(_, _, _, _, _, _, _) >> { args -> 
+            args[6].write("{\"name\":\"${args[0]}\"}".getBytes("UTF-8"))
+            args[6].close()
+        }
+    }
+
+    def "A NDJSON stream should write one row per line"() {
+        given:
+        ByteArrayOutputStream output = new ByteArrayOutputStream()
+        StreamingResult result = new StreamingResult(["John", "Mary"])
+
+        when:
+        new ResultStreamingOutput(result.getRows(), StreamFormat.NDJSON, providers, { it }).write(output)
+
+        then:
+        output.toString("UTF-8") == '{"name":"John"}\n{"name":"Mary"}\n'
+    }
+
+    def "A JSON array stream should write the converted rows as an array"() {
+        given:
+        ByteArrayOutputStream output = new ByteArrayOutputStream()
+
+        when:
+        new ResultStreamingOutput(["John", "Mary"], StreamFormat.JSON_ARRAY, providers, { it.toUpperCase() }).write(output)
+        new ResultStreamingOutput([], StreamFormat.JSON_ARRAY, providers, { it }).write(output)
+
+        then:
+        output.toString("UTF-8") == '[{"name":"JOHN"},{"name":"MARY"}][]'
+    }
+
+}
@@ -0,0 +1,69 @@
+/*
+  * Demoiselle Framework
+  *
+  * License: GNU Lesser General Public License (LGPL), version 3 or later.
+  * See the lgpl.txt file in the root directory or <https://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.demoiselle.jee.crud
+
+import org.demoiselle.jee.crud.entity.ProductModelForTest
+import org.demoiselle.jee.crud.index.SearchIndex
+import org.demoiselle.jee.crud.index.SearchIndexRegistry
+
+import spock.lang.*
+
+/**
+ * Test of {@link SearchIndex} class.
+ *
+ * @author SERPRO
+ */
+class SearchIndexSpec extends Specification {
+
+    SearchIndex index
+
+    def setup() {
+        SearchIndexRegistry.clear()
+        index = SearchIndexRegistry.get(ProductModelForTest.class)
+    }
+
+    def cleanup() {
+        SearchIndexRegistry.clear()
+    }
+
+    def "The writes made while the index is built should be replayed on the rows loaded"() {
+        when:
+        index.startBuild()
+        index.put(2L, ["description": "New notebook"])
+        index.put(1L, ["description": "Old tablet"])
+        index.remove(3L)
+        index.load([[1L, "Old notebook"] as Object[], [3L, "Bag for notebooks"] as Object[]])
+
+        then:
+        index.getIndex("description").search("*notebook*", 10) == [2L]
+        index.getIndex("description").search("*tablet*", 10) == [1L]
+    }
+
+    def "A partial write should change only the fields written"() {
+        given:
+        index.startBuild()
+        index.load([[1L, "Old notebook"] as Object[]])
+
+        when:
+        index.put(1L, [:])
+
+        then:
+        index.getIndex("description").search("*notebook*", 10) == [1L]
+    }
+
+    def "The rows loaded after a bulk write invalidated the index should be discarded"() {
+        when:
+        index.startBuild()
+        index.invalidate()
+        index.load([[1L, "Old notebook"] as Object[]])
+
+        then:
+        !index.isBuilt()
+        index.startBuild()
+    }
+
+}
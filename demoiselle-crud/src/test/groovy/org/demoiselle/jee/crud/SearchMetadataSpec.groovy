@@ -0,0 +1,89 @@
+/*
+  * Demoiselle Framework
+  *
+  * License: GNU Lesser General Public License (LGPL), version 3 or later.
+  * See the lgpl.txt file in the root directory or <https://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.demoiselle.jee.crud
+
+import javax.enterprise.inject.spi.AfterBeanDiscovery
+import javax.enterprise.inject.spi.AnnotatedType
+import javax.enterprise.inject.spi.ProcessAnnotatedType
+import javax.ws.rs.GET
+
+import org.demoiselle.jee.core.api.crud.Result
+import org.demoiselle.jee.crud.bootstrap.SearchBootstrap
+import org.demoiselle.jee.crud.entity.UserModelForTest
+import org.demoiselle.jee.crud.metadata.SearchMetadata
+import org.demoiselle.jee.crud.metadata.SearchMetadataRegistry
+
+import spock.lang.*
+
+/**
+ * Test of {@link SearchMetadataRegistry} and {@link SearchBootstrap} classes.
+ *
+ * @author SERPRO
+ */
+class SearchMetadataSpec extends Specification {
+
+    def "The metadata should be built once per resource class and method"() {
+        when:
+        SearchMetadata metadata = SearchMetadataRegistry.get(UserRestForTest.class, UserRestForTest.class.getDeclaredMethod("findWithSearchAndFieldsWithSubFields"))
+
+        then:
+        metadata.is(SearchMetadataRegistry.get(UserRestForTest.class, UserRestForTest.class.getDeclaredMethod("findWithSearchAndFieldsWithSubFields")))
+        metadata.hasSearch()
+        metadata.getTargetClass() == UserModelForTest.class
+        metadata.getFieldNames() == ["id", "name", "address(street)"]
+        metadata.getFields().getChildren()*.getKey() == ["id", "name", "address"]
+        metadata.getFields().getChildByKey("address").getChildren()*.getKey() == ["street"]
+        metadata.getQuantityPerPage() == 20
+    }
+
+    def "Methods without fields restriction should not have the fields tree"() {
+        when:
+        SearchMetadata all = SearchMetadataRegistry.get(UserRestForTest.class, UserRestForTest.class.getDeclaredMethod("findWithSearchAndAllFields"))
+        SearchMetadata none = SearchMetadataRegistry.get(UserRestForTest.class, UserRestForTest.class.getDeclaredMethod("find"))
+
+        then:
+        all.hasSearch()
+        all.getFields() == null
+        !none.hasSearch()
+        none.getFields() == null
+        none.getWithPagination() == null
+        none.getTargetClass() == UserModelForTest.class
+    }
+
+    def "The deployment should fail when a field of @Search doesn't exist"() {
+        given:
+        SearchBootstrap bootstrap = new SearchBootstrap()
+        AfterBeanDiscovery abd = Mock(AfterBeanDiscovery)
+
+        when:
+        bootstrap.processAnnotatedType(processAnnotatedType(UserRestForTest.class))
+        bootstrap.processAnnotatedType(processAnnotatedType(InvalidSearchRestForTest.class))
+        bootstrap.afterBeanDiscovery(abd)
+
+        then:
+        1 * abd.addDefinitionError({ it.getMessage().contains("'address(number)'") && it.getMessage().contains("findInvalid") })
+    }
+
+    def processAnnotatedType(Class<?> type) {
+        AnnotatedType annotatedType = Mock(AnnotatedType)
+        annotatedType.getJavaClass() >> type
+        ProcessAnnotatedType pat = Mock(ProcessAnnotatedType)
+        pat.getAnnotatedType() >> annotatedType
+        return pat
+    }
+
+}
+
+class InvalidSearchRestForTest extends AbstractREST<UserModelForTest, Long> {
+
+    @GET
+    @Search(fields = ["id", "address(number)"])
+    Result findInvalid() {
+        return null
+    }
+
+}
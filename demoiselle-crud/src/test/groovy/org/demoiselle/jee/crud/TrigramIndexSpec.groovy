@@ -0,0 +1,62 @@
+/*
+  * Demoiselle Framework
+  *
+  * License: GNU Lesser General Public License (LGPL), version 3 or later.
+  * See the lgpl.txt file in the root directory or <https://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.demoiselle.jee.crud
+
+import org.demoiselle.jee.crud.index.TrigramIndex
+
+import spock.lang.*
+
+/**
+ * Test of {@link TrigramIndex} class.
+ *
+ * @author SERPRO
+ */
+class TrigramIndexSpec extends Specification {
+
+    TrigramIndex index = new TrigramIndex()
+
+    def setup() {
+        index.put(1L, "John Smith")
+        index.put(2L, "Mary Johnson")
+        index.put(3L, "Peter Parker")
+    }
+
+    @Unroll
+    def "The filter '#filter' should match the ids #ids"() {
+        expect:
+        index.search(filter, 10) as Set == ids as Set
+
+        where:
+        filter       | ids
+        "*john*"     | [1L, 2L]
+        "john*"      | [1L]
+        "*son"       | [2L]
+        "*PARK*"     | [3L]
+        "*xyz*"      | []
+        "*smith j*"  | []
+    }
+
+    def "The filters that the index can't answer should return null"() {
+        expect:
+        index.search("*jo*", 10) == null
+        index.search("*jo_n*", 10) == null
+        index.search("*jo*n*", 10) == null
+        index.search("*john*", 1) == null
+    }
+
+    def "The values should be replaced and removed"() {
+        when:
+        index.put(1L, "Paul Smith")
+        index.remove(2L)
+
+        then:
+        index.search("*john*", 10) == []
+        index.search("*paul*", 10) == [1L]
+        index.size() == 2
+    }
+
+}
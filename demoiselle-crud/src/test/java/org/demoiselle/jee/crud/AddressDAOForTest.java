@@ -0,0 +1,30 @@
+/*
+ * Demoiselle Framework
+ *
+ * License: GNU Lesser General Public License (LGPL), version 3 or later.
+ * See the lgpl.txt file in the root directory or <https://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.demoiselle.jee.crud;
+
+import javax.persistence.EntityManager;
+
+import org.demoiselle.jee.crud.entity.AddressModelForTest;
+
+/**
+ * @author SERPRO
+ *
+ */
+public class AddressDAOForTest extends AbstractDAO<AddressModelForTest, Long> {
+
+    private final EntityManager entityManager;
+
+    public AddressDAOForTest(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    protected EntityManager getEntityManager() {
+        return entityManager;
+    }
+
+}
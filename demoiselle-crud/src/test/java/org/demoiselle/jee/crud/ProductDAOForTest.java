@@ -0,0 +1,31 @@
+/*
+ * Demoiselle Framework
+ *
+ * License: GNU Lesser General Public License (LGPL), version 3 or later.
+ * See the lgpl.txt file in the root directory or <https://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.demoiselle.jee.crud;
+
+import javax.persistence.EntityManager;
+
+import org.demoiselle.jee.crud.entity.ProductModelForTest;
+
+/**
+ * @author SERPRO
+ *
+ */
+@DirectDelete
+public class ProductDAOForTest extends AbstractDAO<ProductModelForTest, Long> {
+
+    private final EntityManager entityManager;
+
+    public ProductDAOForTest(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    protected EntityManager getEntityManager() {
+        return entityManager;
+    }
+
+}
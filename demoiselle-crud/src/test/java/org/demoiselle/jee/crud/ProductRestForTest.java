@@ -0,0 +1,33 @@
+/*
+ * Demoiselle Framework
+ *
+ * License: GNU Lesser General Public License (LGPL), version 3 or later.
+ * See the lgpl.txt file in the root directory or <https://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.demoiselle.jee.crud;
+
+import javax.ws.rs.GET;
+
+import org.demoiselle.jee.core.api.crud.Result;
+import org.demoiselle.jee.crud.entity.ProductModelForTest;
+
+/**
+ * 
+ * @author SERPRO
+ *
+ */
+public class ProductRestForTest extends AbstractREST<ProductModelForTest, Long> {
+
+    @Override
+    @GET
+    public Result find() {
+        return null;
+    }
+
+    @GET
+    @Search(fields = {"*"}, indexed = {"id", "code"}, queryTimeout = 2000, maxRows = 100)
+    public Result findGuarded() {
+        return null;
+    }
+
+}
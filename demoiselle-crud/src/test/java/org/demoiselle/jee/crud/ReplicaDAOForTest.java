@@ -0,0 +1,38 @@
+/*
+ * Demoiselle Framework
+ *
+ * License: GNU Lesser General Public License (LGPL), version 3 or later.
+ * See the lgpl.txt file in the root directory or <https://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.demoiselle.jee.crud;
+
+import javax.persistence.EntityManager;
+
+import org.demoiselle.jee.crud.entity.AddressModelForTest;
+
+/**
+ * @author SERPRO
+ *
+ */
+public class ReplicaDAOForTest extends AbstractDAO<AddressModelForTest, Long> {
+
+    private final EntityManager entityManager;
+
+    private final EntityManager readEntityManager;
+
+    public ReplicaDAOForTest(EntityManager entityManager, EntityManager readEntityManager) {
+        this.entityManager = entityManager;
+        this.readEntityManager = readEntityManager;
+    }
+
+    @Override
+    protected EntityManager getEntityManager() {
+        return entityManager;
+    }
+
+    @Override
+    protected EntityManager getReadEntityManager() {
+        return readEntityManager;
+    }
+
+}
@@ -0,0 +1,49 @@
+/*
+ * Demoiselle Framework
+ *
+ * License: GNU Lesser General Public License (LGPL), version 3 or later.
+ * See the lgpl.txt file in the root directory or <https://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.demoiselle.jee.crud;
+
+import javax.persistence.EntityManager;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.CriteriaUpdate;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+
+import org.demoiselle.jee.crud.entity.ProductModelForTest;
+
+/**
+ * DAO whose predicates create subqueries, also on the update by filter.
+ * 
+ * @author SERPRO
+ *
+ */
+public class UpdateSubqueryProductDAOForTest extends AbstractDAO<ProductModelForTest, Long> {
+
+    private final EntityManager entityManager;
+
+    public UpdateSubqueryProductDAOForTest(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    protected EntityManager getEntityManager() {
+        return entityManager;
+    }
+
+    @Override
+    protected Predicate[] buildPredicates(CriteriaBuilder criteriaBuilder, CriteriaQuery<?> criteriaQuery, Root<ProductModelForTest> root) {
+        criteriaQuery.subquery(Long.class);
+        return new Predicate[0];
+    }
+
+    @Override
+    protected Predicate[] buildUpdatePredicates(CriteriaBuilder criteriaBuilder, CriteriaUpdate<ProductModelForTest> criteriaUpdate, Root<ProductModelForTest> root) {
+        criteriaUpdate.subquery(Long.class);
+        return new Predicate[0];
+    }
+
+}
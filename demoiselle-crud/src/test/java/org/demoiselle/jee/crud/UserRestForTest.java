@@ -9,6 +9,7 @@ package org.demoiselle.jee.crud;
 import org.demoiselle.jee.core.api.crud.Result;
 import org.demoiselle.jee.crud.AbstractREST;
 import org.demoiselle.jee.crud.entity.UserModelForTest;
+import org.demoiselle.jee.crud.pagination.PaginationType;
 
 import javax.ws.rs.GET;
 
@@ -55,4 +56,10 @@ public class UserRestForTest extends AbstractREST<UserModelForTest, Long> {
         return null;
     }
     
+    @GET
+    @Search(fields={"*"}, quantityPerPage = 10, pagination = PaginationType.KEYSET)
+    public Result findWithKeysetPagination(){
+        return null;
+    }
+    
 }
@@ -6,12 +6,15 @@
  */
 package org.demoiselle.jee.crud.entity;
 
+import javax.persistence.Id;
+
 /**
  * @author SERPRO
  *
  */
 public class AddressModelForTest {
     
+    @Id
     private Long id;
     private String address;
     private String street;
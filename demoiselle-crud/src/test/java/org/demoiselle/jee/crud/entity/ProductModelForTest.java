@@ -0,0 +1,98 @@
+/*
+ * Demoiselle Framework
+ *
+ * License: GNU Lesser General Public License (LGPL), version 3 or later.
+ * See the lgpl.txt file in the root directory or <https://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.demoiselle.jee.crud.entity;
+
+import java.util.Date;
+import java.util.UUID;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Index;
+import javax.persistence.ManyToOne;
+import javax.persistence.Table;
+import javax.persistence.Temporal;
+import javax.persistence.TemporalType;
+
+import org.demoiselle.jee.crud.LastModified;
+import org.demoiselle.jee.crud.SearchIndexed;
+
+/**
+ * @author SERPRO
+ *
+ */
+@Entity
+@Table(indexes = @Index(name = "IDX_PRODUCT_CODE", columnList = "code, status"))
+public class ProductModelForTest extends BaseModelForTest {
+
+    @Column
+    @SearchIndexed
+    private String description;
+
+    @Column(updatable = false)
+    private String code;
+
+    @Column
+    private StatusForTest status;
+
+    private UUID externalId;
+
+    @ManyToOne
+    private CountryModelForTest country;
+
+    @LastModified
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date updatedAt;
+
+    public String getDescription() {
+        return description;
+    }
+
+    public void setDescription(String description) {
+        this.description = description;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    public void setCode(String code) {
+        this.code = code;
+    }
+
+    public StatusForTest getStatus() {
+        return status;
+    }
+
+    public void setStatus(StatusForTest status) {
+        this.status = status;
+    }
+
+    public UUID getExternalId() {
+        return externalId;
+    }
+
+    public void setExternalId(UUID externalId) {
+        this.externalId = externalId;
+    }
+
+    public CountryModelForTest getCountry() {
+        return country;
+    }
+
+    public void setCountry(CountryModelForTest country) {
+        this.country = country;
+    }
+
+    public Date getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(Date updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+}
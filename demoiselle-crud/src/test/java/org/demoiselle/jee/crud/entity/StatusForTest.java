@@ -0,0 +1,18 @@
+/*
+ * Demoiselle Framework
+ *
+ * License: GNU Lesser General Public License (LGPL), version 3 or later.
+ * See the lgpl.txt file in the root directory or <https://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.demoiselle.jee.crud.entity;
+
+/**
+ * @author SERPRO
+ *
+ */
+public enum StatusForTest {
+
+    ACTIVE,
+    INACTIVE
+
+}